@@ -0,0 +1,162 @@
+package prefuse.benchmark;
+
+import java.awt.geom.Point2D;
+import java.io.File;
+import java.util.Random;
+
+import prefuse.data.Graph;
+import prefuse.data.Table;
+import prefuse.data.Tree;
+import prefuse.data.io.DataIOException;
+import prefuse.data.io.DelimitedTextTableReader;
+import prefuse.data.io.GraphMLReader;
+import prefuse.data.io.TreeMLReader;
+import prefuse.util.ColorLib;
+import prefuse.util.GraphLib;
+import prefuse.visual.VisualItem;
+import prefuse.visual.VisualTable;
+
+/**
+ * Shared data sets for the benchmarks. All synthetic data is generated from
+ * fixed seeds, so that runs are reproducible. The sample files are read from
+ * the directory given by the <code>prefuse.data.dir</code> system property,
+ * which defaults to the <code>data</code> directory of the source tree.
+ */
+public class BenchmarkData {
+
+  /** Seed used for all generated data */
+  public static final long SEED = 42L;
+
+  /** Name of the numeric column of synthetic tables */
+  public static final String VALUE = "value";
+  /** Name of the low-cardinality integer column of synthetic tables */
+  public static final String CATEGORY = "category";
+  /** Name of the string column of synthetic tables */
+  public static final String LABEL = "label";
+
+  private BenchmarkData() {
+    // prevent instantiation
+  }
+
+  /**
+   * Get a file from the sample data directory.
+   *
+   * @param name
+   *          the file name
+   * @return the data File
+   */
+  public static File file(String name) {
+    return new File(System.getProperty("prefuse.data.dir", "../data"), name);
+  }
+
+  /**
+   * Create a table of uniformly distributed doubles in [0,1), integer categories
+   * in [0,10) and string labels.
+   *
+   * @param rows
+   *          the number of rows
+   * @return the synthetic Table
+   */
+  public static Table table(int rows) {
+    Table t = new Table(rows, 3);
+    t.addColumn(VALUE, double.class);
+    t.addColumn(CATEGORY, int.class);
+    t.addColumn(LABEL, String.class);
+    Random r = new Random(SEED);
+    for (int i = 0; i < rows; ++i) {
+      t.setDouble(i, VALUE, r.nextDouble());
+      t.setInt(i, CATEGORY, r.nextInt(10));
+      t.setString(i, LABEL, "item" + r.nextInt(rows));
+    }
+    return t;
+  }
+
+  /**
+   * Read the zip code sample table (about 42,000 rows).
+   *
+   * @return the zip code Table
+   */
+  public static Table zipcodes() throws DataIOException {
+    return new DelimitedTextTableReader().readTable(file("zipcode.txt"));
+  }
+
+  /**
+   * Get a named graph. Supported names are <code>grid</code> (a 100x100 grid),
+   * <code>honeycomb</code> (a 20-level honeycomb) and <code>socialnet</code>
+   * (the social network sample file).
+   *
+   * @param name
+   *          the graph name
+   * @return the Graph
+   */
+  public static Graph graph(String name) throws DataIOException {
+    if ("grid".equals(name)) {
+      return GraphLib.getGrid(100, 100);
+    } else if ("honeycomb".equals(name)) {
+      return GraphLib.getHoneycomb(20);
+    } else if ("socialnet".equals(name)) {
+      return new GraphMLReader().readGraph(file("socialnet.xml"));
+    } else {
+      throw new IllegalArgumentException("Unknown graph: " + name);
+    }
+  }
+
+  /**
+   * Get a named tree. Supported names are <code>balanced</code> (a balanced tree
+   * of breadth 4 and depth 7, 21845 nodes), <code>deep</code> (a left-deep tree
+   * of depth 5000) and <code>ontology</code> (the CHI ontology TreeML sample
+   * file, 7549 nodes).
+   *
+   * @param name
+   *          the tree name
+   * @return the Tree
+   */
+  public static Tree tree(String name) throws DataIOException {
+    if ("balanced".equals(name)) {
+      return GraphLib.getBalancedTree(4, 7);
+    } else if ("deep".equals(name)) {
+      return GraphLib.getLeftDeepTree(5000);
+    } else if ("ontology".equals(name)) {
+      // read by path, so that the file is decompressed
+      return (Tree) new TreeMLReader().readGraph(file("chi-ontology.xml.gz").getPath());
+    } else {
+      throw new IllegalArgumentException("Unknown tree: " + name);
+    }
+  }
+
+  /**
+   * Scatter the items of a visual table over the given square, and give them
+   * visible fill and stroke colors.
+   *
+   * @param vt
+   *          the visual table
+   * @param size
+   *          the width and height of the square
+   */
+  public static void scatter(VisualTable vt, double size) {
+    Random r = new Random(SEED);
+    int fill = ColorLib.rgb(100, 150, 220), stroke = ColorLib.gray(50);
+    for (int i = 0; i < vt.getRowCount(); ++i) {
+      if (!vt.isValidRow(i)) {
+        continue;
+      }
+      VisualItem item = vt.getItem(i);
+      item.setX(r.nextDouble() * size);
+      item.setY(r.nextDouble() * size);
+      item.setFillColor(fill);
+      item.setStrokeColor(stroke);
+    }
+  }
+
+  /**
+   * Get the center of a square of the given size.
+   *
+   * @param size
+   *          the width and height of the square
+   * @return the center point
+   */
+  public static Point2D center(double size) {
+    return new Point2D.Double(size / 2, size / 2);
+  }
+
+} // end of class BenchmarkData
@@ -0,0 +1,67 @@
+package prefuse.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import prefuse.data.Table;
+import prefuse.data.expression.Predicate;
+import prefuse.data.expression.parser.ExpressionParser;
+import prefuse.data.io.DataIOException;
+import prefuse.data.util.FilterIteratorFactory;
+import prefuse.util.collections.IntIterator;
+
+/**
+ * Query plans of {@link FilterIteratorFactory#rows(Table, Predicate)} over the
+ * zip code sample table, with and without indices on the queried columns. The
+ * predicates cover an indexable range, an indexable equality test, a
+ * disjunction and a predicate that always requires a full scan.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class FilterBenchmark {
+
+  @Param({ "lat >= 40 AND lat < 41", "state = 6", "state = 6 OR state = 36", "lat + lon > -30" })
+  public String predicate;
+
+  @Param({ "false", "true" })
+  public boolean indexed;
+
+  private Table table;
+  private Predicate filter;
+
+  @Setup
+  public void setup() throws DataIOException {
+    table = BenchmarkData.zipcodes();
+    if (indexed) {
+      table.index("lat");
+      table.index("state");
+    }
+    filter = ExpressionParser.predicate(predicate);
+  }
+
+  @Benchmark
+  public int rows() {
+    int count = 0;
+    for (IntIterator rows = FilterIteratorFactory.rows(table, filter); rows.hasNext();) {
+      rows.nextInt();
+      ++count;
+    }
+    return count;
+  }
+
+} // end of class FilterBenchmark
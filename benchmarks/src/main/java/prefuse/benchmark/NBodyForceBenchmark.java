@@ -0,0 +1,72 @@
+package prefuse.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import prefuse.util.force.ForceItem;
+import prefuse.util.force.ForceSimulator;
+import prefuse.util.force.NBodyForce;
+
+/**
+ * One force accumulation pass of a {@link ForceSimulator} holding only an
+ * {@link NBodyForce}: building the Barnes-Hut quadtree and computing the
+ * n-body force on every item. Items are scattered uniformly over a square.
+ * Since accumulation does not move the items, every invocation measures the
+ * same work.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class NBodyForceBenchmark {
+
+  @Param({ "1000", "10000", "50000" })
+  public int items;
+
+  @Param({ "1", "4" })
+  public int parallelism;
+
+  private ForceSimulator fsim;
+
+  @Setup
+  public void setup() {
+    fsim = new ForceSimulator();
+    fsim.addForce(new NBodyForce());
+    fsim.setParallelism(parallelism);
+    Random r = new Random(BenchmarkData.SEED);
+    float size = (float) Math.sqrt(items) * 50;
+    for (int i = 0; i < items; ++i) {
+      ForceItem item = new ForceItem();
+      item.location[0] = r.nextFloat() * size;
+      item.location[1] = r.nextFloat() * size;
+      fsim.addItem(item);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    fsim.setParallelism(1);
+  }
+
+  @Benchmark
+  public ForceSimulator accumulate() {
+    fsim.accumulate();
+    return fsim;
+  }
+
+} // end of class NBodyForceBenchmark
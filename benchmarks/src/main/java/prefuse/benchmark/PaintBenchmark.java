@@ -0,0 +1,96 @@
+package prefuse.benchmark;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import prefuse.Display;
+import prefuse.Visualization;
+import prefuse.data.io.DataIOException;
+import prefuse.render.DefaultRendererFactory;
+import prefuse.render.ShapeRenderer;
+import prefuse.util.ColorLib;
+import prefuse.visual.VisualGraph;
+import prefuse.visual.VisualTable;
+
+/**
+ * {@link Display#paintDisplay(Graphics2D, Dimension)} into an offscreen
+ * BufferedImage. Nodes are scattered over an area four times that of the
+ * display, so that <code>zoom</code> 1 shows about a quarter of the graph and
+ * <code>zoom</code> 0.5 all of it. Each invocation repaints the full display.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class PaintBenchmark {
+
+  private static final int SIZE = 1024;
+
+  @Param({ "grid", "socialnet" })
+  public String graph;
+
+  @Param({ "0.5", "1" })
+  public double zoom;
+
+  @Param({ "false", "true" })
+  public boolean highQuality;
+
+  private Display display;
+  private BufferedImage image;
+  private Graphics2D g;
+  private Dimension dim;
+
+  @Setup
+  public void setup() throws DataIOException {
+    Visualization vis = new Visualization();
+    VisualGraph vg = vis.addGraph("graph", BenchmarkData.graph(graph));
+    vis.setRendererFactory(new DefaultRendererFactory(new ShapeRenderer(8)));
+    BenchmarkData.scatter((VisualTable) vg.getNodeTable(), 2 * SIZE);
+    VisualTable edges = (VisualTable) vg.getEdgeTable();
+    for (int i = 0; i < edges.getRowCount(); ++i) {
+      if (edges.isValidRow(i)) {
+        edges.setStrokeColor(i, ColorLib.gray(150));
+      }
+    }
+
+    display = new Display(vis);
+    display.setSize(SIZE, SIZE);
+    display.setHighQuality(highQuality);
+    display.zoom(BenchmarkData.center(0), zoom);
+
+    image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+    g = image.createGraphics();
+    dim = new Dimension(SIZE, SIZE);
+  }
+
+  @TearDown
+  public void tearDown() {
+    g.dispose();
+  }
+
+  @Benchmark
+  public BufferedImage paint() {
+    // damage the whole display, so that every invocation repaints everything
+    display.damageReport();
+    display.paintDisplay(g, dim);
+    return image;
+  }
+
+} // end of class PaintBenchmark
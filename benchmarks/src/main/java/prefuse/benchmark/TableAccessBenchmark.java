@@ -0,0 +1,113 @@
+package prefuse.benchmark;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import prefuse.data.FieldAccessor;
+import prefuse.data.Table;
+import prefuse.data.Tuple;
+
+/**
+ * Column access through the different Table read paths: by field name, by
+ * column number, through a {@link FieldAccessor}, and through tuples. Each
+ * read benchmark sums a double column over all rows and each write benchmark
+ * rewrites it, the last one inside a single batch. The reported time is per
+ * table scan.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class TableAccessBenchmark {
+
+  @Param({ "10000", "100000" })
+  public int rows;
+
+  private Table table;
+  private int col;
+  private FieldAccessor accessor;
+
+  @Setup
+  public void setup() {
+    table = BenchmarkData.table(rows);
+    col = table.getColumnNumber(BenchmarkData.VALUE);
+    accessor = table.getFieldAccessor(BenchmarkData.VALUE);
+  }
+
+  @Benchmark
+  public double byName() {
+    double sum = 0;
+    for (int r = 0; r < rows; ++r) {
+      sum += table.getDouble(r, BenchmarkData.VALUE);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double byColumnNumber() {
+    double sum = 0;
+    for (int r = 0; r < rows; ++r) {
+      sum += table.getDouble(r, col);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double byAccessor() {
+    double sum = 0;
+    for (int r = 0; r < rows; ++r) {
+      sum += accessor.getDouble(r);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double tuples() {
+    double sum = 0;
+    for (Iterator iter = table.tuples(); iter.hasNext();) {
+      sum += ((Tuple) iter.next()).getDouble(BenchmarkData.VALUE);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public void writeByName() {
+    for (int r = 0; r < rows; ++r) {
+      table.setDouble(r, BenchmarkData.VALUE, r);
+    }
+  }
+
+  @Benchmark
+  public void writeByAccessor() {
+    for (int r = 0; r < rows; ++r) {
+      accessor.setDouble(r, r);
+    }
+  }
+
+  @Benchmark
+  public void writeBatch() {
+    table.beginBatch();
+    try {
+      for (int r = 0; r < rows; ++r) {
+        accessor.setDouble(r, r);
+      }
+    } finally {
+      table.commitBatch();
+    }
+  }
+
+} // end of class TableAccessBenchmark
@@ -0,0 +1,88 @@
+package prefuse.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import prefuse.data.Table;
+import prefuse.data.util.Index;
+import prefuse.util.collections.IntIterator;
+
+/**
+ * Construction of and queries against the {@link prefuse.data.util.TreeIndex}
+ * created by {@link Table#index(String)}. Each query benchmark runs a fixed set
+ * of 1024 queries; range queries select <code>selectivity</code> of the rows of
+ * a uniformly distributed double column, point queries look up values of a
+ * column with ten distinct values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class TreeIndexBenchmark {
+
+  private static final int QUERIES = 1024;
+
+  @Param({ "10000", "100000" })
+  public int rows;
+
+  @Param({ "0.001", "0.1" })
+  public double selectivity;
+
+  private Table table;
+  private Index index;
+  private double[] lo;
+  private int[] keys;
+
+  @Setup
+  public void setup() {
+    table = BenchmarkData.table(rows);
+    index = table.index(BenchmarkData.VALUE);
+    Random r = new Random(BenchmarkData.SEED);
+    lo = new double[QUERIES];
+    keys = new int[QUERIES];
+    for (int i = 0; i < QUERIES; ++i) {
+      lo[i] = r.nextDouble() * (1 - selectivity);
+      keys[i] = r.nextInt(10);
+    }
+  }
+
+  @Benchmark
+  public Index build() {
+    table.removeIndex(BenchmarkData.VALUE);
+    return index = table.index(BenchmarkData.VALUE);
+  }
+
+  @Benchmark
+  public void rangeQueries(Blackhole bh) {
+    for (int q = 0; q < QUERIES; ++q) {
+      IntIterator rows = index.rows(lo[q], lo[q] + selectivity, Index.TYPE_AII);
+      while (rows.hasNext()) {
+        bh.consume(rows.nextInt());
+      }
+    }
+  }
+
+  @Benchmark
+  public void pointQueries(Blackhole bh) {
+    Index cat = table.index(BenchmarkData.CATEGORY);
+    for (int q = 0; q < QUERIES; ++q) {
+      bh.consume(cat.get(keys[q]));
+    }
+  }
+
+} // end of class TreeIndexBenchmark
@@ -0,0 +1,58 @@
+package prefuse.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import prefuse.Visualization;
+import prefuse.action.layout.graph.NodeLinkTreeLayout;
+import prefuse.data.io.DataIOException;
+
+/**
+ * A full {@link NodeLinkTreeLayout} pass over a tree, either a synthetic
+ * balanced tree or the CHI ontology sample file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class TreeLayoutBenchmark {
+
+  private static final String TREE = "tree";
+
+  @Param({ "balanced", "ontology" })
+  public String tree;
+
+  private Visualization vis;
+  private NodeLinkTreeLayout layout;
+
+  @Setup
+  public void setup() throws DataIOException {
+    vis = new Visualization();
+    vis.add(TREE, BenchmarkData.tree(tree));
+    layout = new NodeLinkTreeLayout(TREE);
+    layout.setLayoutAnchor(BenchmarkData.center(0));
+    vis.putAction("layout", layout);
+  }
+
+  @Benchmark
+  public Visualization layout() {
+    synchronized (vis) {
+      layout.run(1.0);
+    }
+    return vis;
+  }
+
+} // end of class TreeLayoutBenchmark
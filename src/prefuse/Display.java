@@ -25,6 +25,8 @@ import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.logging.Logger;
 
@@ -39,23 +41,32 @@ import javax.swing.text.JTextComponent;
 import prefuse.activity.Activity;
 import prefuse.activity.SlowInSlowOutPacer;
 import prefuse.controls.Control;
+import prefuse.data.Table;
+import prefuse.data.event.TableListener;
 import prefuse.data.expression.AndPredicate;
 import prefuse.data.expression.BooleanLiteral;
 import prefuse.data.expression.Predicate;
 import prefuse.data.expression.parser.ExpressionParser;
+import prefuse.render.LevelOfDetailRendererFactory;
 import prefuse.render.Renderer;
+import prefuse.render.RendererFactory;
+import prefuse.util.ArrayLib;
 import prefuse.util.ColorLib;
 import prefuse.util.StringLib;
 import prefuse.util.UpdateListener;
 import prefuse.util.collections.CopyOnWriteArrayList;
+import prefuse.util.collections.IntIterator;
 import prefuse.util.display.BackgroundPainter;
 import prefuse.util.display.Clip;
 import prefuse.util.display.DebugStatsPainter;
 import prefuse.util.display.ExportDisplayAction;
+import prefuse.util.display.ItemBoundsIndex;
 import prefuse.util.display.ItemBoundsListener;
 import prefuse.util.display.PaintListener;
 import prefuse.util.display.RenderingQueue;
+import prefuse.util.display.StaticLayerCache;
 import prefuse.visual.VisualItem;
+import prefuse.visual.VisualTable;
 import prefuse.visual.expression.VisiblePredicate;
 import prefuse.visual.sort.ItemSorter;
 
@@ -112,6 +123,9 @@ public class Display extends JComponent {
 
   private static final Logger s_logger = Logger.getLogger(Display.class.getName());
 
+  // picking queues smaller than this are searched without the spatial index
+  private static final int PICK_INDEX_THRESHOLD = 64;
+
   // visual item source
   protected Visualization m_vis;
   protected AndPredicate m_predicate = new AndPredicate();
@@ -136,6 +150,22 @@ public class Display extends JComponent {
   // rendering queue
   protected RenderingQueue m_queue = new RenderingQueue();
   protected int m_visibleCount = 0;
+  protected boolean m_pickIndex = true;
+
+  // viewport culling
+  protected boolean m_culling = false;
+  protected ItemBoundsIndex m_cullIndex = new ItemBoundsIndex();
+  private boolean m_cullValid = false;
+  private int m_cullVersion;
+  private VisualTable[] m_cullTables;
+  private BitSet[] m_cullDirty;
+  private BitSet m_cullSwap = new BitSet();
+  private CullingListener m_cullListener = new CullingListener();
+  private VisualItem[] m_cullItems = new VisualItem[0];
+  private int[] m_cullTableIdx = new int[0];
+
+  // cached rendering of static groups
+  protected StaticLayerCache m_layerCache = null;
 
   // transform variables
   protected AffineTransform m_transform = new AffineTransform();
@@ -229,6 +259,8 @@ public class Display extends JComponent {
     m_predicate.addExpressionListener(new UpdateListener() {
       @Override
       public void update(Object src) {
+        invalidateCulling();
+        invalidateLayers();
         damageReport();
       }
     });
@@ -377,6 +409,7 @@ public class Display extends JComponent {
    */
   public void setHighQuality(boolean on) {
     if (m_highQuality != on) {
+      invalidateLayers();
       damageReport();
     }
     m_highQuality = on;
@@ -423,6 +456,8 @@ public class Display extends JComponent {
     if (m_vis != null) {
       m_vis.addDisplay(this);
     }
+    invalidateCulling();
+    invalidateLayers();
   }
 
   /**
@@ -498,6 +533,7 @@ public class Display extends JComponent {
    * @return the {@link prefuse.visual.sort.ItemSorter} to use
    */
   public synchronized void setItemSorter(ItemSorter cmp) {
+    invalidateLayers();
     damageReport();
     m_queue.sort = cmp;
   }
@@ -670,6 +706,23 @@ public class Display extends JComponent {
     }
   }
 
+  /**
+   * Reports damage to the Display caused by a change to the given item,
+   * invalidating the cached rendering of the item's group if it is static.
+   * 
+   * @param item
+   *          the item that changed
+   * @param region
+   *          the damaged region, in absolute (item-space) coordinates
+   */
+  void damageReport(VisualItem item, Rectangle2D region) {
+    damageReport(region);
+    StaticLayerCache layers = m_layerCache;
+    if (layers != null && layers.isStatic(item)) {
+      layers.invalidate(region);
+    }
+  }
+
   /**
    * Reports damage to the entire Display.
    */
@@ -899,6 +952,10 @@ public class Display extends JComponent {
     synchronized (m_vis) {
       synchronized (this) {
 
+        // bring the culling index up to date, reporting damage for any
+        // items whose bounds have changed
+        boolean culled = m_culling && updateCulling();
+
         if (m_clip.isEmpty())
          {
           return; // no damage, no render
@@ -960,28 +1017,77 @@ public class Display extends JComponent {
         getItemBounds(m_rclip);
         m_bounds.reset();
 
+        // static groups are drawn from cached tiles, which requires an
+        // axis-aligned transform with uniform scaling
+        StaticLayerCache layers = m_layerCache;
+        if (layers != null && (!layers.hasGroups() || m_transform.getShearX() != 0 || m_transform.getShearY() != 0
+            || m_transform.getScaleX() != m_transform.getScaleY())) {
+          layers = null;
+        }
+
         // fill the rendering and picking queues
         m_queue.clear(); // clear the queue
-        Iterator items = m_vis.items(m_predicate);
-        for (m_visibleCount = 0; items.hasNext(); ++m_visibleCount) {
-          VisualItem item = (VisualItem) items.next();
-          Rectangle2D bounds = item.getBounds();
-          m_bounds.union(bounds); // add to item bounds
-
-          if (m_clip.intersects(bounds, pixel)) {
-            m_queue.addToRenderQueue(item);
+        if (culled) {
+          // only visit the items on screen. the picking queue is limited
+          // to on-screen items as well, as only those can be under the mouse
+          m_cullIndex.getBounds(m_bounds);
+          m_visibleCount = m_cullIndex.size();
+          double m = 2 * pixel;
+          int n = m_cullIndex.query(m_screen.getMinX() - m, m_screen.getMinY() - m, m_screen.getMaxX() + m,
+              m_screen.getMaxY() + m);
+          VisualItem[] items = m_cullIndex.getResults();
+          for (int i = 0; i < n; ++i) {
+            VisualItem item = items[i];
+            if (m_clip.intersects(item.getBounds(), pixel) && (layers == null || !layers.isStatic(item))) {
+              m_queue.addToRenderQueue(item);
+            }
+            if (item.isInteractive()) {
+              m_queue.addToPickingQueue(item);
+            }
           }
-          if (item.isInteractive()) {
-            m_queue.addToPickingQueue(item);
+        } else {
+          Iterator items = m_vis.items(m_predicate);
+          for (m_visibleCount = 0; items.hasNext(); ++m_visibleCount) {
+            VisualItem item = (VisualItem) items.next();
+            Rectangle2D bounds = item.getBounds();
+            m_bounds.union(bounds); // add to item bounds
+
+            if (m_clip.intersects(bounds, pixel) && (layers == null || !layers.isStatic(item))) {
+              m_queue.addToRenderQueue(item);
+            }
+            if (item.isInteractive()) {
+              m_queue.addToPickingQueue(item);
+            }
           }
         }
 
         // sort the rendering queue
         m_queue.sortRenderQueue();
 
-        // render each visual item
-        for (int i = 0; i < m_queue.rsize; ++i) {
-          m_queue.ritems[i].render(g2D);
+        // draw the static groups beneath the other items
+        if (layers != null) {
+          layers.paint(g2D, m_screen, getScale());
+        }
+
+        // render each visual item, letting a level-of-detail aware
+        // renderer factory substitute cheaper renderers for small items
+        RendererFactory rf = m_vis.getRendererFactory();
+        if (rf instanceof LevelOfDetailRendererFactory) {
+          LevelOfDetailRendererFactory lod = (LevelOfDetailRendererFactory) rf;
+          double scale = getScale();
+          for (int i = 0; i < m_queue.rsize; ++i) {
+            VisualItem item = m_queue.ritems[i];
+            Renderer r = lod.getRenderer(item, scale);
+            if (r != null) {
+              r.render(g2D, item);
+            } else {
+              item.render(g2D);
+            }
+          }
+        } else {
+          for (int i = 0; i < m_queue.rsize; ++i) {
+            m_queue.ritems[i].render(g2D);
+          }
         }
 
         // no more damage so reset the clip
@@ -996,6 +1102,160 @@ public class Display extends JComponent {
     } // end synchronized block
   }
 
+  // ------------------------------------------------------------------------
+  // Viewport Culling
+
+  /**
+   * Mark the culling index as needing a full rebuild.
+   */
+  private void invalidateCulling() {
+    m_cullValid = false;
+  }
+
+  /**
+   * Discard the cached rendering of the static groups.
+   */
+  private void invalidateLayers() {
+    if (m_layerCache != null) {
+      m_layerCache.clear();
+    }
+  }
+
+  /**
+   * Bring the culling index up to date with the visible items.
+   * 
+   * @return true if the index can be used for rendering, false if the items
+   *         must be visited one by one
+   */
+  private boolean updateCulling() {
+    if (m_vis.getGroupVersion() != m_cullVersion) {
+      m_cullValid = false;
+    }
+    if (m_cullValid && m_cullTables != null) {
+      // rebuilding is cheaper than re-indexing most of the items
+      int changed = 0;
+      synchronized (m_cullListener) {
+        for (int t = 0; t < m_cullDirty.length; ++t) {
+          changed += m_cullDirty[t].cardinality();
+        }
+      }
+      m_cullValid = changed < m_cullIndex.size() / 2 + 64;
+    }
+    if (!m_cullValid || m_cullIndex.needsRebuild()) {
+      rebuildCulling();
+    }
+    if (m_cullTables == null) {
+      return false;
+    }
+
+    // re-index the rows that changed since the last paint. retrieving the
+    // bounds validates the items, reporting any damage to this display.
+    for (int t = 0; t < m_cullTables.length; ++t) {
+      synchronized (m_cullListener) {
+        if (m_cullDirty[t].isEmpty()) {
+          continue;
+        }
+        BitSet dirty = m_cullDirty[t];
+        m_cullDirty[t] = m_cullSwap;
+        m_cullSwap = dirty;
+      }
+      VisualTable table = m_cullTables[t];
+      for (int row = m_cullSwap.nextSetBit(0); row >= 0; row = m_cullSwap.nextSetBit(row + 1)) {
+        if (table.isValidRow(row)) {
+          VisualItem item = table.getItem(row);
+          if (m_predicate.getBoolean(item)) {
+            m_cullIndex.put(t, row, item, item.getBounds());
+            continue;
+          }
+        }
+        m_cullIndex.remove(t, row);
+      }
+      m_cullSwap.clear();
+    }
+    return true;
+  }
+
+  /**
+   * Rebuild the culling index from scratch, listening for changes to the
+   * tables backing the visual groups.
+   */
+  private void rebuildCulling() {
+    VisualTable[] tables = m_vis.getVisualTables();
+    m_cullVersion = m_vis.getGroupVersion();
+    m_cullValid = true;
+
+    if (!Arrays.equals(tables, m_cullTables)) {
+      if (m_cullTables != null) {
+        for (int t = 0; t < m_cullTables.length; ++t) {
+          m_cullTables[t].removeTableListener(m_cullListener);
+        }
+      }
+      synchronized (m_cullListener) {
+        m_cullTables = tables;
+        m_cullDirty = null;
+        if (tables != null) {
+          m_cullDirty = new BitSet[tables.length];
+          for (int t = 0; t < tables.length; ++t) {
+            m_cullDirty[t] = new BitSet();
+          }
+        }
+      }
+      if (tables != null) {
+        for (int t = 0; t < tables.length; ++t) {
+          tables[t].addTableListener(m_cullListener);
+        }
+      }
+    }
+    if (tables == null) {
+      return;
+    }
+
+    // collect the visible items and their current bounds
+    int n = 0;
+    for (int t = 0; t < tables.length; ++t) {
+      IntIterator rows = tables[t].rows(m_predicate);
+      while (rows.hasNext()) {
+        VisualItem item = tables[t].getItem(rows.nextInt());
+        item.getBounds();
+        if (n == m_cullItems.length) {
+          int len = Math.max(64, (3 * n) / 2);
+          VisualItem[] a = new VisualItem[len];
+          System.arraycopy(m_cullItems, 0, a, 0, n);
+          m_cullItems = a;
+          m_cullTableIdx = ArrayLib.resize(m_cullTableIdx, len);
+        }
+        m_cullItems[n] = item;
+        m_cullTableIdx[n++] = t;
+      }
+    }
+    m_cullIndex.rebuild(tables.length, m_cullTableIdx, m_cullItems, n);
+    Arrays.fill(m_cullItems, 0, n, null);
+
+    synchronized (m_cullListener) {
+      for (int t = 0; t < tables.length; ++t) {
+        m_cullDirty[t].clear();
+      }
+    }
+  }
+
+  /**
+   * Records the rows of the visual tables that changed between paints.
+   */
+  private class CullingListener implements TableListener {
+    @Override
+    public synchronized void tableChanged(Table t, int start, int end, int col, int type) {
+      if (m_cullTables == null) {
+        return;
+      }
+      for (int i = 0; i < m_cullTables.length; ++i) {
+        if (m_cullTables[i] == t) {
+          m_cullDirty[i].set(start, end + 1);
+          return;
+        }
+      }
+    }
+  }
+
   /**
    * Immediately render the given VisualItem to the screen. This method bypasses
    * the Display's offscreen buffer.
@@ -1657,6 +1917,143 @@ public class Display extends JComponent {
     m_controls.remove(cl);
   }
 
+  /**
+   * Indicates if a spatial index is used to find items at a given point.
+   * 
+   * @return true if picking uses a spatial index, false if every interactive
+   *         item is tested
+   * @see #findItem(Point)
+   */
+  public boolean isPickingIndexEnabled() {
+    return m_pickIndex;
+  }
+
+  /**
+   * Sets whether a spatial index of item bounds is used to find items at a given
+   * point. The index is rebuilt lazily after the picking queue changes and
+   * assumes that renderers only report hits within the margin of an item's
+   * bounds given by {@link #setPickingMargin(double)}. Disable the index if a
+   * custom renderer locates items outside their bounds.
+   * 
+   * @param b
+   *          true to use a spatial index for picking, false to test every
+   *          interactive item
+   */
+  public synchronized void setPickingIndexEnabled(boolean b) {
+    m_pickIndex = b;
+  }
+
+  /**
+   * Sets the distance outside an item's bounds, in absolute (item-space)
+   * coordinates, at which the item can still be picked when the picking index
+   * is enabled. The default is 1.
+   * 
+   * @param margin
+   *          the picking margin
+   * @throws IllegalArgumentException
+   *           if the margin is negative
+   */
+  public synchronized void setPickingMargin(double margin) {
+    m_queue.pindex.setMargin(margin);
+    m_queue.pindexed = false;
+  }
+
+  /**
+   * Indicates if viewport culling is enabled.
+   * 
+   * @return true if rendering only visits the items on screen
+   * @see #setViewportCulling(boolean)
+   */
+  public boolean isViewportCulling() {
+    return m_culling;
+  }
+
+  /**
+   * Sets whether this Display uses a spatial index of item bounds to only visit
+   * the items on screen when painting, rather than every item passing the
+   * filtering predicate. The index is updated incrementally by listening for
+   * changes to the visual tables, so that a zoomed-in view of a large data set
+   * is painted in time proportional to the number of items shown.
+   * <p>
+   * Culling requires that all visual groups are backed by VisualTables (it is
+   * silently skipped otherwise) and that the filtering predicate only depends on
+   * the data fields of each item. With culling enabled, only on-screen items are
+   * considered by {@link #findItem(Point)}.
+   * </p>
+   * 
+   * @param b
+   *          true to enable viewport culling, false to visit every item
+   */
+  public synchronized void setViewportCulling(boolean b) {
+    if (m_culling == b) {
+      return;
+    }
+    m_culling = b;
+    invalidateCulling();
+    if (!b) {
+      // stop listening to the visual tables
+      if (m_cullTables != null) {
+        for (int t = 0; t < m_cullTables.length; ++t) {
+          m_cullTables[t].removeTableListener(m_cullListener);
+        }
+      }
+      synchronized (m_cullListener) {
+        m_cullTables = null;
+        m_cullDirty = null;
+      }
+    }
+    damageReport();
+  }
+
+  /**
+   * Indicates if the given group is drawn from cached image tiles.
+   * 
+   * @param group
+   *          the data group name
+   * @return true if the group is static
+   * @see #setStaticGroup(String, boolean)
+   */
+  public boolean isStaticGroup(String group) {
+    return m_layerCache != null && m_layerCache.isStaticGroup(group);
+  }
+
+  /**
+   * Sets whether the items of the given group are static. Static items are
+   * rendered into cached image tiles by a background thread and composited
+   * beneath the other items, so that panning the Display does not re-render
+   * them. Tiles are re-rendered when the Display is zoomed or when damage is
+   * reported for the items they contain. This suits groups that rarely change,
+   * such as the edges of a settled layout. The group is matched against
+   * {@link VisualItem#getGroup()}, so child groups such as "graph.edges" must be
+   * named directly.
+   * 
+   * @param group
+   *          the data group name
+   * @param isStatic
+   *          true to draw the group from cached tiles, false to render its items
+   *          directly
+   */
+  public synchronized void setStaticGroup(String group, boolean isStatic) {
+    if (isStatic) {
+      if (m_layerCache == null) {
+        m_layerCache = new StaticLayerCache(this);
+      }
+      m_layerCache.addGroup(group);
+    } else if (m_layerCache != null) {
+      m_layerCache.removeGroup(group);
+    }
+    damageReport();
+  }
+
+  /**
+   * Get the cache of rendered tiles for the static groups of this Display.
+   * 
+   * @return the static layer cache, or null if no group has been made static
+   */
+  public StaticLayerCache getStaticLayerCache() {
+    return m_layerCache;
+  }
+
   /**
    * Returns the VisualItem located at the given point.
    * 
@@ -1671,6 +2068,25 @@ public class Display extends JComponent {
     if (!m_queue.psorted) {
       m_queue.sortPickingQueue();
     }
+    // use the spatial index to only test items near the point
+    if (m_pickIndex && m_queue.psize > PICK_INDEX_THRESHOLD) {
+      if (!m_queue.pindexed) {
+        m_queue.indexPickingQueue();
+      }
+      int n = m_queue.pindex.query(p2.getX(), p2.getY());
+      int[] idx = m_queue.pindex.getResults();
+      for (int i = 0; i < n; ++i) {
+        VisualItem vi = m_queue.pitems[idx[i]];
+        if (!vi.isValid()) {
+          continue; // in case tuple went invalid
+        }
+        Renderer r = vi.getRenderer();
+        if (r != null && vi.isInteractive() && r.locatePoint(p2, vi)) {
+          return vi;
+        }
+      }
+      return null;
+    }
     // walk queue from front to back looking for hits
     for (int i = m_queue.psize; --i >= 0;) {
       VisualItem vi = m_queue.pitems[i];
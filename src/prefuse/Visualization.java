@@ -189,6 +189,9 @@ public class Visualization {
   // displays
   private ArrayList m_displays;
 
+  // incremented whenever a primary visual group is added or removed
+  private int m_groupVersion = 0;
+
   // ------------------------------------------------------------------------
   // Constructor
 
@@ -262,6 +265,7 @@ public class Visualization {
   protected void addDataGroup(String group, VisualTupleSet ts, TupleSet src) {
     checkGroupExists(group);
     m_visual.put(group, ts);
+    ++m_groupVersion;
     if (src != null) {
       m_source.put(group, src);
     }
@@ -763,6 +767,7 @@ public class Visualization {
     }
     m_visual.remove(group);
     m_source.remove(group);
+    ++m_groupVersion;
     return true;
   }
 
@@ -783,6 +788,56 @@ public class Visualization {
     // finally clear out all map entries
     m_visual.clear();
     m_source.clear();
+    ++m_groupVersion;
+  }
+
+  /**
+   * Get a counter that changes whenever a primary visual group is added to or
+   * removed from this visualization.
+   * 
+   * @return the current group version
+   */
+  int getGroupVersion() {
+    return m_groupVersion;
+  }
+
+  /**
+   * Get the VisualTables backing the primary visual groups, in the order in
+   * which they are visited by {@link #items(Predicate)}.
+   * 
+   * @return the backing VisualTables, or null if some visual group is not
+   *         composed of VisualTables
+   */
+  synchronized VisualTable[] getVisualTables() {
+    ArrayList tables = new ArrayList();
+    Iterator it = m_visual.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry entry = (Map.Entry) it.next();
+      if (m_visual.size() > 1 && PrefuseLib.isChildGroup((String) entry.getKey())) {
+        continue;
+      }
+      if (!addVisualTables((TupleSet) entry.getValue(), tables)) {
+        return null;
+      }
+    }
+    return (VisualTable[]) tables.toArray(new VisualTable[tables.size()]);
+  }
+
+  private static boolean addVisualTables(TupleSet ts, ArrayList tables) {
+    if (ts instanceof VisualTable) {
+      tables.add(ts);
+      return true;
+    } else if (ts instanceof CompositeTupleSet) {
+      Iterator sets = ((CompositeTupleSet) ts).sets();
+      while (sets.hasNext()) {
+        if (!addVisualTables((TupleSet) sets.next(), tables)) {
+          return false;
+        }
+      }
+      return true;
+    } else {
+      return false;
+    }
   }
 
   // ------------------------------------------------------------------------
@@ -1459,7 +1514,7 @@ public class Visualization {
     for (int i = 0; i < m_displays.size(); ++i) {
       Display d = getDisplay(i);
       if (d.getPredicate().getBoolean(item)) {
-        d.damageReport(region);
+        d.damageReport(item, region);
       }
     }
   }
@@ -1,5 +1,7 @@
 package prefuse.action;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.logging.Logger;
 
 import prefuse.Visualization;
@@ -15,6 +17,15 @@ import prefuse.util.StringLib;
  * composition of different sets of Actions.
  * </p>
  * 
+ * <p>
+ * By default the Actions of a list are run one after the other, in the order
+ * in which they were added. If the Actions are independent of each other, i.e.,
+ * none of them reads state that another one modifies, they can instead be run
+ * concurrently by {@link #setParallelism(int) setting the parallelism} of the
+ * list. Concurrently running Actions follow the same thread-safety contract as
+ * parallel {@link ItemAction ItemActions}.
+ * </p>
+ * 
  * @author <a href="http://jheer.org">jeffrey heer</a>
  * @see prefuse.activity.Activity
  * @see prefuse.action.Action
@@ -23,6 +34,9 @@ public class ActionList extends CompositeAction {
 
   private static final Logger s_logger = Logger.getLogger(ActionList.class.getName());
 
+  private int m_parallelism = 1;
+  private ForkJoinPool m_pool;
+
   /**
    * Creates a new run-once ActionList.
    */
@@ -83,16 +97,88 @@ public class ActionList extends CompositeAction {
   @Override
   public void run(double frac) {
     Object[] actions = m_actions.getArray();
-    for (int i = 0; i < actions.length; ++i) {
-      Action a = (Action) actions[i];
-      try {
-        if (a.isEnabled()) {
-          a.run(frac);
+    ForkJoinPool pool = m_pool;
+    if (pool != null && actions.length > 1) {
+      RecursiveAction[] tasks = new RecursiveAction[actions.length];
+      for (int i = 0; i < actions.length; ++i) {
+        tasks[i] = new RunTask((Action) actions[i], frac);
+      }
+      pool.invoke(new RecursiveAction() {
+        @Override
+        protected void compute() {
+          invokeAll(tasks);
         }
-      } catch (Exception e) {
-        s_logger.warning(e.getMessage() + '\n' + StringLib.getStackTrace(e));
+      });
+      return;
+    }
+    for (int i = 0; i < actions.length; ++i) {
+      runAction((Action) actions[i], frac);
+    }
+  }
+
+  private static void runAction(Action a, double frac) {
+    try {
+      if (a.isEnabled()) {
+        a.run(frac);
       }
+    } catch (Exception e) {
+      s_logger.warning(e.getMessage() + '\n' + StringLib.getStackTrace(e));
     }
   }
 
+  /**
+   * Returns the number of threads used to run the Actions of this list.
+   * 
+   * @return the parallelism, 1 if the Actions are run sequentially
+   */
+  public int getParallelism() {
+    return m_parallelism;
+  }
+
+  /**
+   * Sets the number of threads used to run the Actions of this list. With a
+   * parallelism greater than one, the Actions are run concurrently on a
+   * dedicated work-stealing pool, and must be independent of each other. The
+   * default is 1, running the Actions sequentially in order.
+   * 
+   * @param threads
+   *          the number of threads to use
+   */
+  public synchronized void setParallelism(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1");
+    }
+    if (threads == m_parallelism) {
+      return;
+    }
+    if (m_pool != null) {
+      m_pool.shutdown();
+      m_pool = null;
+    }
+    m_parallelism = threads;
+    if (threads > 1) {
+      m_pool = new ForkJoinPool(threads);
+    }
+  }
+
+  /**
+   * Runs a single Action of the list.
+   */
+  private static final class RunTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Action action;
+    private final double frac;
+
+    RunTask(Action action, double frac) {
+      this.action = action;
+      this.frac = frac;
+    }
+
+    @Override
+    protected void compute() {
+      runAction(action, frac);
+    }
+  } // end of inner class RunTask
+
 } // end of class ActionList
@@ -1,6 +1,9 @@
 package prefuse.action;
 
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import prefuse.Visualization;
 import prefuse.data.expression.Predicate;
@@ -13,6 +16,20 @@ import prefuse.visual.expression.VisiblePredicate;
  * {@link #setFilterPredicate(Predicate)} method to change the filtering
  * criteria.
  * 
+ * <p>
+ * An ItemAction can optionally process its items in parallel, see
+ * {@link #setParallelism(int)}. In parallel mode, the items are partitioned
+ * into chunks that are processed concurrently by the threads of a
+ * work-stealing pool, and {@link #process(VisualItem, double)} must be safe to
+ * call concurrently for different items. Specifically, it may read shared
+ * state that is not modified while the action runs (e.g., a color map computed
+ * before the items are processed), and may only modify the fields of the item
+ * it is given. It must not modify indexed fields (such as
+ * {@link VisualItem#VISIBLE}), add or remove tuples, or use unsynchronized
+ * caches such as {@link prefuse.util.FontLib}. Table events caused by the
+ * modifications are delivered one at a time, but from the pool threads.
+ * </p>
+ * 
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
 public abstract class ItemAction extends GroupAction {
@@ -20,6 +37,12 @@ public abstract class ItemAction extends GroupAction {
   /** A reference to filtering predicate for this Action */
   protected Predicate m_predicate;
 
+  private static final int MIN_GRAIN = 1024;
+
+  private int m_parallelism = 1;
+  private ForkJoinPool m_pool;
+  private VisualItem[] m_items;
+
   /**
    * Create a new ItemAction that processes all groups.
    * 
@@ -110,17 +133,88 @@ public abstract class ItemAction extends GroupAction {
     m_predicate = filter;
   }
 
+  /**
+   * Returns the number of threads used to process items.
+   * 
+   * @return the parallelism, 1 if items are processed sequentially
+   */
+  public int getParallelism() {
+    return m_parallelism;
+  }
+
+  /**
+   * Sets the number of threads used to process items. With a parallelism
+   * greater than one, items are processed concurrently on a dedicated
+   * work-stealing pool, and {@link #process(VisualItem, double)} must follow the
+   * thread-safety contract described in the class documentation. The default is
+   * 1, processing items sequentially on the calling thread.
+   * 
+   * @param threads
+   *          the number of threads to use
+   */
+  public synchronized void setParallelism(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1");
+    }
+    if (threads == m_parallelism) {
+      return;
+    }
+    if (m_pool != null) {
+      m_pool.shutdown();
+      m_pool = null;
+    }
+    m_parallelism = threads;
+    if (threads > 1) {
+      m_pool = new ForkJoinPool(threads);
+    }
+  }
+
   /**
    * @see prefuse.action.Action#run(double)
    */
   @Override
   public void run(double frac) {
     Iterator items = getVisualization().items(m_group, m_predicate);
+    if (m_pool != null) {
+      runParallel(items, frac);
+      return;
+    }
     while (items.hasNext()) {
       process((VisualItem) items.next(), frac);
     }
   }
 
+  /**
+   * Process the items in chunks on the fork/join pool.
+   */
+  private synchronized void runParallel(Iterator items, double frac) {
+    // snapshot the items, as the iterators are not thread-safe
+    VisualItem[] list = (m_items != null ? m_items : new VisualItem[MIN_GRAIN]);
+    int n = 0;
+    while (items.hasNext()) {
+      if (n == list.length) {
+        VisualItem[] l = new VisualItem[(3 * n) / 2 + 1];
+        System.arraycopy(list, 0, l, 0, n);
+        list = l;
+      }
+      list[n++] = (VisualItem) items.next();
+    }
+    m_items = list;
+    try {
+      ForkJoinPool pool = m_pool;
+      if (n <= MIN_GRAIN || pool == null) {
+        for (int i = 0; i < n; ++i) {
+          process(list[i], frac);
+        }
+      } else {
+        int grain = Math.max(MIN_GRAIN, n / (4 * m_parallelism));
+        pool.invoke(new ProcessTask(list, 0, n, grain, frac));
+      }
+    } finally {
+      Arrays.fill(list, 0, n, null);
+    }
+  }
+
   /**
    * Processes an individual item.
    * 
@@ -131,4 +225,35 @@ public abstract class ItemAction extends GroupAction {
    */
   public abstract void process(VisualItem item, double frac);
 
+  /**
+   * Processes a range of items, splitting it until it is small enough.
+   */
+  private final class ProcessTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final VisualItem[] items;
+    private final int lo, hi, grain;
+    private final double frac;
+
+    ProcessTask(VisualItem[] items, int lo, int hi, int grain, double frac) {
+      this.items = items;
+      this.lo = lo;
+      this.hi = hi;
+      this.grain = grain;
+      this.frac = frac;
+    }
+
+    @Override
+    protected void compute() {
+      if (hi - lo <= grain) {
+        for (int i = lo; i < hi; ++i) {
+          process(items[i], frac);
+        }
+      } else {
+        int mid = (lo + hi) >>> 1;
+        invokeAll(new ProcessTask(items, lo, mid, grain, frac), new ProcessTask(items, mid, hi, grain, frac));
+      }
+    }
+  } // end of inner class ProcessTask
+
 } // end of class ItemAction
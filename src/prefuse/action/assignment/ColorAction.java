@@ -7,6 +7,8 @@ package prefuse.action.assignment;
 import java.util.logging.Logger;
 
 import prefuse.action.EncoderAction;
+import prefuse.data.FieldAccessor;
+import prefuse.data.Table;
 import prefuse.data.expression.Predicate;
 import prefuse.data.expression.parser.ExpressionParser;
 import prefuse.util.ColorLib;
@@ -61,6 +63,13 @@ public class ColorAction extends EncoderAction {
 
   protected int m_cidx, m_sidx, m_eidx;
 
+  /**
+   * Accessors for the color, start and end fields, resolved against the table
+   * of the last processed item. The array is never modified once published, as
+   * items may be processed concurrently.
+   */
+  private volatile FieldAccessor[] m_access;
+
   protected int m_defaultColor = ColorLib.gray(0); // initial default = black
 
   /**
@@ -233,11 +242,27 @@ public class ColorAction extends EncoderAction {
    */
   @Override
   public void process(VisualItem item, double frac) {
+    FieldAccessor[] a = getAccessors(item);
     int c = getColor(item);
-    int o = item.getInt(m_colorField);
-    item.setInt(m_startField, o);
-    item.setInt(m_endField, c);
-    item.setInt(m_colorField, c);
+    int o = a[0].getInt(item);
+    a[1].setInt(item, o);
+    a[2].setInt(item, c);
+    a[0].setInt(item, c);
+  }
+
+  /**
+   * Get the accessors for the color, start and end fields of the given item's
+   * table, reusing those of the previous item when they share a table.
+   */
+  private FieldAccessor[] getAccessors(VisualItem item) {
+    FieldAccessor[] a = m_access;
+    Table t = item.getTable();
+    if (a == null || a[0].getTable() != t || a[0].getField() != m_colorField) {
+      a = new FieldAccessor[] { t.getFieldAccessor(m_colorField), t.getFieldAccessor(m_startField),
+          t.getFieldAccessor(m_endField) };
+      m_access = a;
+    }
+    return a;
   }
 
   /**
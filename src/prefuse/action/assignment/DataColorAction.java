@@ -5,6 +5,8 @@ import java.util.Map;
 import java.util.logging.Logger;
 
 import prefuse.Constants;
+import prefuse.data.FieldAccessor;
+import prefuse.data.Table;
 import prefuse.data.tuple.TupleSet;
 import prefuse.util.ColorLib;
 import prefuse.util.ColorMap;
@@ -46,6 +48,7 @@ import prefuse.visual.VisualItem;
 public class DataColorAction extends ColorAction {
 
   private String m_dataField;
+  private volatile FieldAccessor m_dataAccess; // shared by concurrent workers
   private int m_type;
   private int m_scale = Constants.LINEAR_SCALE;
   private int m_tempScale;
@@ -360,13 +363,26 @@ public class DataColorAction extends ColorAction {
     // otherwise perform data-driven assignment
     switch (m_type) {
       case Constants.NUMERICAL:
-        double v = item.getDouble(m_dataField);
+        double v = getDataAccessor(item).getDouble(item);
         double f = MathLib.interp(m_scale, v, m_dist);
         return m_cmap.getColor(f);
       default:
-        Integer idx = (Integer) m_omap.get(item.get(m_dataField));
+        Integer idx = (Integer) m_omap.get(getDataAccessor(item).get(item));
         return m_cmap.getColor(idx.doubleValue());
     }
   }
 
+  /**
+   * Get the accessor for the data field of the given item's table, reusing that
+   * of the previous item when they share a table.
+   */
+  private FieldAccessor getDataAccessor(VisualItem item) {
+    FieldAccessor a = m_dataAccess;
+    Table t = item.getTable();
+    if (a == null || a.getTable() != t || a.getField() != m_dataField) {
+      m_dataAccess = a = t.getFieldAccessor(m_dataField);
+    }
+    return a;
+  }
+
 } // end of class DataColorAction
@@ -3,6 +3,8 @@ package prefuse.action.assignment;
 import java.util.logging.Logger;
 
 import prefuse.Constants;
+import prefuse.data.FieldAccessor;
+import prefuse.data.Table;
 import prefuse.data.tuple.TupleSet;
 import prefuse.util.DataLib;
 import prefuse.util.MathLib;
@@ -54,6 +56,7 @@ public class DataSizeAction extends SizeAction {
   protected static final double NO_SIZE = Double.NaN;
 
   protected String m_dataField;
+  private volatile FieldAccessor m_dataAccess; // shared by concurrent workers
 
   protected double m_minSize = 1;
   protected double m_sizeRange;
@@ -369,7 +372,12 @@ public class DataSizeAction extends SizeAction {
     }
 
     // otherwise perform data-driven assignment
-    double v = item.getDouble(m_dataField);
+    FieldAccessor a = m_dataAccess;
+    Table t = item.getTable();
+    if (a == null || a.getTable() != t || a.getField() != m_dataField) {
+      m_dataAccess = a = t.getFieldAccessor(m_dataField);
+    }
+    double v = a.getDouble(item);
     double f = MathLib.interp(m_scale, v, m_dist);
     if (m_bins < 1) {
       // continuous scale
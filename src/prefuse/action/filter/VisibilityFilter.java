@@ -4,15 +4,23 @@ import java.util.Iterator;
 
 import prefuse.Visualization;
 import prefuse.action.GroupAction;
+import prefuse.data.Graph;
+import prefuse.data.Table;
+import prefuse.data.Tuple;
 import prefuse.data.expression.OrPredicate;
 import prefuse.data.expression.Predicate;
+import prefuse.data.tuple.TupleSet;
+import prefuse.data.util.FilterIteratorFactory;
 import prefuse.util.PrefuseLib;
 import prefuse.visual.VisualItem;
 import prefuse.visual.expression.VisiblePredicate;
 
 /**
  * Filter Action that sets visible all items that meet a given Predicate
- * condition and sets all other items invisible.
+ * condition and sets all other items invisible. For groups backed by tables,
+ * the passing rows are selected using the table's indexes where possible, or
+ * by evaluating the predicate a block of rows at a time, and only items that
+ * are visible or pass the predicate are visited.
  * 
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
@@ -75,10 +83,48 @@ public class VisibilityFilter extends GroupAction {
    */
   @Override
   public void run(double frac) {
-    Iterator items = m_vis.items(m_group, m_filter);
-    while (items.hasNext()) {
-      VisualItem item = (VisualItem) items.next();
-      PrefuseLib.updateVisible(item, m_predicate.getBoolean(item));
+    TupleSet ts = m_vis.getGroup(m_group);
+    if (ts instanceof Graph) {
+      Graph g = (Graph) ts;
+      filter(g.getEdgeTable(), g, false);
+      filter(g.getNodeTable(), g, true);
+    } else if (ts instanceof Table) {
+      filter((Table) ts, null, false);
+    } else {
+      Iterator items = m_vis.items(m_group, m_filter);
+      while (items.hasNext()) {
+        VisualItem item = (VisualItem) items.next();
+        PrefuseLib.updateVisible(item, m_predicate.getBoolean(item));
+      }
+    }
+  }
+
+  /**
+   * Update the visibility of the items backed by a table.
+   * 
+   * @param t
+   *          the table of items
+   * @param g
+   *          the graph the table belongs to, or null for a plain table
+   * @param nodes
+   *          if the table is the node table of the graph
+   */
+  private void filter(Table t, Graph g, boolean nodes) {
+    long[] selected = new long[(t.getMaximumRow() + 64) >>> 6];
+    long[] valid = new long[selected.length];
+    FilterIteratorFactory.plan(t, m_predicate).select(selected);
+    t.getValidRows(0, valid);
+
+    for (int w = 0; w < valid.length; ++w) {
+      for (long bits = valid[w]; bits != 0; bits &= bits - 1) {
+        int row = (w << 6) + Long.numberOfTrailingZeros(bits);
+        boolean visible = (selected[w] & (bits & -bits)) != 0;
+        // items neither visible nor passing the predicate are unaffected
+        if (visible || t.getBoolean(row, VisualItem.VISIBLE)) {
+          Tuple item = (g == null ? t.getTuple(row) : nodes ? (Tuple) g.getNode(row) : g.getEdge(row));
+          PrefuseLib.updateVisible((VisualItem) item, visible);
+        }
+      }
     }
   }
 
@@ -18,6 +18,7 @@ import prefuse.data.tuple.TableTuple;
 import prefuse.data.util.AcceptAllColumnProjection;
 import prefuse.data.util.CascadedRowManager;
 import prefuse.data.util.ColumnProjection;
+import prefuse.data.util.FilterIteratorFactory;
 import prefuse.util.collections.CompositeIterator;
 import prefuse.util.collections.IntIterator;
 
@@ -182,6 +183,9 @@ public class CascadedTable extends Table {
     if (m_parent == null) {
       return;
     }
+    ++m_colVersion;
+    // deliver pending updates while the column numbers are still valid
+    flushBatch();
 
     for (int i = 0; i < m_pnames.size(); ++i) {
       String name = (String) m_pnames.get(i);
@@ -239,21 +243,26 @@ public class CascadedTable extends Table {
       return;
     }
 
+    // select the passing parent rows, using indexes where possible
+    long[] selected = new long[(m_parent.getMaximumRow() + 64) >>> 6];
+    FilterIteratorFactory.plan(m_parent, m_rowFilter).select(selected);
+
     CascadedRowManager rowman = (CascadedRowManager) m_rows;
     IntIterator crows = m_rows.rows();
     while (crows.hasNext()) {
       int crow = crows.nextInt();
-      if (!m_rowFilter.getBoolean(m_parent.getTuple(rowman.getParentRow(crow)))) {
+      int prow = rowman.getParentRow(crow);
+      if (prow < 0 || (prow >>> 6) >= selected.length || (selected[prow >>> 6] & (1L << prow)) == 0) {
         removeCascadedRow(crow);
       }
     }
 
-    Iterator ptuples = m_parent.tuples(m_rowFilter);
-    while (ptuples.hasNext()) {
-      Tuple pt = (Tuple) ptuples.next();
-      int prow = pt.getRow();
-      if (rowman.getChildRow(prow) == -1) {
-        addCascadedRow(prow);
+    for (int w = 0; w < selected.length; ++w) {
+      for (long bits = selected[w]; bits != 0; bits &= bits - 1) {
+        int prow = (w << 6) + Long.numberOfTrailingZeros(bits);
+        if (rowman.getChildRow(prow) == -1) {
+          addCascadedRow(prow);
+        }
       }
     }
   }
@@ -548,28 +557,40 @@ public class CascadedTable extends Table {
             break;
           }
 
-          // process each update, check if filtered state changes
-          for (int r = start, cr = -1; r <= end; ++r) {
-            if ((cr = rowman.getChildRow(r)) != -1) {
-              // the parent row has a corresponding row in this table
-              if (m_rowFilter.getBoolean(m_parent.getTuple(r))) {
-                // row still passes the filter, check the column
-                int idx = getColumnNumber(m_parent.getColumnName(col));
-                if (idx >= getLocalColumnCount()) {
-                  fireTableEvent(cr, cr, idx, EventConstants.UPDATE);
+          // process each update, check if filtered state changes. updates
+          // of a range of rows are batched, so that they are passed on as
+          // ranges as well.
+          int idx = getColumnNumber(m_parent.getColumnName(col));
+          boolean all = (m_rowFilter == BooleanLiteral.TRUE);
+          if (start < end) {
+            beginBatch();
+          }
+          try {
+            for (int r = start, cr = -1; r <= end; ++r) {
+              if ((cr = rowman.getChildRow(r)) != -1) {
+                // the parent row has a corresponding row in this table
+                if (all || m_rowFilter.getBoolean(m_parent.getTuple(r))) {
+                  // row still passes the filter, check the column
+                  if (idx >= getLocalColumnCount()) {
+                    fireTableEvent(cr, cr, idx, EventConstants.UPDATE);
+                  }
+                } else {
+                  // row no longer passes the filter, remove it
+                  removeCascadedRow(cr);
                 }
               } else {
-                // row no longer passes the filter, remove it
-                removeCascadedRow(cr);
-              }
-            } else {
-              // does it now pass the filter due to the update?
-              if (m_rowFilter.getBoolean(m_parent.getTuple(r))) {
-                if ((cr = rowman.getChildRow(r)) < 0) {
-                  addCascadedRow(r);
+                // does it now pass the filter due to the update?
+                if (all || m_rowFilter.getBoolean(m_parent.getTuple(r))) {
+                  if ((cr = rowman.getChildRow(r)) < 0) {
+                    addCascadedRow(r);
+                  }
                 }
               }
             }
+          } finally {
+            if (start < end) {
+              commitBatch();
+            }
           }
           break;
         }
@@ -0,0 +1,515 @@
+package prefuse.data;
+
+import prefuse.data.column.Column;
+
+/**
+ * A handle for reading and writing a single data field of a Table, obtained
+ * through {@link Table#getFieldAccessor(String)}. An accessor resolves the
+ * field name to a column once, so that subsequent reads and writes skip the
+ * name lookup performed by the field-name based methods of {@link Table} and
+ * {@link Tuple}, and go straight to the backing {@link Column}.
+ *
+ * <p>
+ * Accessors remain valid as columns are added to or removed from the table: the
+ * field is resolved again the first time the accessor is used after the
+ * table's set of columns has changed. If the table has no column with the
+ * accessor's field name, the accessor methods fall back to the field-name based
+ * methods of the table, and so behave exactly as those would.
+ * </p>
+ *
+ * <p>
+ * The tuple-based methods use the resolved column when given a tuple of the
+ * accessor's table, and otherwise defer to the tuple's own field-name based
+ * accessors. This makes it safe to use a single accessor for tuples that may
+ * come from different tables, such as the items of a group spanning several
+ * visual tables.
+ * </p>
+ *
+ * @see Table#getFieldAccessor(String)
+ */
+public class FieldAccessor {
+
+  private final Table m_table;
+  private final String m_field;
+
+  // the version is written last when resolving, and read first when
+  // accessing, so that threads sharing an accessor see the resolved column
+  private volatile int m_version;
+  private int m_col;
+  private Column m_column;
+
+  /**
+   * Create a new FieldAccessor. Accessors are obtained through
+   * {@link Table#getFieldAccessor(String)}.
+   *
+   * @param table
+   *          the table to access
+   * @param field
+   *          the data field to access
+   */
+  FieldAccessor(Table table, String field) {
+    m_table = table;
+    m_field = field;
+    resolve();
+  }
+
+  /**
+   * Look up the column for the accessed field.
+   */
+  private void resolve() {
+    int version = m_table.m_colVersion;
+    Table.ColumnEntry e = (Table.ColumnEntry) m_table.m_entries.get(m_field);
+    m_col = (e == null ? -1 : e.colnum);
+    m_column = (e == null ? null : e.column);
+    m_version = version;
+  }
+
+  /**
+   * Get the resolved column, re-resolving it if the table's columns have
+   * changed since the last access.
+   *
+   * @return the Column instance, or null if the field is not present
+   */
+  private Column column() {
+    if (m_version != m_table.m_colVersion) {
+      resolve();
+    }
+    return m_column;
+  }
+
+  /**
+   * Get the table accessed by this accessor.
+   *
+   * @return the accessed Table
+   */
+  public Table getTable() {
+    return m_table;
+  }
+
+  /**
+   * Get the name of the data field accessed by this accessor.
+   *
+   * @return the data field name
+   */
+  public String getField() {
+    return m_field;
+  }
+
+  /**
+   * Get the current column number of the accessed field.
+   *
+   * @return the column number, or -1 if the field is not present
+   */
+  public int getColumnNumber() {
+    column();
+    return m_col;
+  }
+
+  /**
+   * Get the Column backing the accessed field.
+   *
+   * @return the Column instance, or null if the field is not present
+   */
+  public Column getColumn() {
+    return column();
+  }
+
+  /**
+   * Indicates if the given tuple can be accessed directly through the resolved
+   * column, i.e., it is a valid tuple of the accessed table.
+   */
+  private boolean isLocal(Tuple t) {
+    return t.getTable() == m_table && t.getRow() >= 0;
+  }
+
+  // ------------------------------------------------------------------------
+  // Row Access
+
+  /**
+   * Get the data value at the given row as an Object.
+   *
+   * @param row
+   *          the table row to get
+   * @return the data value as an Object
+   * @see Table#get(int, String)
+   */
+  public Object get(int row) {
+    Column c = column();
+    if (c == null) {
+      return m_table.get(row, m_field);
+    }
+    return c.get(m_table.getColumnRow(row, m_col));
+  }
+
+  /**
+   * Set the data value at the given row.
+   *
+   * @param row
+   *          the table row to set
+   * @param val
+   *          the value to set
+   * @see Table#set(int, String, Object)
+   */
+  public void set(int row, Object val) {
+    Column c = column();
+    if (c == null) {
+      m_table.set(row, m_field, val);
+      return;
+    }
+    m_table.m_lastCol = m_col;
+    c.set(val, m_table.getColumnRow(row, m_col));
+  }
+
+  /**
+   * Get the data value at the given row as an <code>int</code>.
+   *
+   * @param row
+   *          the table row to get
+   * @return the data value as an <code>int</code>
+   * @see Table#getInt(int, String)
+   */
+  public int getInt(int row) {
+    Column c = column();
+    if (c == null) {
+      return m_table.getInt(row, m_field);
+    }
+    return c.getInt(m_table.getColumnRow(row, m_col));
+  }
+
+  /**
+   * Set the data value at the given row as an <code>int</code>.
+   *
+   * @param row
+   *          the table row to set
+   * @param val
+   *          the value to set
+   * @see Table#setInt(int, String, int)
+   */
+  public void setInt(int row, int val) {
+    Column c = column();
+    if (c == null) {
+      m_table.setInt(row, m_field, val);
+      return;
+    }
+    m_table.m_lastCol = m_col;
+    c.setInt(val, m_table.getColumnRow(row, m_col));
+  }
+
+  /**
+   * Get the data value at the given row as a <code>long</code>.
+   *
+   * @param row
+   *          the table row to get
+   * @return the data value as a <code>long</code>
+   * @see Table#getLong(int, String)
+   */
+  public long getLong(int row) {
+    Column c = column();
+    if (c == null) {
+      return m_table.getLong(row, m_field);
+    }
+    return c.getLong(m_table.getColumnRow(row, m_col));
+  }
+
+  /**
+   * Set the data value at the given row as a <code>long</code>.
+   *
+   * @param row
+   *          the table row to set
+   * @param val
+   *          the value to set
+   * @see Table#setLong(int, String, long)
+   */
+  public void setLong(int row, long val) {
+    Column c = column();
+    if (c == null) {
+      m_table.setLong(row, m_field, val);
+      return;
+    }
+    m_table.m_lastCol = m_col;
+    c.setLong(val, m_table.getColumnRow(row, m_col));
+  }
+
+  /**
+   * Get the data value at the given row as a <code>float</code>.
+   *
+   * @param row
+   *          the table row to get
+   * @return the data value as a <code>float</code>
+   * @see Table#getFloat(int, String)
+   */
+  public float getFloat(int row) {
+    Column c = column();
+    if (c == null) {
+      return m_table.getFloat(row, m_field);
+    }
+    return c.getFloat(m_table.getColumnRow(row, m_col));
+  }
+
+  /**
+   * Set the data value at the given row as a <code>float</code>.
+   *
+   * @param row
+   *          the table row to set
+   * @param val
+   *          the value to set
+   * @see Table#setFloat(int, String, float)
+   */
+  public void setFloat(int row, float val) {
+    Column c = column();
+    if (c == null) {
+      m_table.setFloat(row, m_field, val);
+      return;
+    }
+    m_table.m_lastCol = m_col;
+    c.setFloat(val, m_table.getColumnRow(row, m_col));
+  }
+
+  /**
+   * Get the data value at the given row as a <code>double</code>.
+   *
+   * @param row
+   *          the table row to get
+   * @return the data value as a <code>double</code>
+   * @see Table#getDouble(int, String)
+   */
+  public double getDouble(int row) {
+    Column c = column();
+    if (c == null) {
+      return m_table.getDouble(row, m_field);
+    }
+    return c.getDouble(m_table.getColumnRow(row, m_col));
+  }
+
+  /**
+   * Set the data value at the given row as a <code>double</code>.
+   *
+   * @param row
+   *          the table row to set
+   * @param val
+   *          the value to set
+   * @see Table#setDouble(int, String, double)
+   */
+  public void setDouble(int row, double val) {
+    Column c = column();
+    if (c == null) {
+      m_table.setDouble(row, m_field, val);
+      return;
+    }
+    m_table.m_lastCol = m_col;
+    c.setDouble(val, m_table.getColumnRow(row, m_col));
+  }
+
+  /**
+   * Get the data value at the given row as a <code>boolean</code>.
+   *
+   * @param row
+   *          the table row to get
+   * @return the data value as a <code>boolean</code>
+   * @see Table#getBoolean(int, String)
+   */
+  public boolean getBoolean(int row) {
+    Column c = column();
+    if (c == null) {
+      return m_table.getBoolean(row, m_field);
+    }
+    return c.getBoolean(m_table.getColumnRow(row, m_col));
+  }
+
+  /**
+   * Set the data value at the given row as a <code>boolean</code>.
+   *
+   * @param row
+   *          the table row to set
+   * @param val
+   *          the value to set
+   * @see Table#setBoolean(int, String, boolean)
+   */
+  public void setBoolean(int row, boolean val) {
+    Column c = column();
+    if (c == null) {
+      m_table.setBoolean(row, m_field, val);
+      return;
+    }
+    m_table.m_lastCol = m_col;
+    c.setBoolean(val, m_table.getColumnRow(row, m_col));
+  }
+
+  // ------------------------------------------------------------------------
+  // Tuple Access
+
+  /**
+   * Get the data value of the given tuple as an Object.
+   *
+   * @param t
+   *          the tuple to get
+   * @return the data value as an Object
+   * @see Tuple#get(String)
+   */
+  public Object get(Tuple t) {
+    return isLocal(t) ? get(t.getRow()) : t.get(m_field);
+  }
+
+  /**
+   * Set the data value of the given tuple.
+   *
+   * @param t
+   *          the tuple to set
+   * @param val
+   *          the value to set
+   * @see Tuple#set(String, Object)
+   */
+  public void set(Tuple t, Object val) {
+    if (isLocal(t)) {
+      set(t.getRow(), val);
+    } else {
+      t.set(m_field, val);
+    }
+  }
+
+  /**
+   * Get the data value of the given tuple as an <code>int</code>.
+   *
+   * @param t
+   *          the tuple to get
+   * @return the data value as an <code>int</code>
+   * @see Tuple#getInt(String)
+   */
+  public int getInt(Tuple t) {
+    return isLocal(t) ? getInt(t.getRow()) : t.getInt(m_field);
+  }
+
+  /**
+   * Set the data value of the given tuple as an <code>int</code>.
+   *
+   * @param t
+   *          the tuple to set
+   * @param val
+   *          the value to set
+   * @see Tuple#setInt(String, int)
+   */
+  public void setInt(Tuple t, int val) {
+    if (isLocal(t)) {
+      setInt(t.getRow(), val);
+    } else {
+      t.setInt(m_field, val);
+    }
+  }
+
+  /**
+   * Get the data value of the given tuple as a <code>long</code>.
+   *
+   * @param t
+   *          the tuple to get
+   * @return the data value as a <code>long</code>
+   * @see Tuple#getLong(String)
+   */
+  public long getLong(Tuple t) {
+    return isLocal(t) ? getLong(t.getRow()) : t.getLong(m_field);
+  }
+
+  /**
+   * Set the data value of the given tuple as a <code>long</code>.
+   *
+   * @param t
+   *          the tuple to set
+   * @param val
+   *          the value to set
+   * @see Tuple#setLong(String, long)
+   */
+  public void setLong(Tuple t, long val) {
+    if (isLocal(t)) {
+      setLong(t.getRow(), val);
+    } else {
+      t.setLong(m_field, val);
+    }
+  }
+
+  /**
+   * Get the data value of the given tuple as a <code>float</code>.
+   *
+   * @param t
+   *          the tuple to get
+   * @return the data value as a <code>float</code>
+   * @see Tuple#getFloat(String)
+   */
+  public float getFloat(Tuple t) {
+    return isLocal(t) ? getFloat(t.getRow()) : t.getFloat(m_field);
+  }
+
+  /**
+   * Set the data value of the given tuple as a <code>float</code>.
+   *
+   * @param t
+   *          the tuple to set
+   * @param val
+   *          the value to set
+   * @see Tuple#setFloat(String, float)
+   */
+  public void setFloat(Tuple t, float val) {
+    if (isLocal(t)) {
+      setFloat(t.getRow(), val);
+    } else {
+      t.setFloat(m_field, val);
+    }
+  }
+
+  /**
+   * Get the data value of the given tuple as a <code>double</code>.
+   *
+   * @param t
+   *          the tuple to get
+   * @return the data value as a <code>double</code>
+   * @see Tuple#getDouble(String)
+   */
+  public double getDouble(Tuple t) {
+    return isLocal(t) ? getDouble(t.getRow()) : t.getDouble(m_field);
+  }
+
+  /**
+   * Set the data value of the given tuple as a <code>double</code>.
+   *
+   * @param t
+   *          the tuple to set
+   * @param val
+   *          the value to set
+   * @see Tuple#setDouble(String, double)
+   */
+  public void setDouble(Tuple t, double val) {
+    if (isLocal(t)) {
+      setDouble(t.getRow(), val);
+    } else {
+      t.setDouble(m_field, val);
+    }
+  }
+
+  /**
+   * Get the data value of the given tuple as a <code>boolean</code>.
+   *
+   * @param t
+   *          the tuple to get
+   * @return the data value as a <code>boolean</code>
+   * @see Tuple#getBoolean(String)
+   */
+  public boolean getBoolean(Tuple t) {
+    return isLocal(t) ? getBoolean(t.getRow()) : t.getBoolean(m_field);
+  }
+
+  /**
+   * Set the data value of the given tuple as a <code>boolean</code>.
+   *
+   * @param t
+   *          the tuple to set
+   * @param val
+   *          the value to set
+   * @see Tuple#setBoolean(String, boolean)
+   */
+  public void setBoolean(Tuple t, boolean val) {
+    if (isLocal(t)) {
+      setBoolean(t.getRow(), val);
+    } else {
+      t.setBoolean(m_field, val);
+    }
+  }
+
+} // end of class FieldAccessor
@@ -1,5 +1,6 @@
 package prefuse.data;
 
+import java.util.Arrays;
 import java.util.Iterator;
 
 import prefuse.data.column.Column;
@@ -362,16 +363,69 @@ public class Graph extends CompositeTupleSet {
   // Data Access Optimization
 
   /**
-   * Initialize the link table, which holds adjacency lists for this graph.
+   * Initialize the link table, which holds adjacency lists for this graph. The
+   * adjacency lists are built in bulk: a first pass over the edges counts the
+   * node degrees, and a second pass sorts the edges by node, keeping edge table
+   * order, after which each list is copied out at its final size.
    */
   protected void initLinkTable() {
     // set up cache of node data
     m_links = createLinkTable();
 
-    IntIterator edges = getEdgeTable().rows();
-    while (edges.hasNext()) {
-      updateDegrees(edges.nextInt(), 1);
+    Table edges = getEdgeTable();
+    Column scol = edges.getColumn(m_skey);
+    Column tcol = edges.getColumn(m_tkey);
+    int nn = m_links.getMaximumRow() + 1;
+
+    // count the degree of each node
+    int[] outdeg = new int[nn];
+    int[] indeg = new int[nn];
+    for (IntIterator rows = edges.rows(); rows.hasNext();) {
+      int e = rows.nextInt();
+      int s = getNodeIndex(scol.getLong(e));
+      int t = getNodeIndex(tcol.getLong(e));
+      if (s < 0 || t < 0) {
+        continue;
+      }
+      ++outdeg[s];
+      ++indeg[t];
+    }
+
+    // compute the offset of each node's links in a flat array of all links
+    int[] outpos = new int[nn + 1];
+    int[] inpos = new int[nn + 1];
+    for (int n = 0; n < nn; ++n) {
+      outpos[n + 1] = outpos[n] + outdeg[n];
+      inpos[n + 1] = inpos[n] + indeg[n];
+    }
+
+    // sort the edges by node into the flat arrays
+    int[] out = new int[outpos[nn]];
+    int[] in = new int[inpos[nn]];
+    for (IntIterator rows = edges.rows(); rows.hasNext();) {
+      int e = rows.nextInt();
+      int s = getNodeIndex(scol.getLong(e));
+      int t = getNodeIndex(tcol.getLong(e));
+      if (s < 0 || t < 0) {
+        continue;
+      }
+      out[outpos[s]++] = e;
+      in[inpos[t]++] = e;
     }
+
+    // copy out the adjacency list of each node
+    for (int n = 0, o = 0, i = 0; n < nn; ++n) {
+      if (outdeg[n] > 0) {
+        m_links.setInt(n, OUTDEGREE, outdeg[n]);
+        m_links.set(n, OUTLINKS, Arrays.copyOfRange(out, o, o += outdeg[n]));
+      }
+      if (indeg[n] > 0) {
+        m_links.setInt(n, INDEGREE, indeg[n]);
+        m_links.set(n, INLINKS, Arrays.copyOfRange(in, i, i += indeg[n]));
+      }
+    }
+    // link structure changed, invalidate spanning tree
+    m_spanning = null;
   }
 
   /**
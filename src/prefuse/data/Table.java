@@ -1,6 +1,7 @@
 package prefuse.data;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -19,6 +20,7 @@ import prefuse.data.expression.parser.ExpressionParser;
 import prefuse.data.tuple.AbstractTupleSet;
 import prefuse.data.tuple.TableTuple;
 import prefuse.data.tuple.TupleManager;
+import prefuse.data.util.BitmapIndex;
 import prefuse.data.util.FilterIteratorFactory;
 import prefuse.data.util.Index;
 import prefuse.data.util.RowManager;
@@ -127,6 +129,21 @@ public class Table extends AbstractTupleSet implements ColumnListener {
   /** A cached schema instance, loaded lazily */
   protected Schema m_schema;
 
+  /**
+   * Incremented whenever the set of columns changes, used by
+   * {@link FieldAccessor} instances to detect stale column references.
+   */
+  protected int m_colVersion = 0;
+
+  /** The nesting depth of open batches, see {@link #beginBatch()} */
+  protected int m_batchDepth = 0;
+
+  /**
+   * Rows updated during the current batch, indexed by column number plus one
+   * (the first entry holds updates to all columns), or null if none are pending
+   */
+  private BitSet[] m_batchRows;
+
   // ------------------------------------------------------------------------
   // Constructors
 
@@ -306,6 +323,7 @@ public class Table extends AbstractTupleSet implements ColumnListener {
    */
   protected void invalidateSchema() {
     m_schema = null;
+    ++m_colVersion;
   }
 
   // ------------------------------------------------------------------------
@@ -447,6 +465,38 @@ public class Table extends AbstractTupleSet implements ColumnListener {
     return m_rows.isValidRow(row);
   }
 
+  /**
+   * Get the valid rows within a block of table rows as a bitmap, for
+   * evaluating predicates over whole blocks of rows (see
+   * {@link prefuse.data.expression.CompiledExpression#select(int, long[])}).
+   * Bit <i>i</i> of word <i>i / 64</i> of the bitmap is set if row
+   * <code>start + i</code> is valid.
+   * 
+   * @param start
+   *          the first row of the block, must be a multiple of 64
+   * @param rows
+   *          the bitmap to fill, its length in words determines the size of the
+   *          block
+   */
+  public void getValidRows(int start, long[] rows) {
+    m_rows.getValidRows(start, rows);
+  }
+
+  /**
+   * Sets which free row is reused when a row is added after rows have been
+   * removed. By default the lowest free row is reused, keeping the table
+   * compact. Tables that constantly remove and add rows can instead reuse the
+   * most recently removed row, which takes constant time.
+   * 
+   * @param b
+   *          true to reuse the lowest free row (the default), false to reuse the
+   *          most recently removed row
+   * @see prefuse.data.util.RowManager#setReuseLowestRow(boolean)
+   */
+  public void setReuseLowestRow(boolean b) {
+    m_rows.setReuseLowestRow(b);
+  }
+
   // ------------------------------------------------------------------------
   // Column Operations
 
@@ -504,6 +554,20 @@ public class Table extends AbstractTupleSet implements ColumnListener {
     return (Column) m_columns.get(col);
   }
 
+  /**
+   * Get an accessor for the given data field. The accessor resolves the field to
+   * its backing column once, avoiding the name lookup otherwise performed on
+   * each field-name based read or write. This is useful in code that accesses
+   * the same field of many rows, such as actions and expressions.
+   * 
+   * @param field
+   *          the data field name
+   * @return a FieldAccessor for the field
+   */
+  public FieldAccessor getFieldAccessor(String field) {
+    return new FieldAccessor(this, field);
+  }
+
   /**
    * Get the column with the given data field name
    * 
@@ -606,18 +670,24 @@ public class Table extends AbstractTupleSet implements ColumnListener {
   }
 
   /**
-   * Internal method for adding a column.
+   * Add a column instance to this table. This allows columns to be created
+   * outside of the table, for example with a different storage implementation
+   * or already filled with data. The column should hold a value for each row
+   * of the table, that is, its row count should equal the maximum row of the
+   * table plus one.
    * 
    * @param name
    *          the name of the column
    * @param col
    *          the actual Column instance
    */
-  protected void addColumn(String name, Column col) {
+  public void addColumn(String name, Column col) {
     int idx = getColumnNumber(name);
     if (idx >= 0 && idx < m_columns.size()) {
       throw new IllegalArgumentException("Table already has column with name \"" + name + "\"");
     }
+    // deliver pending updates while the column numbers are still valid
+    flushBatch();
 
     // add the column
     m_columns.add(col);
@@ -652,6 +722,8 @@ public class Table extends AbstractTupleSet implements ColumnListener {
     if (idx < 0 || idx >= m_columns.size()) {
       throw new IllegalArgumentException("Column index is not legal.");
     }
+    // deliver pending updates while the column numbers are still valid
+    flushBatch();
 
     String name = (String) m_names.get(idx);
     ((ColumnEntry) m_entries.get(name)).dispose();
@@ -757,7 +829,9 @@ public class Table extends AbstractTupleSet implements ColumnListener {
    * first call to this method with a given field name will cause the index to be
    * created and stored. Subsequent calls will simply return the stored index. To
    * attempt to retrieve an index without triggering creation of a new index, use
-   * the {@link #getIndex(String)} method.
+   * the {@link #getIndex(String)} method. Columns with few distinct values are
+   * indexed using a {@link prefuse.data.util.BitmapIndex}, other columns using a
+   * {@link prefuse.data.util.TreeIndex}.
    * 
    * @param field
    *          the data field name of the column to index
@@ -773,7 +847,11 @@ public class Table extends AbstractTupleSet implements ColumnListener {
 
     Column col = e.column;
     try {
-      e.index = new TreeIndex(this, m_rows, col, null);
+      if (BitmapIndex.isLowCardinality(this, field)) {
+        e.index = new BitmapIndex(this, m_rows, col, null);
+      } else {
+        e.index = new TreeIndex(this, m_rows, col, null);
+      }
     } catch (IncompatibleComparatorException ice) {
     /* can't happen */ }
 
@@ -2021,6 +2099,124 @@ public class Table extends AbstractTupleSet implements ColumnListener {
     return index.rows(lo, hi, indexType);
   }
 
+  // ------------------------------------------------------------------------
+  // Batch Operations
+
+  /**
+   * Begin a batch of updates to this table. Until the matching call to
+   * {@link #commitBatch()}, update notifications are not sent to table
+   * listeners as each cell changes. Instead, the updated rows are recorded per
+   * column, and on commit each column's updates are delivered as one event per
+   * contiguous range of updated rows. This makes bulk updates much cheaper for
+   * tables with listeners, such as cascaded tables, visual tables, and
+   * indices.
+   * 
+   * <p>
+   * Data values are written immediately, only their notification is deferred.
+   * Row insertions and deletions are still reported as they happen, as
+   * listeners (e.g., graphs) maintain per-row structures. Update notifications
+   * for deleted rows are discarded. Batches may be nested, in which case the
+   * updates are delivered when the outermost batch is committed.
+   * </p>
+   * 
+   * @see #commitBatch()
+   */
+  public synchronized void beginBatch() {
+    ++m_batchDepth;
+  }
+
+  /**
+   * Commit a batch of updates started with {@link #beginBatch()}, delivering
+   * the coalesced update notifications if this ends the outermost batch.
+   * 
+   * @throws IllegalStateException
+   *           if no batch is in progress
+   */
+  public synchronized void commitBatch() {
+    if (m_batchDepth == 0) {
+      throw new IllegalStateException("No batch in progress.");
+    }
+    if (--m_batchDepth == 0) {
+      flushBatch();
+    }
+  }
+
+  /**
+   * Indicates if a batch of updates is in progress, in which case update
+   * notifications are deferred until the batch is committed.
+   * 
+   * @return true if a batch is in progress, false otherwise
+   * @see #beginBatch()
+   */
+  public boolean isBatching() {
+    return m_batchDepth > 0;
+  }
+
+  /**
+   * Record an update notification for delivery when the current batch is
+   * committed.
+   */
+  private void deferUpdate(int row0, int row1, int col) {
+    int idx = col + 1;
+    BitSet[] pending = m_batchRows;
+    if (pending == null || pending.length <= idx) {
+      BitSet[] p = new BitSet[Math.max(idx + 1, getColumnCount() + 1)];
+      if (pending != null) {
+        System.arraycopy(pending, 0, p, 0, pending.length);
+      }
+      m_batchRows = pending = p;
+    }
+    if (pending[idx] == null) {
+      pending[idx] = new BitSet(m_rows.getMaximumRow() + 1);
+    }
+    pending[idx].set(row0, row1 + 1);
+  }
+
+  /**
+   * Discard any pending update notifications for the given rows.
+   */
+  private void discardUpdates(int row0, int row1) {
+    BitSet[] pending = m_batchRows;
+    if (pending != null) {
+      for (int i = 0; i < pending.length; ++i) {
+        if (pending[i] != null) {
+          pending[i].clear(row0, row1 + 1);
+        }
+      }
+    }
+  }
+
+  /**
+   * Deliver all pending update notifications of the current batch, one event
+   * per column and contiguous range of updated rows. Changes made by listeners
+   * while the notifications are delivered are reported immediately.
+   */
+  protected synchronized void flushBatch() {
+    BitSet[] pending = m_batchRows;
+    if (pending == null) {
+      return;
+    }
+    m_batchRows = null;
+
+    int depth = m_batchDepth;
+    m_batchDepth = 0;
+    try {
+      for (int i = 0; i < pending.length; ++i) {
+        BitSet rows = pending[i];
+        if (rows == null) {
+          continue;
+        }
+        for (int r0 = rows.nextSetBit(0); r0 >= 0; r0 = rows.nextSetBit(r0)) {
+          int r1 = rows.nextClearBit(r0);
+          fireTableEvent(r0, r1 - 1, i - 1, EventConstants.UPDATE);
+          r0 = r1;
+        }
+      }
+    } finally {
+      m_batchDepth = depth;
+    }
+  }
+
   // ------------------------------------------------------------------------
   // Listener Methods
 
@@ -2108,19 +2304,22 @@ public class Table extends AbstractTupleSet implements ColumnListener {
       return; // bail if no valid rows
     }
 
-    // determine the index of the updated column
-    int idx;
-    if (m_lastCol != -1 && c == getColumn(m_lastCol)) {
-      // constant time
-      idx = m_lastCol;
-    } else {
+    // determine the index of the updated column. the last accessed column is
+    // read once and verified, as it may be changed by other threads writing
+    // to the table concurrently
+    int idx = m_lastCol;
+    if (idx < 0 || idx >= getColumnCount() || c != getColumn(idx)) {
       // linear time
       idx = getColumnNumber(c);
     }
 
-    // if we have a valid index, fire a notification
+    // if we have a valid index, fire a notification. notifications are
+    // serialized, as the values of different rows may be set concurrently
+    // (see prefuse.action.ItemAction#setParallelism)
     if (idx >= 0) {
-      fireTableEvent(start, end, idx, TableModelEvent.UPDATE);
+      synchronized (this) {
+        fireTableEvent(start, end, idx, TableModelEvent.UPDATE);
+      }
     }
   }
 
@@ -2176,6 +2375,16 @@ public class Table extends AbstractTupleSet implements ColumnListener {
     // increment the modification count
     ++m_modCount;
 
+    // within a batch, hold back updates until the batch is committed
+    if (m_batchDepth > 0) {
+      if (type == EventConstants.UPDATE) {
+        deferUpdate(row0, row1, col);
+        return;
+      } else if (type == EventConstants.DELETE && col == EventConstants.ALL_COLUMNS) {
+        discardUpdates(row0, row1);
+      }
+    }
+
     if (type != EventConstants.UPDATE && col == EventConstants.ALL_COLUMNS) {
       // fire event to all tuple set listeners
       fireTupleEvent(this, row0, row1, type);
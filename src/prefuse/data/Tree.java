@@ -1,5 +1,6 @@
 package prefuse.data;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.logging.Logger;
 
@@ -54,6 +55,16 @@ public class Tree extends Graph {
   /** The node table row number for the root node of the tree. */
   protected int m_root = -1;
 
+  // cached structure of the tree, computed lazily and invalidated by changes
+  // to the linkage or root of the tree. Readers on different threads may
+  // compute the cache concurrently: depths are only ever set to their final
+  // values, and traversal orders are published as complete snapshots.
+  private volatile int m_cacheRoot = -1;
+  private volatile int[] m_depth; // depth of each node, UNKNOWN if not yet computed
+  private volatile Order m_order; // traversal order of the nodes
+
+  private static final int UNKNOWN = Integer.MIN_VALUE;
+
   // ------------------------------------------------------------------------
   // Constructors
 
@@ -145,6 +156,24 @@ public class Tree extends Graph {
     return links;
   }
 
+  /**
+   * @see prefuse.data.Graph#initLinkTable()
+   */
+  @Override
+  protected void initLinkTable() {
+    super.initLinkTable();
+    // the child index is the position of a child in its parent's child array
+    for (IntIterator rows = m_links.rows(); rows.hasNext();) {
+      int n = rows.nextInt();
+      int[] links = (int[]) m_links.get(n, OUTLINKS);
+      for (int i = 0, od = getOutDegree(n); i < od; ++i) {
+        m_links.setInt(getTargetNode(links[i]), CHILDINDEX, i);
+      }
+    }
+    m_depth = null;
+    m_order = null;
+  }
+
   /**
    * @see prefuse.data.Graph#updateDegrees(int, int, int, int)
    */
@@ -164,6 +193,22 @@ public class Tree extends Graph {
       }
       m_links.setInt(t, CHILDINDEX, -1);
     }
+    updateStructure(s, t, incr);
+  }
+
+  /**
+   * @see prefuse.data.Graph#updateNodeData(int, boolean)
+   */
+  @Override
+  protected void updateNodeData(int r, boolean added) {
+    super.updateNodeData(r, added);
+    if (m_depth != null) {
+      // a new or removed node has no links, its depth is computed on demand
+      ensureDepthCapacity(r + 1)[r] = UNKNOWN;
+    }
+    if (!added) {
+      m_order = null;
+    }
   }
 
   // ------------------------------------------------------------------------
@@ -504,16 +549,314 @@ public class Tree extends Graph {
       return -1;
     }
 
-    int depth = 0;
     if (node != m_root && getParent(node) < 0) {
       return -1;
     }
-    for (int i = node; i != m_root && i >= 0; ++depth, i = getParent(i)) {
-      ;
+    return depth(node);
+  }
+
+  /**
+   * Indicates if a node is an ancestor of another node, that is, if it lies on
+   * the path of parent links from the other node up to the root. A node is not
+   * considered an ancestor of itself. Nodes of the subtree rooted at the root
+   * node are tested in constant time using their preorder indices and subtree
+   * sizes, other nodes by walking their parent links.
+   * 
+   * @param ancestor
+   *          the node id (node table row number) of the candidate ancestor
+   * @param node
+   *          a node id (node table row number)
+   * @return true if the first node is an ancestor of the second node, false
+   *         otherwise
+   */
+  public boolean isAncestor(int ancestor, int node) {
+    if (ancestor == node || !getNodeTable().isValidRow(ancestor) || !getNodeTable().isValidRow(node)) {
+      return false;
+    }
+    Order order = buildOrder();
+    int a = order.index(order.preorder, ancestor), n = order.index(order.preorder, node);
+    if (n >= 0) {
+      return a >= 0 && a < n && n < a + order.subtree[ancestor];
+    }
+    // the node is detached from the root, walk up to the ancestor's depth
+    int da = depth(ancestor), dn = depth(node);
+    if (da < 0 || dn <= da) {
+      return false;
+    }
+    int p = node;
+    for (int i = da; i < dn; ++i) {
+      p = getParent(p);
+    }
+    return p == ancestor;
+  }
+
+  /**
+   * Indicates if a node is an ancestor of another node.
+   * 
+   * @param ancestor
+   *          the candidate ancestor Node
+   * @param node
+   *          a Node
+   * @return true if the first node is an ancestor of the second node, false
+   *         otherwise
+   * @see #isAncestor(int, int)
+   */
+  public boolean isAncestor(Node ancestor, Node node) {
+    nodeCheck(ancestor, true);
+    nodeCheck(node, true);
+    return isAncestor(ancestor.getRow(), node.getRow());
+  }
+
+  /**
+   * Get the preorder index of the given node id, the position of the node in a
+   * depth-first traversal from the root visiting parents before their children
+   * and children in order. The nodes of the subtree rooted at a node are those
+   * with preorder indices from that of the node up to, but not including, that
+   * index plus the size of the subtree.
+   * 
+   * @param node
+   *          a node id (node table row number)
+   * @return the preorder index of the node, or -1 if the node is not reachable
+   *         from the root
+   * @see #getSubtreeSize(int)
+   * @see #getPreorderRow(int)
+   */
+  public int getPreorderIndex(int node) {
+    Order order = buildOrder();
+    return order.index(order.preorder, node);
+  }
+
+  /**
+   * Get the postorder index of the given node id, the position of the node in a
+   * depth-first traversal from the root visiting children in order before their
+   * parents.
+   * 
+   * @param node
+   *          a node id (node table row number)
+   * @return the postorder index of the node, or -1 if the node is not reachable
+   *         from the root
+   */
+  public int getPostorderIndex(int node) {
+    Order order = buildOrder();
+    return order.index(order.postorder, node);
+  }
+
+  /**
+   * Get the node id at the given preorder index.
+   * 
+   * @param index
+   *          a preorder index
+   * @return the node id (node table row number) at the preorder index, or -1 if
+   *         the index is out of range
+   * @see #getPreorderIndex(int)
+   */
+  public int getPreorderRow(int index) {
+    Order order = buildOrder();
+    return order.index(order.rows, index);
+  }
+
+  /**
+   * Get the number of nodes in the subtree rooted at the given node id,
+   * including the node itself.
+   * 
+   * @param node
+   *          a node id (node table row number)
+   * @return the size of the subtree, or -1 if the node is not reachable from
+   *         the root
+   */
+  public int getSubtreeSize(int node) {
+    Order order = buildOrder();
+    return (order.index(order.preorder, node) < 0 ? -1 : order.subtree[node]);
+  }
+
+  // ------------------------------------------------------------------------
+  // Structure Cache
+
+  /**
+   * Update the cached structure of the tree after a link has been added or
+   * removed. Depths are kept current when a link attaches or detaches a leaf
+   * node, all other changes discard the cached depths.
+   */
+  private void updateStructure(int s, int t, int incr) {
+    m_order = null;
+    int[] depth = m_depth;
+    if (depth == null) {
+      return;
+    }
+    if (incr > 0 && getInDegree(t) == 1 && getOutDegree(t) == 0 && t != m_root) {
+      depth = ensureDepthCapacity(Math.max(s, t) + 1);
+      int d = depth[s];
+      depth[t] = (d == UNKNOWN ? UNKNOWN : d < 0 ? -1 : d + 1);
+    } else if (incr < 0 && getOutDegree(t) == 0 && t < depth.length) {
+      depth[t] = UNKNOWN;
+    } else {
+      m_depth = null;
+    }
+  }
+
+  /**
+   * Discard the cached structure if the root has changed.
+   */
+  private void checkRoot() {
+    if (m_cacheRoot != m_root) {
+      m_cacheRoot = m_root;
+      m_depth = null;
+      m_order = null;
+    }
+  }
+
+  /**
+   * Get the depth cache, creating or growing it to hold at least the given
+   * number of nodes.
+   */
+  private int[] ensureDepthCapacity(int n) {
+    int[] depth = m_depth;
+    if (depth == null) {
+      depth = new int[Math.max(n, getNodeTable().getMaximumRow() + 1)];
+      Arrays.fill(depth, UNKNOWN);
+      m_depth = depth;
+    } else if (depth.length < n) {
+      int len = depth.length;
+      depth = Arrays.copyOf(depth, Math.max(n, 3 * len / 2 + 1));
+      Arrays.fill(depth, len, depth.length, UNKNOWN);
+      m_depth = depth;
     }
     return depth;
   }
 
+  /**
+   * Get the depth of a node, counting the root as level 0 and a node without a
+   * parent as level 1, memoizing the depths of the node and its ancestors.
+   * Nodes on or below a cycle of parent links have a depth of -1.
+   */
+  private int depth(int node) {
+    checkRoot();
+    int[] depth = m_depth;
+    if (depth == null || depth.length <= node) {
+      depth = ensureDepthCapacity(node + 1);
+    }
+    int d = depth[node];
+    if (d != UNKNOWN) {
+      return d;
+    }
+
+    // walk up the parent links to a node of known depth, collecting the
+    // path in a local array, as other threads may be computing depths too
+    int[] path = new int[16];
+    int len = 0;
+    for (int i = node;;) {
+      int k = (i < depth.length ? depth[i] : UNKNOWN);
+      if (k != UNKNOWN) {
+        d = (k < 0 ? -1 : k + 1);
+        break;
+      }
+      if (len == path.length) {
+        path = Arrays.copyOf(path, 2 * len);
+      }
+      path[len++] = i;
+      int p = getParent(i);
+      if (i == m_root) {
+        d = 0;
+        break;
+      } else if (p < 0) {
+        d = 1;
+        break;
+      } else if (len > depth.length) {
+        // the path has run into a cycle of parent links
+        d = -1;
+        break;
+      }
+      i = p;
+    }
+
+    // store the final depths from the top of the path down
+    for (int j = len - 1;; --j) {
+      if (path[j] < depth.length) {
+        depth[path[j]] = d;
+      }
+      if (j == 0) {
+        return d;
+      }
+      d = (d < 0 ? -1 : d + 1);
+    }
+  }
+
+  /**
+   * Snapshot of the preorder and postorder indices and subtree sizes of the
+   * nodes reachable from the root, never modified once built.
+   */
+  private static final class Order {
+    final int[] preorder; // preorder index of each node, -1 if not reachable
+    final int[] postorder; // postorder index of each node, -1 if not reachable
+    final int[] subtree; // number of nodes in the subtree of each node
+    final int[] rows; // node at each preorder index
+
+    Order(int[] preorder, int[] postorder, int[] subtree, int[] rows) {
+      this.preorder = preorder;
+      this.postorder = postorder;
+      this.subtree = subtree;
+      this.rows = rows;
+    }
+
+    int index(int[] a, int i) {
+      return (i < 0 || i >= a.length || a[i] < 0 ? -1 : a[i]);
+    }
+  }
+
+  /**
+   * Get the preorder and postorder indices and subtree sizes of the nodes
+   * reachable from the root, computing them if not already computed.
+   */
+  private Order buildOrder() {
+    checkRoot();
+    Order cached = m_order;
+    if (cached != null) {
+      return cached;
+    }
+    int n = getNodeTable().getMaximumRow() + 1;
+    int[] pre = new int[n], post = new int[n], size = new int[n];
+    Arrays.fill(pre, -1);
+    Arrays.fill(post, -1);
+    int[] order = new int[getNodeCount()];
+    Arrays.fill(order, -1);
+
+    int root = m_root;
+    if (root >= 0 && root < n && getNodeTable().isValidRow(root)) {
+      // iterative depth-first traversal, following only parent links so
+      // that the result agrees with getParent for malformed trees
+      int[] stack = new int[16], next = new int[16];
+      int sp = 0, k = 0, q = 0;
+      stack[sp] = root;
+      next[sp++] = 0;
+      order[k] = root;
+      pre[root] = k++;
+      while (sp > 0) {
+        int p = stack[sp - 1], c = next[sp - 1];
+        if (c < getChildCount(p)) {
+          next[sp - 1] = c + 1;
+          int child = getChildRow(p, c);
+          if (pre[child] < 0 && getParent(child) == p) {
+            if (sp == stack.length) {
+              stack = Arrays.copyOf(stack, 2 * sp);
+              next = Arrays.copyOf(next, 2 * sp);
+            }
+            stack[sp] = child;
+            next[sp++] = 0;
+            order[k] = child;
+            pre[child] = k++;
+          }
+        } else {
+          --sp;
+          post[p] = q++;
+          size[p] = k - pre[p];
+        }
+      }
+    }
+    cached = new Order(pre, post, size, order);
+    m_order = cached;
+    return cached;
+  }
+
   /**
    * Get the number of children of the given node id.
    * 
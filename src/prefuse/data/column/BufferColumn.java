@@ -0,0 +1,230 @@
+package prefuse.data.column;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Abstract base class for Column implementations storing primitive values in
+ * {@link java.nio.ByteBuffer} instances instead of a Java array. The buffers
+ * may be direct buffers allocated outside of the Java heap, or buffers mapped
+ * onto files, in which case column values are paged in and out by the
+ * operating system as they are accessed rather than held in memory. Either way
+ * large columns add nothing to the work of the garbage collector.
+ *
+ * <p>
+ * Values are stored at fixed width from the start of the first buffer, using
+ * the byte order of that buffer. When the column grows beyond the capacity of
+ * its buffers, a further buffer is added and the values already stored stay
+ * where they are. Each added buffer is twice as large as the one before it, so
+ * that a column of any size is spread over a few dozen buffers at most. Added
+ * buffers are direct buffers, or buffers mapped onto temporary files if the
+ * column was given a storage directory. Columns backed by a read-only buffer
+ * are read-only.
+ * </p>
+ */
+public abstract class BufferColumn extends AbstractColumn {
+
+  /** Base 2 logarithm of the number of rows of the first added buffer. */
+  private static final int CHUNK_SHIFT = 10;
+  private static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+
+  protected ByteBuffer m_buffer;
+  protected int m_size;
+  private final int m_shift;
+  private final int m_base; // capacity of m_buffer in rows
+  private final File m_directory;
+  private ByteBuffer[] m_chunks = new ByteBuffer[0];
+  private int m_capacity;
+
+  /**
+   * Create a new BufferColumn.
+   *
+   * @param type
+   *          the data type of the column
+   * @param defaultValue
+   *          the default value for the column
+   * @param buffer
+   *          the buffer holding the column values, starting at index zero
+   * @param nrows
+   *          the initial size of the column
+   * @param shift
+   *          the base 2 logarithm of the width of a value in bytes
+   */
+  protected BufferColumn(Class type, Object defaultValue, ByteBuffer buffer, int nrows, int shift) {
+    this(type, defaultValue, buffer, nrows, shift, null);
+  }
+
+  /**
+   * Create a new BufferColumn.
+   *
+   * @param type
+   *          the data type of the column
+   * @param defaultValue
+   *          the default value for the column
+   * @param buffer
+   *          the buffer holding the column values, starting at index zero
+   * @param nrows
+   *          the initial size of the column
+   * @param shift
+   *          the base 2 logarithm of the width of a value in bytes
+   * @param directory
+   *          the directory in which to create the files backing the buffers
+   *          added as the column grows, or null to add direct buffers
+   */
+  protected BufferColumn(Class type, Object defaultValue, ByteBuffer buffer, int nrows, int shift, File directory) {
+    super(type, defaultValue);
+    if (nrows < 0 || (buffer.limit() >> shift) < nrows) {
+      throw new IllegalArgumentException("Capacity value can not be less than the row count.");
+    }
+    m_buffer = buffer;
+    m_size = nrows;
+    m_shift = shift;
+    m_base = buffer.limit() >> shift;
+    m_capacity = m_base;
+    m_directory = directory;
+    m_readOnly = buffer.isReadOnly();
+  }
+
+  /**
+   * Allocate a direct buffer in the native byte order.
+   *
+   * @param capacity
+   *          the number of values the buffer should hold
+   * @param shift
+   *          the base 2 logarithm of the width of a value in bytes
+   * @return the allocated buffer
+   */
+  protected static ByteBuffer allocate(int capacity, int shift) {
+    return ByteBuffer.allocateDirect(capacity << shift).order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * Allocate a buffer in the native byte order, either a direct buffer or a
+   * buffer mapped onto a new temporary file. The file is deleted as soon as it
+   * has been mapped where the platform allows it, and otherwise when the
+   * virtual machine exits.
+   *
+   * @param capacity
+   *          the number of values the buffer should hold
+   * @param shift
+   *          the base 2 logarithm of the width of a value in bytes
+   * @param directory
+   *          the directory in which to create the file, or null to allocate a
+   *          direct buffer
+   * @return the allocated buffer
+   * @throws IllegalStateException
+   *           if the file could not be created or mapped
+   */
+  protected static ByteBuffer allocate(int capacity, int shift, File directory) {
+    if (directory == null) {
+      return allocate(capacity, shift);
+    }
+    File f = null;
+    try {
+      f = File.createTempFile("prefuse", ".col", directory);
+      RandomAccessFile file = new RandomAccessFile(f, "rw");
+      try {
+        long size = (long) capacity << shift;
+        file.setLength(size);
+        return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size).order(ByteOrder.nativeOrder());
+      } finally {
+        file.close();
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not map column storage in " + directory + ": " + e.getMessage(), e);
+    } finally {
+      if (f != null && !f.delete()) {
+        f.deleteOnExit();
+      }
+    }
+  }
+
+  /**
+   * Get the buffer backing the first rows of this column. Values are stored
+   * from index zero onwards. Rows beyond the capacity of this buffer are
+   * stored in further buffers added as the column grows.
+   *
+   * @return the first buffer backing this column
+   */
+  public ByteBuffer getBuffer() {
+    return m_buffer;
+  }
+
+  /**
+   * Get the buffer holding the value of the given row.
+   *
+   * @param row
+   *          the row, which must be within the capacity of the column
+   * @return the buffer holding the row value
+   */
+  protected final ByteBuffer buffer(int row) {
+    if (row < m_base) {
+      return m_buffer;
+    }
+    return m_chunks[31 - Integer.numberOfLeadingZeros(row - m_base + CHUNK_ROWS) - CHUNK_SHIFT];
+  }
+
+  /**
+   * Get the byte index of the value of the given row within the buffer
+   * returned by {@link #buffer(int)}.
+   *
+   * @param row
+   *          the row, which must be within the capacity of the column
+   * @return the index of the row value
+   */
+  protected final int offset(int row) {
+    if (row < m_base) {
+      return row << m_shift;
+    }
+    int q = row - m_base + CHUNK_ROWS;
+    return (q - Integer.highestOneBit(q)) << m_shift;
+  }
+
+  /**
+   * Set the values of a range of rows beyond the current row count to the
+   * default value.
+   *
+   * @param from
+   *          the first row to fill, inclusive
+   * @param to
+   *          the last row to fill, exclusive
+   */
+  protected abstract void fill(int from, int to);
+
+  // ------------------------------------------------------------------------
+  // Column Metadata
+
+  /**
+   * @see prefuse.data.column.Column#getRowCount()
+   */
+  @Override
+  public int getRowCount() {
+    return m_size;
+  }
+
+  /**
+   * @see prefuse.data.column.Column#setMaximumRow(int)
+   */
+  @Override
+  public void setMaximumRow(int nrows) {
+    while (nrows > m_capacity) {
+      int n = m_chunks.length;
+      int rows = CHUNK_ROWS << n;
+      if (rows << m_shift <= 0 || m_capacity + rows < 0) {
+        throw new IllegalStateException("Column capacity exceeded: " + nrows);
+      }
+      ByteBuffer[] chunks = new ByteBuffer[n + 1];
+      System.arraycopy(m_chunks, 0, chunks, 0, n);
+      chunks[n] = allocate(rows, m_shift, m_directory).order(m_buffer.order());
+      m_chunks = chunks;
+      fill(m_capacity, m_capacity + rows);
+      m_capacity += rows;
+    }
+    m_size = nrows;
+  }
+
+} // end of abstract class BufferColumn
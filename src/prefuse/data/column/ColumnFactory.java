@@ -1,19 +1,145 @@
 package prefuse.data.column;
 
+import java.io.File;
 import java.util.Date;
 
 import prefuse.data.DataTypeException;
 import prefuse.data.Table;
 import prefuse.data.expression.Expression;
+import prefuse.util.PrefuseConfig;
 
 /**
  * Factory class for generating appropriate column instances. Used by Tables to
  * generate their columns.
  * 
+ * <p>
+ * String columns may optionally be created as {@link DictionaryColumn}
+ * instances, storing each distinct String only once, which saves memory and
+ * speeds up comparisons on columns of repetitive values but costs memory on
+ * columns of mostly unique values. Dictionary encoding is off unless enabled
+ * with the <code>data.column.dictionary</code> configuration property or
+ * {@link #setDictionaryEncoding(boolean)}.
+ * </p>
+ * 
+ * <p>
+ * By default int, long, float and double columns keep their values in Java
+ * arrays. The factory can instead be set to create {@link BufferColumn}
+ * instances for these types, keeping their values outside of the Java heap in
+ * direct buffers or in buffers mapped onto temporary files, which grow without
+ * copying. The initial setting is read from the
+ * <code>data.column.storage</code> configuration property, which may be
+ * "heap", "direct" or "mapped", and the directory for mapped files from the
+ * <code>data.column.storageDir</code> property.
+ * </p>
+ * 
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
 public class ColumnFactory {
 
+  /** Storage setting for columns keeping their values in Java arrays. */
+  public static final int HEAP_STORAGE = 0;
+  /** Storage setting for columns keeping their values in direct buffers. */
+  public static final int DIRECT_STORAGE = 1;
+  /** Storage setting for columns keeping their values in mapped files. */
+  public static final int MAPPED_STORAGE = 2;
+
+  private static int s_storage = parseStorage(PrefuseConfig.get("data.column.storage"));
+  private static File s_directory = parseDirectory(PrefuseConfig.get("data.column.storageDir"));
+  private static boolean s_dictionary = PrefuseConfig.getBoolean("data.column.dictionary");
+
+  private static int parseStorage(String storage) {
+    if ("direct".equalsIgnoreCase(storage)) {
+      return DIRECT_STORAGE;
+    } else if ("mapped".equalsIgnoreCase(storage)) {
+      return MAPPED_STORAGE;
+    } else {
+      return HEAP_STORAGE;
+    }
+  }
+
+  private static File parseDirectory(String dir) {
+    return dir == null ? null : new File(dir);
+  }
+
+  /**
+   * Get the storage used for new int, long, float and double columns.
+   * 
+   * @return one of {@link #HEAP_STORAGE}, {@link #DIRECT_STORAGE} or
+   *         {@link #MAPPED_STORAGE}
+   */
+  public static int getStorage() {
+    return s_storage;
+  }
+
+  /**
+   * Set the storage used for new int, long, float and double columns. Columns
+   * already created are not affected.
+   * 
+   * @param storage
+   *          one of {@link #HEAP_STORAGE}, {@link #DIRECT_STORAGE} or
+   *          {@link #MAPPED_STORAGE}
+   */
+  public static void setStorage(int storage) {
+    if (storage < HEAP_STORAGE || storage > MAPPED_STORAGE) {
+      throw new IllegalArgumentException("Unknown column storage: " + storage);
+    }
+    s_storage = storage;
+  }
+
+  /**
+   * Get the directory in which the files backing mapped columns are created.
+   * 
+   * @return the storage directory, or null for the default temporary-file
+   *         directory
+   */
+  public static File getStorageDirectory() {
+    return s_directory;
+  }
+
+  /**
+   * Set the directory in which the files backing mapped columns are created.
+   * The files are deleted as soon as they are mapped where the platform
+   * allows it.
+   * 
+   * @param directory
+   *          the storage directory, or null for the default temporary-file
+   *          directory
+   */
+  public static void setStorageDirectory(File directory) {
+    s_directory = directory;
+  }
+
+  /**
+   * Indicates if new String columns are created as {@link DictionaryColumn}
+   * instances.
+   * 
+   * @return true if String columns are dictionary encoded
+   */
+  public static boolean isDictionaryEncoding() {
+    return s_dictionary;
+  }
+
+  /**
+   * Set if new String columns are created as {@link DictionaryColumn}
+   * instances. Columns already created are not affected.
+   * 
+   * @param dictionary
+   *          true to dictionary encode String columns
+   */
+  public static void setDictionaryEncoding(boolean dictionary) {
+    s_dictionary = dictionary;
+  }
+
+  /**
+   * Get the directory argument for new buffer columns.
+   */
+  private static File directory() {
+    if (s_storage != MAPPED_STORAGE) {
+      return null;
+    }
+    return s_directory != null ? s_directory : new File(System.getProperty("java.io.tmpdir"));
+  }
+
   /**
    * Get a new column of the given type.
    * 
@@ -76,6 +202,10 @@ public class ColumnFactory {
         return new ByteColumn(nrows, nrows, def);
       }
     }
+    if (s_storage != HEAP_STORAGE && (type == int.class || type == long.class || type == float.class
+        || type == double.class)) {
+      return getBufferColumn(type, nrows, defaultValue);
+    }
     if (type == int.class) {
       if (defaultValue == null) {
         return new IntColumn(nrows);
@@ -120,11 +250,33 @@ public class ColumnFactory {
       }
     } else if (type == byte.class || type == short.class || type == char.class || type == void.class) {
       throw new DataTypeException(type);
+    } else if (type == String.class && s_dictionary) {
+      return new DictionaryColumn(type, nrows, nrows, defaultValue);
     } else {
       return new ObjectColumn(type, nrows, nrows, defaultValue);
     }
   }
 
+  /**
+   * Get a new column keeping its values outside of the Java heap.
+   */
+  private static Column getBufferColumn(Class type, int nrows, Object defaultValue) {
+    File dir = directory();
+    if (type == int.class) {
+      int def = defaultValue == null ? -1 : ((Number) defaultValue).intValue();
+      return new IntBufferColumn(nrows, nrows, def, dir);
+    } else if (type == long.class) {
+      long def = defaultValue == null ? 0L : ((Number) defaultValue).longValue();
+      return new LongBufferColumn(nrows, nrows, def, dir);
+    } else if (type == float.class) {
+      float def = defaultValue == null ? 0f : ((Number) defaultValue).floatValue();
+      return new FloatBufferColumn(nrows, nrows, def, dir);
+    } else {
+      double def = defaultValue == null ? 0 : ((Number) defaultValue).doubleValue();
+      return new DoubleBufferColumn(nrows, nrows, def, dir);
+    }
+  }
+
   /**
    * Get a new column based on the given expression.
    * 
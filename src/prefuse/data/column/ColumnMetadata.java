@@ -1,5 +1,6 @@
 package prefuse.data.column;
 
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
@@ -10,6 +11,7 @@ import prefuse.data.util.Index;
 import prefuse.util.DataLib;
 import prefuse.util.TypeLib;
 import prefuse.util.collections.DefaultLiteralComparator;
+import prefuse.util.collections.IntIterator;
 
 /**
  * ColumnMetadata stores computed metadata and statistics for a singe column
@@ -233,6 +235,8 @@ public class ColumnMetadata implements ColumnListener {
       Index idx = m_table.getIndex(m_field);
       if (idx != null) {
         m_unique = idx.uniqueCount();
+      } else if (m_table.getColumn(m_field) instanceof DictionaryColumn) {
+        m_unique = getOrdinalArray().length;
       } else {
         m_unique = DataLib.uniqueCount(m_table.tuples(), m_field);
       }
@@ -291,11 +295,41 @@ public class ColumnMetadata implements ColumnListener {
   public Object[] getOrdinalArray() {
     accessCheck();
     if (m_ordinalA == null && m_dynamic) {
-      m_ordinalA = DataLib.ordinalArray(m_table.tuples(), m_field, m_cmp);
+      Column c = m_table.getColumn(m_field);
+      if (c instanceof DictionaryColumn) {
+        m_ordinalA = dictionaryValues((DictionaryColumn) c);
+      } else {
+        m_ordinalA = DataLib.ordinalArray(m_table.tuples(), m_field, m_cmp);
+      }
     }
     return m_ordinalA;
   }
 
+  /**
+   * Get the sorted dictionary values used by the table's rows, visiting the
+   * codes of the rows rather than their values.
+   */
+  private Object[] dictionaryValues(DictionaryColumn c) {
+    int col = m_table.getColumnNumber(m_field);
+    boolean[] used = new boolean[c.getDictionarySize()];
+    int count = 0;
+    for (IntIterator rows = m_table.rows(); rows.hasNext();) {
+      int code = c.getCode(m_table.getColumnRow(rows.nextInt(), col));
+      if (!used[code]) {
+        used[code] = true;
+        ++count;
+      }
+    }
+    Object[] values = new Object[count];
+    for (int code = 0, i = 0; i < count; ++code) {
+      if (used[code]) {
+        values[i++] = c.getValue(code);
+      }
+    }
+    Arrays.sort(values, m_cmp);
+    return values;
+  }
+
   /**
    * Get a map between all unique column values and their integer index in the
    * sort order of those values. For example, the minimum value maps to 0, the
@@ -0,0 +1,441 @@
+package prefuse.data.column;
+
+import java.util.Arrays;
+
+import prefuse.data.DataReadOnlyException;
+import prefuse.data.DataTypeException;
+import prefuse.util.ArrayLib;
+import prefuse.util.collections.DefaultLiteralComparator;
+
+/**
+ * Column implementation storing values as integer codes into a dictionary of
+ * the distinct values of the column. Columns of repetitive values, such as
+ * String columns holding categories, names or labels, store each distinct
+ * value only once, and equality and ordering tests can be decided by
+ * comparing codes and ranks instead of the values themselves.
+ *
+ * <p>
+ * Codes are assigned in the order values are first set and are stable until
+ * the dictionary is compacted. Values no longer used by any row remain in the
+ * dictionary until it grows beyond twice the number of rows, at which point it
+ * is compacted to the values in use and all codes may change. Each change to
+ * the dictionary increments the value returned by {@link #getVersion()}, so
+ * that codes and ranks computed up front can be validated before use.
+ * </p>
+ */
+public class DictionaryColumn extends AbstractColumn {
+
+  private int[] m_codes;
+  private int m_size;
+
+  private Object[] m_dict;
+  private int m_dictSize;
+  private int[] m_hash; // open addressing table of code+1, 0 if empty
+  private int[] m_ranks; // rank of each code in the sort order, lazily computed
+  private int m_defaultCode;
+  private int m_version;
+
+  /**
+   * Create a new empty DictionaryColumn. The type is assumed to be String.
+   */
+  public DictionaryColumn() {
+    this(String.class);
+  }
+
+  /**
+   * Create a new DictionaryColumn.
+   *
+   * @param type
+   *          the data type of Objects in this column
+   */
+  public DictionaryColumn(Class type) {
+    this(type, 0, 10, null);
+  }
+
+  /**
+   * Create a new DictionaryColumn.
+   *
+   * @param type
+   *          the data type of Objects in this column
+   * @param nrows
+   *          the initial size of the column
+   */
+  public DictionaryColumn(Class type, int nrows) {
+    this(type, nrows, nrows, null);
+  }
+
+  /**
+   * Create a new DictionaryColumn.
+   *
+   * @param type
+   *          the data type of Objects in this column
+   * @param nrows
+   *          the initial size of the column
+   * @param capacity
+   *          the initial capacity of the column
+   * @param defaultValue
+   *          the default value for the column
+   */
+  public DictionaryColumn(Class type, int nrows, int capacity, Object defaultValue) {
+    super(type, defaultValue);
+    if (capacity < nrows) {
+      throw new IllegalArgumentException("Capacity value can not be less than the row count.");
+    }
+    m_dict = new Object[16];
+    m_hash = new int[32];
+    m_defaultCode = encode(defaultValue);
+    m_codes = new int[capacity];
+    if (m_defaultCode != 0) {
+      Arrays.fill(m_codes, m_defaultCode);
+    }
+    m_size = nrows;
+  }
+
+  /**
+   * Create a new DictionaryColumn from already encoded values: the distinct
+   * values of the column and the dictionary code of each row. The code array
+   * is used as is, its length determining the initial capacity of the column.
+   *
+   * @param type
+   *          the data type of Objects in this column
+   * @param dictionary
+   *          the distinct values of the column, indexed by code
+   * @param codes
+   *          the dictionary code of each row
+   * @param nrows
+   *          the initial size of the column
+   * @param defaultValue
+   *          the default value for the column
+   */
+  public DictionaryColumn(Class type, Object[] dictionary, int[] codes, int nrows, Object defaultValue) {
+    super(type, defaultValue);
+    if (codes.length < nrows) {
+      throw new IllegalArgumentException("Capacity value can not be less than the row count.");
+    }
+    for (int row = 0; row < nrows; ++row) {
+      if (codes[row] < 0 || codes[row] >= dictionary.length) {
+        throw new IllegalArgumentException("Code out of bounds: " + codes[row]);
+      }
+    }
+    m_dictSize = dictionary.length;
+    m_dict = new Object[Math.max(16, m_dictSize)];
+    System.arraycopy(dictionary, 0, m_dict, 0, m_dictSize);
+    int length = 32;
+    while (length < 2 * m_dictSize) {
+      length <<= 1;
+    }
+    rehash(length);
+    m_defaultCode = encode(defaultValue);
+    m_codes = codes;
+    Arrays.fill(m_codes, nrows, m_codes.length, m_defaultCode);
+    m_size = nrows;
+  }
+
+  // ------------------------------------------------------------------------
+  // Column Metadata
+
+  /**
+   * @see prefuse.data.column.Column#getRowCount()
+   */
+  @Override
+  public int getRowCount() {
+    return m_size;
+  }
+
+  /**
+   * @see prefuse.data.column.Column#setMaximumRow(int)
+   */
+  @Override
+  public void setMaximumRow(int nrows) {
+    if (nrows > m_codes.length) {
+      int capacity = Math.max((3 * m_codes.length) / 2 + 1, nrows);
+      int[] codes = new int[capacity];
+      System.arraycopy(m_codes, 0, codes, 0, m_size);
+      Arrays.fill(codes, m_size, capacity, m_defaultCode);
+      m_codes = codes;
+    }
+    m_size = nrows;
+  }
+
+  // ------------------------------------------------------------------------
+  // Dictionary Access
+
+  /**
+   * Get the number of values in the dictionary. Codes range from zero up to,
+   * but not including, the dictionary size. The dictionary may contain values
+   * no longer used by any row.
+   *
+   * @return the dictionary size
+   */
+  public int getDictionarySize() {
+    return m_dictSize;
+  }
+
+  /**
+   * Get the version of the dictionary, incremented each time a value is added
+   * to the dictionary or the dictionary is compacted.
+   *
+   * @return the dictionary version
+   */
+  public int getVersion() {
+    return m_version;
+  }
+
+  /**
+   * Get the dictionary code of the value at the specified row.
+   *
+   * @param row
+   *          the row from which to retrieve the code
+   * @return the dictionary code
+   */
+  public int getCode(int row) {
+    if (row < 0 || row > m_size) {
+      throw new IllegalArgumentException("Row index out of bounds: " + row);
+    }
+    return m_codes[row];
+  }
+
+  /**
+   * Get the dictionary code of a value.
+   *
+   * @param value
+   *          the value to look up
+   * @return the dictionary code, or -1 if the value is not in the dictionary
+   */
+  public int getCode(Object value) {
+    int mask = m_hash.length - 1;
+    for (int i = hash(value) & mask;; i = (i + 1) & mask) {
+      int c = m_hash[i] - 1;
+      if (c < 0) {
+        return -1;
+      } else if (value == null ? m_dict[c] == null : value.equals(m_dict[c])) {
+        return c;
+      }
+    }
+  }
+
+  /**
+   * Get the value for a dictionary code.
+   *
+   * @param code
+   *          the dictionary code
+   * @return the value
+   */
+  public Object getValue(int code) {
+    if (code < 0 || code >= m_dictSize) {
+      throw new IllegalArgumentException("Code out of bounds: " + code);
+    }
+    return m_dict[code];
+  }
+
+  /**
+   * Get the rank of a dictionary code, that is, the position of its value in
+   * the sort order of all dictionary values, as determined by a
+   * {@link DefaultLiteralComparator}.
+   *
+   * @param code
+   *          the dictionary code
+   * @return the rank of the code's value
+   */
+  public int getRank(int code) {
+    if (code < 0 || code >= m_dictSize) {
+      throw new IllegalArgumentException("Code out of bounds: " + code);
+    }
+    return ranks()[code];
+  }
+
+  /**
+   * Get the rank of a value in the sort order of all dictionary values, as
+   * determined by a {@link DefaultLiteralComparator}.
+   *
+   * @param value
+   *          the value to look up
+   * @return the rank of the value if it is in the dictionary; otherwise
+   *         <code>(-(insertion point) - 1)</code>, the insertion point being
+   *         the number of dictionary values less than the given value, as
+   *         returned by {@link java.util.Arrays#binarySearch(Object[], Object)}
+   */
+  public int getRank(Object value) {
+    int code = getCode(value);
+    if (code >= 0) {
+      return ranks()[code];
+    }
+    DefaultLiteralComparator cmp = DefaultLiteralComparator.getInstance();
+    int count = 0;
+    for (int i = 0; i < m_dictSize; ++i) {
+      if (cmp.compare(m_dict[i], value) < 0) {
+        ++count;
+      }
+    }
+    return -count - 1;
+  }
+
+  /**
+   * Get the ranks of all codes, sorting the dictionary if needed.
+   */
+  private int[] ranks() {
+    if (m_ranks == null) {
+      Object[] values = new Object[m_dictSize];
+      System.arraycopy(m_dict, 0, values, 0, m_dictSize);
+      int[] order = new int[m_dictSize];
+      for (int i = 0; i < order.length; ++i) {
+        order[i] = i;
+      }
+      ArrayLib.sort(values, order, DefaultLiteralComparator.getInstance());
+      int[] ranks = new int[m_dictSize];
+      for (int i = 0; i < order.length; ++i) {
+        ranks[order[i]] = i;
+      }
+      m_ranks = ranks;
+    }
+    return m_ranks;
+  }
+
+  private static int hash(Object value) {
+    int h = (value == null ? 0 : value.hashCode());
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Get the code of a value, adding the value to the dictionary if needed.
+   */
+  private int encode(Object value) {
+    int code = getCode(value);
+    if (code >= 0) {
+      return code;
+    }
+    if (m_codes != null && m_dictSize >= 2 * m_size + 64) {
+      compact();
+    }
+    if (m_dictSize == m_dict.length) {
+      Object[] dict = new Object[2 * m_dict.length];
+      System.arraycopy(m_dict, 0, dict, 0, m_dictSize);
+      m_dict = dict;
+    }
+    code = m_dictSize++;
+    m_dict[code] = value;
+    if (2 * m_dictSize > m_hash.length) {
+      rehash(2 * m_hash.length);
+    } else {
+      insert(code);
+    }
+    m_ranks = null;
+    ++m_version;
+    return code;
+  }
+
+  private void insert(int code) {
+    int mask = m_hash.length - 1;
+    int i = hash(m_dict[code]) & mask;
+    while (m_hash[i] != 0) {
+      i = (i + 1) & mask;
+    }
+    m_hash[i] = code + 1;
+  }
+
+  private void rehash(int length) {
+    m_hash = new int[length];
+    for (int c = 0; c < m_dictSize; ++c) {
+      insert(c);
+    }
+  }
+
+  /**
+   * Remove the values no longer used by any row from the dictionary,
+   * renumbering the remaining codes.
+   */
+  private void compact() {
+    int[] map = new int[m_dictSize];
+    Arrays.fill(map, -1);
+    map[m_defaultCode] = 0;
+    int n = 1;
+    for (int row = 0; row < m_size; ++row) {
+      int c = m_codes[row];
+      if (map[c] < 0) {
+        map[c] = n++;
+      }
+    }
+    Object[] dict = new Object[Math.max(16, 2 * n)];
+    for (int c = 0; c < m_dictSize; ++c) {
+      if (map[c] >= 0) {
+        dict[map[c]] = m_dict[c];
+      }
+    }
+    for (int row = 0; row < m_codes.length; ++row) {
+      m_codes[row] = map[m_codes[row]];
+    }
+    m_defaultCode = 0;
+    m_dict = dict;
+    m_dictSize = n;
+    int length = 32;
+    while (length < 2 * n) {
+      length <<= 1;
+    }
+    rehash(length);
+    m_ranks = null;
+    ++m_version;
+  }
+
+  // ------------------------------------------------------------------------
+  // Data Access Methods
+
+  /**
+   * @see prefuse.data.column.Column#revertToDefault(int)
+   */
+  @Override
+  public void revertToDefault(int row) {
+    set(m_defaultValue, row);
+  }
+
+  /**
+   * Get the data value at the specified row
+   *
+   * @param row
+   *          the row from which to retrieve the value
+   * @return the data value
+   */
+  @Override
+  public Object get(int row) {
+    if (row < 0 || row > m_size) {
+      throw new IllegalArgumentException("Row index out of bounds: " + row);
+    }
+    return m_dict[m_codes[row]];
+  }
+
+  /**
+   * Set the data value at the specified row
+   *
+   * @param val
+   *          the value to set
+   * @param row
+   *          the row at which to set the value
+   */
+  @Override
+  public void set(Object val, int row) {
+    if (m_readOnly) {
+      throw new DataReadOnlyException();
+    } else if (row < 0 || row > m_size) {
+      throw new IllegalArgumentException("Row index out of bounds: " + row);
+    } else if (val == null || canSet(val.getClass())) {
+      // get the previous value
+      Object prev = m_dict[m_codes[row]];
+
+      // look up the new code, which may compact and renumber the dictionary
+      int code = encode(val);
+
+      // exit early if no change
+      if (m_codes[row] == code) {
+        return;
+      }
+
+      // set the new value
+      m_codes[row] = code;
+
+      // fire a change event
+      fireColumnEvent(row, prev);
+    } else {
+      throw new DataTypeException(val.getClass());
+    }
+  }
+
+} // end of class DictionaryColumn
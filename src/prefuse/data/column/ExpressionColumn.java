@@ -1,16 +1,21 @@
 package prefuse.data.column;
 
 import java.util.BitSet;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
+import prefuse.data.CascadedTable;
 import prefuse.data.DataTypeException;
 import prefuse.data.Table;
 import prefuse.data.event.ColumnListener;
 import prefuse.data.event.EventConstants;
 import prefuse.data.event.ExpressionListener;
+import prefuse.data.expression.CompiledExpression;
 import prefuse.data.expression.Expression;
 import prefuse.data.expression.ExpressionAnalyzer;
+import prefuse.data.expression.ExpressionCompiler;
 
 /**
  * <p>
@@ -18,8 +23,10 @@ import prefuse.data.expression.ExpressionAnalyzer;
  * expressions can reference other column values within the same table. Values
  * are evaluated when first requested and then cached to increase performance.
  * This column maintains listeners for all referenced columns discovered in the
- * expression and for the expression itself, invalidating all cached entries
- * when an update to either occurs.
+ * expression and for the expression itself. An update to a referenced column
+ * invalidates only the cached entries of the updated rows, while an update to
+ * the expression invalidates all cached entries. Numeric and boolean values
+ * are computed and cached without being boxed into Objects.
  * </p>
  * 
  * <p>
@@ -37,12 +44,14 @@ import prefuse.data.expression.ExpressionAnalyzer;
 public class ExpressionColumn extends AbstractColumn {
 
   private Expression m_expr;
+  private CompiledExpression m_compiled;
   private Table m_table;
   private Set m_columns;
 
   private BitSet m_valid;
   private Column m_cache;
   private Listener m_lstnr;
+  private Map m_lstnrs = new HashMap(); // referenced field -> listener
 
   /**
    * Create a new ExpressionColumn.
@@ -56,7 +65,7 @@ public class ExpressionColumn extends AbstractColumn {
     super(expr.getType(table.getSchema()));
     m_table = table;
     m_expr = expr;
-    m_lstnr = new Listener();
+    m_lstnr = new Listener(null);
 
     init();
 
@@ -73,7 +82,7 @@ public class ExpressionColumn extends AbstractColumn {
       while (iter.hasNext()) {
         String field = (String) iter.next();
         Column col = m_table.getColumn(field);
-        col.removeColumnListener(m_lstnr);
+        col.removeColumnListener((Listener) m_lstnrs.remove(field));
       }
     }
     // now get the current set of columns
@@ -95,8 +104,23 @@ public class ExpressionColumn extends AbstractColumn {
     while (iter.hasNext()) {
       String field = (String) iter.next();
       Column col = m_table.getColumn(field);
-      col.addColumnListener(m_lstnr);
+      Listener lstnr = new Listener(field);
+      m_lstnrs.put(field, lstnr);
+      col.addColumnListener(lstnr);
     }
+
+    // recompile the expression on next use
+    m_compiled = null;
+  }
+
+  /**
+   * Get the expression compiled for evaluation over the table's rows.
+   */
+  private CompiledExpression compiled() {
+    if (m_compiled == null) {
+      m_compiled = ExpressionCompiler.compile(m_expr, m_table);
+    }
+    return m_compiled;
   }
 
   // ------------------------------------------------------------------------
@@ -148,14 +172,17 @@ public class ExpressionColumn extends AbstractColumn {
   // Data Access Methods
 
   /**
-   * Has no effect, as all values in this column are derived.
+   * Invalidates the cached value of the row, as all values in this column are
+   * derived. Tables revert the values of deleted rows, so that a reused row
+   * gets its value computed again.
    * 
    * @param row
    *          the row to revert
    */
   @Override
   public void revertToDefault(int row) {
-    // do nothing, as we don't have default values.
+    // we don't have default values, but the row may be reused
+    m_valid.clear(row);
   }
 
   /**
@@ -174,8 +201,14 @@ public class ExpressionColumn extends AbstractColumn {
     rangeCheck(row);
     if (isCacheValid(row)) {
       return m_cache.get(row);
+    } else if (m_columnType.isPrimitive() && m_columnType != boolean.class) {
+      // compute the primitive value, boxing it only for the return value
+      computeNumber(row);
+      return m_cache.get(row);
+    } else if (m_columnType == boolean.class) {
+      return (getBoolean(row) ? Boolean.TRUE : Boolean.FALSE);
     }
-    Object val = m_expr.get(m_table.getTuple(row));
+    Object val = compiled().get(row);
     Class type = val == null ? Object.class : val.getClass();
     if (m_cache.canSet(type)) {
       m_cache.set(val, row);
@@ -213,7 +246,7 @@ public class ExpressionColumn extends AbstractColumn {
     if (isCacheValid(row)) {
       return m_cache.getBoolean(row);
     } else {
-      boolean value = m_expr.getBoolean(m_table.getTuple(row));
+      boolean value = compiled().getBoolean(row);
       m_cache.setBoolean(value, row);
       m_valid.set(row);
       return value;
@@ -222,13 +255,13 @@ public class ExpressionColumn extends AbstractColumn {
 
   private void computeNumber(int row) {
     if (m_columnType == int.class || m_columnType == byte.class) {
-      m_cache.setInt(m_expr.getInt(m_table.getTuple(row)), row);
+      m_cache.setInt(compiled().getInt(row), row);
     } else if (m_columnType == long.class) {
-      m_cache.setLong(m_expr.getLong(m_table.getTuple(row)), row);
+      m_cache.setLong(compiled().getLong(row), row);
     } else if (m_columnType == float.class) {
-      m_cache.setFloat(m_expr.getFloat(m_table.getTuple(row)), row);
+      m_cache.setFloat(compiled().getFloat(row), row);
     } else {
-      m_cache.setDouble(m_expr.getDouble(m_table.getTuple(row)), row);
+      m_cache.setDouble(compiled().getDouble(row), row);
     }
     m_valid.set(row);
   }
@@ -302,10 +335,52 @@ public class ExpressionColumn extends AbstractColumn {
 
   private class Listener implements ColumnListener, ExpressionListener {
 
+    private final String m_field;
+
+    /**
+     * @param field
+     *          the referenced field listened to, or null for the expression
+     */
+    Listener(String field) {
+      m_field = field;
+    }
+
+    /**
+     * Handle an update to rows of the referenced column, mapping the column
+     * rows to the rows of the table if the column is inherited from the
+     * parent of a cascaded table.
+     */
+    private void columnRowsChanged(int start, int end) {
+      int col = m_table.getColumnNumber(m_field);
+      if (!(m_table instanceof CascadedTable) || col < ((CascadedTable) m_table).getLocalColumnCount()) {
+        columnChanged(start, end);
+        return;
+      }
+      // invalidate the rows revealed by the table, in contiguous runs
+      int r0 = -1, r1 = -1;
+      for (int crow = start; crow <= end; ++crow) {
+        int row = m_table.getTableRow(crow, col);
+        if (row < 0) {
+          continue;
+        } else if (r0 >= 0 && row == r1 + 1) {
+          r1 = row;
+          continue;
+        }
+        if (r0 >= 0) {
+          columnChanged(r0, r1);
+        }
+        r0 = r1 = row;
+      }
+      if (r0 >= 0) {
+        columnChanged(r0, r1);
+      }
+    }
+
     public void columnChanged(int start, int end) {
       // for a single index change with a valid cache value,
-      // propagate a change event with the previous value
-      if (start == end && isCacheValid(start)) {
+      // propagate a change event with the previous value. skipped
+      // within a batch, as the table then only records the changed rows.
+      if (start == end && isCacheValid(start) && !m_table.isBatching()) {
         if (!m_table.isValidRow(start)) {
           return;
         }
@@ -339,37 +414,37 @@ public class ExpressionColumn extends AbstractColumn {
 
     @Override
     public void columnChanged(Column src, int idx, boolean prev) {
-      columnChanged(idx, idx);
+      columnRowsChanged(idx, idx);
     }
 
     @Override
     public void columnChanged(Column src, int idx, double prev) {
-      columnChanged(idx, idx);
+      columnRowsChanged(idx, idx);
     }
 
     @Override
     public void columnChanged(Column src, int idx, float prev) {
-      columnChanged(idx, idx);
+      columnRowsChanged(idx, idx);
     }
 
     @Override
     public void columnChanged(Column src, int type, int start, int end) {
-      columnChanged(start, end);
+      columnRowsChanged(start, end);
     }
 
     @Override
     public void columnChanged(Column src, int idx, int prev) {
-      columnChanged(idx, idx);
+      columnRowsChanged(idx, idx);
     }
 
     @Override
     public void columnChanged(Column src, int idx, long prev) {
-      columnChanged(idx, idx);
+      columnRowsChanged(idx, idx);
     }
 
     @Override
     public void columnChanged(Column src, int idx, Object prev) {
-      columnChanged(idx, idx);
+      columnRowsChanged(idx, idx);
     }
 
     @Override
@@ -0,0 +1,200 @@
+package prefuse.data.column;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import prefuse.data.DataReadOnlyException;
+import prefuse.data.DataTypeException;
+
+/**
+ * Column implementation for storing int values in
+ * {@link java.nio.ByteBuffer} instances, either direct buffers or buffers
+ * mapped onto files.
+ *
+ * @see BufferColumn
+ */
+public class IntBufferColumn extends BufferColumn {
+
+  /**
+   * Create a new empty IntBufferColumn.
+   */
+  public IntBufferColumn() {
+    this(0, 10, -1);
+  }
+
+  /**
+   * Create a new IntBufferColumn.
+   * 
+   * @param nrows
+   *          the initial size of the column
+   */
+  public IntBufferColumn(int nrows) {
+    this(nrows, nrows, -1);
+  }
+
+  /**
+   * Create a new IntBufferColumn backed by a direct buffer.
+   * 
+   * @param nrows
+   *          the initial size of the column
+   * @param capacity
+   *          the initial capacity of the column
+   * @param defaultValue
+   *          the default value for the column
+   */
+  public IntBufferColumn(int nrows, int capacity, int defaultValue) {
+    this(nrows, capacity, defaultValue, null);
+  }
+
+  /**
+   * Create a new IntBufferColumn backed by a buffer mapped onto a temporary
+   * file in the given directory, or by a direct buffer if the directory is
+   * null. Buffers added as the column grows are allocated the same way.
+   * 
+   * @param nrows
+   *          the initial size of the column
+   * @param capacity
+   *          the initial capacity of the column
+   * @param defaultValue
+   *          the default value for the column
+   * @param directory
+   *          the directory in which to create the files backing the column,
+   *          or null to use direct buffers
+   */
+  public IntBufferColumn(int nrows, int capacity, int defaultValue, File directory) {
+    super(int.class, new Integer(defaultValue), allocate(Math.max(nrows, capacity), 2, directory), nrows, 2,
+        directory);
+    if (capacity < nrows) {
+      throw new IllegalArgumentException("Capacity value can not be less than the row count.");
+    }
+    fill(0, capacity);
+  }
+
+  /**
+   * Create a new IntBufferColumn backed by the given buffer. The values of the
+   * column are read from the buffer starting at index zero, using the byte
+   * order of the buffer. The capacity of the column is the limit of the buffer
+   * divided by the width of a value.
+   * 
+   * @param buffer
+   *          the buffer holding the column values
+   * @param nrows
+   *          the initial size of the column
+   * @param defaultValue
+   *          the default value for the column
+   */
+  public IntBufferColumn(ByteBuffer buffer, int nrows, int defaultValue) {
+    super(int.class, new Integer(defaultValue), buffer, nrows, 2);
+    if (!buffer.isReadOnly()) {
+      fill(nrows, buffer.limit() >> 2);
+    }
+  }
+
+  /**
+   * @see prefuse.data.column.BufferColumn#fill(int, int)
+   */
+  @Override
+  protected void fill(int from, int to) {
+    int dflt = ((Integer) m_defaultValue).intValue();
+    for (int row = from; row < to; ++row) {
+      buffer(row).putInt(offset(row), dflt);
+    }
+  }
+
+  // ------------------------------------------------------------------------
+  // Data Access Methods
+
+  /**
+   * @see prefuse.data.column.Column#get(int)
+   */
+  @Override
+  public Object get(int row) {
+    return new Integer(getInt(row));
+  }
+
+  /**
+   * @see prefuse.data.column.Column#set(java.lang.Object, int)
+   */
+  @Override
+  public void set(Object val, int row) throws DataTypeException {
+    if (m_readOnly) {
+      throw new DataReadOnlyException();
+    } else if (val != null) {
+      if (val instanceof Number) {
+        setInt(((Number) val).intValue(), row);
+      } else if (val instanceof String) {
+        setString((String) val, row);
+      } else {
+        throw new DataTypeException(val.getClass());
+      }
+    } else {
+      throw new DataTypeException("Column does not accept null values");
+    }
+  }
+
+  // ------------------------------------------------------------------------
+  // Data Type Convenience Methods
+
+  /**
+   * @see prefuse.data.column.AbstractColumn#getInt(int)
+   */
+  @Override
+  public int getInt(int row) throws DataTypeException {
+    if (row < 0 || row >= m_size) {
+      throw new IllegalArgumentException("Row index out of bounds: " + row);
+    }
+    return buffer(row).getInt(offset(row));
+  }
+
+  /**
+   * @see prefuse.data.column.AbstractColumn#setInt(int, int)
+   */
+  @Override
+  public void setInt(int val, int row) throws DataTypeException {
+    if (m_readOnly) {
+      throw new DataReadOnlyException();
+    } else if (row < 0 || row >= m_size) {
+      throw new IllegalArgumentException("Row index out of bounds: " + row);
+    }
+    // get the previous value
+    int prev = buffer(row).getInt(offset(row));
+
+    // exit early if no change
+    if (prev == val) {
+      return;
+    }
+
+    // set the new value
+    buffer(row).putInt(offset(row), val);
+
+    // fire a change event
+    fireColumnEvent(row, prev);
+  }
+
+  // ------------------------------------------------------------------------
+
+  /**
+   * @see prefuse.data.column.Column#getLong(int)
+   */
+  @Override
+  public long getLong(int row) throws DataTypeException {
+    return getInt(row);
+  }
+
+  /**
+   * @see prefuse.data.column.Column#getFloat(int)
+   */
+  @Override
+  public float getFloat(int row) throws DataTypeException {
+    return getInt(row);
+  }
+
+  /**
+   * @see prefuse.data.column.Column#getDouble(int)
+   */
+  @Override
+  public double getDouble(int row) throws DataTypeException {
+    return getInt(row);
+  }
+
+} // end of class IntBufferColumn
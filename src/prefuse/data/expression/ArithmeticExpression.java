@@ -66,7 +66,7 @@ public class ArithmeticExpression extends BinaryExpression {
     if (int.class == type || byte.class == type) {
       return new Integer(getInt(t));
     } else if (long.class == type) {
-      return new Long(getInt(t));
+      return new Long(getLong(t));
     } else if (float.class == type) {
       return new Float(getFloat(t));
     } else if (double.class == type) {
@@ -1,6 +1,8 @@
 package prefuse.data.expression;
 
+import prefuse.data.FieldAccessor;
 import prefuse.data.Schema;
+import prefuse.data.Table;
 import prefuse.data.Tuple;
 
 /**
@@ -12,6 +14,12 @@ public class ColumnExpression extends AbstractExpression implements Predicate {
 
   protected final String m_field;
 
+  /**
+   * Accessor for the field, resolved against the last evaluated table. Volatile
+   * as expressions may be evaluated by several threads at once.
+   */
+  private volatile FieldAccessor m_access;
+
   /**
    * Create a new ColumnExpression.
    * 
@@ -47,7 +55,8 @@ public class ColumnExpression extends AbstractExpression implements Predicate {
    */
   @Override
   public Object get(Tuple t) {
-    return t.get(m_field);
+    FieldAccessor a = getAccessor(t);
+    return (a != null ? a.get(t) : t.get(m_field));
   }
 
   /**
@@ -55,7 +64,8 @@ public class ColumnExpression extends AbstractExpression implements Predicate {
    */
   @Override
   public int getInt(Tuple t) {
-    return t.getInt(m_field);
+    FieldAccessor a = getAccessor(t);
+    return (a != null ? a.getInt(t) : t.getInt(m_field));
   }
 
   /**
@@ -63,7 +73,8 @@ public class ColumnExpression extends AbstractExpression implements Predicate {
    */
   @Override
   public long getLong(Tuple t) {
-    return t.getLong(m_field);
+    FieldAccessor a = getAccessor(t);
+    return (a != null ? a.getLong(t) : t.getLong(m_field));
   }
 
   /**
@@ -71,7 +82,8 @@ public class ColumnExpression extends AbstractExpression implements Predicate {
    */
   @Override
   public float getFloat(Tuple t) {
-    return t.getFloat(m_field);
+    FieldAccessor a = getAccessor(t);
+    return (a != null ? a.getFloat(t) : t.getFloat(m_field));
   }
 
   /**
@@ -79,7 +91,8 @@ public class ColumnExpression extends AbstractExpression implements Predicate {
    */
   @Override
   public double getDouble(Tuple t) {
-    return t.getDouble(m_field);
+    FieldAccessor a = getAccessor(t);
+    return (a != null ? a.getDouble(t) : t.getDouble(m_field));
   }
 
   /**
@@ -87,7 +100,28 @@ public class ColumnExpression extends AbstractExpression implements Predicate {
    */
   @Override
   public boolean getBoolean(Tuple t) {
-    return t.getBoolean(m_field);
+    FieldAccessor a = getAccessor(t);
+    return (a != null ? a.getBoolean(t) : t.getBoolean(m_field));
+  }
+
+  /**
+   * Get an accessor for this expression's field in the table of the given
+   * tuple, reusing the accessor for the previous tuple when they share a table.
+   * 
+   * @param t
+   *          the tuple being evaluated
+   * @return the FieldAccessor, or null if the tuple is not backed by a table
+   */
+  private FieldAccessor getAccessor(Tuple t) {
+    FieldAccessor a = m_access;
+    Table table = t.getTable();
+    if (a == null || a.getTable() != table) {
+      if (table == null) {
+        return null;
+      }
+      m_access = a = table.getFieldAccessor(m_field);
+    }
+    return a;
   }
 
   /**
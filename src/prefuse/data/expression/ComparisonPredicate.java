@@ -119,9 +119,9 @@ public class ComparisonPredicate extends BinaryExpression implements Predicate {
 
     switch (m_op) {
       case LT:
-        return (c == -1);
+        return (c < 0);
       case GT:
-        return (c == 1);
+        return (c > 0);
       case EQ:
         return (c == 0);
       case NEQ:
@@ -0,0 +1,153 @@
+package prefuse.data.expression;
+
+import prefuse.data.Table;
+
+/**
+ * An {@link Expression} compiled for evaluation over the rows of a single
+ * Table. Compiled expressions are created by
+ * {@link ExpressionCompiler#compile(Expression, Table)}. Unlike expressions,
+ * they are evaluated on row numbers rather than tuples, with all sub-expression
+ * types resolved and all data fields resolved to columns up front.
+ *
+ * <p>
+ * A compiled expression is a snapshot of the structure of its source
+ * expression: if the source expression is later modified, the expression has
+ * to be compiled again. Changes to the table's data, or to its set of columns,
+ * are picked up automatically.
+ * </p>
+ */
+public abstract class CompiledExpression {
+
+  protected final Table m_table;
+  protected final Class m_type;
+
+  /**
+   * Create a new CompiledExpression.
+   *
+   * @param table
+   *          the table the expression is evaluated over
+   * @param type
+   *          the type of the expression's value
+   */
+  protected CompiledExpression(Table table, Class type) {
+    m_table = table;
+    m_type = type;
+  }
+
+  /**
+   * Get the table this expression is evaluated over.
+   *
+   * @return the Table
+   */
+  public Table getTable() {
+    return m_table;
+  }
+
+  /**
+   * Get the type of the expression's value, as returned by the source
+   * expression's {@link Expression#getType(prefuse.data.Schema)} method.
+   *
+   * @return the value type, or null if it could not be determined
+   */
+  public Class getType() {
+    return m_type;
+  }
+
+  /**
+   * Evaluate the expression on the given table row, returning an Object.
+   *
+   * @param row
+   *          a valid row of the table
+   * @return the expression value
+   * @see Expression#get(prefuse.data.Tuple)
+   */
+  public abstract Object get(int row);
+
+  /**
+   * Evaluate the expression on the given table row, returning an int.
+   *
+   * @param row
+   *          a valid row of the table
+   * @return the expression value
+   * @see Expression#getInt(prefuse.data.Tuple)
+   */
+  public int getInt(int row) {
+    return ((Number) get(row)).intValue();
+  }
+
+  /**
+   * Evaluate the expression on the given table row, returning a long.
+   *
+   * @param row
+   *          a valid row of the table
+   * @return the expression value
+   * @see Expression#getLong(prefuse.data.Tuple)
+   */
+  public long getLong(int row) {
+    return ((Number) get(row)).longValue();
+  }
+
+  /**
+   * Evaluate the expression on the given table row, returning a float.
+   *
+   * @param row
+   *          a valid row of the table
+   * @return the expression value
+   * @see Expression#getFloat(prefuse.data.Tuple)
+   */
+  public float getFloat(int row) {
+    return ((Number) get(row)).floatValue();
+  }
+
+  /**
+   * Evaluate the expression on the given table row, returning a double.
+   *
+   * @param row
+   *          a valid row of the table
+   * @return the expression value
+   * @see Expression#getDouble(prefuse.data.Tuple)
+   */
+  public double getDouble(int row) {
+    return ((Number) get(row)).doubleValue();
+  }
+
+  /**
+   * Evaluate the expression on the given table row, returning a boolean.
+   *
+   * @param row
+   *          a valid row of the table
+   * @return the expression value
+   * @see Expression#getBoolean(prefuse.data.Tuple)
+   */
+  public boolean getBoolean(int row) {
+    return ((Boolean) get(row)).booleanValue();
+  }
+
+  /**
+   * Evaluate the expression as a predicate over a block of table rows. The
+   * selection bitmap marks the rows to evaluate, typically the valid rows of
+   * the block as given by {@link Table#getValidRows(int, long[])}. Bit
+   * <i>i</i> of word <i>i / 64</i> stands for row <code>start + i</code>. The
+   * bits of all rows for which the expression is false are cleared, so that on
+   * return the bitmap marks the selected rows.
+   * 
+   * @param start
+   *          the first row of the block
+   * @param selection
+   *          the bitmap of rows to evaluate, updated to the bitmap of selected
+   *          rows
+   * @see #getBoolean(int)
+   */
+  public void select(int start, long[] selection) {
+    for (int w = 0; w < selection.length; ++w) {
+      long word = selection[w];
+      for (long bits = word; bits != 0; bits &= bits - 1) {
+        if (!getBoolean(start + (w << 6) + Long.numberOfTrailingZeros(bits))) {
+          word ^= bits & -bits;
+        }
+      }
+      selection[w] = word;
+    }
+  }
+
+} // end of class CompiledExpression
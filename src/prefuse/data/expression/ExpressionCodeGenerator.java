@@ -0,0 +1,946 @@
+package prefuse.data.expression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import prefuse.data.FieldAccessor;
+import prefuse.data.Table;
+import prefuse.data.expression.ExpressionCompiler.ArithmeticNode;
+import prefuse.data.expression.ExpressionCompiler.ColumnNode;
+import prefuse.data.expression.ExpressionCompiler.ComparisonNode;
+import prefuse.data.expression.ExpressionCompiler.CompositeNode;
+import prefuse.data.expression.ExpressionCompiler.ConstantNode;
+import prefuse.data.expression.ExpressionCompiler.DictionaryComparisonNode;
+import prefuse.data.expression.ExpressionCompiler.IfNode;
+import prefuse.data.expression.ExpressionCompiler.NotNode;
+import prefuse.data.expression.ExpressionCompiler.PredicateNode;
+import prefuse.data.expression.ExpressionCompiler.RangeNode;
+import prefuse.util.collections.DefaultLiteralComparator;
+
+/**
+ * Generates a JVM class for a tree of compiled expression nodes, so that the
+ * whole expression is evaluated by a single method rather than by one virtual
+ * call per node. Column references, numeric literals, arithmetic, numeric
+ * comparisons and ranges using the default comparator, the boolean connectives
+ * and if-expressions are turned into bytecode. Any other node is called from
+ * the generated code, so the generated class evaluates exactly as the node tree
+ * it was generated from.
+ *
+ * <p>
+ * The referenced columns and nodes are passed to the generated class's
+ * constructor, while numeric literals are embedded in the bytecode, so the
+ * class depends on the structure of the expression and its literal values.
+ * Generated classes are cached by their bytecode, so that repeatedly compiling
+ * the same expression, e.g., for every filtering pass, does not define a new
+ * class each time.
+ * </p>
+ */
+class ExpressionCodeGenerator {
+
+  private static final String BASE = "prefuse/data/expression/CompiledExpression";
+  private static final String ACCESSOR = "prefuse/data/FieldAccessor";
+  private static final String[] TYPE_DESC = { "I", "J", "F", "D" };
+  private static final String[] TYPE_NAME = { "Int", "Long", "Float", "Double" };
+  private static final String NAME = "prefuse/data/expression/GeneratedExpression";
+  private static final int CACHE_SIZE = 64;
+
+  // generated class constructors, keyed by class bytes, least recently used first
+  private static final Map s_cache = new LinkedHashMap(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry eldest) {
+      return size() > CACHE_SIZE;
+    }
+  };
+
+  /**
+   * Generate a class evaluating the given compiled expression.
+   *
+   * @param root
+   *          the root of the compiled expression tree
+   * @return an instance of the generated class, or null if no class could be
+   *         generated or generating one would not speed up evaluation
+   */
+  static CompiledExpression generate(CompiledExpression root) {
+    Class type = root.getType();
+    if (!(root instanceof PredicateNode || root instanceof ArithmeticNode || root instanceof IfNode)
+        || !(type == boolean.class || typeIndex(type) >= 0)) {
+      return null;
+    } else if (root instanceof DictionaryComparisonNode) {
+      // already evaluated a block at a time on dictionary codes
+      return null;
+    }
+    try {
+      ExpressionCodeGenerator g = new ExpressionCodeGenerator(root);
+      ByteBuffer bytes = ByteBuffer.wrap(g.generate());
+      Constructor ctor;
+      synchronized (s_cache) {
+        ctor = (Constructor) s_cache.get(bytes);
+        if (ctor == null) {
+          // each class gets its own loader, so the class name can be reused
+          Class c = new Loader(CompiledExpression.class.getClassLoader()).define(NAME.replace('/', '.'),
+              bytes.array());
+          ctor = c.getConstructor(new Class[] { Table.class, Class.class, Object[].class });
+          s_cache.put(bytes, ctor);
+        }
+      }
+      return (CompiledExpression) ctor.newInstance(new Object[] { root.getTable(), type, g.m_refs.toArray() });
+    } catch (Exception e) {
+      // e.g., class definition not permitted, use the node tree as is
+      return null;
+    } catch (LinkageError e) {
+      return null;
+    }
+  }
+
+  /**
+   * Get the index of a numeric evaluation type, or -1 if the type is not one
+   * of int, long, float or double.
+   */
+  private static int typeIndex(Class type) {
+    if (type == int.class) {
+      return ExpressionCompiler.INT;
+    } else if (type == long.class) {
+      return ExpressionCompiler.LONG;
+    } else if (type == float.class) {
+      return ExpressionCompiler.FLOAT;
+    } else if (type == double.class) {
+      return ExpressionCompiler.DOUBLE;
+    } else {
+      return -1;
+    }
+  }
+
+  /**
+   * Indicates if a comparison can be generated as a primitive comparison.
+   */
+  private static boolean isPrimitive(int ctype, Object cmp) {
+    return ctype != ExpressionCompiler.OBJECT && cmp.getClass() == DefaultLiteralComparator.class;
+  }
+
+  // ------------------------------------------------------------------------
+
+  private final CompiledExpression m_root;
+  private final String m_name = NAME;
+
+  // objects referenced by the generated code, stored in fields f0..fn
+  private final ArrayList m_refs = new ArrayList();
+  private final ArrayList m_refDesc = new ArrayList();
+  private final IdentityHashMap m_refIndex = new IdentityHashMap();
+
+  // constant pool
+  private final ByteArrayOutputStream m_poolBytes = new ByteArrayOutputStream();
+  private final DataOutputStream m_pool = new DataOutputStream(m_poolBytes);
+  private final HashMap m_poolIndex = new HashMap();
+  private int m_poolCount = 1;
+
+  // code of the method being generated
+  private Code m_code;
+
+  private ExpressionCodeGenerator(CompiledExpression root) {
+    m_root = root;
+  }
+
+  private byte[] generate() throws IOException {
+    ArrayList methods = new ArrayList();
+    Class type = m_root.getType();
+
+    if (type == boolean.class) {
+      m_code = new Code("getBoolean", "(I)Z");
+      genBoolean(m_root);
+      m_code.op(0xac, -1); // ireturn
+      methods.add(m_code);
+      methods.add(genSelect());
+    } else {
+      for (int t = ExpressionCompiler.INT; t <= ExpressionCompiler.DOUBLE; ++t) {
+        m_code = new Code("get" + TYPE_NAME[t], "(I)" + TYPE_DESC[t]);
+        genNumber(m_root, t);
+        m_code.op(0xac + t, -size(t)); // ireturn .. dreturn
+        methods.add(m_code);
+      }
+    }
+
+    // boxed values
+    m_code = new Code("get", "(I)Ljava/lang/Object;");
+    if (m_root instanceof PredicateNode) {
+      m_code.op(0x2a, 1); // aload_0
+      m_code.op(0x1b, 1); // iload_1
+      m_code.invoke(0xb6, m_name, "getBoolean", "(I)Z");
+      m_code.invoke(0xb8, "java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;");
+    } else {
+      genRef(m_root);
+      m_code.op(0x1b, 1); // iload_1
+      m_code.invoke(0xb6, BASE, "get", "(I)Ljava/lang/Object;");
+    }
+    m_code.op(0xb0, -1); // areturn
+    methods.add(m_code);
+
+    // constructor, storing the referenced objects into their fields
+    m_code = new Code("<init>", "(Lprefuse/data/Table;Ljava/lang/Class;[Ljava/lang/Object;)V");
+    m_code.m_maxLocals = 4;
+    m_code.op(0x2a, 1); // aload_0
+    m_code.op(0x2b, 1); // aload_1
+    m_code.op(0x2c, 1); // aload_2
+    m_code.invoke(0xb7, BASE, "<init>", "(Lprefuse/data/Table;Ljava/lang/Class;)V");
+    for (int i = 0; i < m_refs.size(); ++i) {
+      String desc = (String) m_refDesc.get(i);
+      m_code.op(0x2a, 1); // aload_0
+      m_code.op(0x2d, 1); // aload_3
+      m_code.pushInt(i);
+      m_code.op(0x32, -1); // aaload
+      m_code.op(0xc0, 0); // checkcast
+      m_code.u2(classRef(desc.substring(1, desc.length() - 1)));
+      m_code.op(0xb5, -2); // putfield
+      m_code.u2(fieldRef(m_name, "f" + i, desc));
+    }
+    m_code.op(0xb1, 0); // return
+    methods.add(m_code);
+
+    // resolve all constant pool entries before writing the class
+    int thisClass = classRef(m_name);
+    int superClass = classRef(BASE);
+    int codeAttr = utf8("Code");
+    int[] fieldNames = new int[m_refs.size()];
+    int[] fieldDescs = new int[m_refs.size()];
+    for (int i = 0; i < fieldNames.length; ++i) {
+      fieldNames[i] = utf8("f" + i);
+      fieldDescs[i] = utf8((String) m_refDesc.get(i));
+    }
+    for (int i = 0; i < methods.size(); ++i) {
+      Code c = (Code) methods.get(i);
+      c.m_nameIndex = utf8(c.m_methodName);
+      c.m_descIndex = utf8(c.m_methodDesc);
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(0xCAFEBABE);
+    out.writeShort(0); // minor version
+    out.writeShort(49); // major version, no stack map frames required
+    out.writeShort(m_poolCount);
+    m_pool.flush();
+    m_poolBytes.writeTo(out);
+    out.writeShort(0x0031); // public final super
+    out.writeShort(thisClass);
+    out.writeShort(superClass);
+    out.writeShort(0); // interfaces
+    out.writeShort(fieldNames.length);
+    for (int i = 0; i < fieldNames.length; ++i) {
+      out.writeShort(0x0002); // private
+      out.writeShort(fieldNames[i]);
+      out.writeShort(fieldDescs[i]);
+      out.writeShort(0);
+    }
+    out.writeShort(methods.size());
+    for (int i = 0; i < methods.size(); ++i) {
+      Code c = (Code) methods.get(i);
+      out.writeShort(0x0001); // public
+      out.writeShort(c.m_nameIndex);
+      out.writeShort(c.m_descIndex);
+      out.writeShort(1);
+      out.writeShort(codeAttr);
+      byte[] code = c.toByteArray();
+      out.writeInt(12 + code.length);
+      out.writeShort(c.m_maxStack);
+      out.writeShort(c.m_maxLocals);
+      out.writeInt(code.length);
+      out.write(code);
+      out.writeShort(0); // exception table
+      out.writeShort(0); // attributes
+    }
+    out.writeShort(0); // class attributes
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Generate the block evaluation method, the loop of
+   * {@link CompiledExpression#select(int, long[])} calling the generated
+   * getBoolean method, which the JIT compiler can then inline.
+   */
+  private Code genSelect() {
+    // locals: this, start, selection, w, word (2), bits (2), row
+    m_code = new Code("select", "(I[J)V");
+    m_code.m_maxLocals = 9;
+    Label loop = new Label(), inner = new Label(), keep = new Label(), store = new Label(), end = new Label();
+    m_code.op(0x03, 1); // iconst_0
+    m_code.op(0x3e, -1); // istore_3
+    m_code.mark(loop);
+    m_code.op(0x1d, 1); // iload_3
+    m_code.op(0x2c, 1); // aload_2
+    m_code.op(0xbe, 0); // arraylength
+    m_code.jump(0xa2, end); // if_icmpge
+    m_code.op(0x2c, 1); // aload_2
+    m_code.op(0x1d, 1); // iload_3
+    m_code.op(0x2f, 0); // laload
+    m_code.op(0x5c, 2); // dup2
+    m_code.local(0x37, 4, -2); // lstore word
+    m_code.local(0x37, 6, -2); // lstore bits
+    m_code.mark(inner);
+    m_code.local(0x16, 6, 2); // lload bits
+    m_code.op(0x09, 2); // lconst_0
+    m_code.op(0x94, -3); // lcmp
+    m_code.jump(0x99, store); // ifeq
+    // row = start + (w << 6) + numberOfTrailingZeros(bits)
+    m_code.op(0x2a, 1); // aload_0
+    m_code.op(0x1b, 1); // iload_1
+    m_code.op(0x1d, 1); // iload_3
+    m_code.pushInt(6);
+    m_code.op(0x78, -1); // ishl
+    m_code.op(0x60, -1); // iadd
+    m_code.local(0x16, 6, 2); // lload bits
+    m_code.invoke(0xb8, "java/lang/Long", "numberOfTrailingZeros", "(J)I");
+    m_code.op(0x60, -1); // iadd
+    m_code.invoke(0xb6, m_name, "getBoolean", "(I)Z");
+    m_code.jump(0x9a, keep); // ifne
+    // word ^= bits & -bits
+    m_code.local(0x16, 4, 2); // lload word
+    m_code.local(0x16, 6, 2); // lload bits
+    m_code.local(0x16, 6, 2); // lload bits
+    m_code.op(0x75, 0); // lneg
+    m_code.op(0x7f, -2); // land
+    m_code.op(0x83, -2); // lxor
+    m_code.local(0x37, 4, -2); // lstore word
+    m_code.mark(keep);
+    // bits &= bits - 1
+    m_code.local(0x16, 6, 2); // lload bits
+    m_code.local(0x16, 6, 2); // lload bits
+    m_code.op(0x0a, 2); // lconst_1
+    m_code.op(0x65, -2); // lsub
+    m_code.op(0x7f, -2); // land
+    m_code.local(0x37, 6, -2); // lstore bits
+    m_code.jump(0xa7, inner); // goto
+    m_code.mark(store);
+    m_code.op(0x2c, 1); // aload_2
+    m_code.op(0x1d, 1); // iload_3
+    m_code.local(0x16, 4, 2); // lload word
+    m_code.op(0x50, -4); // lastore
+    m_code.op(0x84, 0); // iinc
+    m_code.u1(3);
+    m_code.u1(1);
+    m_code.jump(0xa7, loop); // goto
+    m_code.mark(end);
+    m_code.op(0xb1, 0); // return
+    return m_code;
+  }
+
+  // ------------------------------------------------------------------------
+  // Expression Code
+
+  /**
+   * Push a referenced object stored in a field of the generated class.
+   */
+  private void genRef(Object ref) {
+    Integer idx = (Integer) m_refIndex.get(ref);
+    if (idx == null) {
+      idx = Integer.valueOf(m_refs.size());
+      m_refIndex.put(ref, idx);
+      m_refs.add(ref);
+      m_refDesc.add(ref instanceof FieldAccessor ? "L" + ACCESSOR + ";" : "L" + BASE + ";");
+    }
+    m_code.op(0x2a, 1); // aload_0
+    m_code.op(0xb4, 0); // getfield
+    m_code.u2(fieldRef(m_name, "f" + idx, (String) m_refDesc.get(idx.intValue())));
+  }
+
+  /**
+   * Call a getter of a node that is not generated.
+   */
+  private void genCall(CompiledExpression node, String name, String desc) {
+    genRef(node);
+    m_code.op(0x1b, 1); // iload_1
+    m_code.invoke(0xb6, BASE, name, desc);
+  }
+
+  /**
+   * Push the value of a node evaluated as the given numeric type.
+   */
+  private void genNumber(CompiledExpression node, int t) {
+    if (node instanceof ColumnNode) {
+      genRef(((ColumnNode) node).m_access);
+      m_code.op(0x1b, 1); // iload_1
+      m_code.invoke(0xb6, ACCESSOR, "get" + TYPE_NAME[t], "(I)" + TYPE_DESC[t]);
+    } else if (node instanceof ConstantNode && ((ConstantNode) node).m_numeric) {
+      ConstantNode c = (ConstantNode) node;
+      switch (t) {
+        case ExpressionCompiler.INT:
+          m_code.pushInt(c.m_int);
+          break;
+        case ExpressionCompiler.LONG:
+          m_code.op(0x14, 2); // ldc2_w
+          m_code.u2(longConst(c.m_long));
+          break;
+        case ExpressionCompiler.FLOAT:
+          m_code.op(0x13, 1); // ldc_w
+          m_code.u2(floatConst(c.m_float));
+          break;
+        default:
+          m_code.op(0x14, 2); // ldc2_w
+          m_code.u2(doubleConst(c.m_double));
+      }
+    } else if (node instanceof ArithmeticNode) {
+      genArithmetic((ArithmeticNode) node, t);
+    } else if (node instanceof IfNode) {
+      IfNode n = (IfNode) node;
+      Label otherwise = new Label(), end = new Label();
+      genCondition(n.m_test, otherwise, false);
+      genNumber(n.m_then, t);
+      m_code.jump(0xa7, end); // goto
+      m_code.mark(otherwise);
+      genNumber(n.m_else, t);
+      m_code.mark(end);
+    } else {
+      genCall(node, "get" + TYPE_NAME[t], "(I)" + TYPE_DESC[t]);
+    }
+  }
+
+  private void genArithmetic(ArithmeticNode n, int t) {
+    int sz = size(t);
+    switch (n.m_op) {
+      case ArithmeticExpression.POW:
+        genNumber(n.m_left, t);
+        toDouble(t);
+        genNumber(n.m_right, t);
+        toDouble(t);
+        m_code.invoke(0xb8, "java/lang/Math", "pow", "(DD)D");
+        fromDouble(t);
+        return;
+      case ArithmeticExpression.MOD:
+        if (t == ExpressionCompiler.FLOAT || t == ExpressionCompiler.DOUBLE) {
+          genNumber(n.m_left, t);
+          toDouble(t);
+          genNumber(n.m_right, t);
+          toDouble(t);
+          m_code.invoke(0xb8, "java/lang/Math", "IEEEremainder", "(DD)D");
+          fromDouble(t);
+          return;
+        }
+        genNumber(n.m_left, t);
+        genNumber(n.m_right, t);
+        m_code.op(0x70 + t, -sz); // irem, lrem
+        return;
+      default:
+        genNumber(n.m_left, t);
+        genNumber(n.m_right, t);
+        // iadd, isub, imul and idiv, each followed by the l, f and d variants
+        m_code.op(0x60 + 4 * n.m_op + t, -sz);
+    }
+  }
+
+  private void toDouble(int t) {
+    if (t == ExpressionCompiler.INT) {
+      m_code.op(0x87, 1); // i2d
+    } else if (t == ExpressionCompiler.LONG) {
+      m_code.op(0x8a, 0); // l2d
+    } else if (t == ExpressionCompiler.FLOAT) {
+      m_code.op(0x8d, 1); // f2d
+    }
+  }
+
+  private void fromDouble(int t) {
+    if (t == ExpressionCompiler.INT) {
+      m_code.op(0x8e, -1); // d2i
+    } else if (t == ExpressionCompiler.LONG) {
+      m_code.op(0x8f, 0); // d2l
+    } else if (t == ExpressionCompiler.FLOAT) {
+      m_code.op(0x90, -1); // d2f
+    }
+  }
+
+  /**
+   * Indicates if a predicate node is generated as conditional jumps.
+   */
+  private static boolean isCondition(CompiledExpression node) {
+    if (node instanceof ComparisonNode) {
+      ComparisonNode n = (ComparisonNode) node;
+      return isPrimitive(n.m_ctype, n.m_cmp);
+    } else if (node instanceof RangeNode) {
+      RangeNode n = (RangeNode) node;
+      return isPrimitive(n.m_ctype, n.m_cmp);
+    } else if (node instanceof CompositeNode) {
+      return ((CompositeNode) node).m_op != CompositeNode.XOR;
+    } else if (node instanceof ConstantNode) {
+      return node.getType() == boolean.class;
+    } else {
+      return node instanceof NotNode || node instanceof IfNode;
+    }
+  }
+
+  /**
+   * Push the value of a node evaluated as a boolean.
+   */
+  private void genBoolean(CompiledExpression node) {
+    if (isCondition(node)) {
+      Label no = new Label(), end = new Label();
+      genCondition(node, no, false);
+      m_code.op(0x04, 1); // iconst_1
+      m_code.jump(0xa7, end); // goto
+      m_code.mark(no);
+      m_code.op(0x03, 1); // iconst_0
+      m_code.mark(end);
+    } else if (node instanceof ColumnNode) {
+      genRef(((ColumnNode) node).m_access);
+      m_code.op(0x1b, 1); // iload_1
+      m_code.invoke(0xb6, ACCESSOR, "getBoolean", "(I)Z");
+    } else if (node instanceof CompositeNode) {
+      // exclusive or
+      CompiledExpression[] clauses = ((CompositeNode) node).m_clauses;
+      m_code.op(0x03, 1); // iconst_0
+      for (int i = 0; i < clauses.length; ++i) {
+        genBoolean(clauses[i]);
+        m_code.op(0x82, -1); // ixor
+      }
+    } else {
+      genCall(node, "getBoolean", "(I)Z");
+    }
+  }
+
+  /**
+   * Jump to the target label if the node's boolean value equals the given
+   * value, and continue otherwise.
+   */
+  private void genCondition(CompiledExpression node, Label target, boolean jumpIf) {
+    if (!isCondition(node)) {
+      genBoolean(node);
+      m_code.jump(jumpIf ? 0x9a : 0x99, target); // ifne, ifeq
+    } else if (node instanceof ComparisonNode) {
+      ComparisonNode n = (ComparisonNode) node;
+      genNumber(n.m_left, n.m_ctype);
+      genNumber(n.m_right, n.m_ctype);
+      int cond = relation(n.m_op, jumpIf);
+      if (n.m_ctype == ExpressionCompiler.INT) {
+        m_code.jump(0x9f + cond, target); // if_icmpeq ...
+      } else {
+        genCompare(n.m_ctype);
+        m_code.jump(0x99 + cond, target); // ifeq ...
+      }
+    } else if (node instanceof RangeNode) {
+      genRange((RangeNode) node, target, jumpIf);
+    } else if (node instanceof CompositeNode) {
+      CompositeNode n = (CompositeNode) node;
+      CompiledExpression[] clauses = n.m_clauses;
+      boolean and = (n.m_op == CompositeNode.AND);
+      if (clauses.length == 0) {
+        // empty conjunctions and disjunctions are false
+        if (!jumpIf) {
+          m_code.jump(0xa7, target); // goto
+        }
+        return;
+      }
+      // jumping out early when a clause decides the value
+      Label skip = new Label();
+      for (int i = 0; i < clauses.length - 1; ++i) {
+        if (and == jumpIf) {
+          genCondition(clauses[i], skip, !and);
+        } else {
+          genCondition(clauses[i], target, !and);
+        }
+      }
+      genCondition(clauses[clauses.length - 1], target, jumpIf);
+      m_code.mark(skip);
+    } else if (node instanceof NotNode) {
+      genCondition(((NotNode) node).m_predicate, target, !jumpIf);
+    } else if (node instanceof IfNode) {
+      IfNode n = (IfNode) node;
+      Label otherwise = new Label(), end = new Label();
+      genCondition(n.m_test, otherwise, false);
+      genCondition(n.m_then, target, jumpIf);
+      m_code.jump(0xa7, end); // goto
+      m_code.mark(otherwise);
+      genCondition(n.m_else, target, jumpIf);
+      m_code.mark(end);
+    } else {
+      // boolean constant
+      if (((ConstantNode) node).m_boolean == jumpIf) {
+        m_code.jump(0xa7, target); // goto
+      }
+    }
+  }
+
+  private void genRange(RangeNode n, Label target, boolean jumpIf) {
+    int t = n.m_ctype;
+    // evaluate all operands as RangePredicate does: middle, low, high
+    genNumber(n.m_middle, t);
+    int x = m_code.local(size(t));
+    m_code.local(0x36 + t, x, -size(t)); // istore .. dstore
+    m_code.local(0x15 + t, x, size(t)); // iload .. dload
+    genNumber(n.m_left, t);
+    genCompare(t);
+    int c1 = m_code.local(1);
+    m_code.local(0x36, c1, -1); // istore
+    m_code.local(0x15 + t, x, size(t));
+    genNumber(n.m_right, t);
+    genCompare(t);
+    int c2 = m_code.local(1);
+    m_code.local(0x36, c2, -1);
+
+    boolean lowIn = (n.m_op == RangePredicate.IN_IN || n.m_op == RangePredicate.IN_EX);
+    boolean highIn = (n.m_op == RangePredicate.IN_IN || n.m_op == RangePredicate.EX_IN);
+    int low = relation(lowIn ? ComparisonPredicate.GTEQ : ComparisonPredicate.GT, jumpIf);
+    int high = relation(highIn ? ComparisonPredicate.LTEQ : ComparisonPredicate.LT, jumpIf);
+    if (jumpIf) {
+      // jump if both bounds hold
+      Label skip = new Label();
+      m_code.local(0x15, c1, 1);
+      m_code.jump(0x99 + relation(lowIn ? ComparisonPredicate.GTEQ : ComparisonPredicate.GT, false), skip);
+      m_code.local(0x15, c2, 1);
+      m_code.jump(0x99 + high, target);
+      m_code.mark(skip);
+    } else {
+      // jump if either bound fails
+      m_code.local(0x15, c1, 1);
+      m_code.jump(0x99 + low, target);
+      m_code.local(0x15, c2, 1);
+      m_code.jump(0x99 + high, target);
+    }
+  }
+
+  /**
+   * Replace two values of the given type on the stack by their comparison
+   * result, as computed by the default literal comparator.
+   */
+  private void genCompare(int t) {
+    switch (t) {
+      case ExpressionCompiler.INT:
+        m_code.invoke(0xb8, "java/lang/Integer", "compare", "(II)I");
+        break;
+      case ExpressionCompiler.LONG:
+        m_code.op(0x94, -3); // lcmp
+        break;
+      case ExpressionCompiler.FLOAT:
+        m_code.invoke(0xb8, "java/lang/Float", "compare", "(FF)I");
+        break;
+      default:
+        m_code.invoke(0xb8, "java/lang/Double", "compare", "(DD)I");
+    }
+  }
+
+  /**
+   * Get the offset of the jump condition from the ifeq / if_icmpeq opcodes for
+   * a comparison operation, negated if the jump is taken when the comparison
+   * does not hold.
+   */
+  private static int relation(int op, boolean holds) {
+    // offsets: eq 0, ne 1, lt 2, ge 3, gt 4, le 5
+    int rel;
+    switch (op) {
+      case ComparisonPredicate.LT:
+        rel = 2;
+        break;
+      case ComparisonPredicate.GT:
+        rel = 4;
+        break;
+      case ComparisonPredicate.EQ:
+        rel = 0;
+        break;
+      case ComparisonPredicate.NEQ:
+        rel = 1;
+        break;
+      case ComparisonPredicate.LTEQ:
+        rel = 5;
+        break;
+      case ComparisonPredicate.GTEQ:
+        rel = 3;
+        break;
+      default:
+        throw new IllegalStateException("Unknown operation.");
+    }
+    // eq <-> ne, lt <-> ge, gt <-> le
+    return holds ? rel : (rel ^ 1);
+  }
+
+  private static int size(int t) {
+    return (t == ExpressionCompiler.LONG || t == ExpressionCompiler.DOUBLE ? 2 : 1);
+  }
+
+  // ------------------------------------------------------------------------
+  // Constant Pool
+
+  private int entry(String key) {
+    Integer idx = (Integer) m_poolIndex.get(key);
+    return (idx == null ? -1 : idx.intValue());
+  }
+
+  private int add(String key, int slots) {
+    int idx = m_poolCount;
+    m_poolIndex.put(key, Integer.valueOf(idx));
+    m_poolCount += slots;
+    return idx;
+  }
+
+  private int utf8(String s) {
+    int idx = entry("U" + s);
+    if (idx < 0) {
+      try {
+        m_pool.writeByte(1);
+        m_pool.writeUTF(s);
+      } catch (IOException e) {
+        throw new IllegalStateException(e.getMessage());
+      }
+      idx = add("U" + s, 1);
+    }
+    return idx;
+  }
+
+  private int ref(int tag, String key, int a, int b) {
+    int idx = entry(key);
+    if (idx < 0) {
+      try {
+        m_pool.writeByte(tag);
+        m_pool.writeShort(a);
+        if (b >= 0) {
+          m_pool.writeShort(b);
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException(e.getMessage());
+      }
+      idx = add(key, 1);
+    }
+    return idx;
+  }
+
+  private int classRef(String name) {
+    return ref(7, "C" + name, utf8(name), -1);
+  }
+
+  private int memberRef(int tag, String owner, String name, String desc) {
+    int cls = classRef(owner);
+    int nt = ref(12, "N" + name + ":" + desc, utf8(name), utf8(desc));
+    return ref(tag, tag + owner + "." + name + ":" + desc, cls, nt);
+  }
+
+  private int fieldRef(String owner, String name, String desc) {
+    return memberRef(9, owner, name, desc);
+  }
+
+  private int methodRef(String owner, String name, String desc) {
+    return memberRef(10, owner, name, desc);
+  }
+
+  private int intConst(int v) {
+    int idx = entry("I" + v);
+    if (idx < 0) {
+      try {
+        m_pool.writeByte(3);
+        m_pool.writeInt(v);
+      } catch (IOException e) {
+        throw new IllegalStateException(e.getMessage());
+      }
+      idx = add("I" + v, 1);
+    }
+    return idx;
+  }
+
+  private int floatConst(float v) {
+    int bits = Float.floatToRawIntBits(v);
+    int idx = entry("F" + bits);
+    if (idx < 0) {
+      try {
+        m_pool.writeByte(4);
+        m_pool.writeInt(bits);
+      } catch (IOException e) {
+        throw new IllegalStateException(e.getMessage());
+      }
+      idx = add("F" + bits, 1);
+    }
+    return idx;
+  }
+
+  private int longConst(long v) {
+    int idx = entry("J" + v);
+    if (idx < 0) {
+      try {
+        m_pool.writeByte(5);
+        m_pool.writeLong(v);
+      } catch (IOException e) {
+        throw new IllegalStateException(e.getMessage());
+      }
+      idx = add("J" + v, 2);
+    }
+    return idx;
+  }
+
+  private int doubleConst(double v) {
+    long bits = Double.doubleToRawLongBits(v);
+    int idx = entry("D" + bits);
+    if (idx < 0) {
+      try {
+        m_pool.writeByte(6);
+        m_pool.writeLong(bits);
+      } catch (IOException e) {
+        throw new IllegalStateException(e.getMessage());
+      }
+      idx = add("D" + bits, 2);
+    }
+    return idx;
+  }
+
+  // ------------------------------------------------------------------------
+  // Method Code
+
+  /**
+   * A jump target within the code of a method.
+   */
+  private static class Label {
+    int pos = -1;
+    int stack = -1;
+    ArrayList jumps = new ArrayList(); // pairs of jump and offset positions
+  }
+
+  /**
+   * Bytecode of a single method, tracking the operand stack depth.
+   */
+  private class Code {
+    final String m_methodName, m_methodDesc;
+    int m_nameIndex, m_descIndex;
+    int m_maxStack = 0, m_maxLocals = 2;
+
+    private byte[] m_bytes = new byte[64];
+    private int m_length = 0;
+    private int m_stack = 0;
+    private ArrayList m_labels = new ArrayList();
+
+    Code(String name, String desc) {
+      m_methodName = name;
+      m_methodDesc = desc;
+    }
+
+    void u1(int b) {
+      if (m_length == m_bytes.length) {
+        byte[] b2 = new byte[2 * m_length];
+        System.arraycopy(m_bytes, 0, b2, 0, m_length);
+        m_bytes = b2;
+      }
+      m_bytes[m_length++] = (byte) b;
+    }
+
+    void u2(int s) {
+      u1(s >> 8);
+      u1(s);
+    }
+
+    /**
+     * Emit an opcode with the given effect on the operand stack depth.
+     */
+    void op(int opcode, int delta) {
+      u1(opcode);
+      m_stack += delta;
+      m_maxStack = Math.max(m_maxStack, m_stack);
+    }
+
+    void pushInt(int v) {
+      if (v >= -1 && v <= 5) {
+        op(0x03 + v, 1); // iconst_m1 .. iconst_5
+      } else if (v >= Byte.MIN_VALUE && v <= Byte.MAX_VALUE) {
+        op(0x10, 1); // bipush
+        u1(v);
+      } else if (v >= Short.MIN_VALUE && v <= Short.MAX_VALUE) {
+        op(0x11, 1); // sipush
+        u2(v);
+      } else {
+        op(0x13, 1); // ldc_w
+        u2(intConst(v));
+      }
+    }
+
+    void invoke(int opcode, String owner, String name, String desc) {
+      // compute the stack effect from the method descriptor
+      int delta = (opcode == 0xb8 ? 0 : -1);
+      int i = 1;
+      for (; desc.charAt(i) != ')'; ++i) {
+        char c = desc.charAt(i);
+        delta -= (c == 'J' || c == 'D' ? 2 : 1);
+        if (c == 'L') {
+          i = desc.indexOf(';', i);
+        } else if (c == '[') {
+          while (desc.charAt(i) == '[') {
+            ++i;
+          }
+          if (desc.charAt(i) == 'L') {
+            i = desc.indexOf(';', i);
+          }
+        }
+      }
+      char r = desc.charAt(i + 1);
+      delta += (r == 'V' ? 0 : r == 'J' || r == 'D' ? 2 : 1);
+      op(opcode, delta);
+      u2(methodRef(owner, name, desc));
+    }
+
+    /**
+     * Allocate a local variable of the given size.
+     */
+    int local(int size) {
+      int idx = m_maxLocals;
+      m_maxLocals += size;
+      return idx;
+    }
+
+    /**
+     * Emit a local variable load or store.
+     */
+    void local(int opcode, int idx, int delta) {
+      op(opcode, delta);
+      u1(idx);
+    }
+
+    void jump(int opcode, Label target) {
+      int pos = m_length;
+      // conditional jumps pop their operands, goto does not
+      int delta = (opcode >= 0x9f && opcode <= 0xa6 ? -2 : opcode == 0xa7 ? 0 : -1);
+      op(opcode, delta);
+      target.jumps.add(new int[] { pos, m_length });
+      u2(0);
+      target.stack = m_stack;
+      if (!m_labels.contains(target)) {
+        m_labels.add(target);
+      }
+    }
+
+    void mark(Label label) {
+      label.pos = m_length;
+      if (label.stack >= 0) {
+        m_stack = label.stack;
+      }
+      if (!m_labels.contains(label)) {
+        m_labels.add(label);
+      }
+    }
+
+    byte[] toByteArray() {
+      for (int i = 0; i < m_labels.size(); ++i) {
+        Label l = (Label) m_labels.get(i);
+        for (int j = 0; j < l.jumps.size(); ++j) {
+          int[] jump = (int[]) l.jumps.get(j);
+          int offset = l.pos - jump[0];
+          m_bytes[jump[1]] = (byte) (offset >> 8);
+          m_bytes[jump[1] + 1] = (byte) offset;
+        }
+      }
+      byte[] b = new byte[m_length];
+      System.arraycopy(m_bytes, 0, b, 0, m_length);
+      return b;
+    }
+  } // end of inner class Code
+
+  /**
+   * Class loader defining a single generated class.
+   */
+  private static class Loader extends ClassLoader {
+    Loader(ClassLoader parent) {
+      super(parent);
+    }
+
+    Class define(String name, byte[] bytes) {
+      return defineClass(name, bytes, 0, bytes.length);
+    }
+  } // end of inner class Loader
+
+} // end of class ExpressionCodeGenerator
@@ -0,0 +1,833 @@
+package prefuse.data.expression;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import prefuse.data.FieldAccessor;
+import prefuse.data.Schema;
+import prefuse.data.Table;
+import prefuse.data.column.Column;
+import prefuse.data.column.DictionaryColumn;
+import prefuse.util.TypeLib;
+import prefuse.util.collections.DefaultLiteralComparator;
+import prefuse.util.collections.LiteralComparator;
+
+/**
+ * Library class that compiles expressions for fast evaluation over the rows of
+ * a Table. Expression trees are evaluated by walking the tree for every tuple,
+ * looking up the types of sub-expressions and the columns of data fields by name
+ * along the way. Compiling an expression performs these lookups once, producing
+ * a tree of {@link CompiledExpression} nodes that read the table's columns
+ * directly and dispatch on pre-computed value types. Where possible, the node
+ * tree is then turned into a generated class evaluating the whole expression
+ * in a single method; if classes can not be defined, e.g., under a restrictive
+ * security manager, the node tree is used directly.
+ *
+ * <p>
+ * Column references, literals, arithmetic, comparisons, ranges, the boolean
+ * connectives and if-expressions are compiled. Any other expression, such as a
+ * function call or a custom predicate, is compiled into a node that evaluates
+ * the original expression on the table's tuple for the row, so that every
+ * expression can be compiled. Subclasses of {@link ColumnExpression} are
+ * compiled as plain column references. Comparisons of a String column with a
+ * String literal are evaluated on the codes of {@link DictionaryColumn}s.
+ * </p>
+ */
+public class ExpressionCompiler {
+
+  // numeric evaluation types
+  static final int INT = 0;
+  static final int LONG = 1;
+  static final int FLOAT = 2;
+  static final int DOUBLE = 3;
+  static final int OBJECT = 4;
+
+  /**
+   * Compile an expression for evaluation over the rows of the given table.
+   *
+   * @param expr
+   *          the expression to compile
+   * @param table
+   *          the table the expression will be evaluated over
+   * @return the compiled expression
+   */
+  public static CompiledExpression compile(Expression expr, Table table) {
+    if (expr == null || table == null) {
+      throw new IllegalArgumentException("Expression and table must be non-null.");
+    }
+    CompiledExpression compiled = compile(expr, table, table.getSchema());
+    CompiledExpression generated = ExpressionCodeGenerator.generate(compiled);
+    return (generated != null ? generated : compiled);
+  }
+
+  private static CompiledExpression compile(Expression e, Table t, Schema s) {
+    Class type = getType(e, s);
+    if (type == null) {
+      // unknown data field, let the evaluation report the error
+      return new TupleNode(t, null, e);
+    }
+
+    if (e instanceof ColumnExpression) {
+      String field = ((ColumnExpression) e).getColumnName();
+      if (t.getColumn(field) != null) {
+        return new ColumnNode(t, type, t.getFieldAccessor(field));
+      }
+    } else if (e instanceof Literal) {
+      return new ConstantNode(t, type, e);
+    } else if (e.getClass() == ArithmeticExpression.class) {
+      ArithmeticExpression a = (ArithmeticExpression) e;
+      return new ArithmeticNode(t, type, a.getOperation(), compile(a.getLeftExpression(), t, s),
+          compile(a.getRightExpression(), t, s));
+    } else if (e.getClass() == ComparisonPredicate.class) {
+      ComparisonPredicate c = (ComparisonPredicate) e;
+      Expression l = c.getLeftExpression(), r = c.getRightExpression();
+      if (getType(l, s) == null || getType(r, s) == null) {
+        return new TupleNode(t, type, e);
+      }
+      ComparisonNode node = new ComparisonNode(t, c.getOperation(), compareType(l.getType(s), r.getType(s)),
+          c.getComparator(), compile(l, t, s), compile(r, t, s));
+      if (c.getComparator() == DefaultLiteralComparator.getInstance()) {
+        if (isStringColumn(l, t, s) && isStringLiteral(r)) {
+          return new DictionaryComparisonNode(node, c.getOperation(), (ColumnNode) node.m_left, r.get(null));
+        } else if (isStringLiteral(l) && isStringColumn(r, t, s)) {
+          return new DictionaryComparisonNode(node, mirror(c.getOperation()), (ColumnNode) node.m_right,
+              l.get(null));
+        }
+      }
+      return node;
+    } else if (e.getClass() == RangePredicate.class) {
+      RangePredicate p = (RangePredicate) e;
+      if (getType(p.getLeftExpression(), s) == null || getType(p.getMiddleExpression(), s) == null
+          || getType(p.getRightExpression(), s) == null) {
+        return new TupleNode(t, type, e);
+      }
+      return compileRange(p, t, s);
+    } else if (e.getClass() == AndPredicate.class || e.getClass() == OrPredicate.class
+        || e.getClass() == XorPredicate.class) {
+      CompositePredicate p = (CompositePredicate) e;
+      CompiledExpression[] clauses = new CompiledExpression[p.size()];
+      for (int i = 0; i < clauses.length; ++i) {
+        clauses[i] = compile(p.get(i), t, s);
+      }
+      int op = (e instanceof AndPredicate ? CompositeNode.AND : e instanceof OrPredicate ? CompositeNode.OR
+          : CompositeNode.XOR);
+      return new CompositeNode(t, op, clauses);
+    } else if (e.getClass() == NotPredicate.class) {
+      return new NotNode(t, compile(((NotPredicate) e).getPredicate(), t, s));
+    } else if (e.getClass() == IfExpression.class) {
+      IfExpression ie = (IfExpression) e;
+      return new IfNode(t, type, compile(ie.getTestPredicate(), t, s), compile(ie.getThenExpression(), t, s),
+          compile(ie.getElseExpression(), t, s));
+    }
+    return new TupleNode(t, type, e);
+  }
+
+  /**
+   * Get the type of an expression, or null if it can not be determined, e.g.,
+   * because it references a data field missing from the schema.
+   */
+  private static Class getType(Expression e, Schema s) {
+    try {
+      return e.getType(s);
+    } catch (RuntimeException ex) {
+      return null;
+    }
+  }
+
+  private static boolean isStringColumn(Expression e, Table t, Schema s) {
+    return e instanceof ColumnExpression && t.getColumn(((ColumnExpression) e).getColumnName()) != null
+        && e.getType(s) == String.class;
+  }
+
+  private static boolean isStringLiteral(Expression e) {
+    if (!(e instanceof Literal)) {
+      return false;
+    }
+    Object value = ((Literal) e).get(null);
+    return value == null || value instanceof String;
+  }
+
+  /**
+   * Get the comparison operation with its operands swapped.
+   */
+  private static int mirror(int op) {
+    switch (op) {
+      case ComparisonPredicate.LT:
+        return ComparisonPredicate.GT;
+      case ComparisonPredicate.GT:
+        return ComparisonPredicate.LT;
+      case ComparisonPredicate.LTEQ:
+        return ComparisonPredicate.GTEQ;
+      case ComparisonPredicate.GTEQ:
+        return ComparisonPredicate.LTEQ;
+      default:
+        return op;
+    }
+  }
+
+  private static CompiledExpression compileRange(RangePredicate p, Table t, Schema s) {
+    Expression l = p.getLeftExpression(), r = p.getRightExpression();
+    Expression m = p.getMiddleExpression();
+    Class lType = l.getType(s), rType = r.getType(s);
+
+    // match the end-points' type, as RangePredicate does
+    Class sType = null;
+    if (lType.isAssignableFrom(rType)) {
+      sType = lType;
+    } else if (rType.isAssignableFrom(lType)) {
+      sType = rType;
+    }
+    int type = (sType == null ? OBJECT : compareType(sType, m.getType(s)));
+    return new RangeNode(t, p.getOperation(), type, p.getComparator(), compile(l, t, s), compile(m, t, s),
+        compile(r, t, s));
+  }
+
+  /**
+   * Get the evaluation type for comparing values of the given types, following
+   * ComparisonPredicate.
+   */
+  private static int compareType(Class lType, Class rType) {
+    if (!TypeLib.isNumericType(lType) || !TypeLib.isNumericType(rType)) {
+      return OBJECT;
+    }
+    Class type = TypeLib.getNumericType(lType, rType);
+    if (type == int.class || type == byte.class) {
+      return INT;
+    } else if (type == long.class) {
+      return LONG;
+    } else if (type == float.class) {
+      return FLOAT;
+    } else if (type == double.class) {
+      return DOUBLE;
+    } else {
+      throw new IllegalStateException();
+    }
+  }
+
+  // ------------------------------------------------------------------------
+  // Compiled Nodes
+
+  /**
+   * Reads a data field through a resolved column accessor.
+   */
+  static final class ColumnNode extends CompiledExpression {
+    final FieldAccessor m_access;
+
+    ColumnNode(Table t, Class type, FieldAccessor access) {
+      super(t, type);
+      m_access = access;
+    }
+
+    @Override
+    public Object get(int row) {
+      return m_access.get(row);
+    }
+
+    @Override
+    public int getInt(int row) {
+      return m_access.getInt(row);
+    }
+
+    @Override
+    public long getLong(int row) {
+      return m_access.getLong(row);
+    }
+
+    @Override
+    public float getFloat(int row) {
+      return m_access.getFloat(row);
+    }
+
+    @Override
+    public double getDouble(int row) {
+      return m_access.getDouble(row);
+    }
+
+    @Override
+    public boolean getBoolean(int row) {
+      return m_access.getBoolean(row);
+    }
+  } // end of class ColumnNode
+
+  /**
+   * A literal value, with the values for its own type computed up front.
+   */
+  static final class ConstantNode extends CompiledExpression {
+    final Expression m_literal;
+    final Object m_value;
+    final boolean m_numeric;
+    int m_int;
+    long m_long;
+    float m_float;
+    double m_double;
+    boolean m_boolean;
+
+    ConstantNode(Table t, Class type, Expression literal) {
+      super(t, type);
+      m_literal = literal;
+      m_value = literal.get(null);
+      m_numeric = TypeLib.isNumericType(type);
+      if (m_numeric) {
+        m_int = literal.getInt(null);
+        m_long = literal.getLong(null);
+        m_float = literal.getFloat(null);
+        m_double = literal.getDouble(null);
+      } else if (type == boolean.class) {
+        m_boolean = literal.getBoolean(null);
+      }
+    }
+
+    @Override
+    public Object get(int row) {
+      return m_value;
+    }
+
+    @Override
+    public int getInt(int row) {
+      return (m_numeric ? m_int : m_literal.getInt(null));
+    }
+
+    @Override
+    public long getLong(int row) {
+      return (m_numeric ? m_long : m_literal.getLong(null));
+    }
+
+    @Override
+    public float getFloat(int row) {
+      return (m_numeric ? m_float : m_literal.getFloat(null));
+    }
+
+    @Override
+    public double getDouble(int row) {
+      return (m_numeric ? m_double : m_literal.getDouble(null));
+    }
+
+    @Override
+    public boolean getBoolean(int row) {
+      return (m_type == boolean.class ? m_boolean : m_literal.getBoolean(null));
+    }
+
+    @Override
+    public void select(int start, long[] selection) {
+      if (m_type != boolean.class) {
+        super.select(start, selection);
+      } else if (!m_boolean) {
+        Arrays.fill(selection, 0);
+      }
+    }
+  } // end of class ConstantNode
+
+  /**
+   * Computes an arithmetic operation, see {@link ArithmeticExpression}.
+   */
+  static final class ArithmeticNode extends CompiledExpression {
+    final int m_op;
+    final CompiledExpression m_left, m_right;
+
+    ArithmeticNode(Table t, Class type, int op, CompiledExpression left, CompiledExpression right) {
+      super(t, type);
+      m_op = op;
+      m_left = left;
+      m_right = right;
+    }
+
+    @Override
+    public Object get(int row) {
+      if (int.class == m_type || byte.class == m_type) {
+        return Integer.valueOf(getInt(row));
+      } else if (long.class == m_type) {
+        return Long.valueOf(getLong(row));
+      } else if (float.class == m_type) {
+        return Float.valueOf(getFloat(row));
+      } else if (double.class == m_type) {
+        return Double.valueOf(getDouble(row));
+      } else {
+        throw new IllegalStateException();
+      }
+    }
+
+    @Override
+    public int getInt(int row) {
+      int x = m_left.getInt(row);
+      int y = m_right.getInt(row);
+      switch (m_op) {
+        case ArithmeticExpression.ADD:
+          return x + y;
+        case ArithmeticExpression.SUB:
+          return x - y;
+        case ArithmeticExpression.MUL:
+          return x * y;
+        case ArithmeticExpression.DIV:
+          return x / y;
+        case ArithmeticExpression.POW:
+          return (int) Math.pow(x, y);
+        case ArithmeticExpression.MOD:
+          return x % y;
+      }
+      throw new IllegalStateException("Unknown operation type.");
+    }
+
+    @Override
+    public long getLong(int row) {
+      long x = m_left.getLong(row);
+      long y = m_right.getLong(row);
+      switch (m_op) {
+        case ArithmeticExpression.ADD:
+          return x + y;
+        case ArithmeticExpression.SUB:
+          return x - y;
+        case ArithmeticExpression.MUL:
+          return x * y;
+        case ArithmeticExpression.DIV:
+          return x / y;
+        case ArithmeticExpression.POW:
+          return (long) Math.pow(x, y);
+        case ArithmeticExpression.MOD:
+          return x % y;
+      }
+      throw new IllegalStateException("Unknown operation type.");
+    }
+
+    @Override
+    public float getFloat(int row) {
+      float x = m_left.getFloat(row);
+      float y = m_right.getFloat(row);
+      switch (m_op) {
+        case ArithmeticExpression.ADD:
+          return x + y;
+        case ArithmeticExpression.SUB:
+          return x - y;
+        case ArithmeticExpression.MUL:
+          return x * y;
+        case ArithmeticExpression.DIV:
+          return x / y;
+        case ArithmeticExpression.POW:
+          return (float) Math.pow(x, y);
+        case ArithmeticExpression.MOD:
+          return (float) Math.IEEEremainder(x, y);
+      }
+      throw new IllegalStateException("Unknown operation type.");
+    }
+
+    @Override
+    public double getDouble(int row) {
+      double x = m_left.getDouble(row);
+      double y = m_right.getDouble(row);
+      switch (m_op) {
+        case ArithmeticExpression.ADD:
+          return x + y;
+        case ArithmeticExpression.SUB:
+          return x - y;
+        case ArithmeticExpression.MUL:
+          return x * y;
+        case ArithmeticExpression.DIV:
+          return x / y;
+        case ArithmeticExpression.POW:
+          return Math.pow(x, y);
+        case ArithmeticExpression.MOD:
+          return Math.IEEEremainder(x, y);
+      }
+      throw new IllegalStateException("Unknown operation type.");
+    }
+  } // end of class ArithmeticNode
+
+  /**
+   * Base class for compiled predicates.
+   */
+  abstract static class PredicateNode extends CompiledExpression {
+    PredicateNode(Table t) {
+      super(t, boolean.class);
+    }
+
+    @Override
+    public Object get(int row) {
+      return (getBoolean(row) ? Boolean.TRUE : Boolean.FALSE);
+    }
+  } // end of class PredicateNode
+
+  /**
+   * Computes a comparison, see {@link ComparisonPredicate}.
+   */
+  static final class ComparisonNode extends PredicateNode {
+    final int m_op;
+    final int m_ctype;
+    final Comparator m_cmp;
+    final CompiledExpression m_left, m_right;
+
+    ComparisonNode(Table t, int op, int ctype, Comparator cmp, CompiledExpression left, CompiledExpression right) {
+      super(t);
+      m_op = op;
+      m_ctype = ctype;
+      m_cmp = cmp;
+      m_left = left;
+      m_right = right;
+    }
+
+    @Override
+    public boolean getBoolean(int row) {
+      int c;
+      switch (m_ctype) {
+        case INT:
+          c = ((LiteralComparator) m_cmp).compare(m_left.getInt(row), m_right.getInt(row));
+          break;
+        case LONG:
+          c = ((LiteralComparator) m_cmp).compare(m_left.getLong(row), m_right.getLong(row));
+          break;
+        case FLOAT:
+          c = ((LiteralComparator) m_cmp).compare(m_left.getFloat(row), m_right.getFloat(row));
+          break;
+        case DOUBLE:
+          c = ((LiteralComparator) m_cmp).compare(m_left.getDouble(row), m_right.getDouble(row));
+          break;
+        default:
+          c = m_cmp.compare(m_left.get(row), m_right.get(row));
+      }
+
+      switch (m_op) {
+        case ComparisonPredicate.LT:
+          return (c < 0);
+        case ComparisonPredicate.GT:
+          return (c > 0);
+        case ComparisonPredicate.EQ:
+          return (c == 0);
+        case ComparisonPredicate.NEQ:
+          return (c != 0);
+        case ComparisonPredicate.LTEQ:
+          return (c <= 0);
+        case ComparisonPredicate.GTEQ:
+          return (c >= 0);
+        default:
+          throw new IllegalStateException("Unknown operation.");
+      }
+    }
+  } // end of class ComparisonNode
+
+  /**
+   * Computes a comparison of a String column with a String literal, see
+   * {@link ComparisonPredicate}. If the column is a {@link DictionaryColumn},
+   * the comparison is decided once per dictionary code and rows are tested by
+   * looking up the result for their code. Otherwise values are compared as by
+   * a {@link ComparisonNode}.
+   */
+  static final class DictionaryComparisonNode extends PredicateNode {
+    final ComparisonNode m_compare;
+    final int m_op; // with the column as left operand
+    final FieldAccessor m_access;
+    final Object m_value;
+
+    // comparison results per code, for a column and dictionary version
+    private DictionaryColumn m_column;
+    private int m_version;
+    private boolean[] m_match;
+
+    DictionaryComparisonNode(ComparisonNode compare, int op, ColumnNode column, Object value) {
+      super(compare.getTable());
+      m_compare = compare;
+      m_op = op;
+      m_access = column.m_access;
+      m_value = value;
+    }
+
+    /**
+     * Get the comparison results for the codes of a dictionary column.
+     */
+    private boolean[] match(DictionaryColumn c) {
+      if (c == m_column && c.getVersion() == m_version) {
+        return m_match;
+      }
+      boolean[] match = new boolean[c.getDictionarySize()];
+      int code = c.getCode(m_value);
+      if (m_op == ComparisonPredicate.EQ || m_op == ComparisonPredicate.NEQ) {
+        for (int i = 0; i < match.length; ++i) {
+          match[i] = (i == code) == (m_op == ComparisonPredicate.EQ);
+        }
+      } else {
+        // positions of the dictionary values and the literal on a common scale,
+        // an absent literal falling between the values around it
+        int rank = c.getRank(m_value);
+        int pos = (rank >= 0 ? 2 * rank : 2 * (-rank - 1) - 1);
+        for (int i = 0; i < match.length; ++i) {
+          int d = 2 * c.getRank(i) - pos;
+          switch (m_op) {
+            case ComparisonPredicate.LT:
+              match[i] = (d < 0);
+              break;
+            case ComparisonPredicate.GT:
+              match[i] = (d > 0);
+              break;
+            case ComparisonPredicate.LTEQ:
+              match[i] = (d <= 0);
+              break;
+            case ComparisonPredicate.GTEQ:
+              match[i] = (d >= 0);
+              break;
+            default:
+              throw new IllegalStateException("Unknown operation.");
+          }
+        }
+      }
+      m_column = c;
+      m_version = c.getVersion();
+      m_match = match;
+      return match;
+    }
+
+    @Override
+    public boolean getBoolean(int row) {
+      Column c = m_access.getColumn();
+      if (!(c instanceof DictionaryColumn)) {
+        return m_compare.getBoolean(row);
+      }
+      DictionaryColumn dc = (DictionaryColumn) c;
+      return match(dc)[dc.getCode(m_table.getColumnRow(row, m_access.getColumnNumber()))];
+    }
+
+    @Override
+    public void select(int start, long[] selection) {
+      Column c = m_access.getColumn();
+      if (!(c instanceof DictionaryColumn)) {
+        m_compare.select(start, selection);
+        return;
+      }
+      DictionaryColumn dc = (DictionaryColumn) c;
+      boolean[] match = match(dc);
+      int col = m_access.getColumnNumber();
+      for (int w = 0; w < selection.length; ++w) {
+        long word = selection[w];
+        for (long bits = word; bits != 0; bits &= bits - 1) {
+          int row = start + (w << 6) + Long.numberOfTrailingZeros(bits);
+          if (!match[dc.getCode(m_table.getColumnRow(row, col))]) {
+            word ^= bits & -bits;
+          }
+        }
+        selection[w] = word;
+      }
+    }
+  } // end of class DictionaryComparisonNode
+
+  /**
+   * Computes a range test, see {@link RangePredicate}.
+   */
+  static final class RangeNode extends PredicateNode {
+    final int m_op;
+    final int m_ctype;
+    final Comparator m_cmp;
+    final CompiledExpression m_left, m_middle, m_right;
+
+    RangeNode(Table t, int op, int ctype, Comparator cmp, CompiledExpression left, CompiledExpression middle,
+        CompiledExpression right) {
+      super(t);
+      m_op = op;
+      m_ctype = ctype;
+      m_cmp = cmp;
+      m_left = left;
+      m_middle = middle;
+      m_right = right;
+    }
+
+    @Override
+    public boolean getBoolean(int row) {
+      int c1, c2;
+      switch (m_ctype) {
+        case INT: {
+          LiteralComparator lc = (LiteralComparator) m_cmp;
+          int x = m_middle.getInt(row);
+          c1 = lc.compare(x, m_left.getInt(row));
+          c2 = lc.compare(x, m_right.getInt(row));
+          break;
+        }
+        case LONG: {
+          LiteralComparator lc = (LiteralComparator) m_cmp;
+          long x = m_middle.getLong(row);
+          c1 = lc.compare(x, m_left.getLong(row));
+          c2 = lc.compare(x, m_right.getLong(row));
+          break;
+        }
+        case FLOAT: {
+          LiteralComparator lc = (LiteralComparator) m_cmp;
+          float x = m_middle.getFloat(row);
+          c1 = lc.compare(x, m_left.getFloat(row));
+          c2 = lc.compare(x, m_right.getFloat(row));
+          break;
+        }
+        case DOUBLE: {
+          LiteralComparator lc = (LiteralComparator) m_cmp;
+          double x = m_middle.getDouble(row);
+          c1 = lc.compare(x, m_left.getDouble(row));
+          c2 = lc.compare(x, m_right.getDouble(row));
+          break;
+        }
+        default: {
+          Object x = m_middle.get(row);
+          c1 = m_cmp.compare(x, m_left.get(row));
+          c2 = m_cmp.compare(x, m_right.get(row));
+        }
+      }
+
+      switch (m_op) {
+        case RangePredicate.IN_IN:
+          return (c1 >= 0 && c2 <= 0);
+        case RangePredicate.IN_EX:
+          return (c1 >= 0 && c2 < 0);
+        case RangePredicate.EX_IN:
+          return (c1 > 0 && c2 <= 0);
+        case RangePredicate.EX_EX:
+          return (c1 > 0 && c2 < 0);
+        default:
+          throw new IllegalStateException("Unknown operation.");
+      }
+    }
+  } // end of class RangeNode
+
+  /**
+   * Computes a conjunction, disjunction or exclusive disjunction of clauses.
+   */
+  static final class CompositeNode extends PredicateNode {
+    static final int AND = 0;
+    static final int OR = 1;
+    static final int XOR = 2;
+
+    final int m_op;
+    final CompiledExpression[] m_clauses;
+
+    CompositeNode(Table t, int op, CompiledExpression[] clauses) {
+      super(t);
+      m_op = op;
+      m_clauses = clauses;
+    }
+
+    @Override
+    public boolean getBoolean(int row) {
+      CompiledExpression[] clauses = m_clauses;
+      if (clauses.length == 0) {
+        return false;
+      }
+      switch (m_op) {
+        case AND:
+          for (int i = 0; i < clauses.length; ++i) {
+            if (!clauses[i].getBoolean(row)) {
+              return false;
+            }
+          }
+          return true;
+        case OR:
+          for (int i = 0; i < clauses.length; ++i) {
+            if (clauses[i].getBoolean(row)) {
+              return true;
+            }
+          }
+          return false;
+        default:
+          boolean val = false;
+          for (int i = 0; i < clauses.length; ++i) {
+            val ^= clauses[i].getBoolean(row);
+          }
+          return val;
+      }
+    }
+  } // end of class CompositeNode
+
+  /**
+   * Negates a predicate.
+   */
+  static final class NotNode extends PredicateNode {
+    final CompiledExpression m_predicate;
+
+    NotNode(Table t, CompiledExpression predicate) {
+      super(t);
+      m_predicate = predicate;
+    }
+
+    @Override
+    public boolean getBoolean(int row) {
+      return !m_predicate.getBoolean(row);
+    }
+  } // end of class NotNode
+
+  /**
+   * Selects between two expressions, see {@link IfExpression}.
+   */
+  static final class IfNode extends CompiledExpression {
+    final CompiledExpression m_test, m_then, m_else;
+
+    IfNode(Table t, Class type, CompiledExpression test, CompiledExpression thenExpr, CompiledExpression elseExpr) {
+      super(t, type);
+      m_test = test;
+      m_then = thenExpr;
+      m_else = elseExpr;
+    }
+
+    @Override
+    public Object get(int row) {
+      return (m_test.getBoolean(row) ? m_then : m_else).get(row);
+    }
+
+    @Override
+    public int getInt(int row) {
+      return (m_test.getBoolean(row) ? m_then : m_else).getInt(row);
+    }
+
+    @Override
+    public long getLong(int row) {
+      return (m_test.getBoolean(row) ? m_then : m_else).getLong(row);
+    }
+
+    @Override
+    public float getFloat(int row) {
+      return (m_test.getBoolean(row) ? m_then : m_else).getFloat(row);
+    }
+
+    @Override
+    public double getDouble(int row) {
+      return (m_test.getBoolean(row) ? m_then : m_else).getDouble(row);
+    }
+
+    @Override
+    public boolean getBoolean(int row) {
+      return (m_test.getBoolean(row) ? m_then : m_else).getBoolean(row);
+    }
+  } // end of class IfNode
+
+  /**
+   * Evaluates an expression that can not be compiled on the row's tuple.
+   */
+  static final class TupleNode extends CompiledExpression {
+    final Expression m_expr;
+
+    TupleNode(Table t, Class type, Expression expr) {
+      super(t, type);
+      m_expr = expr;
+    }
+
+    @Override
+    public Object get(int row) {
+      return m_expr.get(m_table.getTuple(row));
+    }
+
+    @Override
+    public int getInt(int row) {
+      return m_expr.getInt(m_table.getTuple(row));
+    }
+
+    @Override
+    public long getLong(int row) {
+      return m_expr.getLong(m_table.getTuple(row));
+    }
+
+    @Override
+    public float getFloat(int row) {
+      return m_expr.getFloat(m_table.getTuple(row));
+    }
+
+    @Override
+    public double getDouble(int row) {
+      return m_expr.getDouble(m_table.getTuple(row));
+    }
+
+    @Override
+    public boolean getBoolean(int row) {
+      return m_expr.getBoolean(m_table.getTuple(row));
+    }
+  } // end of class TupleNode
+
+} // end of class ExpressionCompiler
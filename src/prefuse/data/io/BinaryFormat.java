@@ -0,0 +1,698 @@
+package prefuse.data.io;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+
+import prefuse.data.Table;
+import prefuse.data.column.Column;
+import prefuse.data.column.ColumnFactory;
+import prefuse.data.column.DictionaryColumn;
+import prefuse.data.column.DoubleBufferColumn;
+import prefuse.data.column.FloatBufferColumn;
+import prefuse.data.column.IntBufferColumn;
+import prefuse.data.column.LongBufferColumn;
+import prefuse.data.parser.DataParseException;
+import prefuse.data.parser.DataParser;
+import prefuse.data.parser.ParserFactory;
+import prefuse.util.TimeLib;
+import prefuse.util.collections.IntIterator;
+
+/**
+ * Encoding of tables in the binary columnar format read and written by
+ * {@link BinaryTableReader}, {@link BinaryTableWriter},
+ * {@link BinaryGraphReader} and {@link BinaryGraphWriter}.
+ *
+ * <p>
+ * All values are little-endian. A file starts with an eight byte magic
+ * string, identifying a table or a graph file, and a format version. A table
+ * is stored as its row and column counts followed by each column in turn: its
+ * name, the name of its data type, its encoding, its default value and its
+ * data. Column data starts at a multiple of eight bytes from the start of the
+ * file, so that it can be used in place, from a memory-mapped file.
+ * </p>
+ *
+ * <ul>
+ * <li><code>int</code>, <code>long</code>, <code>float</code> and
+ * <code>double</code> columns store one value per row. Other integral types
+ * are stored as ints and dates as longs holding their time in
+ * milliseconds.</li>
+ * <li><code>boolean</code> columns store one bit per row, packed in
+ * longs.</li>
+ * <li>All other columns are dictionary encoded, storing the text of each
+ * distinct value once, the default value first, followed by an int code per
+ * row. Values other than Strings are converted to and from text with the
+ * {@link DataParser} provided for their type by the default
+ * {@link ParserFactory}.</li>
+ * </ul>
+ */
+class BinaryFormat {
+
+  /** Magic string starting a table file */
+  static final String TABLE_MAGIC = "PFXTABLE";
+  /** Magic string starting a graph file */
+  static final String GRAPH_MAGIC = "PFXGRAPH";
+  /** Format version */
+  static final int VERSION = 1;
+
+  /** Graph flag for directed edges */
+  static final int DIRECTED = 1;
+  /** Graph flag for trees */
+  static final int TREE = 2;
+
+  // column encodings
+  static final int INT = 1;
+  static final int LONG = 2;
+  static final int FLOAT = 3;
+  static final int DOUBLE = 4;
+  static final int BOOLEAN = 5;
+  static final int DICTIONARY = 6;
+
+  /** Size from which data is mapped from a file rather than read */
+  private static final int MAP_THRESHOLD = 1 << 16;
+
+  private static final HashMap PRIMITIVES = new HashMap();
+  static {
+    Class[] types = { byte.class, short.class, int.class, long.class, float.class, double.class, boolean.class };
+    for (int i = 0; i < types.length; ++i) {
+      PRIMITIVES.put(types[i].getName(), types[i]);
+    }
+  }
+
+  private BinaryFormat() {
+    // prevent instantiation
+  }
+
+  private static int getEncoding(Class type) {
+    if (type == byte.class || type == short.class || type == int.class) {
+      return INT;
+    } else if (type == long.class || Date.class.isAssignableFrom(type)) {
+      return LONG;
+    } else if (type == float.class) {
+      return FLOAT;
+    } else if (type == double.class) {
+      return DOUBLE;
+    } else if (type == boolean.class) {
+      return BOOLEAN;
+    } else {
+      return DICTIONARY;
+    }
+  }
+
+  private static Class getType(String name) throws DataIOException {
+    Class type = (Class) PRIMITIVES.get(name);
+    if (type != null) {
+      return type;
+    }
+    try {
+      return Class.forName(name);
+    } catch (ClassNotFoundException e) {
+      throw new DataIOException("Unknown column type: " + name, e);
+    }
+  }
+
+  private static DataParser getParser(Class type, String name) throws DataIOException {
+    DataParser parser = ParserFactory.getDefaultFactory().getParser(type);
+    if (parser == null) {
+      throw new DataIOException("No parser available for column " + name + " of type " + type.getName());
+    }
+    return parser;
+  }
+
+  // ------------------------------------------------------------------------
+  // Writing
+
+  /**
+   * Write the valid rows of a table.
+   *
+   * @param out
+   *          the output to write to
+   * @param table
+   *          the table to write
+   * @param keys
+   *          the names of int columns whose values are to be mapped through
+   *          the key map, or null for none
+   * @param keyMap
+   *          maps old to new values of the key columns, values outside the
+   *          map are written as -1
+   */
+  static void writeTable(Output out, Table table, String[] keys, int[] keyMap) throws IOException, DataIOException {
+    int nrows = table.getRowCount();
+    int ncols = table.getColumnCount();
+    out.writeInt(nrows);
+    out.writeInt(ncols);
+
+    for (int c = 0; c < ncols; ++c) {
+      String name = table.getColumnName(c);
+      Column col = table.getColumn(c);
+      Class type = col.getColumnType();
+      Object dflt = col.getDefaultValue();
+      int encoding = getEncoding(type);
+      out.writeString(name);
+      out.writeString(type.getName());
+      out.writeInt(encoding);
+
+      boolean mapped = false;
+      for (int i = 0; keys != null && i < keys.length; ++i) {
+        mapped |= name.equals(keys[i]);
+      }
+
+      IntIterator rows = table.rows();
+      switch (encoding) {
+      case INT:
+        out.writeInt(((Number) dflt).intValue());
+        out.align();
+        while (rows.hasNext()) {
+          int v = col.getInt(rows.nextInt());
+          if (mapped) {
+            v = (v >= 0 && v < keyMap.length ? keyMap[v] : -1);
+          }
+          out.writeInt(v);
+        }
+        break;
+      case LONG:
+        if (type == long.class) {
+          out.writeLong(((Number) dflt).longValue());
+          out.align();
+          while (rows.hasNext()) {
+            out.writeLong(col.getLong(rows.nextInt()));
+          }
+        } else {
+          out.writeLong(dflt == null ? 0L : ((Date) dflt).getTime());
+          out.align();
+          while (rows.hasNext()) {
+            Date d = (Date) col.get(rows.nextInt());
+            if (d == null) {
+              throw new DataIOException("Null value in date column " + name);
+            }
+            out.writeLong(d.getTime());
+          }
+        }
+        break;
+      case FLOAT:
+        out.writeFloat(((Number) dflt).floatValue());
+        out.align();
+        while (rows.hasNext()) {
+          out.writeFloat(col.getFloat(rows.nextInt()));
+        }
+        break;
+      case DOUBLE:
+        out.writeDouble(((Number) dflt).doubleValue());
+        out.align();
+        while (rows.hasNext()) {
+          out.writeDouble(col.getDouble(rows.nextInt()));
+        }
+        break;
+      case BOOLEAN:
+        out.writeInt(((Boolean) dflt).booleanValue() ? 1 : 0);
+        out.align();
+        long bits = 0;
+        int n = 0;
+        while (rows.hasNext()) {
+          if (col.getBoolean(rows.nextInt())) {
+            bits |= 1L << (n & 63);
+          }
+          if ((++n & 63) == 0) {
+            out.writeLong(bits);
+            bits = 0;
+          }
+        }
+        if ((n & 63) != 0) {
+          out.writeLong(bits);
+        }
+        break;
+      default:
+        writeDictionary(out, table, name, col, type, dflt);
+      }
+      out.align();
+    }
+  }
+
+  private static void writeDictionary(Output out, Table table, String name, Column col, Class type, Object dflt)
+      throws IOException, DataIOException {
+    DataParser parser = (type == String.class ? null : getParser(type, name));
+    HashMap codes = new HashMap();
+    Object[] dict = new Object[16];
+    int[] rowCodes = new int[table.getRowCount()];
+
+    // assign codes to the default value and the value of each row
+    codes.put(dflt, new Integer(0));
+    dict[0] = dflt;
+    int n = 0;
+    for (IntIterator rows = table.rows(); rows.hasNext(); ++n) {
+      Object value = col.get(rows.nextInt());
+      Integer code = (Integer) codes.get(value);
+      if (code == null) {
+        code = new Integer(codes.size());
+        codes.put(value, code);
+        if (code.intValue() == dict.length) {
+          Object[] d = new Object[2 * dict.length];
+          System.arraycopy(dict, 0, d, 0, dict.length);
+          dict = d;
+        }
+        dict[code.intValue()] = value;
+      }
+      rowCodes[n] = code.intValue();
+    }
+    // encode the dictionary values as text
+    int count = codes.size();
+    byte[][] text = new byte[count][];
+    long total = 0;
+    for (int i = 0; i < count; ++i) {
+      if (dict[i] != null) {
+        String s = (parser == null ? (String) dict[i] : parser.format(dict[i]));
+        text[i] = s.getBytes(StandardCharsets.UTF_8);
+        total += text[i].length;
+      }
+    }
+    if (total > Integer.MAX_VALUE) {
+      throw new DataIOException("Too much text in column " + name);
+    }
+
+    out.writeInt(count);
+    out.writeInt((int) total);
+    for (int i = 0; i < count; ++i) {
+      out.writeInt(text[i] == null ? -1 : text[i].length);
+    }
+    for (int i = 0; i < count; ++i) {
+      if (text[i] != null) {
+        out.write(text[i]);
+      }
+    }
+    out.align();
+    for (int i = 0; i < n; ++i) {
+      out.writeInt(rowCodes[i]);
+    }
+  }
+
+  // ------------------------------------------------------------------------
+  // Reading
+
+  /**
+   * Read a table.
+   *
+   * @param in
+   *          the input to read from
+   * @return the table
+   */
+  static Table readTable(Input in) throws IOException, DataIOException {
+    int nrows = in.readInt();
+    int ncols = in.readInt();
+    if (nrows < 0 || ncols < 0) {
+      throw new DataIOException("Corrupt table header");
+    }
+    Table table = new Table(nrows, ncols);
+
+    for (int c = 0; c < ncols; ++c) {
+      String name = in.readString();
+      Class type = getType(in.readString());
+      int encoding = in.readInt();
+      Column col;
+      ByteBuffer data;
+
+      switch (encoding) {
+      case INT: {
+        int dflt = in.readInt();
+        in.align();
+        data = in.read((long) nrows << 2);
+        if (type == int.class) {
+          col = new IntBufferColumn(data, nrows, dflt);
+        } else {
+          col = ColumnFactory.getColumn(type, nrows, new Integer(dflt));
+          for (int row = 0; row < nrows; ++row) {
+            col.setInt(data.getInt(row << 2), row);
+          }
+        }
+        break;
+      }
+      case LONG: {
+        long dflt = in.readLong();
+        in.align();
+        data = in.read((long) nrows << 3);
+        if (type == long.class) {
+          col = new LongBufferColumn(data, nrows, dflt);
+        } else {
+          col = ColumnFactory.getColumn(type, nrows, TimeLib.getDate(type, dflt));
+          for (int row = 0; row < nrows; ++row) {
+            col.setLong(data.getLong(row << 3), row);
+          }
+        }
+        break;
+      }
+      case FLOAT: {
+        float dflt = in.readFloat();
+        in.align();
+        col = new FloatBufferColumn(in.read((long) nrows << 2), nrows, dflt);
+        break;
+      }
+      case DOUBLE: {
+        double dflt = in.readDouble();
+        in.align();
+        col = new DoubleBufferColumn(in.read((long) nrows << 3), nrows, dflt);
+        break;
+      }
+      case BOOLEAN: {
+        boolean dflt = in.readInt() != 0;
+        in.align();
+        data = in.read((long) ((nrows + 63) >>> 6) << 3);
+        col = ColumnFactory.getColumn(boolean.class, nrows, Boolean.valueOf(dflt));
+        for (int row = 0; row < nrows; ++row) {
+          long bits = data.getLong((row >>> 6) << 3);
+          col.setBoolean(((bits >>> (row & 63)) & 1) != 0, row);
+        }
+        break;
+      }
+      case DICTIONARY:
+        col = readDictionary(in, name, type, nrows);
+        break;
+      default:
+        throw new DataIOException("Unknown encoding for column " + name + ": " + encoding);
+      }
+      in.align();
+      table.addColumn(name, col);
+    }
+    return table;
+  }
+
+  private static Column readDictionary(Input in, String name, Class type, int nrows)
+      throws IOException, DataIOException {
+    DataParser parser = (type == String.class ? null : getParser(type, name));
+    int count = in.readInt();
+    int total = in.readInt();
+    if (count < 1 || total < 0) {
+      throw new DataIOException("Corrupt dictionary for column " + name);
+    }
+    ByteBuffer lengths = in.read((long) count << 2);
+    byte[] text = new byte[total];
+    in.read(total).get(text);
+
+    Object[] dict = new Object[count];
+    int off = 0;
+    for (int i = 0; i < count; ++i) {
+      int len = lengths.getInt(i << 2);
+      if (len < 0) {
+        continue;
+      } else if (len > total - off) {
+        throw new DataIOException("Corrupt dictionary for column " + name);
+      }
+      String s = new String(text, off, len, StandardCharsets.UTF_8);
+      off += len;
+      try {
+        dict[i] = (parser == null ? s : parser.parse(s));
+      } catch (DataParseException e) {
+        throw new DataIOException(e);
+      }
+    }
+    Object dflt = dict[0];
+
+    in.align();
+    int[] codes = new int[nrows];
+    in.read((long) nrows << 2).asIntBuffer().get(codes);
+
+    if (type == String.class && ColumnFactory.isDictionaryEncoding()) {
+      try {
+        return new DictionaryColumn(type, dict, codes, nrows, dflt);
+      } catch (IllegalArgumentException e) {
+        throw new DataIOException("Corrupt dictionary codes for column " + name, e);
+      }
+    }
+    Column col = ColumnFactory.getColumn(type, nrows, dflt);
+    for (int row = 0; row < nrows; ++row) {
+      if (codes[row] < 0 || codes[row] >= count) {
+        throw new DataIOException("Corrupt dictionary codes for column " + name);
+      }
+      col.set(dict[codes[row]], row);
+    }
+    return col;
+  }
+
+  // ------------------------------------------------------------------------
+  // Input and Output
+
+  /**
+   * Open a file for input. When the file is writable, large regions of the file
+   * are mapped into memory with a private mapping, so that changes to the data
+   * are not written back to the file. A read-only mapping would leave the
+   * columns unmodifiable, so large regions of a file that is not writable are
+   * instead copied into direct buffers.
+   *
+   * @param f
+   *          the file to read
+   * @return the input
+   */
+  static Input open(File f) throws IOException {
+    boolean writable = f.canWrite();
+    RandomAccessFile file = new RandomAccessFile(f, writable ? "rw" : "r");
+    return new Input(file.getChannel(), writable ? FileChannel.MapMode.PRIVATE : null);
+  }
+
+  /**
+   * Read the contents of a stream into memory for input.
+   *
+   * @param is
+   *          the stream to read
+   * @return the input
+   */
+  static Input open(InputStream is) throws IOException {
+    byte[] b = new byte[1 << 16];
+    int n = 0;
+    for (int r; (r = is.read(b, n, b.length - n)) >= 0;) {
+      n += r;
+      if (n == b.length) {
+        b = Arrays.copyOf(b, 2 * b.length);
+      }
+    }
+    return new Input(b, n);
+  }
+
+  /**
+   * Buffered little-endian output to a stream, keeping track of the position
+   * in the output for alignment.
+   */
+  static class Output {
+    private final OutputStream m_os;
+    private final byte[] m_bytes = new byte[1 << 16];
+    private final ByteBuffer m_buf = ByteBuffer.wrap(m_bytes).order(ByteOrder.LITTLE_ENDIAN);
+    private int m_len;
+    private long m_pos;
+
+    Output(OutputStream os) {
+      m_os = os;
+    }
+
+    private void reserve(int n) throws IOException {
+      if (m_len + n > m_bytes.length) {
+        flush();
+      }
+      m_pos += n;
+    }
+
+    void writeInt(int v) throws IOException {
+      reserve(4);
+      m_buf.putInt(m_len, v);
+      m_len += 4;
+    }
+
+    void writeLong(long v) throws IOException {
+      reserve(8);
+      m_buf.putLong(m_len, v);
+      m_len += 8;
+    }
+
+    void writeFloat(float v) throws IOException {
+      reserve(4);
+      m_buf.putFloat(m_len, v);
+      m_len += 4;
+    }
+
+    void writeDouble(double v) throws IOException {
+      reserve(8);
+      m_buf.putDouble(m_len, v);
+      m_len += 8;
+    }
+
+    void write(byte[] b) throws IOException {
+      if (b.length > m_bytes.length - m_len) {
+        flush();
+        m_os.write(b);
+        m_pos += b.length;
+      } else {
+        reserve(b.length);
+        System.arraycopy(b, 0, m_bytes, m_len, b.length);
+        m_len += b.length;
+      }
+    }
+
+    void writeString(String s) throws IOException {
+      if (s == null) {
+        writeInt(-1);
+      } else {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        writeInt(b.length);
+        write(b);
+      }
+    }
+
+    void writeMagic(String magic) throws IOException {
+      write(magic.getBytes(StandardCharsets.US_ASCII));
+      writeInt(VERSION);
+    }
+
+    /** Pad the output to a multiple of eight bytes. */
+    void align() throws IOException {
+      int pad = (int) (-m_pos & 7);
+      reserve(pad);
+      for (int i = 0; i < pad; ++i) {
+        m_bytes[m_len++] = 0;
+      }
+    }
+
+    void flush() throws IOException {
+      m_os.write(m_bytes, 0, m_len);
+      m_len = 0;
+    }
+  }
+
+  /**
+   * Little-endian input from a file or an in-memory copy of a stream. Large
+   * regions of a file are memory-mapped, or read into direct buffers when no
+   * map mode is given.
+   */
+  static class Input {
+    private final FileChannel m_channel;
+    private final FileChannel.MapMode m_mode;
+    private final byte[] m_bytes;
+    private final long m_length;
+    private long m_pos;
+
+    /**
+     * Create an input reading from a file.
+     *
+     * @param channel
+     *          the file channel
+     * @param mode
+     *          the mode used to map large regions of the file, or null to copy
+     *          them into direct buffers
+     */
+    Input(FileChannel channel, FileChannel.MapMode mode) throws IOException {
+      m_channel = channel;
+      m_mode = mode;
+      m_bytes = null;
+      m_length = channel.size();
+    }
+
+    /**
+     * Create an input reading from memory.
+     *
+     * @param bytes
+     *          the input data
+     * @param length
+     *          the length of the input data
+     */
+    Input(byte[] bytes, int length) {
+      m_channel = null;
+      m_mode = null;
+      m_bytes = bytes;
+      m_length = length;
+    }
+
+    /**
+     * Read a region of the input.
+     *
+     * @param length
+     *          the length of the region
+     * @return a buffer holding the region from index zero
+     */
+    ByteBuffer read(long length) throws IOException, DataIOException {
+      if (length > Integer.MAX_VALUE) {
+        throw new DataIOException("Region too large to read: " + length + " bytes");
+      } else if (length < 0 || m_pos + length > m_length) {
+        throw new EOFException();
+      }
+      int len = (int) length;
+      ByteBuffer buf;
+      if (m_channel == null) {
+        buf = ByteBuffer.wrap(m_bytes, (int) m_pos, len).slice();
+      } else if (len >= MAP_THRESHOLD && m_mode != null) {
+        buf = m_channel.map(m_mode, m_pos, len);
+      } else {
+        buf = (len >= MAP_THRESHOLD ? ByteBuffer.allocateDirect(len) : ByteBuffer.allocate(len));
+        while (buf.hasRemaining()) {
+          if (m_channel.read(buf, m_pos + buf.position()) < 0) {
+            throw new EOFException();
+          }
+        }
+        buf.clear();
+      }
+      m_pos += len;
+      return buf.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    int readInt() throws IOException, DataIOException {
+      return read(4).getInt(0);
+    }
+
+    long readLong() throws IOException, DataIOException {
+      return read(8).getLong(0);
+    }
+
+    float readFloat() throws IOException, DataIOException {
+      return read(4).getFloat(0);
+    }
+
+    double readDouble() throws IOException, DataIOException {
+      return read(8).getDouble(0);
+    }
+
+    String readString() throws IOException, DataIOException {
+      int len = readInt();
+      if (len < 0) {
+        return null;
+      }
+      byte[] b = new byte[len];
+      read(len).get(b);
+      return new String(b, StandardCharsets.UTF_8);
+    }
+
+    void readMagic(String magic) throws IOException, DataIOException {
+      byte[] b = new byte[magic.length()];
+      if (m_length < b.length) {
+        throw new DataIOException("Unrecognized file format");
+      }
+      read(b.length).get(b);
+      if (!magic.equals(new String(b, StandardCharsets.US_ASCII))) {
+        throw new DataIOException("Unrecognized file format");
+      }
+      int version = readInt();
+      if (version != VERSION) {
+        throw new DataIOException("Unsupported format version: " + version);
+      }
+    }
+
+    /** Skip the input to a multiple of eight bytes. */
+    void align() {
+      m_pos = (m_pos + 7) & ~7L;
+    }
+
+    /**
+     * Close the underlying file, if any. Regions mapped from the file remain
+     * valid.
+     */
+    void close() throws IOException {
+      if (m_channel != null) {
+        m_channel.close();
+      }
+    }
+  }
+
+} // end of class BinaryFormat
@@ -0,0 +1,82 @@
+package prefuse.data.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import prefuse.data.Graph;
+import prefuse.data.Table;
+import prefuse.data.Tree;
+
+/**
+ * GraphReader for graphs written by a {@link BinaryGraphWriter}. The node and
+ * edge tables are loaded as by a {@link BinaryTableReader}, memory-mapping
+ * their numeric columns when reading from a file. Graphs written from a
+ * {@link Tree} are read back as trees.
+ *
+ * @see BinaryGraphWriter
+ */
+public class BinaryGraphReader extends AbstractGraphReader {
+
+  /**
+   * @see prefuse.data.io.GraphReader#readGraph(java.lang.String)
+   */
+  @Override
+  public Graph readGraph(String location) throws DataIOException {
+    File f = new File(location);
+    return f.isFile() ? readGraph(f) : super.readGraph(location);
+  }
+
+  /**
+   * @see prefuse.data.io.GraphReader#readGraph(java.io.File)
+   */
+  @Override
+  public Graph readGraph(File f) throws DataIOException {
+    try {
+      return read(BinaryFormat.open(f));
+    } catch (IOException e) {
+      throw new DataIOException(e);
+    }
+  }
+
+  /**
+   * @see prefuse.data.io.GraphReader#readGraph(java.io.InputStream)
+   */
+  @Override
+  public Graph readGraph(InputStream is) throws DataIOException {
+    try {
+      return read(BinaryFormat.open(is));
+    } catch (IOException e) {
+      throw new DataIOException(e);
+    }
+  }
+
+  private Graph read(BinaryFormat.Input in) throws IOException, DataIOException {
+    int flags;
+    String nkey, skey, tkey;
+    Table nodes, edges;
+    try {
+      in.readMagic(BinaryFormat.GRAPH_MAGIC);
+      flags = in.readInt();
+      nkey = in.readString();
+      skey = in.readString();
+      tkey = in.readString();
+      in.align();
+      nodes = BinaryFormat.readTable(in);
+      edges = BinaryFormat.readTable(in);
+    } finally {
+      in.close();
+    }
+
+    try {
+      if ((flags & BinaryFormat.TREE) != 0) {
+        return new Tree(nodes, edges, nkey, skey, tkey);
+      } else {
+        return new Graph(nodes, edges, (flags & BinaryFormat.DIRECTED) != 0, nkey, skey, tkey);
+      }
+    } catch (RuntimeException e) {
+      throw new DataIOException("Invalid graph structure", e);
+    }
+  }
+
+} // end of class BinaryGraphReader
@@ -0,0 +1,91 @@
+package prefuse.data.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import prefuse.data.Graph;
+import prefuse.data.Table;
+import prefuse.data.Tree;
+import prefuse.util.collections.IntIterator;
+
+/**
+ * GraphWriter that writes graphs in the binary columnar format of the
+ * {@link BinaryTableWriter}, storing the node table, the edge table and the
+ * graph settings: directedness and the node key, source key and target key
+ * fields. Such files are loaded by a {@link BinaryGraphReader}.
+ *
+ * <p>
+ * Only the valid rows of the node and edge tables are written. If the graph
+ * has no node key field, edges refer to nodes by row number, and the source
+ * and target values of the edges are renumbered along with the nodes.
+ * </p>
+ *
+ * @see BinaryGraphReader
+ */
+public class BinaryGraphWriter extends AbstractGraphWriter {
+
+  /**
+   * @see prefuse.data.io.GraphWriter#writeGraph(prefuse.data.Graph,
+   *      java.io.File)
+   */
+  @Override
+  public void writeGraph(Graph graph, File f) throws DataIOException {
+    try {
+      OutputStream os = new FileOutputStream(f);
+      try {
+        writeGraph(graph, os);
+      } finally {
+        os.close();
+      }
+    } catch (IOException e) {
+      throw new DataIOException(e);
+    }
+  }
+
+  /**
+   * @see prefuse.data.io.GraphWriter#writeGraph(prefuse.data.Graph,
+   *      java.io.OutputStream)
+   */
+  @Override
+  public void writeGraph(Graph graph, OutputStream os) throws DataIOException {
+    Table nodes = graph.getNodeTable();
+    Table edges = graph.getEdgeTable();
+    String nkey = graph.getNodeKeyField();
+    String skey = graph.getEdgeSourceField();
+    String tkey = graph.getEdgeTargetField();
+
+    // renumber node references if rows have been removed from the node table
+    String[] keys = null;
+    int[] keyMap = null;
+    if (nkey == null && nodes.getRowCount() != nodes.getMaximumRow() + 1) {
+      keys = new String[] { skey, tkey };
+      keyMap = new int[nodes.getMaximumRow() + 1];
+      Arrays.fill(keyMap, -1);
+      int n = 0;
+      for (IntIterator rows = nodes.rows(); rows.hasNext();) {
+        keyMap[rows.nextInt()] = n++;
+      }
+    }
+
+    try {
+      BinaryFormat.Output out = new BinaryFormat.Output(os);
+      out.writeMagic(BinaryFormat.GRAPH_MAGIC);
+      int flags = (graph.isDirected() ? BinaryFormat.DIRECTED : 0) | (graph instanceof Tree ? BinaryFormat.TREE : 0);
+      out.writeInt(flags);
+      out.writeString(nkey);
+      out.writeString(skey);
+      out.writeString(tkey);
+      out.align();
+      BinaryFormat.writeTable(out, nodes, null, null);
+      BinaryFormat.writeTable(out, edges, keys, keyMap);
+      out.flush();
+      os.flush();
+    } catch (IOException e) {
+      throw new DataIOException(e);
+    }
+  }
+
+} // end of class BinaryGraphWriter
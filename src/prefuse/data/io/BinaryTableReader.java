@@ -0,0 +1,70 @@
+package prefuse.data.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import prefuse.data.Table;
+
+/**
+ * TableReader for tables written by a {@link BinaryTableWriter}.
+ *
+ * <p>
+ * When reading from a file, the int, long, float and double columns of the
+ * table are backed by the file mapped into memory, so that loading takes time
+ * independent of their size and their values are paged in as they are used.
+ * Changes to such columns are kept in memory and are never written back to
+ * the file. If the file is not writable, the column data is instead copied
+ * into direct buffers outside of the Java heap. String columns are read into dictionary columns, and other columns
+ * into the column types created by the
+ * {@link prefuse.data.column.ColumnFactory}. Tables read from other sources,
+ * such as URLs, are first read into memory.
+ * </p>
+ *
+ * @see BinaryTableWriter
+ */
+public class BinaryTableReader extends AbstractTableReader {
+
+  /**
+   * @see prefuse.data.io.TableReader#readTable(java.lang.String)
+   */
+  @Override
+  public Table readTable(String location) throws DataIOException {
+    File f = new File(location);
+    return f.isFile() ? readTable(f) : super.readTable(location);
+  }
+
+  /**
+   * @see prefuse.data.io.TableReader#readTable(java.io.File)
+   */
+  @Override
+  public Table readTable(File f) throws DataIOException {
+    try {
+      return read(BinaryFormat.open(f));
+    } catch (IOException e) {
+      throw new DataIOException(e);
+    }
+  }
+
+  /**
+   * @see prefuse.data.io.TableReader#readTable(java.io.InputStream)
+   */
+  @Override
+  public Table readTable(InputStream is) throws DataIOException {
+    try {
+      return read(BinaryFormat.open(is));
+    } catch (IOException e) {
+      throw new DataIOException(e);
+    }
+  }
+
+  private Table read(BinaryFormat.Input in) throws IOException, DataIOException {
+    try {
+      in.readMagic(BinaryFormat.TABLE_MAGIC);
+      return BinaryFormat.readTable(in);
+    } finally {
+      in.close();
+    }
+  }
+
+} // end of class BinaryTableReader
@@ -0,0 +1,63 @@
+package prefuse.data.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import prefuse.data.Table;
+
+/**
+ * TableWriter that writes tables in a binary columnar format, storing the
+ * values of each column next to each other in their binary representation.
+ * Such files are loaded by a {@link BinaryTableReader} without parsing, by
+ * mapping the column data into memory.
+ *
+ * <p>
+ * Only the valid rows of a table are written, so a table with removed rows is
+ * read back with its rows renumbered. Columns of types other than the
+ * primitive types, Strings and dates are written as text, and need a
+ * {@link prefuse.data.parser.DataParser} for their type to be available from
+ * the default {@link prefuse.data.parser.ParserFactory}.
+ * </p>
+ *
+ * @see BinaryTableReader
+ */
+public class BinaryTableWriter extends AbstractTableWriter {
+
+  /**
+   * @see prefuse.data.io.TableWriter#writeTable(prefuse.data.Table,
+   *      java.io.File)
+   */
+  @Override
+  public void writeTable(Table table, File f) throws DataIOException {
+    try {
+      OutputStream os = new FileOutputStream(f);
+      try {
+        writeTable(table, os);
+      } finally {
+        os.close();
+      }
+    } catch (IOException e) {
+      throw new DataIOException(e);
+    }
+  }
+
+  /**
+   * @see prefuse.data.io.TableWriter#writeTable(prefuse.data.Table,
+   *      java.io.OutputStream)
+   */
+  @Override
+  public void writeTable(Table table, OutputStream os) throws DataIOException {
+    try {
+      BinaryFormat.Output out = new BinaryFormat.Output(os);
+      out.writeMagic(BinaryFormat.TABLE_MAGIC);
+      BinaryFormat.writeTable(out, table, null, null);
+      out.flush();
+      os.flush();
+    } catch (IOException e) {
+      throw new DataIOException(e);
+    }
+  }
+
+} // end of class BinaryTableWriter
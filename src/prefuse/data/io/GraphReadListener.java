@@ -0,0 +1,33 @@
+package prefuse.data.io;
+
+import prefuse.data.Table;
+
+/**
+ * Callback interface used by {@link StreamingGraphMLReader} instances to
+ * deliver nodes and edges as they are read, before the graph is complete.
+ */
+public interface GraphReadListener {
+
+  /**
+   * Notification that a node has been read, along with its data values.
+   *
+   * @param nodes
+   *          the node table being filled
+   * @param row
+   *          the node table row of the node
+   */
+  public void nodeRead(Table nodes, int row);
+
+  /**
+   * Notification that an edge has been read, along with its data values. The
+   * source and target fields of the edge hold the node table rows of its
+   * endpoints.
+   *
+   * @param edges
+   *          the edge table being filled
+   * @param row
+   *          the edge table row of the edge
+   */
+  public void edgeRead(Table edges, int row);
+
+} // end of interface GraphReadListener
@@ -0,0 +1,401 @@
+package prefuse.data.io;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import prefuse.data.Graph;
+import prefuse.data.Schema;
+import prefuse.data.Table;
+import prefuse.data.parser.DataParseException;
+import prefuse.data.parser.DataParser;
+import prefuse.data.parser.ParserFactory;
+import prefuse.util.collections.StringIntHashMap;
+
+/**
+ * GraphReader instance that reads GraphML files in a single streaming pass,
+ * reading the same graphs as a {@link GraphMLReader} with less memory.
+ *
+ * <p>
+ * Node identifiers are kept in a {@link StringIntHashMap}, and the source and
+ * target of each edge are resolved to node table rows as soon as the edge is
+ * read. Only edges referring to nodes declared later in the file are held
+ * until the end of the document. Edges can thus be read without storing their
+ * endpoint identifiers, and a {@link GraphReadListener} can be notified of
+ * each node and edge as it is read. Edges that refer to nodes declared later
+ * are delivered to the listener at the end of the document.
+ * </p>
+ *
+ * <p>
+ * Input compressed with gzip is recognized and decompressed as it is read.
+ * </p>
+ *
+ * @see GraphMLReader
+ */
+public class StreamingGraphMLReader extends AbstractGraphReader implements GraphReader {
+
+  private static final String SRC = Graph.DEFAULT_SOURCE_KEY;
+  private static final String TRG = Graph.DEFAULT_TARGET_KEY;
+
+  private GraphReadListener m_listener;
+
+  /**
+   * Create a new StreamingGraphMLReader.
+   */
+  public StreamingGraphMLReader() {
+    this(null);
+  }
+
+  /**
+   * Create a new StreamingGraphMLReader.
+   *
+   * @param listener
+   *          the listener to notify of each node and edge read, or null for none
+   */
+  public StreamingGraphMLReader(GraphReadListener listener) {
+    m_listener = listener;
+  }
+
+  /**
+   * Get the listener notified of each node and edge read.
+   *
+   * @return the listener, or null for none
+   */
+  public GraphReadListener getListener() {
+    return m_listener;
+  }
+
+  /**
+   * Set the listener notified of each node and edge read.
+   *
+   * @param listener
+   *          the listener, or null for none
+   */
+  public void setListener(GraphReadListener listener) {
+    m_listener = listener;
+  }
+
+  /**
+   * @see prefuse.data.io.GraphReader#readGraph(java.io.InputStream)
+   */
+  @Override
+  public Graph readGraph(InputStream is) throws DataIOException {
+    try {
+      // decompress gzip input, recognized by its magic number
+      if (!is.markSupported()) {
+        is = new BufferedInputStream(is, 1 << 16);
+      }
+      is.mark(2);
+      int b0 = is.read();
+      int b1 = is.read();
+      is.reset();
+      if (b0 == 0x1f && b1 == 0x8b) {
+        is = new GZIPInputStream(is, 1 << 16);
+      }
+
+      SAXParserFactory factory = SAXParserFactory.newInstance();
+      SAXParser saxParser = factory.newSAXParser();
+
+      Handler handler = new Handler();
+      saxParser.parse(is, handler);
+      return handler.m_graph;
+    } catch (Exception e) {
+      if (e instanceof DataIOException) {
+        throw (DataIOException) e;
+      } else {
+        throw new DataIOException(e);
+      }
+    }
+  }
+
+  // ------------------------------------------------------------------------
+
+  /**
+   * SAX handler building the node and edge tables of a single readGraph call.
+   */
+  private final class Handler extends DefaultHandler implements GraphMLReader.Tokens {
+    private final ParserFactory m_pf = ParserFactory.getDefaultFactory();
+
+    private final Schema m_nsch = new Schema();
+    private final Schema m_esch = new Schema();
+    private final HashMap m_idMap = new HashMap();
+    private boolean m_inSchema = true;
+    private boolean m_directed = false;
+    private String m_graphid;
+    private Graph m_graph;
+
+    // schema parsing
+    private String m_id;
+    private String m_for;
+    private String m_name;
+    private String m_type;
+    private String m_dflt;
+
+    // node, edge and data parsing
+    private Table m_nodes;
+    private Table m_edges;
+    private HashMap m_nodeCols; // key id -> node column number
+    private HashMap m_edgeCols; // key id -> edge column number
+    private DataParser[] m_nodeParsers;
+    private DataParser[] m_edgeParsers;
+    private final StringIntHashMap m_nodeMap = new StringIntHashMap();
+    private Table m_table;
+    private int m_row = -1;
+    private boolean m_resolved;
+    private String m_key;
+    private boolean m_text;
+    private final StringBuilder m_sbuf = new StringBuilder();
+
+    // endpoints of edges referring to nodes not yet read, ~row for targets
+    private int[] m_pendingRows = new int[16];
+    private String[] m_pendingIds = new String[16];
+    private int m_pendingCount;
+
+    @Override
+    public void startDocument() {
+      m_esch.addColumn(SRC, int.class);
+      m_esch.addColumn(TRG, int.class);
+    }
+
+    @Override
+    public void endDocument() throws SAXException {
+      schemaCheck();
+
+      // resolve the endpoints of edges referring to nodes read later
+      for (int i = 0; i < m_pendingCount; ++i) {
+        boolean source = m_pendingRows[i] >= 0;
+        int r = pendingRow(i);
+        int n = m_nodeMap.get(m_pendingIds[i]);
+        if (n < 0) {
+          throw new SAXException("Tried to create edge with " + (source ? SRC : TRG) + " node id="
+              + m_pendingIds[i] + " which does not exist.");
+        }
+        m_edges.setInt(r, source ? 0 : 1, n);
+
+        // deliver the edge once all of its pending endpoints are resolved
+        if (m_listener != null && (i + 1 == m_pendingCount || pendingRow(i + 1) != r)) {
+          m_listener.edgeRead(m_edges, r);
+        }
+      }
+      m_pendingRows = null;
+      m_pendingIds = null;
+
+      // now create the graph
+      m_graph = new Graph(m_nodes, m_edges, m_directed);
+      if (m_graphid != null) {
+        m_graph.putClientProperty(ID, m_graphid);
+      }
+    }
+
+    @Override
+    public void startElement(String namespaceURI, String localName, String qName, Attributes atts)
+        throws SAXException {
+      // first clear the character buffer
+      m_sbuf.setLength(0);
+      m_text = false;
+
+      if (qName.equals(NODE)) {
+        schemaCheck();
+        m_table = m_nodes;
+        m_row = m_nodes.addRow();
+        String id = atts.getValue(ID);
+        if (id != null) {
+          m_nodeMap.put(id, m_row);
+        }
+      } else if (qName.equals(EDGE)) {
+        schemaCheck();
+        m_table = m_edges;
+        m_row = m_edges.addRow();
+        m_resolved = resolve(atts.getValue(SOURCE), 0) & resolve(atts.getValue(TARGET), 1);
+      } else if (qName.equals(DATA)) {
+        m_key = atts.getValue(KEY);
+        m_text = true;
+      } else if (qName.equals(DEFAULT)) {
+        m_text = true;
+      } else if (qName.equals(KEY)) {
+        if (!m_inSchema) {
+          throw new SAXException("\"" + KEY + "\" elements can not" + " occur after the first node or edge declaration.");
+        }
+        m_for = atts.getValue(FOR);
+        m_id = atts.getValue(ID);
+        m_name = atts.getValue(ATTRNAME);
+        m_type = atts.getValue(ATTRTYPE);
+      } else if (qName.equals(GRAPH)) {
+        // parse directedness default
+        String edef = atts.getValue(EDGEDEF);
+        m_directed = DIRECTED.equalsIgnoreCase(edef);
+        m_graphid = atts.getValue(ID);
+      }
+    }
+
+    @Override
+    public void endElement(String namespaceURI, String localName, String qName) throws SAXException {
+      if (qName.equals(DATA) && m_table != null) {
+        HashMap cols = (m_table == m_nodes ? m_nodeCols : m_edgeCols);
+        DataParser[] parsers = (m_table == m_nodes ? m_nodeParsers : m_edgeParsers);
+        Integer col = (Integer) cols.get(m_key);
+        if (col == null) {
+          throw new SAXException("Unrecognized data key: " + m_key);
+        }
+        try {
+          int c = col.intValue();
+          m_table.set(m_row, c, parsers[c].parse(m_sbuf.toString()));
+        } catch (DataParseException dpe) {
+          throw new SAXException(dpe);
+        }
+      } else if (qName.equals(NODE)) {
+        if (m_listener != null) {
+          m_listener.nodeRead(m_nodes, m_row);
+        }
+        m_table = null;
+      } else if (qName.equals(EDGE)) {
+        if (m_listener != null && m_resolved) {
+          m_listener.edgeRead(m_edges, m_row);
+        }
+        m_table = null;
+      } else if (qName.equals(DEFAULT)) {
+        // value is in the buffer
+        m_dflt = m_sbuf.toString();
+      } else if (qName.equals(KEY)) {
+        // time to add to the proper schema(s)
+        addToSchema();
+      }
+      m_text = false;
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+      if (m_text) {
+        m_sbuf.append(ch, start, length);
+      }
+    }
+
+    // --------------------------------------------------------------------
+
+    /**
+     * Set an endpoint of the current edge to the row of the node with the
+     * given id, or record the endpoint as pending if the node is not yet known.
+     */
+    private boolean resolve(String id, int col) throws SAXException {
+      if (id == null) {
+        throw new SAXException("Edge is missing its " + (col == 0 ? SRC : TRG) + " node id.");
+      }
+      int n = m_nodeMap.get(id);
+      if (n >= 0) {
+        m_edges.setInt(m_row, col, n);
+        return true;
+      }
+      if (m_pendingCount == m_pendingRows.length) {
+        int[] rows = new int[2 * m_pendingCount];
+        String[] ids = new String[2 * m_pendingCount];
+        System.arraycopy(m_pendingRows, 0, rows, 0, m_pendingCount);
+        System.arraycopy(m_pendingIds, 0, ids, 0, m_pendingCount);
+        m_pendingRows = rows;
+        m_pendingIds = ids;
+      }
+      m_pendingRows[m_pendingCount] = (col == 0 ? m_row : ~m_row);
+      m_pendingIds[m_pendingCount++] = id;
+      return false;
+    }
+
+    private int pendingRow(int i) {
+      return m_pendingRows[i] < 0 ? ~m_pendingRows[i] : m_pendingRows[i];
+    }
+
+    private void schemaCheck() {
+      if (m_inSchema) {
+        m_nsch.lockSchema();
+        m_esch.lockSchema();
+        m_nodes = m_nsch.instantiate();
+        m_edges = m_esch.instantiate();
+        m_nodeCols = columns(m_nodes);
+        m_edgeCols = columns(m_edges);
+        m_nodeParsers = parsers(m_nodes);
+        m_edgeParsers = parsers(m_edges);
+        m_inSchema = false;
+      }
+    }
+
+    private HashMap columns(Table table) {
+      HashMap cols = new HashMap();
+      for (Iterator iter = m_idMap.keySet().iterator(); iter.hasNext();) {
+        Object id = iter.next();
+        int col = table.getColumnNumber((String) m_idMap.get(id));
+        if (col >= 0) {
+          cols.put(id, new Integer(col));
+        }
+      }
+      return cols;
+    }
+
+    private DataParser[] parsers(Table table) {
+      DataParser[] parsers = new DataParser[table.getColumnCount()];
+      for (int i = 0; i < parsers.length; ++i) {
+        parsers[i] = m_pf.getParser(table.getColumnType(i));
+      }
+      return parsers;
+    }
+
+    private void addToSchema() throws SAXException {
+      if (m_name == null || m_name.length() == 0) {
+        throw new SAXException("Empty " + KEY + " name.");
+      }
+      if (m_type == null || m_type.length() == 0) {
+        throw new SAXException("Empty " + KEY + " type.");
+      }
+
+      try {
+        Class type = parseType(m_type);
+        Object dflt = m_dflt == null ? null : m_pf.getParser(type).parse(m_dflt);
+
+        if (m_for == null || m_for.equals(ALL)) {
+          m_nsch.addColumn(m_name, type, dflt);
+          m_esch.addColumn(m_name, type, dflt);
+        } else if (m_for.equals(NODE)) {
+          m_nsch.addColumn(m_name, type, dflt);
+        } else if (m_for.equals(EDGE)) {
+          m_esch.addColumn(m_name, type, dflt);
+        } else {
+          throw new SAXException("Unrecognized \"" + FOR + "\" value: " + m_for);
+        }
+        m_idMap.put(m_id, m_name);
+
+        m_dflt = null;
+      } catch (DataParseException dpe) {
+        throw new SAXException(dpe);
+      }
+    }
+
+    private Class parseType(String type) throws SAXException {
+      type = type.toLowerCase();
+      if (type.equals(INT) || type.equals(INTEGER)) {
+        return int.class;
+      } else if (type.equals(LONG)) {
+        return long.class;
+      } else if (type.equals(FLOAT)) {
+        return float.class;
+      } else if (type.equals(DOUBLE) || type.equals(REAL)) {
+        return double.class;
+      } else if (type.equals(BOOLEAN)) {
+        return boolean.class;
+      } else if (type.equals(STRING)) {
+        return String.class;
+      } else if (type.equals(DATE)) {
+        return Date.class;
+      } else {
+        throw new SAXException("Unrecognized data type: " + type);
+      }
+    }
+  } // end of inner class Handler
+
+} // end of class StreamingGraphMLReader
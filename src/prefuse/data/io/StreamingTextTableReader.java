@@ -0,0 +1,1316 @@
+package prefuse.data.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import prefuse.data.Table;
+import prefuse.data.column.Column;
+import prefuse.data.parser.BooleanParser;
+import prefuse.data.parser.DataParseException;
+import prefuse.data.parser.DataParser;
+import prefuse.data.parser.DoubleParser;
+import prefuse.data.parser.FloatParser;
+import prefuse.data.parser.IntParser;
+import prefuse.data.parser.LongParser;
+import prefuse.data.parser.ParserFactory;
+import prefuse.data.parser.StringParser;
+import prefuse.data.parser.TypeInferencer;
+
+/**
+ * <p>
+ * TableReader for delimited text files, such as comma separated value (CSV) or
+ * tab-delimited files, that reads its input in a single pass. Unlike the
+ * readers derived from {@link AbstractTextTableReader}, which read their input
+ * twice and buffer all of it in memory if it can not be reset, this reader
+ * infers the column types from a bounded sample of the first records, then
+ * reads the input in blocks of whole records and parses the blocks
+ * concurrently, decoding numbers and booleans directly from the bytes of the
+ * input into primitive arrays.
+ * </p>
+ *
+ * <p>
+ * Each record is a line of values separated by the delimiter character, an
+ * empty line holding a single empty value. Whitespace surrounding unquoted
+ * values is removed.
+ * Unless disabled with {@link #setQuoting(boolean)}, values may be enclosed in
+ * double quotes, in which case they can contain delimiters, line breaks and
+ * double quotes written as two consecutive double quotes. Characters between
+ * a closing quote and the next delimiter are ignored. The input must use a
+ * character encoding in which these characters are encoded as single ASCII
+ * bytes, as is the case of UTF-8 and the ISO-8859 encodings.
+ * </p>
+ *
+ * <p>
+ * Column types are those the {@link ParserFactory} infers from the first
+ * {@link #getSampleSize()} records. If a later value can not be parsed as the
+ * inferred type, int columns are widened to long or double, long columns to
+ * double, and other columns fall back to the type inferred from the failing
+ * values. If that type is not compatible with the originally inferred type,
+ * the column holds text, and the text of the values parsed before the failure
+ * is recovered, so that the column holds the original text of all of its
+ * values. To this end, the bytes of a block are released once it is parsed,
+ * except for the text of values that can not be reproduced from their parsed
+ * values. This is the case of all values of floating point and other
+ * non-integer columns, and of integer and boolean values not written the way
+ * Java formats them, such as "007" or "TRUE". The memory used until the table
+ * is built is thus that of the parsed values plus the text of these values.
+ * Values in columns beyond those seen in the sample are typed by sampling all
+ * of their values.
+ * </p>
+ */
+public class StreamingTextTableReader extends AbstractTableReader {
+
+  /** The default number of records sampled to infer the column types. */
+  public static final int DEFAULT_SAMPLE_SIZE = 10000;
+  /** The default size in bytes of the blocks of records parsed in parallel. */
+  public static final int DEFAULT_BLOCK_SIZE = 4 << 20;
+
+  // kinds of column storage
+  private static final int OBJECT = 0;
+  private static final int INT = 1;
+  private static final int LONG = 2;
+  private static final int FLOAT = 3;
+  private static final int DOUBLE = 4;
+  private static final int BOOLEAN = 5;
+  private static final int STRING = 6;
+  private static final int NONE = 7; // no type inferred from the sample
+
+  private final byte m_delim;
+  private ParserFactory m_pfactory;
+  private boolean m_hasHeader = true;
+  private boolean m_quoting = true;
+  private int m_sampleSize = DEFAULT_SAMPLE_SIZE;
+  private int m_blockSize = DEFAULT_BLOCK_SIZE;
+  private int m_parallelism = Runtime.getRuntime().availableProcessors();
+  private Charset m_charset = Charset.defaultCharset();
+
+  /**
+   * Create a new StreamingTextTableReader for comma separated values, using a
+   * default ParserFactory.
+   */
+  public StreamingTextTableReader() {
+    this(',');
+  }
+
+  /**
+   * Create a new StreamingTextTableReader for comma separated values.
+   *
+   * @param parserFactory
+   *          the ParserFactory to use for parsing text strings into table values.
+   */
+  public StreamingTextTableReader(ParserFactory parserFactory) {
+    this(',', parserFactory);
+  }
+
+  /**
+   * Create a new StreamingTextTableReader using a default ParserFactory.
+   *
+   * @param delimiter
+   *          the character separating the values of a record, such as
+   *          <code>','</code> or <code>'\t'</code>
+   */
+  public StreamingTextTableReader(char delimiter) {
+    this(delimiter, ParserFactory.getDefaultFactory());
+  }
+
+  /**
+   * Create a new StreamingTextTableReader.
+   *
+   * @param delimiter
+   *          the character separating the values of a record, such as
+   *          <code>','</code> or <code>'\t'</code>
+   * @param parserFactory
+   *          the ParserFactory to use for parsing text strings into table values.
+   */
+  public StreamingTextTableReader(char delimiter, ParserFactory parserFactory) {
+    if (delimiter >= 0x80 || delimiter == '\"' || delimiter == '\n' || delimiter == '\r') {
+      throw new IllegalArgumentException("Illegal delimiter: " + delimiter);
+    }
+    m_delim = (byte) delimiter;
+    m_pfactory = parserFactory;
+  }
+
+  // ------------------------------------------------------------------------
+
+  /**
+   * Set whether or not the table data file includes a header row. The default
+   * is true.
+   *
+   * @param hasHeaderRow
+   *          true if the the data file includes a header row, false otherwise.
+   */
+  public void setHasHeader(boolean hasHeaderRow) {
+    m_hasHeader = hasHeaderRow;
+  }
+
+  /**
+   * Set whether or not values may be enclosed in double quotes. The default is
+   * true.
+   *
+   * @param quoting
+   *          true to treat double quotes at the start of a value as quotes,
+   *          false to read them as part of the value
+   */
+  public void setQuoting(boolean quoting) {
+    m_quoting = quoting;
+  }
+
+  /**
+   * Get the number of records sampled to infer the column types.
+   *
+   * @return the sample size
+   */
+  public int getSampleSize() {
+    return m_sampleSize;
+  }
+
+  /**
+   * Set the number of records sampled to infer the column types. The default is
+   * {@link #DEFAULT_SAMPLE_SIZE}.
+   *
+   * @param records
+   *          the sample size
+   */
+  public void setSampleSize(int records) {
+    if (records < 1) {
+      throw new IllegalArgumentException("Sample size must be at least 1");
+    }
+    m_sampleSize = records;
+  }
+
+  /**
+   * Set the size of the blocks of records parsed in parallel. Blocks grow as
+   * needed to hold records larger than the block size. The default is
+   * {@link #DEFAULT_BLOCK_SIZE}.
+   *
+   * @param bytes
+   *          the block size in bytes
+   */
+  public void setBlockSize(int bytes) {
+    if (bytes < 1) {
+      throw new IllegalArgumentException("Block size must be at least 1");
+    }
+    m_blockSize = bytes;
+  }
+
+  /**
+   * Returns the number of threads used to parse blocks of records.
+   *
+   * @return the parallelism
+   */
+  public int getParallelism() {
+    return m_parallelism;
+  }
+
+  /**
+   * Sets the number of threads used to parse blocks of records. With a
+   * parallelism of 1, blocks are parsed on the calling thread. The default is
+   * the number of available processors.
+   *
+   * @param threads
+   *          the number of threads to use
+   */
+  public void setParallelism(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1");
+    }
+    m_parallelism = threads;
+  }
+
+  /**
+   * Set the character encoding of the input. The default is the platform
+   * default encoding.
+   *
+   * @param charset
+   *          the character encoding
+   */
+  public void setCharset(Charset charset) {
+    m_charset = charset;
+  }
+
+  /**
+   * @see prefuse.data.io.TableReader#readTable(java.io.InputStream)
+   */
+  @Override
+  public Table readTable(InputStream is) throws DataIOException {
+    ForkJoinPool pool = (m_parallelism > 1 ? new ForkJoinPool(m_parallelism) : null);
+    try {
+      return new Loader(pool).load(is);
+    } catch (IOException e) {
+      throw new DataIOException(e);
+    } finally {
+      if (pool != null) {
+        pool.shutdown();
+      }
+    }
+  }
+
+  // ------------------------------------------------------------------------
+  // Loading
+
+  /**
+   * Holds the state of a single readTable call.
+   */
+  private final class Loader {
+    private final ForkJoinPool m_pool;
+    private final LinkedList m_pending = new LinkedList(); // unsubmitted
+    private final LinkedList m_running = new LinkedList(); // futures
+    private final ArrayList m_blocks = new ArrayList();
+
+    private final ArrayList m_headers = new ArrayList();
+    private TypeInferencer m_inferencer;
+    private int m_sampled = 0;
+    private DataParser[] m_parsers;
+    private int[] m_kinds;
+
+    Loader(ForkJoinPool pool) {
+      m_pool = pool;
+    }
+
+    Table load(InputStream is) throws IOException, DataIOException {
+      m_inferencer = new TypeInferencer(m_pfactory);
+      byte[] buf = new byte[m_blockSize];
+      int len = 0;
+      boolean eof = false;
+      int[] count = new int[1];
+
+      while (!eof) {
+        while (len < buf.length) {
+          int n = is.read(buf, len, buf.length - len);
+          if (n < 0) {
+            eof = true;
+            break;
+          }
+          len += n;
+        }
+        int cut = split(buf, len, eof, count);
+        if (cut == 0 && !eof) {
+          // a single record fills the buffer, grow it
+          buf = Arrays.copyOf(buf, 2 * buf.length);
+          continue;
+        }
+        byte[] next = new byte[Math.max(m_blockSize, 2 * (len - cut))];
+        System.arraycopy(buf, cut, next, 0, len - cut);
+        if (count[0] > 0) {
+          add(new Block(buf, cut, count[0], m_delim, m_quoting));
+        }
+        buf = next;
+        len -= cut;
+      }
+      if (m_kinds == null) {
+        infer();
+      }
+      while (!m_running.isEmpty()) {
+        await();
+      }
+      return build();
+    }
+
+    /**
+     * Add a block of records, sampling it if the column types have not been
+     * inferred yet, and parsing it once they have.
+     */
+    private void add(Block b) throws DataIOException {
+      if (m_kinds == null) {
+        m_pending.add(b);
+        sample(b);
+        if (m_sampled < m_sampleSize) {
+          return;
+        }
+        infer();
+      } else {
+        submit(b);
+      }
+    }
+
+    private void sample(Block b) {
+      Tokenizer tok = new Tokenizer(b.m_data, b.m_start, b.m_end, m_delim, m_quoting);
+      if (m_blocks.isEmpty() && m_pending.size() == 1 && m_hasHeader) {
+        // the header is the first record of the first block
+        if (tok.nextRecord()) {
+          do {
+            tok.nextField();
+            m_headers.add(tok.string(m_charset));
+          } while (!tok.m_eor);
+        }
+        b.m_start = tok.m_pos;
+        b.m_nrecords--;
+      }
+      while (m_sampled < m_sampleSize && tok.nextRecord()) {
+        int col = 0;
+        do {
+          tok.nextField();
+          m_inferencer.sample(col++, tok.string(m_charset));
+        } while (!tok.m_eor);
+        ++m_sampled;
+      }
+    }
+
+    /**
+     * Determine the column types from the sampled records and submit the
+     * blocks read so far.
+     */
+    private void infer() throws DataIOException {
+      int ncols = m_inferencer.getColumnCount();
+      m_parsers = new DataParser[ncols];
+      m_kinds = new int[ncols];
+      for (int i = 0; i < ncols; ++i) {
+        m_parsers[i] = m_inferencer.getParser(i);
+        m_kinds[i] = kind(m_parsers[i]);
+      }
+      while (!m_pending.isEmpty()) {
+        submit((Block) m_pending.removeFirst());
+      }
+    }
+
+    private void submit(final Block b) throws DataIOException {
+      m_blocks.add(b);
+      if (m_pool == null) {
+        b.parse(m_parsers, m_kinds, m_charset);
+        return;
+      }
+      // bound the number of blocks read ahead of the parsing threads
+      while (m_running.size() >= 2 * m_parallelism) {
+        await();
+      }
+      m_running.add(m_pool.submit(new Callable() {
+        @Override
+        public Object call() {
+          b.parse(m_parsers, m_kinds, m_charset);
+          return null;
+        }
+      }));
+    }
+
+    private void await() throws DataIOException {
+      Future f = (Future) m_running.removeFirst();
+      try {
+        f.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new DataIOException(e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new DataIOException(e.getCause());
+      }
+    }
+
+    /**
+     * Create the table and fill it with the parsed blocks.
+     */
+    private Table build() throws DataIOException {
+      int nrows = 0, ncols = m_kinds.length;
+      for (int i = 0; i < m_blocks.size(); ++i) {
+        Block b = (Block) m_blocks.get(i);
+        nrows += b.m_nrecords;
+        ncols = Math.max(ncols, b.m_ncols);
+      }
+      ncols = Math.max(ncols, m_headers.size());
+
+      Table table = new Table(nrows, ncols);
+      for (int c = 0; c < ncols; ++c) {
+        String header = (c < m_headers.size() ? (String) m_headers.get(c) : AbstractTextTableReader.getDefaultHeader(c));
+        DataParser parser = resolve(c);
+        table.addColumn(header, parser.getType());
+        Column col = table.getColumn(c);
+        col.setParser(parser);
+        int kind = kind(parser);
+        for (int i = 0, row = 0; i < m_blocks.size(); ++i) {
+          Block b = (Block) m_blocks.get(i);
+          try {
+            b.fill(c, col, parser, kind, row, c < m_kinds.length ? m_kinds[c] : NONE, m_charset);
+          } catch (DataParseException e) {
+            throw new DataIOException("Parse exception for column " + '\"' + header + '\"', e);
+          }
+          row += b.m_nrecords;
+        }
+        // release the parsed values of the column
+        for (int i = 0; i < m_blocks.size(); ++i) {
+          ((Block) m_blocks.get(i)).release(c);
+        }
+      }
+      return table;
+    }
+
+    /**
+     * Determine the final type of a column, taking into account the values
+     * that could not be parsed as the type inferred from the sample.
+     */
+    private DataParser resolve(int c) {
+      DataParser inferred = (c < m_parsers.length ? m_parsers[c] : null);
+      TypeInferencer ti = null;
+      for (int i = 0; i < m_blocks.size(); ++i) {
+        String[] raw = ((Block) m_blocks.get(i)).raw(c);
+        for (int r = 0; raw != null && r < raw.length; ++r) {
+          if (raw[r] != null) {
+            if (ti == null) {
+              ti = new TypeInferencer(m_pfactory);
+            }
+            ti.sample(0, raw[r]);
+          }
+        }
+      }
+      if (ti == null) {
+        return (inferred != null ? inferred : stringParser());
+      }
+      DataParser p = ti.getParser(0);
+      if (p == null) {
+        return stringParser();
+      } else if (inferred == null) {
+        return p;
+      }
+      int from = kind(inferred), to = kind(p);
+      if ((from == INT && (to == LONG || to == DOUBLE)) || (from == LONG && to == DOUBLE)) {
+        return p;
+      }
+      return stringParser();
+    }
+
+    private DataParser stringParser() {
+      DataParser p = m_pfactory.getParser(String.class);
+      return (p != null ? p : new StringParser());
+    }
+  } // end of inner class Loader
+
+  /**
+   * Find the end of the last complete record in a buffer, and count the
+   * records up to that point. The buffer must start at a record boundary.
+   * Quotes are tracked using the same rules as {@link Tokenizer}.
+   *
+   * @return the offset just past the last complete record
+   */
+  private int split(byte[] buf, int len, boolean eof, int[] count) {
+    final byte delim = m_delim;
+    final boolean quoting = m_quoting;
+    // states: 0 start of record, 1 start of field, 2 unquoted value,
+    // 3 quoted value, 4 quote in quoted value, 5 after closing quote
+    int state = 0, cut = 0, n = 0;
+    for (int i = 0; i < len; ++i) {
+      byte b = buf[i];
+      if ((b == '\n' || b == '\r') && state != 3) {
+        if (b == '\r') {
+          if (i + 1 == len && !eof) {
+            break; // the line break may continue in the next buffer
+          } else if (i + 1 < len && buf[i + 1] == '\n') {
+            ++i;
+          }
+        }
+        state = 0;
+        cut = i + 1;
+        ++n;
+        continue;
+      }
+      switch (state) {
+      case 0:
+      case 1:
+        if (quoting && b == '\"') {
+          state = 3;
+        } else if (b == delim || isBlank(b, delim)) {
+          state = 1;
+        } else {
+          state = 2;
+        }
+        break;
+      case 2:
+      case 5:
+        if (b == delim) {
+          state = 1;
+        }
+        break;
+      case 3:
+        if (b == '\"') {
+          state = 4;
+        }
+        break;
+      default: // 4
+        if (b == '\"') {
+          state = 3;
+        } else if (b == delim) {
+          state = 1;
+        } else {
+          state = 5;
+        }
+      }
+    }
+    if (eof && state != 0) {
+      // the last record has no line break
+      cut = len;
+      ++n;
+    }
+    count[0] = n;
+    return cut;
+  }
+
+  static boolean isBlank(byte b, byte delim) {
+    return (b == ' ' || b == '\t') && b != delim;
+  }
+
+  /**
+   * Determine how values parsed by a parser are stored.
+   */
+  private static int kind(DataParser p) {
+    if (p == null) {
+      return NONE;
+    }
+    Class c = p.getClass();
+    if (c == IntParser.class) {
+      return INT;
+    } else if (c == LongParser.class) {
+      return LONG;
+    } else if (c == FloatParser.class) {
+      return FLOAT;
+    } else if (c == DoubleParser.class) {
+      return DOUBLE;
+    } else if (c == BooleanParser.class) {
+      return BOOLEAN;
+    } else if (c == StringParser.class) {
+      return STRING;
+    } else {
+      return OBJECT;
+    }
+  }
+
+  // ------------------------------------------------------------------------
+  // Blocks
+
+  /**
+   * A block of whole records and the values parsed from them. Each column is
+   * stored in a primitive array of the inferred type, or as the text of its
+   * values once a value fails to parse. The bytes of the records are released
+   * once they are parsed.
+   */
+  private static final class Block {
+    final byte m_delim;
+    final boolean m_quoting;
+    byte[] m_data;
+    int m_start;
+    final int m_end;
+    int m_nrecords;
+    int m_ncols;
+    int[] m_nfields; // number of fields of each record
+    Object[] m_values; // per column array of parsed values
+    String[][] m_raw; // per column text of values, for unparsed columns
+    Text[] m_text; // per column text of values not reproduced when formatted
+
+    Block(byte[] data, int end, int nrecords, byte delim, boolean quoting) {
+      m_delim = delim;
+      m_quoting = quoting;
+      m_data = data;
+      m_end = end;
+      m_nrecords = nrecords;
+    }
+
+    String[] raw(int col) {
+      return (m_raw != null && col < m_raw.length ? m_raw[col] : null);
+    }
+
+    void release(int col) {
+      if (col < m_values.length) {
+        m_values[col] = null;
+      }
+      if (m_raw != null && col < m_raw.length) {
+        m_raw[col] = null;
+      }
+      if (col < m_text.length) {
+        m_text[col] = null;
+      }
+    }
+
+    /**
+     * Parse the records of this block. Values that fail to parse as the type
+     * of their column cause the text of the whole column to be kept instead.
+     */
+    void parse(DataParser[] parsers, int[] kinds, Charset cs) {
+      int n = m_nrecords, ncols = kinds.length;
+      m_nfields = new int[n];
+      m_values = new Object[ncols];
+      m_text = new Text[ncols];
+      for (int c = 0; c < ncols; ++c) {
+        if (kinds[c] != STRING) {
+          m_text[c] = new Text(n);
+        }
+        switch (kinds[c]) {
+        case INT:
+          m_values[c] = new int[n];
+          break;
+        case LONG:
+          m_values[c] = new long[n];
+          break;
+        case FLOAT:
+          m_values[c] = new float[n];
+          break;
+        case DOUBLE:
+          m_values[c] = new double[n];
+          break;
+        case BOOLEAN:
+          m_values[c] = new boolean[n];
+          break;
+        default:
+          m_values[c] = new Object[n];
+        }
+      }
+
+      boolean[] failed = new boolean[ncols];
+      boolean text = false;
+      int maxFields = 0;
+      Tokenizer tok = new Tokenizer(m_data, m_start, m_end, m_delim, m_quoting);
+      for (int r = 0; r < n && tok.nextRecord(); ++r) {
+        int c = 0;
+        do {
+          tok.nextField();
+          if (c >= ncols) {
+            text = true;
+          } else if (!failed[c] && !store(tok, c, r, parsers[c], kinds[c], cs)) {
+            failed[c] = text = true;
+          }
+          ++c;
+        } while (!tok.m_eor);
+        m_nfields[r] = c;
+        maxFields = Math.max(maxFields, c);
+        for (; c < ncols; ++c) {
+          if (m_text[c] != null) {
+            m_text[c].skip(r);
+          }
+        }
+      }
+      m_ncols = Math.max(ncols, maxFields);
+      if (text) {
+        keepText(failed, cs);
+      }
+      for (int c = 0; c < ncols; ++c) {
+        if (m_text[c] != null && (failed[c] || !m_text[c].trim())) {
+          m_text[c] = null;
+        }
+      }
+      m_data = null;
+    }
+
+    /**
+     * Re-read the text of columns with unparsed values and of columns beyond
+     * those inferred from the sample.
+     */
+    private void keepText(boolean[] failed, Charset cs) {
+      m_raw = new String[m_ncols][];
+      for (int c = 0; c < m_ncols; ++c) {
+        if (c >= failed.length || failed[c]) {
+          m_raw[c] = new String[m_nrecords];
+          if (c < m_values.length) {
+            m_values[c] = null;
+          }
+        }
+      }
+      Tokenizer tok = new Tokenizer(m_data, m_start, m_end, m_delim, m_quoting);
+      for (int r = 0; r < m_nrecords && tok.nextRecord(); ++r) {
+        int c = 0;
+        do {
+          tok.nextField();
+          if (m_raw[c] != null) {
+            m_raw[c][r] = tok.string(cs);
+          }
+          ++c;
+        } while (!tok.m_eor);
+      }
+    }
+
+    /**
+     * Recover the original text of the values of a parsed column, from the
+     * text kept while parsing or else by formatting the parsed values.
+     *
+     * @return the text of each value, null for records without the column
+     */
+    private String[] text(int col, Charset cs) {
+      String[] text = new String[m_nrecords];
+      if (col >= m_values.length) {
+        return text; // no record of this block has the column
+      }
+      Object values = m_values[col];
+      Text kept = m_text[col];
+      for (int r = 0; r < m_nrecords; ++r) {
+        if (col >= m_nfields[r]) {
+          continue;
+        }
+        String s = (kept != null ? kept.get(r, cs) : "");
+        if (s.length() > 0 || !(values instanceof int[] || values instanceof long[] || values instanceof boolean[])) {
+          text[r] = s;
+        } else if (values instanceof int[]) {
+          text[r] = String.valueOf(((int[]) values)[r]);
+        } else if (values instanceof long[]) {
+          text[r] = String.valueOf(((long[]) values)[r]);
+        } else {
+          text[r] = String.valueOf(((boolean[]) values)[r]);
+        }
+      }
+      return text;
+    }
+
+    /**
+     * Parse the current field of the tokenizer into the column array.
+     *
+     * @return true if the value was parsed, false otherwise
+     */
+    private boolean store(Tokenizer tok, int c, int r, DataParser parser, int kind, Charset cs) {
+      switch (kind) {
+      case INT:
+        if (tok.parseLong(false) && tok.m_long >= Integer.MIN_VALUE && tok.m_long <= Integer.MAX_VALUE) {
+          ((int[]) m_values[c])[r] = (int) tok.m_long;
+          m_text[c].add(tok, r, tok.isCanonicalLong());
+          return true;
+        }
+        break;
+      case LONG:
+        if (tok.parseLong(true)) {
+          ((long[]) m_values[c])[r] = tok.m_long;
+          m_text[c].add(tok, r, tok.isCanonicalLong());
+          return true;
+        }
+        break;
+      case DOUBLE:
+        if (tok.parseDouble()) {
+          ((double[]) m_values[c])[r] = tok.m_double;
+          m_text[c].add(tok, r, false);
+          return true;
+        }
+        break;
+      case BOOLEAN:
+        int b = tok.parseBoolean();
+        if (b >= 0) {
+          ((boolean[]) m_values[c])[r] = (b == 1);
+          m_text[c].add(tok, r, tok.isCanonicalBoolean());
+          return true;
+        }
+        break;
+      case STRING:
+        ((Object[]) m_values[c])[r] = tok.string(cs);
+        return true;
+      }
+
+      // general case, parse the text of the value
+      String s = tok.string(cs);
+      Object value;
+      try {
+        if (kind == OBJECT) {
+          // parsers such as date parsers are not thread-safe
+          synchronized (parser) {
+            if (!parser.canParse(s)) {
+              return false;
+            }
+            value = parser.parse(s);
+          }
+        } else if (!parser.canParse(s)) {
+          return false;
+        } else {
+          value = parser.parse(s);
+        }
+      } catch (DataParseException e) {
+        return false;
+      }
+      switch (kind) {
+      case INT:
+        ((int[]) m_values[c])[r] = ((Number) value).intValue();
+        break;
+      case LONG:
+        ((long[]) m_values[c])[r] = ((Number) value).longValue();
+        break;
+      case FLOAT:
+        ((float[]) m_values[c])[r] = ((Number) value).floatValue();
+        break;
+      case DOUBLE:
+        ((double[]) m_values[c])[r] = ((Number) value).doubleValue();
+        break;
+      case BOOLEAN:
+        ((boolean[]) m_values[c])[r] = ((Boolean) value).booleanValue();
+        break;
+      default:
+        ((Object[]) m_values[c])[r] = value;
+      }
+      m_text[c].add(tok, r, false);
+      return true;
+    }
+
+    /**
+     * Fill a table column with the values of this block.
+     *
+     * @param c
+     *          the column number
+     * @param col
+     *          the table column
+     * @param parser
+     *          the final parser of the column
+     * @param kind
+     *          the storage kind of the final parser
+     * @param row
+     *          the table row of the first record of this block
+     * @param inferred
+     *          the storage kind of the parser inferred from the sample
+     * @param cs
+     *          the character encoding of the input
+     */
+    void fill(int c, Column col, DataParser parser, int kind, int row, int inferred, Charset cs)
+        throws DataParseException {
+      int n = m_nrecords;
+      int[] nf = m_nfields;
+      String[] raw = raw(c);
+      if (raw == null && kind == STRING && inferred != STRING) {
+        // the column became text after this block was parsed, use the
+        // original text of its values rather than formatting parsed values
+        raw = text(c, cs);
+      }
+      if (raw != null) {
+        for (int r = 0; r < n; ++r) {
+          if (raw[r] != null) {
+            col.set(kind == STRING ? raw[r] : parser.parse(raw[r]), row + r);
+          }
+        }
+        return;
+      }
+      Object values = (c < m_values.length ? m_values[c] : null);
+      if (values == null) {
+        return;
+      }
+      if (values instanceof int[]) {
+        int[] v = (int[]) values;
+        for (int r = 0; r < n; ++r) {
+          if (c < nf[r]) {
+            switch (kind) {
+            case INT:
+              col.setInt(v[r], row + r);
+              break;
+            case LONG:
+              col.setLong(v[r], row + r);
+              break;
+            default:
+              col.setDouble(v[r], row + r);
+            }
+          }
+        }
+      } else if (values instanceof long[]) {
+        long[] v = (long[]) values;
+        for (int r = 0; r < n; ++r) {
+          if (c < nf[r]) {
+            if (kind == LONG) {
+              col.setLong(v[r], row + r);
+            } else {
+              col.setDouble(v[r], row + r);
+            }
+          }
+        }
+      } else if (values instanceof float[]) {
+        float[] v = (float[]) values;
+        for (int r = 0; r < n; ++r) {
+          if (c < nf[r]) {
+            col.setFloat(v[r], row + r);
+          }
+        }
+      } else if (values instanceof double[]) {
+        double[] v = (double[]) values;
+        for (int r = 0; r < n; ++r) {
+          if (c < nf[r]) {
+            col.setDouble(v[r], row + r);
+          }
+        }
+      } else if (values instanceof boolean[]) {
+        boolean[] v = (boolean[]) values;
+        for (int r = 0; r < n; ++r) {
+          if (c < nf[r]) {
+            col.setBoolean(v[r], row + r);
+          }
+        }
+      } else {
+        Object[] v = (Object[]) values;
+        for (int r = 0; r < n; ++r) {
+          if (c < nf[r]) {
+            col.set(v[r], row + r);
+          }
+        }
+      }
+    }
+  } // end of inner class Block
+
+  /**
+   * The text of the values of a column of a block, stored as consecutive
+   * bytes. Values whose text is reproduced by formatting their parsed value
+   * are stored as empty text.
+   */
+  private static final class Text {
+    private byte[] m_bytes = new byte[64];
+    private int m_len;
+    private final int[] m_ends; // end offset of the text of each record
+
+    Text(int nrecords) {
+      m_ends = new int[nrecords];
+    }
+
+    /**
+     * Add the text of the current field of a tokenizer for a record.
+     *
+     * @param canonical
+     *          true if the parsed value of the field formats to its text, in
+     *          which case the text is not stored
+     */
+    void add(Tokenizer tok, int r, boolean canonical) {
+      if (!canonical) {
+        int len = tok.length();
+        if (m_len + len > m_bytes.length) {
+          m_bytes = Arrays.copyOf(m_bytes, Math.max(2 * m_bytes.length, m_len + len));
+        }
+        tok.copy(m_bytes, m_len);
+        m_len += len;
+      }
+      m_ends[r] = m_len;
+    }
+
+    /**
+     * Record that a record has no value, or no text, for the column.
+     */
+    void skip(int r) {
+      m_ends[r] = m_len;
+    }
+
+    /**
+     * Release the unused capacity.
+     *
+     * @return false if no text is stored, true otherwise
+     */
+    boolean trim() {
+      if (m_len < m_bytes.length) {
+        m_bytes = Arrays.copyOf(m_bytes, m_len);
+      }
+      return m_len > 0;
+    }
+
+    /**
+     * Get the text of a record, which is empty if it was not stored.
+     */
+    String get(int r, Charset cs) {
+      int start = (r == 0 ? 0 : m_ends[r - 1]);
+      return new String(m_bytes, start, m_ends[r] - start, cs);
+    }
+  } // end of inner class Text
+
+  // ------------------------------------------------------------------------
+  // Tokenizer
+
+  /**
+   * Splits a range of bytes holding whole records into fields. Fields are
+   * returned as byte ranges, and can be decoded as text or, without creating
+   * intermediate Strings, as numbers and booleans.
+   */
+  static final class Tokenizer {
+    private static final double[] POW10 = new double[23];
+    static {
+      POW10[0] = 1;
+      for (int i = 1; i < POW10.length; ++i) {
+        POW10[i] = 10 * POW10[i - 1];
+      }
+    }
+
+    private final byte[] m_buf;
+    private final int m_end;
+    private final byte m_delim;
+    private final boolean m_quoting;
+    int m_pos;
+
+    // the current field
+    private byte[] m_field;
+    private int m_off, m_len;
+    boolean m_eor; // true if the current field ends its record
+    private byte[] m_scratch;
+
+    // parsed values of the current field
+    long m_long;
+    double m_double;
+
+    Tokenizer(byte[] buf, int start, int end, byte delim, boolean quoting) {
+      m_buf = buf;
+      m_pos = start;
+      m_end = end;
+      m_delim = delim;
+      m_quoting = quoting;
+    }
+
+    /**
+     * Indicates if there is a next record to read.
+     *
+     * @return true if there is a next record, false otherwise
+     */
+    boolean nextRecord() {
+      return m_pos < m_end;
+    }
+
+    /**
+     * Read the next field of the current record.
+     */
+    void nextField() {
+      byte[] b = m_buf;
+      int p = m_pos, end = m_end;
+      byte delim = m_delim;
+      while (p < end && isBlank(b[p], delim)) {
+        ++p;
+      }
+      if (m_quoting && p < end && b[p] == '\"') {
+        int s = ++p, w = -1;
+        for (; p < end; ++p) {
+          byte c = b[p];
+          if (c == '\"') {
+            if (p + 1 < end && b[p + 1] == '\"') {
+              // escaped quote, copy the value to the scratch buffer
+              if (w < 0) {
+                w = p - s;
+                ensureScratch(end - s);
+                System.arraycopy(b, s, m_scratch, 0, w);
+              }
+              m_scratch[w++] = '\"';
+              ++p;
+              continue;
+            }
+            break;
+          } else if (w >= 0) {
+            m_scratch[w++] = c;
+          }
+        }
+        if (w < 0) {
+          setField(b, s, p - s);
+        } else {
+          setField(m_scratch, 0, w);
+        }
+        while (p < end && b[p] != delim && b[p] != '\n' && b[p] != '\r') {
+          ++p;
+        }
+      } else {
+        int s = p;
+        while (p < end && b[p] != delim && b[p] != '\n' && b[p] != '\r') {
+          ++p;
+        }
+        int e = p;
+        while (e > s && isBlank(b[e - 1], delim)) {
+          --e;
+        }
+        setField(b, s, e - s);
+      }
+      if (p < end && b[p] == delim) {
+        m_eor = false;
+        m_pos = p + 1;
+      } else if (p < end) {
+        m_eor = true;
+        m_pos = (b[p] == '\r' && p + 1 < end && b[p + 1] == '\n' ? p + 2 : p + 1);
+      } else {
+        m_eor = true;
+        m_pos = p;
+      }
+    }
+
+    private void setField(byte[] b, int off, int len) {
+      m_field = b;
+      m_off = off;
+      m_len = len;
+    }
+
+    private void ensureScratch(int len) {
+      if (m_scratch == null || m_scratch.length < len) {
+        m_scratch = new byte[Math.max(len, 64)];
+      }
+    }
+
+    /**
+     * Get the length in bytes of the current field.
+     */
+    int length() {
+      return m_len;
+    }
+
+    /**
+     * Copy the bytes of the current field.
+     */
+    void copy(byte[] dst, int off) {
+      System.arraycopy(m_field, m_off, dst, off, m_len);
+    }
+
+    /**
+     * Indicates if the current field, parsed by {@link #parseLong(boolean)},
+     * is written the way {@link Long#toString(long)} formats its value.
+     */
+    boolean isCanonicalLong() {
+      byte[] b = m_field;
+      int p = m_off, e = m_off + m_len;
+      if (b[p] == '-') {
+        ++p;
+      }
+      int d = b[e - 1] - '0';
+      return b[p] != '+' && d >= 0 && d <= 9 && (b[p] != '0' || (p == m_off && m_len == 1));
+    }
+
+    /**
+     * Indicates if the current field, parsed by {@link #parseBoolean()}, is
+     * written the way {@link Boolean#toString(boolean)} formats its value.
+     */
+    boolean isCanonicalBoolean() {
+      for (int p = m_off; p < m_off + m_len; ++p) {
+        if (m_field[p] < 'a') {
+          return false; // upper case letter
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Decode the current field as text.
+     */
+    String string(Charset cs) {
+      return new String(m_field, m_off, m_len, cs);
+    }
+
+    /**
+     * Parse the current field as a decimal integer, accepting the same input
+     * as {@link Long#parseLong(String)} for ASCII digits, and optionally a
+     * trailing 'L' as {@link LongParser} does. The value is stored in m_long.
+     *
+     * @return true if the field was parsed, false if it needs to be parsed as
+     *         text
+     */
+    boolean parseLong(boolean suffix) {
+      byte[] b = m_field;
+      int p = m_off, e = m_off + m_len;
+      if (suffix && e > p && (b[e - 1] == 'L' || b[e - 1] == 'l')) {
+        --e;
+      }
+      if (p == e) {
+        return false;
+      }
+      boolean neg = false;
+      if (b[p] == '-' || b[p] == '+') {
+        neg = (b[p] == '-');
+        if (++p == e) {
+          return false;
+        }
+      }
+      // accumulate negatively to cover Long.MIN_VALUE
+      long v = 0;
+      for (; p < e; ++p) {
+        int d = b[p] - '0';
+        if (d < 0 || d > 9 || v < Long.MIN_VALUE / 10) {
+          return false;
+        }
+        v *= 10;
+        if (v < Long.MIN_VALUE + d) {
+          return false;
+        }
+        v -= d;
+      }
+      if (!neg && v == Long.MIN_VALUE) {
+        return false;
+      }
+      m_long = (neg ? v : -v);
+      return true;
+    }
+
+    /**
+     * Parse the current field as a plain decimal number with at most 18
+     * significant digits and a small exponent, for which the result is
+     * exactly that of {@link Double#parseDouble(String)}. The value is stored
+     * in m_double.
+     *
+     * @return true if the field was parsed, false if it needs to be parsed as
+     *         text
+     */
+    boolean parseDouble() {
+      byte[] b = m_field;
+      int p = m_off, e = m_off + m_len;
+      if (p == e) {
+        return false;
+      }
+      boolean neg = false;
+      if (b[p] == '-' || b[p] == '+') {
+        neg = (b[p] == '-');
+        ++p;
+      }
+      long m = 0;
+      int digits = 0, scale = 0;
+      boolean any = false, point = false;
+      for (; p < e; ++p) {
+        int d = b[p] - '0';
+        if (d >= 0 && d <= 9) {
+          any = true;
+          if (m != 0 || d != 0) {
+            if (++digits > 18) {
+              return false;
+            }
+            m = 10 * m + d;
+          }
+          if (point) {
+            --scale;
+          }
+        } else if (b[p] == '.' && !point) {
+          point = true;
+        } else {
+          break;
+        }
+      }
+      if (!any) {
+        return false;
+      }
+      if (p < e && (b[p] == 'e' || b[p] == 'E')) {
+        boolean eneg = false;
+        if (++p < e && (b[p] == '-' || b[p] == '+')) {
+          eneg = (b[p++] == '-');
+        }
+        if (p == e) {
+          return false;
+        }
+        int x = 0;
+        for (; p < e; ++p) {
+          int d = b[p] - '0';
+          if (d < 0 || d > 9 || x > 100000) {
+            return false;
+          }
+          x = 10 * x + d;
+        }
+        scale += (eneg ? -x : x);
+      }
+      if (p != e || m > (1L << 53)) {
+        return false;
+      }
+      double v;
+      if (m == 0) {
+        v = 0;
+      } else if (scale >= 0 && scale < POW10.length) {
+        v = m * POW10[scale];
+      } else if (scale < 0 && -scale < POW10.length) {
+        v = m / POW10[-scale];
+      } else {
+        return false;
+      }
+      m_double = (neg ? -v : v);
+      return true;
+    }
+
+    /**
+     * Parse the current field as a boolean, as {@link BooleanParser} does.
+     *
+     * @return 1 for true, 0 for false, and -1 if the field needs to be parsed
+     *         as text
+     */
+    int parseBoolean() {
+      byte[] b = m_field;
+      int p = m_off;
+      if (m_len == 4 && (b[p] | 0x20) == 't' && (b[p + 1] | 0x20) == 'r' && (b[p + 2] | 0x20) == 'u'
+          && (b[p + 3] | 0x20) == 'e') {
+        return 1;
+      } else if (m_len == 5 && (b[p] | 0x20) == 'f' && (b[p + 1] | 0x20) == 'a' && (b[p + 2] | 0x20) == 'l'
+          && (b[p + 3] | 0x20) == 's' && (b[p + 4] | 0x20) == 'e') {
+        return 0;
+      }
+      return -1;
+    }
+  } // end of inner class Tokenizer
+
+} // end of class StreamingTextTableReader
@@ -4,6 +4,8 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 
+import javax.sql.DataSource;
+
 /**
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
@@ -63,6 +65,33 @@ public class ConnectionFactory {
     return getDatabaseConnection(conn, getDefaultHandler());
   }
 
+  /**
+   * Get a new database connection that borrows a connection from the given
+   * DataSource, typically a connection pool, for each query. Unlike a single
+   * Connection, this allows queries to be processed concurrently.
+   * 
+   * @param pool
+   *          the DataSource providing connections to the database
+   * @param handler
+   *          the data handler to use
+   * @return a DatabaseDataSource for interacting with the database
+   */
+  public static DatabaseDataSource getDatabaseConnection(DataSource pool, SQLDataHandler handler) {
+    return new DatabaseDataSource(pool, handler);
+  }
+
+  /**
+   * Get a new database connection that borrows a connection from the given
+   * DataSource for each query, using a default handler.
+   * 
+   * @param pool
+   *          the DataSource providing connections to the database
+   * @return a DatabaseDataSource for interacting with the database
+   */
+  public static DatabaseDataSource getDatabaseConnection(DataSource pool) {
+    return getDatabaseConnection(pool, getDefaultHandler());
+  }
+
   /**
    * Get a new database connection.
    * 
@@ -10,9 +10,14 @@ import prefuse.util.collections.CopyOnWriteArrayList;
 
 /**
  * Worker thread that asynchronously handles a queue of jobs, with each job
- * responsible for issuing a query and processing the results. Currently
- * involves just a single thread, in the future this may be expanded to thread
- * pool for greater concurrency.
+ * responsible for issuing a query and processing the results. Jobs are taken
+ * from the queue by a pool of worker threads, started as needed up to the
+ * maximum worker count. The count is read from the
+ * <code>data.io.worker.count</code> configuration property and defaults to a
+ * single thread, which processes the jobs in the order they were submitted.
+ * Jobs for a {@link DatabaseDataSource} created for a single JDBC Connection
+ * are processed one at a time regardless, while jobs for one created for a
+ * {@link javax.sql.DataSource} run concurrently.
  * 
  * @author <a href="http://jheer.org">jeffrey heer</a>
  * @see DatabaseDataSource
@@ -21,10 +26,39 @@ public class DataSourceWorker extends Thread {
 
   private static Logger s_logger = Logger.getLogger(DataSourceWorker.class.getName());
 
-  // TODO: in future, may want to expand this to a thread pool
-  private static DataSourceWorker s_instance;
+  private static CopyOnWriteArrayList s_queue = new CopyOnWriteArrayList();
 
-  private static CopyOnWriteArrayList s_queue;
+  private static int s_maxWorkers = Math.max(1, PrefuseConfig.getInt("data.io.worker.count"));
+  private static int s_workers; // number of started workers
+  private static int s_idle; // number of workers waiting for jobs
+
+  /**
+   * Get the maximum number of worker threads.
+   * 
+   * @return the maximum worker count
+   */
+  public static int getWorkerCount() {
+    synchronized (s_queue) {
+      return s_maxWorkers;
+    }
+  }
+
+  /**
+   * Set the maximum number of worker threads. Workers are started as jobs are
+   * submitted while all other workers are busy. Lowering the count does not
+   * stop workers already started.
+   * 
+   * @param count
+   *          the maximum worker count, at least one
+   */
+  public static void setWorkerCount(int count) {
+    if (count < 1) {
+      throw new IllegalArgumentException("Worker count must be at least one: " + count);
+    }
+    synchronized (s_queue) {
+      s_maxWorkers = count;
+    }
+  }
 
   /**
    * Submit a job to the worker thread.
@@ -33,21 +67,19 @@ public class DataSourceWorker extends Thread {
    *          an {@link DataSourceWorker.Entry} instance that contains the
    *          parameters of the job.
    */
-  public synchronized static void submit(Entry e) {
-    // perform lazily initialization as needed
-    if (s_queue == null) {
-      s_queue = new CopyOnWriteArrayList();
-    }
-    if (s_instance == null) {
-      s_instance = new DataSourceWorker();
-    }
-
-    // queue it up
-    s_queue.add(e);
-
-    // wake up a sleepy thread
-    synchronized (s_instance) {
-      s_instance.notify();
+  public static void submit(Entry e) {
+    synchronized (s_queue) {
+      // queue it up
+      s_queue.add(e);
+
+      // wake up a sleepy thread, and start a new one if there are more
+      // queued jobs than sleepy threads to take them
+      if (s_idle > 0) {
+        s_queue.notify();
+      }
+      if (s_queue.size() > s_idle && s_workers < s_maxWorkers) {
+        new DataSourceWorker(s_workers++);
+      }
     }
   }
 
@@ -56,8 +88,8 @@ public class DataSourceWorker extends Thread {
   /**
    * Create a new DataSourceWorker.
    */
-  private DataSourceWorker() {
-    super("prefuse_DatabaseWorker");
+  private DataSourceWorker(int id) {
+    super(id == 0 ? "prefuse_DatabaseWorker" : "prefuse_DatabaseWorker_" + id);
 
     int priority = PrefuseConfig.getInt("data.io.worker.threadPriority");
     if (priority >= Thread.MIN_PRIORITY && priority <= Thread.MAX_PRIORITY) {
@@ -73,33 +105,31 @@ public class DataSourceWorker extends Thread {
   @Override
   public void run() {
     while (true) {
-      Entry e = null;
+      Entry e;
       synchronized (s_queue) {
-        if (s_queue.size() > 0) {
-          e = (Entry) s_queue.remove(0);
+        // nothing to do, chill out until notified
+        while (s_queue.isEmpty()) {
+          ++s_idle;
+          try {
+            s_queue.wait();
+          } catch (InterruptedException ex) {
+          } finally {
+            --s_idle;
+          }
         }
+        e = (Entry) s_queue.remove(0);
       }
 
-      if (e != null) {
-        try {
-          if (e.listener != null) {
-            e.listener.preQuery(e);
-          }
-          e.ds.getData(e.table, e.query, e.keyField, e.lock);
-          if (e.listener != null) {
-            e.listener.postQuery(e);
-          }
-        } catch (DataIOException dre) {
-          s_logger.warning(dre.getMessage() + "\n" + StringLib.getStackTrace(dre));
+      try {
+        if (e.listener != null) {
+          e.listener.preQuery(e);
         }
-      } else {
-        // nothing to do, chill out until notified
-        try {
-          synchronized (this) {
-            wait();
-          }
-        } catch (InterruptedException ex) {
+        e.ds.getData(e);
+        if (e.listener != null) {
+          e.listener.postQuery(e);
         }
+      } catch (DataIOException dre) {
+        s_logger.warning(dre.getMessage() + "\n" + StringLib.getStackTrace(dre));
       }
     }
   }
@@ -184,4 +214,21 @@ public class DataSourceWorker extends Thread {
     public void postQuery(DataSourceWorker.Entry job);
   }
 
+  /**
+   * Listener interface for also receiving notifications about the progress of
+   * a submitted data query and processing job, issued each time a batch of
+   * result rows has been added to the table.
+   */
+  public static interface ProgressListener extends Listener {
+    /**
+     * Notification that a batch of result rows has been added to the table.
+     * 
+     * @param job
+     *          the current job being processed
+     * @param rows
+     *          the number of result rows processed so far
+     */
+    public void progress(DataSourceWorker.Entry job, int rows);
+  }
+
 } // end of class DataSourceWorker
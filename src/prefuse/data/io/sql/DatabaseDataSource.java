@@ -7,6 +7,8 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.logging.Logger;
 
+import javax.sql.DataSource;
+
 import prefuse.data.Schema;
 import prefuse.data.Table;
 import prefuse.data.io.DataIOException;
@@ -18,6 +20,21 @@ import prefuse.data.util.Index;
  * directly. To access a database, the {@link ConnectionFactory} class should be
  * used to retrieve an appropriate instance of this class.
  * 
+ * <p>
+ * An instance created for a single JDBC Connection issues one query at a
+ * time. An instance created for a {@link javax.sql.DataSource}, such as a
+ * connection pool, borrows a connection for each query, so that several queries
+ * can be processed concurrently, for example by multiple
+ * {@link DataSourceWorker} threads.
+ * </p>
+ * 
+ * <p>
+ * Query results are streamed into the target table in batches of rows, each
+ * added while holding the lock object, so that other threads can access the
+ * table between batches. The number of rows per batch is the fetch size, or
+ * {@link #DEFAULT_BATCH_SIZE} if the fetch size is left to the driver.
+ * </p>
+ * 
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
 public class DatabaseDataSource {
@@ -25,9 +42,14 @@ public class DatabaseDataSource {
   // logger
   private static final Logger s_logger = Logger.getLogger(DatabaseDataSource.class.getName());
 
+  /** Number of rows added per batch when no fetch size is set. */
+  public static final int DEFAULT_BATCH_SIZE = 1000;
+
   protected Connection m_conn;
+  protected DataSource m_pool;
   protected Statement m_stmt;
   protected SQLDataHandler m_handler;
+  protected int m_fetchSize;
 
   // ------------------------------------------------------------------------
 
@@ -42,6 +64,39 @@ public class DatabaseDataSource {
     m_handler = handler;
   }
 
+  /**
+   * Creates a new DatabaseDataSource for reading data from a SQL relational
+   * database, using a new connection from the given DataSource for each query.
+   * This constructor is only package visible and is not intended for use by
+   * application level code. Instead, the {@link ConnectionFactory} class should
+   * be used.
+   */
+  DatabaseDataSource(DataSource pool, SQLDataHandler handler) {
+    m_pool = pool;
+    m_handler = handler;
+  }
+
+  /**
+   * Get the number of rows to fetch from the database at a time.
+   * 
+   * @return the fetch size, zero if it is left to the JDBC driver
+   */
+  public int getFetchSize() {
+    return m_fetchSize;
+  }
+
+  /**
+   * Set the number of rows to fetch from the database at a time. This hint is
+   * passed on to the JDBC driver, and also sets the number of rows added to the
+   * target table per batch.
+   * 
+   * @param fetchSize
+   *          the fetch size, zero to leave it to the JDBC driver
+   */
+  public void setFetchSize(int fetchSize) {
+    m_fetchSize = fetchSize;
+  }
+
   // ------------------------------------------------------------------------
   // Synchronous Data Retrieval
 
@@ -55,7 +110,7 @@ public class DatabaseDataSource {
    *           if an error occurs while executing the query or adding the query
    *           results in a prefuse Table.
    */
-  public synchronized Table getData(String query) throws DataIOException {
+  public Table getData(String query) throws DataIOException {
     return getData(null, query, null);
   }
 
@@ -72,7 +127,7 @@ public class DatabaseDataSource {
    *           if an error occurs while executing the query or adding the query
    *           results in a prefuse Table.
    */
-  public synchronized Table getData(String query, String keyField) throws DataIOException {
+  public Table getData(String query, String keyField) throws DataIOException {
     return getData(null, query, keyField);
   }
 
@@ -89,7 +144,7 @@ public class DatabaseDataSource {
    *           if an error occurs while executing the query or adding the query
    *           results in a prefuse Table.
    */
-  public synchronized Table getData(Table t, String query) throws DataIOException {
+  public Table getData(Table t, String query) throws DataIOException {
     return getData(t, query, null);
   }
 
@@ -108,7 +163,7 @@ public class DatabaseDataSource {
    *           if an error occurs while executing the query or adding the query
    *           results in a prefuse Table.
    */
-  public synchronized Table getData(Table t, String query, String keyField) throws DataIOException {
+  public Table getData(Table t, String query, String keyField) throws DataIOException {
     return getData(t, query, keyField, null);
   }
 
@@ -130,14 +185,53 @@ public class DatabaseDataSource {
    *           if an error occurs while executing the query or adding the query
    *           results in a prefuse Table.
    */
-  public synchronized Table getData(Table t, String query, String keyField, Object lock) throws DataIOException {
-    ResultSet rs;
+  public Table getData(Table t, String query, String keyField, Object lock) throws DataIOException {
+    return getData(t, query, keyField, lock, null);
+  }
+
+  /**
+   * Executes a query for a job of a {@link DataSourceWorker}, reporting the
+   * progress of the job to its listener.
+   */
+  Table getData(DataSourceWorker.Entry job) throws DataIOException {
+    return getData(job.table, job.query, job.keyField, job.lock, job);
+  }
+
+  private Table getData(Table t, String query, String keyField, Object lock, DataSourceWorker.Entry job)
+      throws DataIOException {
+    if (m_pool == null) {
+      synchronized (this) {
+        try {
+          if (m_stmt == null) {
+            m_stmt = m_conn.createStatement();
+          }
+          return process(t, executeQuery(m_stmt, query), keyField, lock, job);
+        } catch (SQLException e) {
+          throw new DataIOException(e);
+        }
+      }
+    }
+
+    Connection conn = null;
     try {
-      rs = executeQuery(query);
+      conn = m_pool.getConnection();
+      Statement stmt = conn.createStatement();
+      try {
+        return process(t, executeQuery(stmt, query), keyField, lock, job);
+      } finally {
+        stmt.close();
+      }
     } catch (SQLException e) {
       throw new DataIOException(e);
+    } finally {
+      if (conn != null) {
+        try {
+          conn.close();
+        } catch (SQLException e) {
+          s_logger.warning("Error closing connection: " + e.getMessage());
+        }
+      }
     }
-    return process(t, rs, keyField, lock);
   }
 
   // ------------------------------------------------------------------------
@@ -238,22 +332,22 @@ public class DatabaseDataSource {
   /**
    * Execute a query and return the corresponding result set
    * 
+   * @param stmt
+   *          the statement to execute the query with
    * @param query
    *          the text SQL query to execute
    * @return the ResultSet of the query
    * @throws SQLException
    *           if an error occurs issuing the query
    */
-  private ResultSet executeQuery(String query) throws SQLException {
-    if (m_stmt == null) {
-      m_stmt = m_conn.createStatement();
-    }
+  private ResultSet executeQuery(Statement stmt, String query) throws SQLException {
+    stmt.setFetchSize(m_fetchSize);
 
     // clock in
     long timein = System.currentTimeMillis();
 
     s_logger.info("Issuing query: " + query);
-    ResultSet rset = m_stmt.executeQuery(query);
+    ResultSet rset = stmt.executeQuery(query);
 
     // clock out
     long time = System.currentTimeMillis() - timein;
@@ -276,6 +370,25 @@ public class DatabaseDataSource {
    * @return a Table containing the query results
    */
   protected Table process(Table t, ResultSet rset, String key, Object lock) throws DataIOException {
+    return process(t, rset, key, lock, null);
+  }
+
+  /**
+   * Process the results of a SQL query, putting retrieved data into a Table
+   * instance in batches of rows. If a null table is provided, a new table with
+   * the appropriate schema will be created.
+   * 
+   * @param t
+   *          the Table to store results in
+   * @param rset
+   *          the SQL query result set
+   * @param job
+   *          the worker job issuing the query, notified of progress after each
+   *          batch if its listener is a {@link DataSourceWorker.ProgressListener}
+   * @return a Table containing the query results
+   */
+  protected Table process(Table t, ResultSet rset, String key, Object lock, DataSourceWorker.Entry job)
+      throws DataIOException {
     // clock in
     int count = 0;
     long timein = System.currentTimeMillis();
@@ -300,23 +413,40 @@ public class DatabaseDataSource {
       // set the lock, lock on the table itself if nothing else provided
       lock = (lock == null ? t : lock);
 
-      // process the returned rows
-      while (rset.next()) {
-        synchronized (lock) {
-          // determine the table row index to use
-          int row = getExistingRow(t, rset, key);
-          if (row < 0) {
-            row = t.addRow();
-          }
+      DataSourceWorker.ProgressListener progress = null;
+      if (job != null && job.listener instanceof DataSourceWorker.ProgressListener) {
+        progress = (DataSourceWorker.ProgressListener) job.listener;
+      }
+      int batch = m_fetchSize > 0 ? m_fetchSize : DEFAULT_BATCH_SIZE;
 
-          // process each value in the current row
-          for (int i = 1; i <= ncols; ++i) {
-            m_handler.process(t, row, rset, i);
-          }
+      // process the returned rows, fetching the first row of each batch
+      // outside of the lock, as it may have to wait for the database
+      boolean more = rset.next();
+      while (more) {
+        synchronized (lock) {
+          int n = 0;
+          do {
+            // determine the table row index to use
+            int row = getExistingRow(t, rset, key);
+            if (row < 0) {
+              row = t.addRow();
+            }
+
+            // process each value in the current row
+            for (int i = 1; i <= ncols; ++i) {
+              m_handler.process(t, row, rset, i);
+            }
+
+            // increment row count
+            ++count;
+          } while (++n < batch && (more = rset.next()));
+        }
+        if (more) {
+          more = rset.next();
+        }
+        if (progress != null) {
+          progress.progress(job, count);
         }
-
-        // increment row count
-        ++count;
       }
     } catch (SQLException e) {
       throw new DataIOException(e);
@@ -67,6 +67,15 @@ public class TypeInferencer {
     ((ParserFactory) m_factories.get(column)).sample(value);
   }
 
+  /**
+   * Get the number of data columns sampled so far.
+   * 
+   * @return the number of data columns
+   */
+  public int getColumnCount() {
+    return m_factories.size();
+  }
+
   /**
    * Get the data type for the highest ranking candidate parser still in the
    * running for the given column index.
@@ -16,13 +16,22 @@ import prefuse.data.expression.Literal;
 import prefuse.data.expression.OrPredicate;
 import prefuse.data.expression.Predicate;
 import prefuse.data.tuple.TupleSet;
+import prefuse.data.util.BitmapIndex;
 import prefuse.util.DataLib;
+import prefuse.util.PrefuseConfig;
 import prefuse.util.ui.JToggleGroup;
 
 /**
  * DynamicQueryBinding supporting queries based on a list of included data
  * values.
  * 
+ * <p>
+ * The query is a disjunction of equality comparisons, which uses an index on
+ * the queried column if the table has one. The binding does not index the
+ * column on its own; {@link #createIndex()} creates a {@link BitmapIndex} if
+ * this is likely to pay off.
+ * </p>
+ * 
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
 public class ListQueryBinding extends DynamicQueryBinding {
@@ -97,6 +106,30 @@ public class ListQueryBinding extends DynamicQueryBinding {
 
   // ------------------------------------------------------------------------
 
+  /**
+   * Indexes the queried column, so that the query is answered by uniting the
+   * row bitmaps of its values. The index is only created if the queried set
+   * is a Table with at least <code>data.filter.optimizeThreshold</code> rows,
+   * and the column has no index and few distinct values. The index is
+   * registered with the table, and is kept until removed with
+   * {@link Table#removeIndex(String)}, even if the column later gains many
+   * distinct values.
+   * 
+   * @return true if an index was created, false otherwise
+   */
+  public boolean createIndex() {
+    if (!(m_tuples instanceof Table)) {
+      return false;
+    }
+    Table t = (Table) m_tuples;
+    if (t.getRowCount() < PrefuseConfig.getInt("data.filter.optimizeThreshold") || t.getIndex(m_field) != null
+        || !BitmapIndex.isLowCardinality(t, m_field)) {
+      return false;
+    }
+    t.index(m_field);
+    return true;
+  }
+
   /**
    * Returns a list model for creating custom dynamic query widgets. This list
    * model acts both as a data model and a selection model, and so must be
@@ -0,0 +1,944 @@
+package prefuse.data.util;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+
+import prefuse.data.Table;
+import prefuse.data.column.Column;
+import prefuse.data.event.ColumnListener;
+import prefuse.data.event.EventConstants;
+import prefuse.data.event.TableListener;
+import prefuse.util.PrefuseConfig;
+import prefuse.util.collections.DefaultLiteralComparator;
+import prefuse.util.collections.IncompatibleComparatorException;
+import prefuse.util.collections.IntIterator;
+import prefuse.util.collections.SortedMapFactory;
+
+/**
+ * Index instance that keeps a bitmap of rows for each distinct value of a
+ * column. For columns with few distinct values, such as boolean or categorical
+ * columns, these bitmaps take much less space than a tree holding a value /
+ * row pair per row, and queries over several values or several indexes can be
+ * answered by combining bitmaps a word of 64 rows at a time. The bitmap of a
+ * value stores only its non-zero words, until storing all words takes less
+ * space.
+ *
+ * <p>
+ * {@link Table#index(String)} creates bitmap indexes for boolean columns and
+ * for columns with at most <code>data.index.bitmapThreshold</code> distinct
+ * values (see {@link #isLowCardinality(Table, String)}). The cardinality is
+ * only checked when the index is created: if the column later gains many
+ * distinct values, the index remains a bitmap index, keeping a bitmap per
+ * value, until it is removed with {@link Table#removeIndex(String)} and the
+ * column indexed again.
+ * </p>
+ */
+public class BitmapIndex implements Index, ColumnListener, TableListener {
+
+  private static final int MAX_UNIQUE_COUNT = PrefuseConfig.getInt("data.index.bitmapThreshold");
+
+  // minimum number of rows per distinct value for a bitmap index to be used
+  private static final int MIN_ROWS_PER_VALUE = 8;
+
+  protected Table m_table;
+  protected RowManager m_rows;
+  protected Column m_col;
+  protected Comparator m_cmp;
+  protected Object[] m_keys;
+  protected Bitmap[] m_bitmaps;
+  protected int m_unique;
+  protected int m_size;
+  protected boolean m_reindex;
+  protected int m_colidx;
+
+  /**
+   * Create a new BitmapIndex.
+   *
+   * @param t
+   *          the Table containing the data column to index
+   * @param rows
+   *          the RowManager of the Table
+   * @param col
+   *          the Column instance to index
+   * @param cmp
+   *          the Comparator to use to sort data values
+   * @throws IncompatibleComparatorException
+   *           if the comparator is not compatible with the column's data type
+   */
+  public BitmapIndex(Table t, RowManager rows, Column col, Comparator cmp) throws IncompatibleComparatorException {
+    if (!SortedMapFactory.comparatorCheck(col.getColumnType(), cmp)) {
+      throw new IncompatibleComparatorException();
+    }
+    m_table = t;
+    m_rows = rows;
+    m_col = col;
+    m_cmp = (cmp == null ? DefaultLiteralComparator.getInstance() : cmp);
+
+    index();
+
+    m_col.addColumnListener(this);
+    m_table.addTableListener(this);
+  }
+
+  /**
+   * Indicates if a column is better indexed by a BitmapIndex than by a
+   * {@link TreeIndex}. This is the case for boolean columns, and for columns of
+   * non-empty tables holding at most <code>data.index.bitmapThreshold</code>
+   * distinct values, with several rows for each value.
+   *
+   * @param t
+   *          the Table containing the data column
+   * @param field
+   *          the data field name of the column
+   * @return true if the column has few distinct values
+   */
+  public static boolean isLowCardinality(Table t, String field) {
+    Class type = t.getColumnType(field);
+    if (type == boolean.class) {
+      return true;
+    } else if (type.isPrimitive()) {
+      if (type != int.class && type != long.class && type != float.class && type != double.class) {
+        return false;
+      }
+    } else if (Date.class.isAssignableFrom(type)) {
+      return false; // tree indexes support long lookups over these
+    }
+
+    int max = Math.min(MAX_UNIQUE_COUNT, t.getRowCount() / MIN_ROWS_PER_VALUE);
+    if (max <= 0) {
+      return false;
+    }
+    Column col = t.getColumn(field);
+    int idx = t.getColumnNumber(field);
+    HashSet values = new HashSet();
+    for (IntIterator rows = t.rows(); rows.hasNext();) {
+      values.add(col.get(t.getColumnRow(rows.nextInt(), idx)));
+      if (values.size() > max) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @see prefuse.data.util.Index#dispose()
+   */
+  @Override
+  public void dispose() {
+    m_col.removeColumnListener(this);
+    m_table.removeTableListener(this);
+  }
+
+  /**
+   * @see prefuse.data.util.Index#getComparator()
+   */
+  @Override
+  public Comparator getComparator() {
+    return m_cmp;
+  }
+
+  /**
+   * @see prefuse.data.util.Index#size()
+   */
+  @Override
+  public int size() {
+    validate();
+    return m_size;
+  }
+
+  private int getColumnIndex() {
+    if (!(m_table.getColumn(m_colidx) == m_col)) {
+      m_colidx = m_table.getColumnNumber(m_col);
+    }
+    return m_colidx;
+  }
+
+  // ------------------------------------------------------------------------
+  // Index Update Methods
+
+  /**
+   * @see prefuse.data.util.Index#index()
+   */
+  @Override
+  public void index() {
+    m_keys = new Object[8];
+    m_bitmaps = new Bitmap[8];
+    m_unique = 0;
+    m_size = 0;
+
+    // iterate over all valid values, adding them to the index
+    int idx = getColumnIndex();
+    m_colidx = idx;
+    for (IntIterator rows = m_rows.rows(); rows.hasNext();) {
+      int r = rows.nextInt();
+      add(m_col.get(m_table.getColumnRow(r, idx)), r);
+    }
+
+    m_reindex = false;
+  }
+
+  /**
+   * Rebuild the index if it has been marked as out of date, either by a range
+   * update of the indexed column, or by changes made during a batch of table
+   * updates (see {@link Table#beginBatch()}), which are not tracked one by one.
+   */
+  protected void validate() {
+    if (m_reindex) {
+      index();
+    }
+  }
+
+  /**
+   * Find the position of a value in the sorted array of distinct values.
+   *
+   * @return the position of the value, or <code>-(insertion point) - 1</code>
+   *         if the value is not indexed
+   */
+  private int find(Object key) {
+    int lo = 0, hi = m_unique - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      int c = m_cmp.compare(m_keys[mid], key);
+      if (c < 0) {
+        lo = mid + 1;
+      } else if (c > 0) {
+        hi = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(lo + 1);
+  }
+
+  /**
+   * Get the position of the first distinct value greater than (or, if
+   * <code>after</code> is false, greater than or equal to) the given value.
+   */
+  private int search(Object key, boolean after) {
+    int lo = 0, hi = m_unique;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      int c = m_cmp.compare(m_keys[mid], key);
+      if (c < 0 || (after && c == 0)) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private void add(Object key, int row) {
+    int i = find(key);
+    if (i < 0) {
+      i = -(i + 1);
+      if (m_unique == m_keys.length) {
+        Object[] keys = new Object[2 * m_unique];
+        Bitmap[] bitmaps = new Bitmap[2 * m_unique];
+        System.arraycopy(m_keys, 0, keys, 0, m_unique);
+        System.arraycopy(m_bitmaps, 0, bitmaps, 0, m_unique);
+        m_keys = keys;
+        m_bitmaps = bitmaps;
+      }
+      System.arraycopy(m_keys, i, m_keys, i + 1, m_unique - i);
+      System.arraycopy(m_bitmaps, i, m_bitmaps, i + 1, m_unique - i);
+      m_keys[i] = key;
+      m_bitmaps[i] = new Bitmap();
+      ++m_unique;
+    }
+    if (m_bitmaps[i].set(row)) {
+      ++m_size;
+    }
+  }
+
+  private void remove(Object key, int row) {
+    int i = find(key);
+    if (i < 0 || !m_bitmaps[i].clear(row)) {
+      return;
+    }
+    --m_size;
+    if (m_bitmaps[i].count() == 0) {
+      --m_unique;
+      System.arraycopy(m_keys, i + 1, m_keys, i, m_unique - i);
+      System.arraycopy(m_bitmaps, i + 1, m_bitmaps, i, m_unique - i);
+      m_keys[m_unique] = null;
+      m_bitmaps[m_unique] = null;
+    }
+  }
+
+  // ------------------------------------------------------------------------
+  // Listener Methods
+
+  /**
+   * @see prefuse.data.event.TableListener#tableChanged(prefuse.data.Table, int,
+   *      int, int, int)
+   */
+  @Override
+  public void tableChanged(Table t, int start, int end, int col, int type) {
+    if (type == EventConstants.UPDATE || t != m_table || col != EventConstants.ALL_COLUMNS) {
+      return;
+    }
+    if (m_reindex) {
+      return; // rows are picked up when the index is rebuilt
+    }
+
+    boolean insert = (type == EventConstants.INSERT);
+    int idx = getColumnIndex();
+    for (int r = start; r <= end; ++r) {
+      // make sure we access the right column value
+      Object key = m_col.get(m_rows.getColumnRow(r, idx));
+      if (insert) {
+        add(key, r);
+      } else {
+        remove(key, r);
+      }
+    }
+  }
+
+  /**
+   * @see prefuse.data.event.ColumnListener#columnChanged(prefuse.data.column.Column,
+   *      int, int, int)
+   */
+  @Override
+  public void columnChanged(Column src, int type, int start, int end) {
+    m_reindex = true;
+  }
+
+  /**
+   * Move a row from the bitmap of its previous value to the bitmap of its new
+   * value.
+   */
+  private void valueChanged(Column src, int idx, Object prev) {
+    if (m_reindex || m_table.isBatching()) {
+      m_reindex = true;
+      return; // rebuild on next access
+    }
+    int row = m_rows.getTableRow(idx, getColumnIndex());
+    if (row < 0) {
+      return; // invalid row value
+    }
+    remove(prev, row);
+    add(src.get(idx), row);
+  }
+
+  /**
+   * @see prefuse.data.event.ColumnListener#columnChanged(prefuse.data.column.Column,
+   *      int, boolean)
+   */
+  @Override
+  public void columnChanged(Column src, int idx, boolean prev) {
+    valueChanged(src, idx, Boolean.valueOf(prev));
+  }
+
+  /**
+   * @see prefuse.data.event.ColumnListener#columnChanged(prefuse.data.column.Column,
+   *      int, int)
+   */
+  @Override
+  public void columnChanged(Column src, int idx, int prev) {
+    valueChanged(src, idx, Integer.valueOf(prev));
+  }
+
+  /**
+   * @see prefuse.data.event.ColumnListener#columnChanged(prefuse.data.column.Column,
+   *      int, long)
+   */
+  @Override
+  public void columnChanged(Column src, int idx, long prev) {
+    valueChanged(src, idx, Long.valueOf(prev));
+  }
+
+  /**
+   * @see prefuse.data.event.ColumnListener#columnChanged(prefuse.data.column.Column,
+   *      int, float)
+   */
+  @Override
+  public void columnChanged(Column src, int idx, float prev) {
+    valueChanged(src, idx, Float.valueOf(prev));
+  }
+
+  /**
+   * @see prefuse.data.event.ColumnListener#columnChanged(prefuse.data.column.Column,
+   *      int, double)
+   */
+  @Override
+  public void columnChanged(Column src, int idx, double prev) {
+    valueChanged(src, idx, Double.valueOf(prev));
+  }
+
+  /**
+   * @see prefuse.data.event.ColumnListener#columnChanged(prefuse.data.column.Column,
+   *      int, java.lang.Object)
+   */
+  @Override
+  public void columnChanged(Column src, int idx, Object prev) {
+    valueChanged(src, idx, prev);
+  }
+
+  // ------------------------------------------------------------------------
+  // Retrieval Methods
+
+  /**
+   * @see prefuse.data.util.Index#minimum()
+   */
+  @Override
+  public int minimum() {
+    validate();
+    return (m_unique == 0 ? Integer.MIN_VALUE : m_bitmaps[0].first());
+  }
+
+  /**
+   * @see prefuse.data.util.Index#maximum()
+   */
+  @Override
+  public int maximum() {
+    validate();
+    return (m_unique == 0 ? Integer.MIN_VALUE : m_bitmaps[m_unique - 1].last());
+  }
+
+  /**
+   * @see prefuse.data.util.Index#median()
+   */
+  @Override
+  public int median() {
+    validate();
+    int k = m_size / 2;
+    for (int i = 0; i < m_unique; ++i) {
+      int count = m_bitmaps[i].count();
+      if (k < count) {
+        return m_bitmaps[i].get(k);
+      }
+      k -= count;
+    }
+    return Integer.MIN_VALUE;
+  }
+
+  /**
+   * @see prefuse.data.util.Index#uniqueCount()
+   */
+  @Override
+  public int uniqueCount() {
+    validate();
+    return m_unique;
+  }
+
+  // ------------------------------------------------------------------------
+
+  /**
+   * Check that lookups of the given type can be made in this index.
+   */
+  private void checkType(Class type) {
+    if (m_col.getColumnType() != type) {
+      throw new IllegalStateException();
+    }
+  }
+
+  /**
+   * Get an iterator over the rows of the values within a range of the sorted
+   * array of distinct values.
+   */
+  private IntIterator rows(int from, int to, boolean reverse) {
+    Bitmap[] bitmaps = new Bitmap[Math.max(0, to - from)];
+    System.arraycopy(m_bitmaps, from, bitmaps, 0, bitmaps.length);
+    return new RowIterator(bitmaps, reverse);
+  }
+
+  /**
+   * Get an iterator over a range of values, where null bounds leave the range
+   * unbounded.
+   */
+  private IntIterator range(Object lo, Object hi, int type) {
+    validate();
+    boolean reverse = (type & Index.TYPE_DESCENDING) > 0;
+    boolean linc = (type & Index.TYPE_LEFT_INCLUSIVE) > 0;
+    boolean hinc = (type & Index.TYPE_RIGHT_INCLUSIVE) > 0;
+
+    int from = (lo == null ? 0 : search(lo, !linc));
+    int to = (hi == null ? m_unique : search(hi, hinc));
+    return rows(from, to, reverse);
+  }
+
+  /**
+   * @see prefuse.data.util.Index#allRows(int)
+   */
+  @Override
+  public IntIterator allRows(int type) {
+    validate();
+    boolean ascending = (type & Index.TYPE_ASCENDING) > 0;
+    return rows(0, m_unique, !ascending);
+  }
+
+  /**
+   * @see prefuse.data.util.Index#rows(java.lang.Object, java.lang.Object, int)
+   */
+  @Override
+  public IntIterator rows(Object lo, Object hi, int type) {
+    if (m_col.getColumnType().isPrimitive()) {
+      throw new IllegalStateException();
+    }
+    return range(lo, hi, type);
+  }
+
+  /**
+   * @see prefuse.data.util.Index#rows(int, int, int)
+   */
+  @Override
+  public IntIterator rows(int lo, int hi, int type) {
+    checkType(int.class);
+    return range(Integer.valueOf(lo), Integer.valueOf(hi), type);
+  }
+
+  /**
+   * @see prefuse.data.util.Index#rows(long, long, int)
+   */
+  @Override
+  public IntIterator rows(long lo, long hi, int type) {
+    checkType(long.class);
+    return range(Long.valueOf(lo), Long.valueOf(hi), type);
+  }
+
+  /**
+   * @see prefuse.data.util.Index#rows(float, float, int)
+   */
+  @Override
+  public IntIterator rows(float lo, float hi, int type) {
+    checkType(float.class);
+    return range(Float.valueOf(lo), Float.valueOf(hi), type);
+  }
+
+  /**
+   * @see prefuse.data.util.Index#rows(double, double, int)
+   */
+  @Override
+  public IntIterator rows(double lo, double hi, int type) {
+    checkType(double.class);
+    return range(Double.valueOf(lo), Double.valueOf(hi), type);
+  }
+
+  // ------------------------------------------------------------------------
+
+  /**
+   * Get an iterator over the rows of a single value.
+   */
+  private IntIterator lookup(Object val) {
+    validate();
+    int i = find(val);
+    return (i < 0 ? rows(0, 0, false) : rows(i, i + 1, false));
+  }
+
+  /**
+   * @see prefuse.data.util.Index#rows(int)
+   */
+  @Override
+  public IntIterator rows(int val) {
+    checkType(int.class);
+    return lookup(Integer.valueOf(val));
+  }
+
+  /**
+   * @see prefuse.data.util.Index#rows(long)
+   */
+  @Override
+  public IntIterator rows(long val) {
+    checkType(long.class);
+    return lookup(Long.valueOf(val));
+  }
+
+  /**
+   * @see prefuse.data.util.Index#rows(float)
+   */
+  @Override
+  public IntIterator rows(float val) {
+    checkType(float.class);
+    return lookup(Float.valueOf(val));
+  }
+
+  /**
+   * @see prefuse.data.util.Index#rows(double)
+   */
+  @Override
+  public IntIterator rows(double val) {
+    checkType(double.class);
+    return lookup(Double.valueOf(val));
+  }
+
+  /**
+   * @see prefuse.data.util.Index#rows(boolean)
+   */
+  @Override
+  public IntIterator rows(boolean val) {
+    checkType(boolean.class);
+    return lookup(Boolean.valueOf(val));
+  }
+
+  /**
+   * @see prefuse.data.util.Index#rows(java.lang.Object)
+   */
+  @Override
+  public IntIterator rows(Object val) {
+    return rows(val, val, Index.TYPE_AII);
+  }
+
+  // ------------------------------------------------------------------------
+
+  /**
+   * Get the first row with a value.
+   */
+  private int first(Object val) {
+    validate();
+    int i = find(val);
+    return (i < 0 ? Integer.MIN_VALUE : m_bitmaps[i].first());
+  }
+
+  /**
+   * @see prefuse.data.util.Index#get(double)
+   */
+  @Override
+  public int get(double x) {
+    checkType(double.class);
+    return first(Double.valueOf(x));
+  }
+
+  /**
+   * @see prefuse.data.util.Index#get(float)
+   */
+  @Override
+  public int get(float x) {
+    checkType(float.class);
+    return first(Float.valueOf(x));
+  }
+
+  /**
+   * @see prefuse.data.util.Index#get(int)
+   */
+  @Override
+  public int get(int x) {
+    checkType(int.class);
+    return first(Integer.valueOf(x));
+  }
+
+  /**
+   * @see prefuse.data.util.Index#get(long)
+   */
+  @Override
+  public int get(long x) {
+    checkType(long.class);
+    return first(Long.valueOf(x));
+  }
+
+  /**
+   * @see prefuse.data.util.Index#get(java.lang.Object)
+   */
+  @Override
+  public int get(Object x) {
+    return first(x);
+  }
+
+  // ------------------------------------------------------------------------
+  // Bitmaps
+
+  /**
+   * The bitmap of the rows holding one value. Bit <i>i</i> of word <i>i /
+   * 64</i> stands for row <i>i</i>. Sparse bitmaps store the positions of their
+   * non-zero words along with the words, dense bitmaps store all words.
+   */
+  static class Bitmap {
+    private int[] m_pos = new int[4];
+    private long[] m_words = new long[4];
+    private int m_nwords;
+    private int m_count;
+
+    /**
+     * Get the number of set bits.
+     */
+    int count() {
+      return m_count;
+    }
+
+    /**
+     * Get the number of stored words.
+     */
+    int words() {
+      return m_nwords;
+    }
+
+    /**
+     * Find the stored word at a word position, returning
+     * <code>-(insertion point) - 1</code> if there is no such word.
+     */
+    private int find(int w) {
+      if (m_pos == null) {
+        return (w < m_nwords ? w : -(m_nwords + 1));
+      } else if (m_nwords == 0 || m_pos[m_nwords - 1] < w) {
+        return -(m_nwords + 1); // appending rows
+      }
+      int lo = 0, hi = m_nwords - 1;
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        if (m_pos[mid] < w) {
+          lo = mid + 1;
+        } else if (m_pos[mid] > w) {
+          hi = mid - 1;
+        } else {
+          return mid;
+        }
+      }
+      return -(lo + 1);
+    }
+
+    /**
+     * Set the bit of a row, returning false if it was already set.
+     */
+    boolean set(int row) {
+      int w = row >>> 6;
+      int i = find(w);
+      if (i < 0) {
+        if (m_pos == null) {
+          if (w >= m_words.length) {
+            long[] words = new long[Math.max(w + 1, 2 * m_words.length)];
+            System.arraycopy(m_words, 0, words, 0, m_nwords);
+            m_words = words;
+          }
+          m_nwords = w + 1;
+          i = w;
+        } else {
+          i = -(i + 1);
+          insert(i, w);
+          if (3 * m_nwords >= 2 * (m_pos[m_nwords - 1] + 1)) {
+            // the word positions take more space than the missing words
+            densify();
+            i = w;
+          }
+        }
+      }
+      long bit = 1L << row;
+      if ((m_words[i] & bit) != 0) {
+        return false;
+      }
+      m_words[i] |= bit;
+      ++m_count;
+      return true;
+    }
+
+    /**
+     * Clear the bit of a row, returning false if it was not set.
+     */
+    boolean clear(int row) {
+      int i = find(row >>> 6);
+      long bit = 1L << row;
+      if (i < 0 || (m_words[i] & bit) == 0) {
+        return false;
+      }
+      m_words[i] &= ~bit;
+      --m_count;
+      if (m_pos != null && m_words[i] == 0) {
+        --m_nwords;
+        System.arraycopy(m_pos, i + 1, m_pos, i, m_nwords - i);
+        System.arraycopy(m_words, i + 1, m_words, i, m_nwords - i);
+      }
+      return true;
+    }
+
+    private void insert(int i, int w) {
+      if (m_nwords == m_pos.length) {
+        int[] pos = new int[2 * m_nwords];
+        long[] words = new long[2 * m_nwords];
+        System.arraycopy(m_pos, 0, pos, 0, m_nwords);
+        System.arraycopy(m_words, 0, words, 0, m_nwords);
+        m_pos = pos;
+        m_words = words;
+      }
+      System.arraycopy(m_pos, i, m_pos, i + 1, m_nwords - i);
+      System.arraycopy(m_words, i, m_words, i + 1, m_nwords - i);
+      m_pos[i] = w;
+      m_words[i] = 0;
+      ++m_nwords;
+    }
+
+    private void densify() {
+      int n = m_pos[m_nwords - 1] + 1;
+      long[] words = new long[n + n / 2];
+      for (int i = 0; i < m_nwords; ++i) {
+        words[m_pos[i]] = m_words[i];
+      }
+      m_pos = null;
+      m_words = words;
+      m_nwords = n;
+    }
+
+    /**
+     * Get the row of the i-th stored word's first bit.
+     */
+    int offset(int i) {
+      return (m_pos == null ? i : m_pos[i]) << 6;
+    }
+
+    /**
+     * Get the i-th stored word.
+     */
+    long word(int i) {
+      return m_words[i];
+    }
+
+    /**
+     * Get the lowest set row.
+     */
+    int first() {
+      for (int i = 0; i < m_nwords; ++i) {
+        if (m_words[i] != 0) {
+          return offset(i) + Long.numberOfTrailingZeros(m_words[i]);
+        }
+      }
+      return Integer.MIN_VALUE;
+    }
+
+    /**
+     * Get the highest set row.
+     */
+    int last() {
+      for (int i = m_nwords; --i >= 0;) {
+        if (m_words[i] != 0) {
+          return offset(i) + 63 - Long.numberOfLeadingZeros(m_words[i]);
+        }
+      }
+      return Integer.MIN_VALUE;
+    }
+
+    /**
+     * Get the k-th lowest set row, counting from zero.
+     */
+    int get(int k) {
+      for (int i = 0; i < m_nwords; ++i) {
+        long word = m_words[i];
+        int count = Long.bitCount(word);
+        if (k < count) {
+          for (; k > 0; --k) {
+            word &= word - 1;
+          }
+          return offset(i) + Long.numberOfTrailingZeros(word);
+        }
+        k -= count;
+      }
+      return Integer.MIN_VALUE;
+    }
+
+    /**
+     * Set the bits of this bitmap in a bitmap covering all rows.
+     */
+    void or(long[] bits) {
+      for (int i = 0; i < m_nwords; ++i) {
+        int w = (m_pos == null ? i : m_pos[i]);
+        if (w >= bits.length) {
+          break;
+        }
+        bits[w] |= m_words[i];
+      }
+    }
+  } // end of class Bitmap
+
+  /**
+   * Iterates over the rows of a sequence of bitmaps, in ascending or
+   * descending order of values, and of rows within a value. The rows of a
+   * lookup can also be marked in a bitmap covering all rows at once.
+   */
+  static class RowIterator extends IntIterator {
+    private final Bitmap[] m_bitmaps;
+    private final boolean m_reverse;
+    private int m_bitmap;
+    private int m_word;
+    private int m_offset;
+    private long m_cur;
+
+    RowIterator(Bitmap[] bitmaps, boolean reverse) {
+      m_bitmaps = bitmaps;
+      m_reverse = reverse;
+      m_bitmap = (reverse ? bitmaps.length : -1);
+      nextBitmap();
+    }
+
+    private void nextBitmap() {
+      m_bitmap += (m_reverse ? -1 : 1);
+      if (m_bitmap >= 0 && m_bitmap < m_bitmaps.length) {
+        m_word = (m_reverse ? m_bitmaps[m_bitmap].words() : -1);
+        advance();
+      }
+    }
+
+    private void advance() {
+      Bitmap b = m_bitmaps[m_bitmap];
+      while (m_cur == 0) {
+        m_word += (m_reverse ? -1 : 1);
+        if (m_word < 0 || m_word >= b.words()) {
+          nextBitmap();
+          return;
+        }
+        m_cur = b.word(m_word);
+        m_offset = b.offset(m_word);
+      }
+    }
+
+    /**
+     * Get the number of rows this iterator visits in total.
+     */
+    int getRowCount() {
+      int count = 0;
+      for (int i = 0; i < m_bitmaps.length; ++i) {
+        count += m_bitmaps[i].count();
+      }
+      return count;
+    }
+
+    /**
+     * Get the number of bitmap words this iterator visits in total.
+     */
+    int getWordCount() {
+      int count = 0;
+      for (int i = 0; i < m_bitmaps.length; ++i) {
+        count += m_bitmaps[i].words();
+      }
+      return count;
+    }
+
+    /**
+     * Mark all rows of this iterator in a bitmap covering all rows of the table.
+     */
+    void select(long[] selection) {
+      for (int i = 0; i < m_bitmaps.length; ++i) {
+        m_bitmaps[i].or(selection);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return m_cur != 0;
+    }
+
+    @Override
+    public int nextInt() {
+      if (m_cur == 0) {
+        throw new NoSuchElementException();
+      }
+      int bit;
+      if (m_reverse) {
+        bit = 63 - Long.numberOfLeadingZeros(m_cur);
+        m_cur &= ~(1L << bit);
+      } else {
+        bit = Long.numberOfTrailingZeros(m_cur);
+        m_cur &= m_cur - 1;
+      }
+      int row = m_offset + bit;
+      if (m_cur == 0) {
+        advance();
+      }
+      return row;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  } // end of class RowIterator
+
+} // end of class BitmapIndex
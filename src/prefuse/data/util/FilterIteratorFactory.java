@@ -1,7 +1,11 @@
 package prefuse.data.util;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import prefuse.data.Table;
 import prefuse.data.expression.AndPredicate;
@@ -15,7 +19,8 @@ import prefuse.data.expression.Predicate;
 import prefuse.data.expression.RangePredicate;
 import prefuse.data.tuple.TupleSet;
 import prefuse.util.PrefuseConfig;
-import prefuse.util.collections.CompositeIntIterator;
+import prefuse.util.TypeLib;
+import prefuse.util.collections.DefaultLiteralComparator;
 import prefuse.util.collections.IntIterator;
 
 /**
@@ -24,11 +29,36 @@ import prefuse.util.collections.IntIterator;
  * indexes, in many incrasing performance by only visiting the tuples which will
  * pass the filter condition.
  * 
+ * <p>
+ * Query plans are chosen by estimated cost (see {@link QueryPlan}). Comparisons
+ * and ranges over indexed columns can be looked up in the index, with the
+ * number of matching rows estimated from the index's size, unique value count
+ * and value range, or counted exactly in a {@link BitmapIndex}. Conjunctions
+ * use the most selective index lookup, filtering its rows by the remaining
+ * clauses, or intersect the row bitmaps of several lookups. Disjunctions unite
+ * the row bitmaps of their clauses' plans. If no plan is cheaper, the table is
+ * scanned. Use {@link #explain(Table, Predicate)} to see the plan chosen for a
+ * predicate.
+ * </p>
+ * 
+ * <p>
+ * If the <code>data.filter.autoIndexThreshold</code> configuration property is
+ * set to a positive number, columns of large tables that are queried this many
+ * times without an index are indexed automatically.
+ * </p>
+ * 
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
 public class FilterIteratorFactory {
 
   private static final int OPTIMIZATION_THRESHOLD = PrefuseConfig.getInt("data.filter.optimizeThreshold");
+  private static final int AUTO_INDEX_THRESHOLD = PrefuseConfig.getInt("data.filter.autoIndexThreshold");
+
+  // selectivity assumed when the index statistics don't tell
+  private static final double DEFAULT_SELECTIVITY = 1.0 / 3;
+
+  // counts of queries on non-indexed columns, per table
+  private static final Map s_queryCounts = new WeakHashMap();
 
   // we can stash our query plan generation and optimization here to deal
   // with it all in one spot, and keep the rest of the classes clean
@@ -49,22 +79,12 @@ public class FilterIteratorFactory {
       return ts.tuples();
     }
 
-    // attempt to generate an optimized query plan
-    Iterator iter = null;
     if (ts instanceof Table) {
       Table t = (Table) ts;
-      IntIterator ii = getOptimizedIterator(t, p);
-      if (ii != null) {
-        iter = t.tuples(ii);
-      }
-    }
-
-    // optimization fails, scan the entire table
-    if (iter == null) {
-      iter = new FilterIterator(ts.tuples(), p);
+      return t.tuples(plan(t, p).rows());
+    } else {
+      return new FilterIterator(ts.tuples(), p);
     }
-
-    return iter;
   }
 
   /**
@@ -78,15 +98,42 @@ public class FilterIteratorFactory {
    * @return a filtered iterator over the table rows
    */
   public static IntIterator rows(Table t, Predicate p) {
-    // attempt to generate an optimized query plan
-    IntIterator iter = null;
-    iter = getOptimizedIterator(t, p);
+    return plan(t, p).rows();
+  }
 
-    // optimization fails, scan the entire table
-    if (iter == null) {
-      iter = new FilterRowIterator(t.rows(), t, p);
+  /**
+   * Get the cheapest query plan for retrieving the rows of a table that
+   * satisfy a predicate.
+   * 
+   * @param t
+   *          the Table to query
+   * @param p
+   *          the filter predicate
+   * @return the query plan
+   */
+  public static QueryPlan plan(Table t, Predicate p) {
+    QueryPlan plan = null;
+    if (t.getRowCount() >= OPTIMIZATION_THRESHOLD) {
+      plan = getIndexedPlan(t, p);
     }
-    return iter;
+    // otherwise scan the entire table
+    QueryPlan scan = new QueryPlan.Scan(t, p, plan != null ? plan.getEstimatedRows() : t.getRowCount());
+    return (plan != null && plan.getCost() < scan.getCost() ? plan : scan);
+  }
+
+  /**
+   * Describe the query plan chosen for retrieving the rows of a table that
+   * satisfy a predicate.
+   * 
+   * @param t
+   *          the Table to query
+   * @param p
+   *          the filter predicate
+   * @return a description of the query plan
+   * @see QueryPlan#explain()
+   */
+  public static String explain(Table t, Predicate p) {
+    return plan(t, p).explain();
   }
 
   /**
@@ -99,11 +146,125 @@ public class FilterIteratorFactory {
    * @return an optimized iterator, or null if no optimization was found
    */
   protected static IntIterator getOptimizedIterator(Table t, Predicate p) {
-    if (t.getRowCount() < OPTIMIZATION_THRESHOLD)
-     {
-      return null; // avoid overhead for small tables
+    QueryPlan plan = plan(t, p);
+    return (plan instanceof QueryPlan.Scan ? null : plan.rows());
+  }
+
+  /**
+   * Get the cheapest plan using indexes, or null if there is none.
+   */
+  private static QueryPlan getIndexedPlan(Table t, Predicate p) {
+    if (p instanceof AndPredicate) {
+      return getAndPlan(t, (AndPredicate) p);
+    } else if (p instanceof OrPredicate) {
+      return getOrPlan(t, (OrPredicate) p);
+    }
+
+    IntIterator rows = getIndexIterator(t, p);
+    if (rows == null) {
+      return null;
+    }
+    String field = getIndexedField(p);
+    double nrows;
+    if (rows instanceof BitmapIndex.RowIterator) {
+      // bitmap lookups know their exact row count
+      nrows = ((BitmapIndex.RowIterator) rows).getRowCount();
+    } else {
+      nrows = estimateRows(t, p, field);
+    }
+    return new QueryPlan.IndexLookup(t, p, field, rows, nrows);
+  }
+
+  private static QueryPlan getAndPlan(Table t, AndPredicate ap) {
+    int size = ap.size();
+    if (size == 1) {
+      return getIndexedPlan(t, ap.get(0));
+    }
+
+    // get the plans for all clauses that can use an index,
+    // sorted by the estimated number of rows
+    ArrayList plans = new ArrayList();
+    ArrayList clauses = new ArrayList();
+    for (int i = 0; i < size; ++i) {
+      QueryPlan plan = getIndexedPlan(t, ap.get(i));
+      if (plan == null) {
+        continue;
+      }
+      int j = plans.size();
+      while (j > 0 && ((QueryPlan) plans.get(j - 1)).getEstimatedRows() > plan.getEstimatedRows()) {
+        --j;
+      }
+      plans.add(j, plan);
+      clauses.add(j, ap.get(i));
+    }
+    if (plans.isEmpty()) {
+      return null;
+    }
+
+    // intersect the k most selective plans, filtering by the other clauses
+    double n = Math.max(1, t.getRowCount());
+    QueryPlan best = null;
+    double rows = n;
+    for (int k = 1; k <= plans.size(); ++k) {
+      // estimate intersections assuming the clauses are independent
+      rows *= ((QueryPlan) plans.get(k - 1)).getEstimatedRows() / n;
+      QueryPlan plan;
+      if (k == 1) {
+        plan = (QueryPlan) plans.get(0);
+      } else {
+        QueryPlan[] combined = (QueryPlan[]) plans.subList(0, k).toArray(new QueryPlan[k]);
+        plan = new QueryPlan.Combine(combined, false, rows);
+      }
+      if (k < size) {
+        AndPredicate rest = new AndPredicate();
+        for (int i = 0; i < size; ++i) {
+          Predicate clause = ap.get(i);
+          if (clauses.indexOf(clause) < 0 || clauses.indexOf(clause) >= k) {
+            rest.add(clause);
+          }
+        }
+        plan = new QueryPlan.Filter(plan, rest.size() == 1 ? rest.get(0) : rest, rows * DEFAULT_SELECTIVITY);
+      }
+      if (best == null || plan.getCost() < best.getCost()) {
+        best = plan;
+      }
+    }
+    return best;
+  }
+
+  private static QueryPlan getOrPlan(Table t, OrPredicate op) {
+    int size = op.size();
+    if (size == 1) {
+      return getIndexedPlan(t, op.get(0));
+    } else if (size == 0) {
+      return null;
     }
 
+    // if all subclauses can be optimized, we can optimize the query
+    QueryPlan[] plans = new QueryPlan[size];
+    double rows = 0;
+    for (int i = 0; i < size; ++i) {
+      plans[i] = getIndexedPlan(t, op.get(i));
+      // all clauses must be optimized to avoid linear scan
+      if (plans[i] == null) {
+        return null;
+      }
+      rows += plans[i].getEstimatedRows();
+    }
+    return new QueryPlan.Combine(plans, true, Math.min(rows, t.getRowCount()));
+  }
+
+  /**
+   * Get an iterator over the rows satisfying a predicate looked up in an
+   * index, or null if the predicate can't be looked up in an existing index.
+   * 
+   * @param t
+   *          the Table to query
+   * @param p
+   *          a boolean column, its negation, a comparison or a range predicate
+   * @return an iterator over the index rows, or null
+   */
+  static IntIterator getIndexIterator(Table t, Predicate p) {
     if (p instanceof ColumnExpression) {
       // try to optimize a boolean column
       return getColumnIterator(t, ((ColumnExpression) p).getColumnName(), true);
@@ -113,12 +274,6 @@ public class FilterIteratorFactory {
       if (pp instanceof ColumnExpression) {
         return getColumnIterator(t, ((ColumnExpression) pp).getColumnName(), false);
       }
-    } else if (p instanceof AndPredicate) {
-      // try to optimize an and clause
-      return getAndIterator(t, (AndPredicate) p);
-    } else if (p instanceof OrPredicate) {
-      // try to optimize an or clause
-      return getOrIterator(t, (OrPredicate) p);
     } else if (p instanceof ComparisonPredicate) {
       // try to optimize a comparison (=, !=, <, > ,etc)
       return getComparisonIterator(t, (ComparisonPredicate) p);
@@ -126,73 +281,126 @@ public class FilterIteratorFactory {
       // try to optimize a bounded range of values
       return getRangeIterator(t, (RangePredicate) p);
     }
-
     return null;
   }
 
-  protected static IntIterator getColumnIterator(Table t, String field, boolean val) {
-    if (t.getColumnType(field) != boolean.class)
-     {
-      return null; // only works for boolean-valued columns
+  /**
+   * Get the data field of a predicate that can be looked up in an index.
+   */
+  private static String getIndexedField(Predicate p) {
+    if (p instanceof ColumnExpression) {
+      return ((ColumnExpression) p).getColumnName();
+    } else if (p instanceof NotPredicate) {
+      return ((ColumnExpression) ((NotPredicate) p).getPredicate()).getColumnName();
+    } else if (p instanceof RangePredicate) {
+      return ((ColumnExpression) ((RangePredicate) p).getMiddleExpression()).getColumnName();
+    } else {
+      ComparisonPredicate cp = (ComparisonPredicate) p;
+      Expression l = cp.getLeftExpression();
+      return ((ColumnExpression) (l instanceof ColumnExpression ? l : cp.getRightExpression())).getColumnName();
     }
+  }
 
+  /**
+   * Get the index of a column for a predicate. If the column has no index, the
+   * query is counted and, once the column has been queried often enough, the
+   * column is indexed if the auto-indexing threshold is set.
+   */
+  private static Index getIndex(Table t, String field, Comparator cmp) {
     Index index = t.getIndex(field);
-    if (index == null) {
-      return null;
-    } else {
-      return index.rows(val);
+    if (index != null || AUTO_INDEX_THRESHOLD <= 0 || t.getRowCount() < OPTIMIZATION_THRESHOLD
+        || !(cmp instanceof DefaultLiteralComparator) || t.getColumn(field) == null) {
+      return index;
+    }
+    int count;
+    synchronized (s_queryCounts) {
+      Map counts = (Map) s_queryCounts.get(t);
+      if (counts == null) {
+        counts = new HashMap();
+        s_queryCounts.put(t, counts);
+      }
+      int[] c = (int[]) counts.get(field);
+      if (c == null) {
+        c = new int[1];
+        counts.put(field, c);
+      }
+      count = ++c[0];
+      if (count >= AUTO_INDEX_THRESHOLD) {
+        counts.remove(field);
+      }
     }
+    return (count >= AUTO_INDEX_THRESHOLD ? t.index(field) : null);
   }
 
-  protected static IntIterator getOrIterator(Table t, OrPredicate op) {
-    int size = op.size();
-    if (size > 1) {
-      // if all subclauses can be optimized, we can optimize the query
-      IntIterator[] rows = new IntIterator[size];
-      for (int i = 0; i < rows.length; ++i) {
-        rows[i] = getOptimizedIterator(t, op.get(i));
-
-        // all clauses must be optimized to avoid linear scan
-        if (rows[i] == null) {
-          return null;
-        }
+  /**
+   * Estimate the number of rows satisfying a predicate looked up in the index
+   * of the given column, from the index statistics: the number of indexed rows
+   * and unique values, and for numeric columns the range of values, assuming
+   * values are spread uniformly.
+   */
+  private static double estimateRows(Table t, Predicate p, String field) {
+    Index index = t.getIndex(field);
+    double n = index.size();
+    if (n == 0) {
+      return 0;
+    }
+    double eq = n / Math.max(1, index.uniqueCount());
+    if (p instanceof ColumnExpression || p instanceof NotPredicate) {
+      return eq;
+    }
+
+    boolean numeric = TypeLib.isNumericType(t.getColumnType(field));
+    double min = numeric ? t.getDouble(index.minimum(), field) : 0;
+    double max = numeric ? t.getDouble(index.maximum(), field) : 0;
+
+    double frac;
+    if (p instanceof RangePredicate) {
+      RangePredicate rp = (RangePredicate) p;
+      if (!numeric) {
+        return n * DEFAULT_SELECTIVITY;
+      }
+      double lo = rp.getLeftExpression().getDouble(null);
+      double hi = rp.getRightExpression().getDouble(null);
+      frac = (Math.min(hi, max) - Math.max(lo, min)) / (max - min);
+      if (max == min) {
+        frac = (lo <= min && min <= hi ? 1 : 0);
       }
-      // group iterators, and filter for uniqueness
-      return new UniqueRowIterator(new CompositeIntIterator(rows));
-    } else if (size == 1) {
-      // only one clause, optimize for that
-      return getOptimizedIterator(t, op.get(0));
     } else {
-      // no woman, no cry
-      return null;
+      ComparisonPredicate cp = (ComparisonPredicate) p;
+      int op = cp.getOperation();
+      boolean left = (cp.getLeftExpression() instanceof ColumnExpression);
+      Expression lit = (left ? cp.getRightExpression() : cp.getLeftExpression());
+      if (!numeric) {
+        return (op == ComparisonPredicate.EQ ? eq : n * DEFAULT_SELECTIVITY);
+      }
+      double v = lit.getDouble(null);
+      if (op == ComparisonPredicate.EQ) {
+        return (v < min || v > max ? 0 : eq);
+      }
+      // fraction of the value range below the literal
+      double below = (max == min ? (v > min ? 1 : 0) : (v - min) / (max - min));
+      boolean less = (op == ComparisonPredicate.LT || op == ComparisonPredicate.LTEQ);
+      frac = (less == left ? below : 1 - below);
+    }
+    if (Double.isNaN(frac)) {
+      // e.g., NaN values in the index
+      frac = DEFAULT_SELECTIVITY;
     }
+    return n * Math.max(0, Math.min(1, frac));
   }
 
-  protected static IntIterator getAndIterator(Table t, AndPredicate ap) {
-    // possible TODO: add scoring to select best optimized iterator
-    // for now just work from the end backwards and take the first
-    // optimized iterator we find
-    IntIterator rows = null;
-    Predicate clause = null;
-    for (int i = ap.size(); --i >= 0;) {
-      clause = ap.get(i);
-      if ((rows = getOptimizedIterator(t, clause)) != null) {
-        break;
-      }
+  protected static IntIterator getColumnIterator(Table t, String field, boolean val) {
+    if (t.getColumnType(field) != boolean.class)
+     {
+      return null; // only works for boolean-valued columns
     }
 
-    // exit if we didn't optimize
-    if (rows == null) {
+    Index index = t.getIndex(field);
+    if (index == null) {
       return null;
+    } else {
+      return index.rows(val);
     }
-
-    // if only one clause, no extras needed
-    if (ap.size() == 1) {
-      return rows;
-    }
-
-    // otherwise get optimized source, run through other clauses
-    return new FilterRowIterator(rows, t, ap.getSubPredicate(clause));
   }
 
   protected static IntIterator getComparisonIterator(Table t, ComparisonPredicate cp) {
@@ -215,19 +423,39 @@ public class FilterIteratorFactory {
     } else if (r instanceof ColumnExpression && !ExpressionAnalyzer.hasDependency(l)) {
       col = (ColumnExpression) r;
       lit = l;
+      // mirror the operation, so that the column is on the left
+      switch (operation) {
+        case ComparisonPredicate.LT:
+          operation = ComparisonPredicate.GT;
+          break;
+        case ComparisonPredicate.GT:
+          operation = ComparisonPredicate.LT;
+          break;
+        case ComparisonPredicate.LTEQ:
+          operation = ComparisonPredicate.GTEQ;
+          break;
+        case ComparisonPredicate.GTEQ:
+          operation = ComparisonPredicate.LTEQ;
+          break;
+      }
     } else {
       return null;
     }
 
     // if table has index of the right type, use it
     Comparator cmp = cp.getComparator();
-    Index index = t.getIndex(col.getColumnName());
+    Index index = getIndex(t, col.getColumnName(), cmp);
 
     if (index == null || !cmp.equals(index.getComparator())) {
       return null;
     }
 
-    Class ltype = lit.getClass();
+    // the index is keyed on the column's data type, so the literal is
+    // converted to that type. fall back to a scan if this would truncate.
+    Class ltype = t.getColumnType(col.getColumnName());
+    if ((ltype == int.class || ltype == long.class) && !TypeLib.isIntegerType(lit.getType(t.getSchema()))) {
+      return null;
+    }
     if (ltype == int.class) {
       int val = lit.getInt(null); // literal value, so null is safe
       switch (operation) {
@@ -261,37 +489,45 @@ public class FilterIteratorFactory {
           throw new IllegalStateException(); // should never occur
       }
     } else if (ltype == float.class) {
+      // NaN sorts above positive infinity, so it is the inclusive upper bound
       float val = lit.getFloat(null); // literal value, so null is safe
       switch (operation) {
         case ComparisonPredicate.LT:
-          return index.rows(Float.MIN_VALUE, val, Index.TYPE_AIE);
+          return index.rows(Float.NEGATIVE_INFINITY, val, Index.TYPE_AIE);
         case ComparisonPredicate.GT:
-          return index.rows(val, Float.MAX_VALUE, Index.TYPE_AEI);
+          return index.rows(val, Float.NaN, Index.TYPE_AEI);
         case ComparisonPredicate.EQ:
           return index.rows(val, val, Index.TYPE_AII);
         case ComparisonPredicate.LTEQ:
-          return index.rows(Float.MIN_VALUE, val, Index.TYPE_AII);
+          return index.rows(Float.NEGATIVE_INFINITY, val, Index.TYPE_AII);
         case ComparisonPredicate.GTEQ:
-          return index.rows(val, Float.MAX_VALUE, Index.TYPE_AII);
+          return index.rows(val, Float.NaN, Index.TYPE_AII);
         default:
           throw new IllegalStateException(); // should never occur
       }
     } else if (ltype == double.class) {
+      // NaN sorts above positive infinity, so it is the inclusive upper bound
       double val = lit.getDouble(null); // literal value, so null is safe
       switch (operation) {
         case ComparisonPredicate.LT:
-          return index.rows(Double.MIN_VALUE, val, Index.TYPE_AIE);
+          return index.rows(Double.NEGATIVE_INFINITY, val, Index.TYPE_AIE);
         case ComparisonPredicate.GT:
-          return index.rows(val, Double.MAX_VALUE, Index.TYPE_AEI);
+          return index.rows(val, Double.NaN, Index.TYPE_AEI);
         case ComparisonPredicate.EQ:
           return index.rows(val, val, Index.TYPE_AII);
         case ComparisonPredicate.LTEQ:
-          return index.rows(Double.MIN_VALUE, val, Index.TYPE_AII);
+          return index.rows(Double.NEGATIVE_INFINITY, val, Index.TYPE_AII);
         case ComparisonPredicate.GTEQ:
-          return index.rows(val, Double.MAX_VALUE, Index.TYPE_AII);
+          return index.rows(val, Double.NaN, Index.TYPE_AII);
         default:
           throw new IllegalStateException(); // should never occur
       }
+    } else if (ltype == boolean.class) {
+      // boolean indices only support lookups of a single value
+      if (operation != ComparisonPredicate.EQ || lit.getType(t.getSchema()) != boolean.class) {
+        return null;
+      }
+      return index.rows(lit.getBoolean(null)); // literal value, so null is safe
     } else {
       Object val = lit.get(null); // literal value, so null is safe
       switch (operation) {
@@ -329,7 +565,7 @@ public class FilterIteratorFactory {
 
     // if table has index of the right type, use it
     Comparator cmp = rp.getComparator();
-    Index index = t.getIndex(col.getColumnName());
+    Index index = getIndex(t, col.getColumnName(), cmp);
 
     if (index == null || !cmp.equals(index.getComparator())) {
       return null;
@@ -338,7 +574,12 @@ public class FilterIteratorFactory {
     int operation = rp.getOperation();
     Class ltype = t.getColumnType(col.getColumnName());
 
-    // TODO safety check literal types
+    // the index is keyed on the column's data type, so the bounds are
+    // converted to that type. fall back to a scan if this would truncate.
+    if ((ltype == int.class || ltype == long.class) && (!TypeLib.isIntegerType(l.getType(t.getSchema()))
+        || !TypeLib.isIntegerType(r.getType(t.getSchema())))) {
+      return null;
+    }
 
     // get the index type
     int indexType;
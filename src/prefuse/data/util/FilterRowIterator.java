@@ -3,23 +3,37 @@ package prefuse.data.util;
 import java.util.NoSuchElementException;
 
 import prefuse.data.Table;
+import prefuse.data.expression.CompiledExpression;
+import prefuse.data.expression.ExpressionCompiler;
 import prefuse.data.expression.Predicate;
 import prefuse.util.collections.IntIterator;
 
 /**
  * Iterator over table rows that filters the output by a given predicate. For
  * each table row, the corresponding tuple is checked against the predicate.
- * Only rows whose tuples pass the filter are included in this iteration.
+ * Only rows whose tuples pass the filter are included in this iteration. The
+ * predicate is compiled for the table (see {@link ExpressionCompiler}), so that
+ * rows are checked without creating their tuples. When iterating over all rows
+ * of a table, the predicate is evaluated a block of rows at a time into a
+ * selection bitmap (see {@link CompiledExpression#select(int, long[])}).
  * 
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
 public class FilterRowIterator extends IntIterator {
 
-  private Predicate predicate;
+  private static final int BLOCK_WORDS = 16; // 1024 rows per block
+
+  private CompiledExpression predicate;
   private IntIterator rows;
-  private Table t;
   private int next;
 
+  // block evaluation state when scanning all table rows
+  private Table table;
+  private long[] block;
+  private int blockStart;
+  private int word;
+  private long bits;
+
   /**
    * Create a new FilterRowIterator.
    * 
@@ -31,24 +45,59 @@ public class FilterRowIterator extends IntIterator {
    *          the filter predicate to use
    */
   public FilterRowIterator(IntIterator rows, Table t, Predicate p) {
-    this.predicate = p;
+    this.predicate = ExpressionCompiler.compile(p, t);
     this.rows = rows;
-    this.t = t;
+    next = advance();
+  }
+
+  /**
+   * Create a new FilterRowIterator over all rows of a table.
+   * 
+   * @param t
+   *          the table whose rows are being iterated over
+   * @param p
+   *          the filter predicate to use
+   */
+  public FilterRowIterator(Table t, Predicate p) {
+    this.predicate = ExpressionCompiler.compile(p, t);
+    this.table = t;
+    block = new long[BLOCK_WORDS];
+    blockStart = (t.getMinimumRow() & ~63) - (BLOCK_WORDS << 6);
+    word = BLOCK_WORDS - 1;
     next = advance();
   }
 
   private int advance() {
+    if (table != null) {
+      return advanceBlock();
+    }
     while (rows.hasNext()) {
       int r = rows.nextInt();
-      if (predicate.getBoolean(t.getTuple(r))) {
+      if (predicate.getBoolean(r)) {
         return r;
       }
     }
-    rows = null;
-    next = -1;
     return -1;
   }
 
+  private int advanceBlock() {
+    while (bits == 0) {
+      if (++word == BLOCK_WORDS) {
+        blockStart += BLOCK_WORDS << 6;
+        if (blockStart > table.getMaximumRow()) {
+          return -1;
+        }
+        table.getValidRows(blockStart, block);
+        predicate.select(blockStart, block);
+        word = 0;
+      }
+      bits = block[word];
+    }
+    int r = blockStart + (word << 6) + Long.numberOfTrailingZeros(bits);
+    bits &= bits - 1;
+    return r;
+  }
+
   /**
    * @see prefuse.util.collections.LiteralIterator#nextInt()
    */
@@ -67,7 +116,7 @@ public class FilterRowIterator extends IntIterator {
    */
   @Override
   public boolean hasNext() {
-    return (rows != null);
+    return (next != -1);
   }
 
   /**
@@ -0,0 +1,381 @@
+package prefuse.data.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import prefuse.data.Table;
+import prefuse.data.expression.ExpressionCompiler;
+import prefuse.data.expression.Predicate;
+import prefuse.util.collections.IntIterator;
+
+/**
+ * A plan for retrieving the rows of a table that satisfy a predicate, as
+ * created by {@link FilterIteratorFactory#plan(Table, Predicate)}. Plans are
+ * trees combining index lookups, intersections and unions of index results
+ * computed as row bitmaps, and scans evaluating a predicate over table rows.
+ * Each plan carries an estimate of the number of rows it retrieves and of its
+ * cost, the planner choosing the cheapest plan. The chosen plan can be
+ * inspected using {@link #explain()}.
+ */
+public abstract class QueryPlan {
+
+  // relative costs, in units of evaluating a compiled predicate on a row
+  // during a scan
+  static final double SCAN_COST = 1.0;
+  static final double INDEX_COST = 8.0;
+  static final double FILTER_COST = 2.0;
+  static final double BITMAP_COST = 1.0 / 64;
+
+  protected final Table m_table;
+  protected final double m_rows;
+  protected final double m_cost;
+
+  /**
+   * Create a new QueryPlan.
+   *
+   * @param t
+   *          the table the plan retrieves rows from
+   * @param rows
+   *          the estimated number of retrieved rows
+   * @param cost
+   *          the estimated cost of the plan
+   */
+  protected QueryPlan(Table t, double rows, double cost) {
+    m_table = t;
+    m_rows = rows;
+    m_cost = cost;
+  }
+
+  /**
+   * Get the table the plan retrieves rows from.
+   *
+   * @return the Table
+   */
+  public Table getTable() {
+    return m_table;
+  }
+
+  /**
+   * Get the estimated number of rows retrieved by this plan.
+   *
+   * @return the estimated row count
+   */
+  public double getEstimatedRows() {
+    return m_rows;
+  }
+
+  /**
+   * Get the estimated cost of this plan, relative to scanning the table.
+   * Scanning a table of <i>n</i> rows has a cost of <i>n</i>.
+   *
+   * @return the estimated cost
+   */
+  public double getCost() {
+    return m_cost;
+  }
+
+  /**
+   * Execute the plan, returning an iterator over the selected rows. Plans
+   * using a single index return rows in index order, other plans in ascending
+   * row order.
+   *
+   * @return an iterator over the selected rows
+   */
+  public abstract IntIterator rows();
+
+  /**
+   * Execute the plan, marking the selected rows in a bitmap. Bit <i>i</i> of
+   * word <i>i / 64</i> stands for row <i>i</i>.
+   *
+   * @param selection
+   *          a cleared bitmap covering all rows of the table, i.e., of at least
+   *          <code>(getTable().getMaximumRow() + 64) / 64</code> words
+   */
+  public void select(long[] selection) {
+    mark(rows(), selection);
+  }
+
+  /**
+   * Mark the rows of an iterator in a bitmap.
+   */
+  static void mark(IntIterator rows, long[] selection) {
+    while (rows.hasNext()) {
+      int row = rows.nextInt();
+      selection[row >>> 6] |= 1L << row;
+    }
+  }
+
+  /**
+   * Get the estimated cost of {@link #select(long[])}, when cheaper than
+   * retrieving the rows one by one.
+   */
+  double getSelectCost() {
+    return m_cost;
+  }
+
+  /**
+   * Create a bitmap large enough to cover all rows of the table.
+   */
+  long[] bitmap() {
+    return new long[(m_table.getMaximumRow() + 64) >>> 6];
+  }
+
+  /**
+   * Describe this plan, one line per plan step, with nested steps indented.
+   *
+   * @return a description of the plan
+   */
+  public String explain() {
+    StringBuffer sbuf = new StringBuffer();
+    explain(sbuf, 0);
+    return sbuf.toString();
+  }
+
+  void explain(StringBuffer sbuf, int depth) {
+    for (int i = 0; i < depth; ++i) {
+      sbuf.append("  ");
+    }
+    sbuf.append(describe());
+    sbuf.append(" (rows=").append(Math.round(m_rows));
+    sbuf.append(", cost=").append(Math.round(m_cost)).append(")\n");
+  }
+
+  /**
+   * Get a one line description of this plan step.
+   */
+  abstract String describe();
+
+  /**
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    return explain();
+  }
+
+  // ------------------------------------------------------------------------
+  // Plan Steps
+
+  /**
+   * Evaluates a predicate over all table rows.
+   */
+  static class Scan extends QueryPlan {
+    private final Predicate m_predicate;
+
+    Scan(Table t, Predicate p, double rows) {
+      super(t, rows, SCAN_COST * t.getRowCount());
+      m_predicate = p;
+    }
+
+    @Override
+    public IntIterator rows() {
+      return new FilterRowIterator(m_table, m_predicate);
+    }
+
+    @Override
+    public void select(long[] selection) {
+      m_table.getValidRows(0, selection);
+      ExpressionCompiler.compile(m_predicate, m_table).select(0, selection);
+    }
+
+    @Override
+    String describe() {
+      return "scan " + m_predicate;
+    }
+  } // end of class Scan
+
+  /**
+   * Looks up the rows satisfying a predicate in an index. The rows of bitmap
+   * indexes are selected a bitmap word at a time.
+   */
+  static class IndexLookup extends QueryPlan {
+    private final Predicate m_predicate;
+    private final String m_field;
+    private final double m_selectCost;
+    private IntIterator m_rowIter;
+
+    IndexLookup(Table t, Predicate p, String field, IntIterator rows, double nrows) {
+      super(t, nrows, cost(t, rows, nrows));
+      m_predicate = p;
+      m_field = field;
+      m_rowIter = rows;
+      if (rows instanceof BitmapIndex.RowIterator) {
+        m_selectCost = 64 * BITMAP_COST * ((BitmapIndex.RowIterator) rows).getWordCount();
+      } else {
+        m_selectCost = m_cost;
+      }
+    }
+
+    private static double cost(Table t, IntIterator rows, double nrows) {
+      if (rows instanceof BitmapIndex.RowIterator) {
+        // visiting the bitmap words, then the rows as in a scan
+        int words = ((BitmapIndex.RowIterator) rows).getWordCount();
+        return 64 * BITMAP_COST * words + SCAN_COST * nrows;
+      }
+      return Math.log(t.getRowCount() + 1) + INDEX_COST * nrows;
+    }
+
+    @Override
+    double getSelectCost() {
+      return m_selectCost;
+    }
+
+    @Override
+    public IntIterator rows() {
+      // use the iterator created while planning only once
+      IntIterator rows = m_rowIter;
+      m_rowIter = null;
+      return (rows != null ? rows : FilterIteratorFactory.getIndexIterator(m_table, m_predicate));
+    }
+
+    @Override
+    public void select(long[] selection) {
+      IntIterator rows = rows();
+      if (rows instanceof BitmapIndex.RowIterator) {
+        ((BitmapIndex.RowIterator) rows).select(selection);
+      } else {
+        mark(rows, selection);
+      }
+    }
+
+    @Override
+    String describe() {
+      return "index lookup [" + m_field + "] " + m_predicate;
+    }
+  } // end of class IndexLookup
+
+  /**
+   * Evaluates a residual predicate on the rows retrieved by another plan.
+   */
+  static class Filter extends QueryPlan {
+    private final QueryPlan m_source;
+    private final Predicate m_predicate;
+
+    Filter(QueryPlan source, Predicate p, double rows) {
+      super(source.getTable(), rows, source.getCost() + FILTER_COST * source.getEstimatedRows());
+      m_source = source;
+      m_predicate = p;
+    }
+
+    @Override
+    public IntIterator rows() {
+      return new FilterRowIterator(m_source.rows(), m_table, m_predicate);
+    }
+
+    @Override
+    public void select(long[] selection) {
+      m_source.select(selection);
+      ExpressionCompiler.compile(m_predicate, m_table).select(0, selection);
+    }
+
+    @Override
+    String describe() {
+      return "filter " + m_predicate;
+    }
+
+    @Override
+    void explain(StringBuffer sbuf, int depth) {
+      super.explain(sbuf, depth);
+      m_source.explain(sbuf, depth + 1);
+    }
+  } // end of class Filter
+
+  /**
+   * Intersects or unites the row bitmaps of other plans.
+   */
+  static class Combine extends QueryPlan {
+    private final QueryPlan[] m_plans;
+    private final boolean m_union;
+
+    Combine(QueryPlan[] plans, boolean union, double rows) {
+      super(plans[0].getTable(), rows, cost(plans));
+      m_plans = plans;
+      m_union = union;
+    }
+
+    private static double cost(QueryPlan[] plans) {
+      double cost = BITMAP_COST * plans.length * plans[0].getTable().getRowCount();
+      for (int i = 0; i < plans.length; ++i) {
+        cost += plans[i].getSelectCost();
+      }
+      return cost;
+    }
+
+    @Override
+    public IntIterator rows() {
+      long[] selection = bitmap();
+      select(selection);
+      return new BitmapIterator(selection);
+    }
+
+    @Override
+    public void select(long[] selection) {
+      m_plans[0].select(selection);
+      long[] bits = new long[selection.length];
+      for (int i = 1; i < m_plans.length; ++i) {
+        if (i > 1) {
+          Arrays.fill(bits, 0);
+        }
+        m_plans[i].select(bits);
+        for (int w = 0; w < selection.length; ++w) {
+          selection[w] = (m_union ? selection[w] | bits[w] : selection[w] & bits[w]);
+        }
+      }
+    }
+
+    @Override
+    String describe() {
+      return (m_union ? "bitmap union" : "bitmap intersection");
+    }
+
+    @Override
+    void explain(StringBuffer sbuf, int depth) {
+      super.explain(sbuf, depth);
+      for (int i = 0; i < m_plans.length; ++i) {
+        m_plans[i].explain(sbuf, depth + 1);
+      }
+    }
+  } // end of class Combine
+
+  /**
+   * Iterates over the set bits of a row bitmap.
+   */
+  static class BitmapIterator extends IntIterator {
+    private final long[] m_bits;
+    private int m_word = -1;
+    private long m_cur = 0;
+
+    BitmapIterator(long[] bits) {
+      m_bits = bits;
+      advance();
+    }
+
+    private void advance() {
+      while (m_cur == 0 && ++m_word < m_bits.length) {
+        m_cur = m_bits[m_word];
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return m_cur != 0;
+    }
+
+    @Override
+    public int nextInt() {
+      if (m_cur == 0) {
+        throw new NoSuchElementException();
+      }
+      int row = (m_word << 6) + Long.numberOfTrailingZeros(m_cur);
+      m_cur &= m_cur - 1;
+      advance();
+      return row;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  } // end of class BitmapIterator
+
+} // end of class QueryPlan
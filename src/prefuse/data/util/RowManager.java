@@ -1,8 +1,6 @@
 package prefuse.data.util;
 
 import prefuse.data.Table;
-import prefuse.util.collections.IntIntSortedMap;
-import prefuse.util.collections.IntIntTreeMap;
 import prefuse.util.collections.IntIterator;
 
 
@@ -11,15 +9,30 @@ import prefuse.util.collections.IntIterator;
  * available and occupied rows. RowManager instances are used internally by
  * Table instances.
  * 
+ * <p>
+ * Free rows between the minimum and maximum row are kept in a bitset, so that
+ * validity checks and row iteration never need more than a few word operations.
+ * By default, {@link #addRow()} reuses the lowest free row. Tables with heavy
+ * row churn can instead reuse the most recently released row from a free-list,
+ * see {@link #setReuseLowestRow(boolean)}.
+ * </p>
+ * 
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
 public class RowManager {
 
   protected Table m_table;
-  private IntIntSortedMap m_openrows;
+  private long[] m_free; // bitset of free rows
+  private long[] m_freewords; // bitset of non-empty words of m_free
+  private int m_nfree = 0;
   private int m_firstid = 0;
   private int m_curid = -1;
 
+  private boolean m_lowest = true;
+  private int m_minfree = -1;
+  private int[] m_freelist;
+  private int m_freesize = 0;
+
   // ------------------------------------------------------------------------
   // Constructor
 
@@ -42,6 +55,51 @@ public class RowManager {
     return m_table;
   }
 
+  /**
+   * Indicates if added rows reuse the lowest free row, or the most recently
+   * released row.
+   * 
+   * @return true if the lowest free row is reused (the default), false if the
+   *         most recently released row is reused
+   */
+  public boolean isReuseLowestRow() {
+    return m_lowest;
+  }
+
+  /**
+   * Sets which free row is reused by {@link #addRow()}. Reusing the lowest free
+   * row keeps the occupied rows compact, but has to search the free rows for
+   * the next lowest one after each reuse. Reusing the most recently released
+   * row takes constant time from a free-list, which is preferable for tables
+   * that constantly remove and add rows.
+   * 
+   * @param b
+   *          true to reuse the lowest free row (the default), false to reuse the
+   *          most recently released row
+   */
+  public void setReuseLowestRow(boolean b) {
+    if (b == m_lowest) {
+      return;
+    }
+    m_lowest = b;
+    m_freelist = null;
+    m_freesize = 0;
+    m_minfree = -1;
+    if (m_nfree == 0) {
+      return;
+    } else if (b) {
+      m_minfree = nextFreeRow(0);
+    } else {
+      // collect the free rows in descending order, so the lowest is reused first
+      m_freelist = new int[Math.max(16, m_nfree)];
+      for (int r = m_curid; r >= m_firstid; --r) {
+        if (isFree(r)) {
+          m_freelist[m_freesize++] = r;
+        }
+      }
+    }
+  }
+
   // ------------------------------------------------------------------------
   // Row Information Methods
 
@@ -69,7 +127,7 @@ public class RowManager {
    * @return the number of rows being used by the table
    */
   public int getRowCount() {
-    return 1 + m_curid - m_firstid - (m_openrows == null ? 0 : m_openrows.size());
+    return 1 + m_curid - m_firstid - m_nfree;
   }
 
   /**
@@ -81,7 +139,42 @@ public class RowManager {
    *         illegal value or is currently free
    */
   public boolean isValidRow(int row) {
-    return (row >= m_firstid && row <= m_curid && (m_openrows == null || !m_openrows.containsKey(row)));
+    return (row >= m_firstid && row <= m_curid && (m_nfree == 0 || !isFree(row)));
+  }
+
+  /**
+   * Get the valid rows within a block of rows as a bitmap. Bit <i>i</i> of
+   * word <i>i / 64</i> of the bitmap is set if row <code>start + i</code> is a
+   * valid, occupied row.
+   * 
+   * @param start
+   *          the first row of the block, must be a multiple of 64
+   * @param rows
+   *          the bitmap to fill, its length in words determines the size of the
+   *          block
+   */
+  public void getValidRows(int start, long[] rows) {
+    if (start < 0 || (start & 63) != 0) {
+      throw new IllegalArgumentException("Block start must be a non-negative multiple of 64.");
+    }
+    for (int i = 0, w = start >>> 6; i < rows.length; ++i, ++w) {
+      int first = w << 6;
+      if (first > m_curid || first + 63 < m_firstid) {
+        rows[i] = 0;
+        continue;
+      }
+      long word = -1L;
+      if (first < m_firstid) {
+        word &= -1L << (m_firstid - first);
+      }
+      if (m_curid - first < 63) {
+        word &= -1L >>> (63 - (m_curid - first));
+      }
+      if (m_nfree > 0 && w < m_free.length) {
+        word &= ~m_free[w];
+      }
+      rows[i] = word;
+    }
   }
 
   // ------------------------------------------------------------------------
@@ -91,23 +184,33 @@ public class RowManager {
    * Clear the row manager status, marking all rows as available.
    */
   public void clear() {
-    m_openrows = null;
+    m_free = null;
+    m_freewords = null;
+    m_nfree = 0;
+    m_minfree = -1;
+    m_freelist = null;
+    m_freesize = 0;
     m_firstid = 0;
     m_curid = -1;
   }
 
   /**
-   * Add a new row to management. The lowest valued available row will be used.
+   * Add a new row to management. A free row will be reused if available, by
+   * default the lowest valued one (see {@link #setReuseLowestRow(boolean)}).
    * 
    * @return the row index of the newly added row
    */
   public int addRow() {
     int r;
-    if (m_openrows == null || m_openrows.isEmpty()) {
+    if (m_nfree == 0) {
       r = (m_firstid == 0 ? ++m_curid : --m_firstid);
+    } else if (m_lowest) {
+      r = m_minfree;
+      clearFree(r);
+      m_minfree = (m_nfree == 0 ? -1 : nextFreeRow(r + 1));
     } else {
-      int key = m_openrows.firstKey();
-      r = m_openrows.remove(key);
+      r = m_freelist[--m_freesize];
+      clearFree(r);
     }
     return r;
   }
@@ -121,23 +224,131 @@ public class RowManager {
    *         free or if the input is not a valid row index
    */
   public boolean releaseRow(int row) {
-    if (row < 0) {
-      return false;
-    } else if (m_openrows != null && m_openrows.containsKey(row)) {
+    if (!isValidRow(row)) {
       return false;
     } else if (row == m_curid) {
       --m_curid;
     } else if (row == m_firstid) {
       ++m_firstid;
     } else {
-      if (m_openrows == null) {
-        m_openrows = new IntIntTreeMap(false);
+      setFree(row);
+      if (m_lowest) {
+        if (m_minfree < 0 || row < m_minfree) {
+          m_minfree = row;
+        }
+      } else {
+        if (m_freelist == null) {
+          m_freelist = new int[16];
+        } else if (m_freesize == m_freelist.length) {
+          int[] a = new int[2 * m_freesize];
+          System.arraycopy(m_freelist, 0, a, 0, m_freesize);
+          m_freelist = a;
+        }
+        m_freelist[m_freesize++] = row;
       }
-      m_openrows.put(row, row);
     }
     return true;
   }
 
+  // ------------------------------------------------------------------------
+  // Free Row Bitset
+
+  private boolean isFree(int row) {
+    int w = row >>> 6;
+    return w < m_free.length && (m_free[w] & (1L << row)) != 0;
+  }
+
+  private void setFree(int row) {
+    int w = row >>> 6;
+    if (m_free == null) {
+      m_free = new long[Math.max(w + 1, (m_curid >>> 6) + 1)];
+      m_freewords = new long[(m_free.length >>> 6) + 1];
+    } else if (w >= m_free.length) {
+      long[] a = new long[Math.max(w + 1, 2 * m_free.length)];
+      System.arraycopy(m_free, 0, a, 0, m_free.length);
+      m_free = a;
+      a = new long[(m_free.length >>> 6) + 1];
+      System.arraycopy(m_freewords, 0, a, 0, m_freewords.length);
+      m_freewords = a;
+    }
+    m_free[w] |= 1L << row;
+    m_freewords[w >>> 6] |= 1L << w;
+    ++m_nfree;
+  }
+
+  private void clearFree(int row) {
+    int w = row >>> 6;
+    if ((m_free[w] &= ~(1L << row)) == 0) {
+      m_freewords[w >>> 6] &= ~(1L << w);
+    }
+    --m_nfree;
+  }
+
+  /**
+   * Find the lowest free row at or above the given row, or -1 if there is
+   * none. The summary of non-empty words skips occupied rows 4096 at a time.
+   */
+  private int nextFreeRow(int from) {
+    int w = from >>> 6;
+    if (w >= m_free.length) {
+      return -1;
+    }
+    long word = m_free[w] & (-1L << from);
+    if (word != 0) {
+      return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+    // find the next non-empty word
+    int s = (w + 1) >>> 6;
+    if (s >= m_freewords.length) {
+      return -1;
+    }
+    long sum = m_freewords[s] & (-1L << (w + 1));
+    while (sum == 0) {
+      if (++s == m_freewords.length) {
+        return -1;
+      }
+      sum = m_freewords[s];
+    }
+    w = (s << 6) + Long.numberOfTrailingZeros(sum);
+    return (w << 6) + Long.numberOfTrailingZeros(m_free[w]);
+  }
+
+  /**
+   * Find the first occupied row at or above the given row.
+   */
+  private int nextUsedRow(int row) {
+    int w = row >>> 6;
+    if (w >= m_free.length) {
+      return row;
+    }
+    long word = ~m_free[w] & (-1L << row);
+    while (word == 0) {
+      if (++w == m_free.length) {
+        return w << 6;
+      }
+      word = ~m_free[w];
+    }
+    return (w << 6) + Long.numberOfTrailingZeros(word);
+  }
+
+  /**
+   * Find the last occupied row at or below the given non-negative row.
+   */
+  private int previousUsedRow(int row) {
+    int w = row >>> 6;
+    if (w >= m_free.length) {
+      return row;
+    }
+    long word = ~m_free[w] & (-1L >>> -(row + 1));
+    while (word == 0) {
+      if (--w < 0) {
+        return -1;
+      }
+      word = ~m_free[w];
+    }
+    return (w << 6) + 63 - Long.numberOfLeadingZeros(word);
+  }
+
   // ------------------------------------------------------------------------
   // Column Mapping
 
@@ -254,7 +465,7 @@ public class RowManager {
 
     @Override
     public boolean hasNext() {
-      return (reverse ? next >= 0 : next <= m_curid);
+      return (reverse ? next >= m_firstid : next <= m_curid);
     }
 
     @Override
@@ -271,18 +482,13 @@ public class RowManager {
     }
 
     private final int advance(int idx) {
-      if (m_openrows == null) {
+      if (m_nfree == 0 || idx < 0) {
         return idx;
       } else if (reverse) {
-        for (; idx >= 0 && m_openrows.containsKey(idx); --idx) {
-          ;
-        }
+        return previousUsedRow(idx);
       } else {
-        for (; idx <= m_curid && m_openrows.containsKey(idx); ++idx) {
-          ;
-        }
+        return nextUsedRow(idx);
       }
-      return idx;
     }
   } // end of inner class RowIterator
 
@@ -7,15 +7,21 @@ import prefuse.data.column.Column;
 import prefuse.data.event.ColumnListener;
 import prefuse.data.event.EventConstants;
 import prefuse.data.event.TableListener;
+import prefuse.util.collections.AbstractTreeMap;
 import prefuse.util.collections.BooleanIntSortedMap;
 import prefuse.util.collections.DoubleIntSortedMap;
+import prefuse.util.collections.DoubleIntTreeMap;
 import prefuse.util.collections.FloatIntSortedMap;
+import prefuse.util.collections.FloatIntTreeMap;
 import prefuse.util.collections.IncompatibleComparatorException;
 import prefuse.util.collections.IntIntSortedMap;
+import prefuse.util.collections.IntIntTreeMap;
 import prefuse.util.collections.IntIterator;
 import prefuse.util.collections.IntSortedMap;
 import prefuse.util.collections.LongIntSortedMap;
+import prefuse.util.collections.LongIntTreeMap;
 import prefuse.util.collections.ObjectIntSortedMap;
+import prefuse.util.collections.ObjectIntTreeMap;
 import prefuse.util.collections.SortedMapFactory;
 
 /**
@@ -81,6 +87,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public int size() {
+    validate();
     return m_index.size();
   }
 
@@ -106,7 +113,9 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
     m_colidx = idx;
     IntIterator rows = m_rows.rows();
 
-    if (m_index instanceof IntIntSortedMap) {
+    if (m_index instanceof AbstractTreeMap) {
+      build(rows, idx);
+    } else if (m_index instanceof IntIntSortedMap) {
       IntIntSortedMap map = (IntIntSortedMap) m_index;
       while (rows.hasNext()) {
         int r = rows.nextInt();
@@ -149,6 +158,64 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
     m_reindex = false;
   }
 
+  /**
+   * Build a tree index in bulk, reading all values first and then sorting them
+   * in parallel and building the tree in one pass, rather than inserting the
+   * rows one at a time.
+   */
+  private void build(IntIterator rows, int idx) {
+    int n = m_rows.getRowCount();
+    int[] r = new int[n];
+    for (int i = 0; i < n; ++i) {
+      r[i] = rows.nextInt();
+    }
+
+    if (m_index instanceof IntIntTreeMap) {
+      int[] keys = new int[n];
+      for (int i = 0; i < n; ++i) {
+        keys[i] = m_col.getInt(m_table.getColumnRow(r[i], idx));
+      }
+      ((IntIntTreeMap) m_index).build(keys, r, n);
+    } else if (m_index instanceof LongIntTreeMap) {
+      long[] keys = new long[n];
+      for (int i = 0; i < n; ++i) {
+        keys[i] = m_col.getLong(m_table.getColumnRow(r[i], idx));
+      }
+      ((LongIntTreeMap) m_index).build(keys, r, n);
+    } else if (m_index instanceof FloatIntTreeMap) {
+      float[] keys = new float[n];
+      for (int i = 0; i < n; ++i) {
+        keys[i] = m_col.getFloat(m_table.getColumnRow(r[i], idx));
+      }
+      ((FloatIntTreeMap) m_index).build(keys, r, n);
+    } else if (m_index instanceof DoubleIntTreeMap) {
+      double[] keys = new double[n];
+      for (int i = 0; i < n; ++i) {
+        keys[i] = m_col.getDouble(m_table.getColumnRow(r[i], idx));
+      }
+      ((DoubleIntTreeMap) m_index).build(keys, r, n);
+    } else if (m_index instanceof ObjectIntTreeMap) {
+      Object[] keys = new Object[n];
+      for (int i = 0; i < n; ++i) {
+        keys[i] = m_col.get(m_table.getColumnRow(r[i], idx));
+      }
+      ((ObjectIntTreeMap) m_index).build(keys, r, n);
+    } else {
+      throw new IllegalStateException();
+    }
+  }
+
+  /**
+   * Rebuild the index if it has been marked as out of date, either by a range
+   * update of the indexed column, or by changes made during a batch of table
+   * updates (see {@link Table#beginBatch()}), which are not tracked one by one.
+   */
+  protected void validate() {
+    if (m_reindex) {
+      index();
+    }
+  }
+
   // ------------------------------------------------------------------------
   // Listener Methods
 
@@ -161,6 +228,9 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
     if (type == EventConstants.UPDATE || t != m_table || col != EventConstants.ALL_COLUMNS) {
       return;
     }
+    if (m_reindex) {
+      return; // rows are picked up when the index is rebuilt
+    }
 
     boolean insert = (type == EventConstants.INSERT);
     for (int r = start; r <= end; ++r) {
@@ -174,7 +244,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
 
     if (m_index instanceof IntIntSortedMap) {
       IntIntSortedMap map = (IntIntSortedMap) m_index;
-      int key = m_col.getInt(row);
+      int key = m_col.getInt(crow);
       if (insert) {
         map.put(key, row);
       } else {
@@ -240,6 +310,10 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public void columnChanged(Column src, int idx, boolean prev) {
+    if (m_reindex || m_table.isBatching()) {
+      m_reindex = true;
+      return; // rebuild on next access
+    }
     int row = m_rows.getTableRow(idx, getColumnIndex());
     if (row < 0)
      {
@@ -255,6 +329,10 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public void columnChanged(Column src, int idx, int prev) {
+    if (m_reindex || m_table.isBatching()) {
+      m_reindex = true;
+      return; // rebuild on next access
+    }
     int row = m_rows.getTableRow(idx, getColumnIndex());
     if (row < 0)
      {
@@ -270,6 +348,10 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public void columnChanged(Column src, int idx, long prev) {
+    if (m_reindex || m_table.isBatching()) {
+      m_reindex = true;
+      return; // rebuild on next access
+    }
     int row = m_rows.getTableRow(idx, getColumnIndex());
     if (row < 0)
      {
@@ -285,6 +367,10 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public void columnChanged(Column src, int idx, float prev) {
+    if (m_reindex || m_table.isBatching()) {
+      m_reindex = true;
+      return; // rebuild on next access
+    }
     int row = m_rows.getTableRow(idx, getColumnIndex());
     if (row < 0)
      {
@@ -300,6 +386,10 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public void columnChanged(Column src, int idx, double prev) {
+    if (m_reindex || m_table.isBatching()) {
+      m_reindex = true;
+      return; // rebuild on next access
+    }
     int row = m_rows.getTableRow(idx, getColumnIndex());
     if (row < 0)
      {
@@ -315,6 +405,10 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public void columnChanged(Column src, int idx, Object prev) {
+    if (m_reindex || m_table.isBatching()) {
+      m_reindex = true;
+      return; // rebuild on next access
+    }
     int row = m_rows.getTableRow(idx, getColumnIndex());
     if (row < 0)
      {
@@ -332,6 +426,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public int minimum() {
+    validate();
     return m_index.getMinimum();
   }
 
@@ -340,6 +435,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public int maximum() {
+    validate();
     return m_index.getMaximum();
   }
 
@@ -348,6 +444,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public int median() {
+    validate();
     return m_index.getMedian();
   }
 
@@ -356,6 +453,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public int uniqueCount() {
+    validate();
     return m_index.getUniqueCount();
   }
 
@@ -366,6 +464,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public IntIterator allRows(int type) {
+    validate();
     boolean ascending = (type & Index.TYPE_ASCENDING) > 0;
     return m_index.valueIterator(ascending);
   }
@@ -375,6 +474,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public IntIterator rows(Object lo, Object hi, int type) {
+    validate();
     if (!(m_index instanceof ObjectIntSortedMap)) {
       throw new IllegalStateException();
     }
@@ -403,6 +503,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public IntIterator rows(int lo, int hi, int type) {
+    validate();
     if (!(m_index instanceof IntIntSortedMap)) {
       throw new IllegalStateException();
     }
@@ -424,6 +525,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public IntIterator rows(long lo, long hi, int type) {
+    validate();
     if (!(m_index instanceof LongIntSortedMap)) {
       throw new IllegalStateException();
     }
@@ -445,6 +547,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public IntIterator rows(float lo, float hi, int type) {
+    validate();
     if (!(m_index instanceof FloatIntSortedMap)) {
       throw new IllegalStateException();
     }
@@ -466,6 +569,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public IntIterator rows(double lo, double hi, int type) {
+    validate();
     if (!(m_index instanceof DoubleIntSortedMap)) {
       throw new IllegalStateException();
     }
@@ -489,6 +593,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public IntIterator rows(int val) {
+    validate();
     return rows(val, val, Index.TYPE_AII);
   }
 
@@ -497,6 +602,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public IntIterator rows(long val) {
+    validate();
     return rows(val, val, Index.TYPE_AII);
   }
 
@@ -505,6 +611,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public IntIterator rows(float val) {
+    validate();
     return rows(val, val, Index.TYPE_AII);
   }
 
@@ -513,6 +620,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public IntIterator rows(double val) {
+    validate();
     return rows(val, val, Index.TYPE_AII);
   }
 
@@ -521,6 +629,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public IntIterator rows(boolean val) {
+    validate();
     if (!(m_index instanceof BooleanIntSortedMap)) {
       throw new IllegalStateException();
     }
@@ -534,6 +643,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public IntIterator rows(Object val) {
+    validate();
     return rows(val, val, Index.TYPE_AII);
   }
 
@@ -544,6 +654,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public int get(double x) {
+    validate();
     DoubleIntSortedMap index = (DoubleIntSortedMap) m_index;
     return index.get(x);
   }
@@ -553,6 +664,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public int get(float x) {
+    validate();
     FloatIntSortedMap index = (FloatIntSortedMap) m_index;
     return index.get(x);
   }
@@ -562,6 +674,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public int get(int x) {
+    validate();
     IntIntSortedMap index = (IntIntSortedMap) m_index;
     return index.get(x);
   }
@@ -571,6 +684,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public int get(long x) {
+    validate();
     LongIntSortedMap index = (LongIntSortedMap) m_index;
     return index.get(x);
   }
@@ -580,6 +694,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
    */
   @Override
   public int get(Object x) {
+    validate();
     ObjectIntSortedMap index = (ObjectIntSortedMap) m_index;
     return index.get(x);
   }
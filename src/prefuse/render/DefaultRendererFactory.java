@@ -1,5 +1,7 @@
 package prefuse.render;
 
+import java.awt.geom.Rectangle2D;
+
 import prefuse.data.expression.Predicate;
 import prefuse.data.expression.parser.ExpressionParser;
 import prefuse.util.PredicateChain;
@@ -40,14 +42,31 @@ import prefuse.visual.VisualItem;
  * rf.add("INGROUP('data')", new LabelRenderer("label"));
  * </pre>
  * 
+ * <p>
+ * Level-of-detail rules can be added to draw items that appear small on screen
+ * with cheaper renderers. The rules below draw data items as dots once they
+ * span fewer than 8 pixels, and draw edges as straight lines once they span
+ * fewer than 50 pixels. Item bounds are still computed by the renderers chosen
+ * above.
+ * </p>
+ * 
+ * <pre>
+ * rf.addLevelOfDetail("INGROUP('data')", 8, new DotRenderer());
+ * rf.addLevelOfDetail("ISEDGE()", 50, new EdgeRenderer(Constants.EDGE_TYPE_LINE));
+ * </pre>
+ * 
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
-public class DefaultRendererFactory implements RendererFactory {
+public class DefaultRendererFactory implements LevelOfDetailRendererFactory {
 
   private PredicateChain m_chain = new PredicateChain();
   private Renderer m_itemRenderer;
   private Renderer m_edgeRenderer;
 
+  // level-of-detail rules
+  private DetailRule[] m_lodRules = new DetailRule[0];
+  private double m_lodMaxSize = 0;
+
   /**
    * Default Constructor. A ShapeRenderer instance will be used for the default
    * item renderer and an EdgeRenderer instance will be used for the default edge
@@ -176,6 +195,82 @@ public class DefaultRendererFactory implements RendererFactory {
     add(p, r);
   }
 
+  /**
+   * Adds a new level-of-detail rule to this RendererFactory. When an item
+   * matching the predicate spans fewer than the given number of pixels on
+   * screen, the given Renderer is used to draw it instead of the Renderer
+   * returned by {@link #getRenderer(VisualItem)}. The on-screen size of an item
+   * is the larger of its bounds' width and height, multiplied by the display
+   * scale. Rules are evaluated in the order in which they are added.
+   * 
+   * @param p
+   *          a Predicate for testing a VisualItem
+   * @param minSize
+   *          the on-screen size, in pixels, below which the rule applies
+   * @param r
+   *          the Renderer to draw matching items with
+   */
+  public void addLevelOfDetail(Predicate p, double minSize, Renderer r) {
+    int n = m_lodRules.length;
+    DetailRule[] rules = new DetailRule[n + 1];
+    System.arraycopy(m_lodRules, 0, rules, 0, n);
+    rules[n] = new DetailRule(p, minSize, r);
+    m_lodRules = rules;
+    m_lodMaxSize = Math.max(m_lodMaxSize, minSize);
+  }
+
+  /**
+   * Adds a new level-of-detail rule to this RendererFactory.
+   * 
+   * @param predicate
+   *          a String in the prefuse expression language. This String will be
+   *          parsed to create a corresponding Predicate instance.
+   * @param minSize
+   *          the on-screen size, in pixels, below which the rule applies
+   * @param r
+   *          the Renderer to draw matching items with
+   * @see #addLevelOfDetail(Predicate, double, Renderer)
+   */
+  public void addLevelOfDetail(String predicate, double minSize, Renderer r) {
+    Predicate p = (Predicate) ExpressionParser.parse(predicate);
+    addLevelOfDetail(p, minSize, r);
+  }
+
+  /**
+   * Removes all level-of-detail rules from this RendererFactory.
+   */
+  public void clearLevelOfDetail() {
+    m_lodRules = new DetailRule[0];
+    m_lodMaxSize = 0;
+  }
+
+  /**
+   * Return a substitute Renderer instance to draw the input VisualItem at the
+   * given scale. If the item's on-screen size falls below the size of a
+   * matching level-of-detail rule, the rule's Renderer is returned. Otherwise,
+   * null is returned, and the item is drawn as usual.
+   * 
+   * @see prefuse.render.LevelOfDetailRendererFactory#getRenderer(prefuse.visual.VisualItem,
+   *      double)
+   */
+  @Override
+  public Renderer getRenderer(VisualItem item, double scale) {
+    DetailRule[] rules = m_lodRules;
+    if (rules.length > 0) {
+      Rectangle2D b = item.getBounds();
+      double size = scale * Math.max(b.getWidth(), b.getHeight());
+      if (size < m_lodMaxSize) {
+        for (int i = 0; i < rules.length; ++i) {
+          DetailRule rule = rules[i];
+          if (size < rule.m_minSize && rule.m_predicate.getBoolean(item)) {
+            return rule.m_renderer;
+          }
+        }
+      }
+    }
+    return null;
+  }
+
   /**
    * Return a Renderer instance for the input VisualItem. The VisualItem is
    * matched against the registered Predicates, and if a match is found the
@@ -197,4 +292,19 @@ public class DefaultRendererFactory implements RendererFactory {
     }
   }
 
+  /**
+   * A level-of-detail rule: a predicate, a size threshold and a renderer.
+   */
+  private static class DetailRule {
+    final Predicate m_predicate;
+    final double m_minSize;
+    final Renderer m_renderer;
+
+    DetailRule(Predicate predicate, double minSize, Renderer renderer) {
+      m_predicate = predicate;
+      m_minSize = minSize;
+      m_renderer = renderer;
+    }
+  }
+
 } // end of class DefaultRendererFactory
@@ -0,0 +1,103 @@
+package prefuse.render;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+
+import prefuse.util.ColorLib;
+import prefuse.visual.VisualItem;
+
+/**
+ * Renderer that draws an item as a filled rectangle covering its bounds, at
+ * least one pixel in size. This is much cheaper than drawing shapes or text, and
+ * is intended as a level-of-detail substitute for items that only cover a few
+ * pixels on screen. The item's fill color is used, or the stroke color if the
+ * fill color is fully transparent.
+ * 
+ * @see DefaultRendererFactory#addLevelOfDetail(prefuse.data.expression.Predicate,
+ *      double, Renderer)
+ */
+public class DotRenderer implements Renderer {
+
+  private int m_baseSize = 10;
+  private Rectangle2D m_rect = new Rectangle2D.Double();
+
+  /**
+   * Creates a new DotRenderer with default base size of 10 pixels.
+   */
+  public DotRenderer() {
+  }
+
+  /**
+   * Creates a new DotRenderer with given base size.
+   * 
+   * @param size
+   *          the base size in pixels
+   */
+  public DotRenderer(int size) {
+    setBaseSize(size);
+  }
+
+  /**
+   * Sets the base size, in pixels, of the dots drawn when this renderer also
+   * computes the item bounds. The base size is multiplied by the item's size.
+   * 
+   * @param size
+   *          the base size in pixels
+   */
+  public void setBaseSize(int size) {
+    m_baseSize = size;
+  }
+
+  /**
+   * Returns the base size, in pixels, of the dots drawn by this renderer.
+   * 
+   * @return the base size in pixels
+   */
+  public int getBaseSize() {
+    return m_baseSize;
+  }
+
+  /**
+   * @see prefuse.render.Renderer#render(java.awt.Graphics2D,
+   *      prefuse.visual.VisualItem)
+   */
+  @Override
+  public void render(Graphics2D g, VisualItem item) {
+    int color = item.getFillColor();
+    if (ColorLib.alpha(color) == 0) {
+      color = item.getStrokeColor();
+      if (ColorLib.alpha(color) == 0) {
+        return;
+      }
+    }
+    // grow the rectangle to at least one device pixel
+    double px = g.getTransform().getScaleX();
+    px = (px > 0 ? 1 / px : 1);
+    Rectangle2D b = item.getBounds();
+    double w = Math.max(b.getWidth(), px);
+    double h = Math.max(b.getHeight(), px);
+    m_rect.setRect(b.getCenterX() - w / 2, b.getCenterY() - h / 2, w, h);
+    g.setPaint(ColorLib.getColor(color));
+    g.fill(m_rect);
+  }
+
+  /**
+   * @see prefuse.render.Renderer#locatePoint(java.awt.geom.Point2D,
+   *      prefuse.visual.VisualItem)
+   */
+  @Override
+  public boolean locatePoint(Point2D p, VisualItem item) {
+    return item.getBounds().contains(p);
+  }
+
+  /**
+   * @see prefuse.render.Renderer#setBounds(prefuse.visual.VisualItem)
+   */
+  @Override
+  public void setBounds(VisualItem item) {
+    double size = m_baseSize * item.getSize();
+    item.setBounds(item.getX() - size / 2, item.getY() - size / 2, size, size);
+  }
+
+} // end of class DotRenderer
@@ -0,0 +1,32 @@
+package prefuse.render;
+
+import prefuse.visual.VisualItem;
+
+/**
+ * A RendererFactory that can substitute cheaper renderers for items that appear
+ * small on screen. A {@link prefuse.Display} whose Visualization uses such a
+ * factory asks it for a renderer for each item drawn, passing the current
+ * display scale, so that items can be drawn with less detail at overview zoom
+ * levels. Items for which no substitute is returned are drawn as usual, with
+ * {@link VisualItem#render(java.awt.Graphics2D)}. Bounds and hit-testing are
+ * still computed with the Renderer returned by {@link #getRenderer(VisualItem)}.
+ * 
+ * @see DefaultRendererFactory#addLevelOfDetail(prefuse.data.expression.Predicate,
+ *      double, Renderer)
+ */
+public interface LevelOfDetailRendererFactory extends RendererFactory {
+
+  /**
+   * Return a substitute Renderer instance to draw the given VisualItem at the
+   * given scale.
+   * 
+   * @param item
+   *          the item for which to retrieve the renderer
+   * @param scale
+   *          the scale factor of the display drawing the item
+   * @return the Renderer with which to draw the given VisualItem, or null if
+   *         the item should be drawn as usual
+   */
+  public Renderer getRenderer(VisualItem item, double scale);
+
+} // end of interface LevelOfDetailRendererFactory
@@ -29,9 +29,26 @@ import prefuse.util.io.IOLib;
  * <li><code>data.io.worker.threadPriority</code> - the thread priority of
  * asynchronous database worker threads. The default prefuse setting is 5 (same
  * as the Java thread default).</li>
+ * <li><code>data.io.worker.count</code> - the maximum number of asynchronous
+ * database worker threads. The default prefuse setting is 1.</li>
  * <li><code>data.filter.optimizeThreshold</code> - the minimum number of items
  * that must be contained in a table for optimized query plans to be considered.
  * The default value is 300.</li>
+ * <li><code>data.filter.autoIndexThreshold</code> - the number of queries on
+ * a column of a large table after which the column is indexed automatically.
+ * The default value is 0, which disables automatic indexing.</li>
+ * <li><code>data.index.bitmapThreshold</code> - the maximum number of distinct
+ * values of a column for it to be indexed using bitmaps rather than a tree.
+ * The default value is 64.</li>
+ * <li><code>data.column.storage</code> - where new int, long, float and
+ * double columns keep their values: "heap" for Java arrays, "direct" for
+ * direct buffers outside of the Java heap, or "mapped" for buffers mapped onto
+ * temporary files. The default is "heap".</li>
+ * <li><code>data.column.dictionary</code> - true to store new String
+ * columns as dictionaries of their distinct values. The default is false.</li>
+ * <li><code>data.column.storageDir</code> - the directory in which to create
+ * the files backing mapped columns. The default is "null" which uses the
+ * default temporary-file directory.</li>
  * <li><code>util.logdir</code> - the directory in which to write prefuse log
  * files. The default is "null" which defaults logging output to standard
  * output.</li>
@@ -205,10 +222,21 @@ public class PrefuseConfig extends Properties {
     setProperty("data.graph.edgeGroup", "edges");
     setProperty("data.visual.fieldPrefix", "_");
     setProperty("data.io.worker.threadPriority", String.valueOf(Thread.NORM_PRIORITY));
+    setProperty("data.io.worker.count", "1");
 
     // prefuse will only attempt to optimize filtering operations
     // on tables with more rows than this threshold value
     setProperty("data.filter.optimizeThreshold", "300");
+    // columns queried this many times without an index are indexed,
+    // zero disables automatic indexing
+    setProperty("data.filter.autoIndexThreshold", "0");
+    // columns with at most this many distinct values get bitmap indexes
+    setProperty("data.index.bitmapThreshold", "64");
+    // heap, direct or mapped storage for primitive columns
+    setProperty("data.column.storage", "heap");
+    // setProperty("data.column.storageDir", null); // intentionally null
+    // dictionary encoding of String columns
+    setProperty("data.column.dictionary", "false");
 
     // setProperty("data.graph.nodeKey", null); // intentionally null
     setProperty("data.graph.sourceKey", "source");
@@ -1,8 +1,10 @@
 package prefuse.util.collections;
 
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.ConcurrentModificationException;
 import java.util.NoSuchElementException;
+import java.util.function.IntToLongFunction;
 
 
 /**
@@ -145,6 +147,153 @@ public abstract class AbstractTreeMap implements IntSortedMap {
     }
   }
 
+  // ------------------------------------------------------------------------
+  // Bulk construction
+
+  /**
+   * Get the positions of the given keys in ascending key order, with equal
+   * keys in position order. The keys are sorted in parallel as primitive
+   * values, so they must map the map's key order onto the order of longs.
+   *
+   * @param keys
+   *          the keys, as order preserving long values
+   * @return the key positions in sorted order
+   */
+  protected static int[] sortedOrder(final long[] keys) {
+    final int n = keys.length;
+    long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+    for (int i = 0; i < n; ++i) {
+      min = Math.min(min, keys[i]);
+      max = Math.max(max, keys[i]);
+    }
+
+    // pack each key with its position into a single long, sorting those
+    final long[] packed = new long[n];
+    long span = max - min;
+    if (n == 0 || (span >= 0 && span < (1L << 32))) {
+      // the key offsets fit into 32 bits, sort in one pass
+      final long base = min;
+      Arrays.parallelSetAll(packed, new IntToLongFunction() {
+        @Override
+        public long applyAsLong(int i) {
+          return (((keys[i] - base) << 32) | i) ^ Long.MIN_VALUE;
+        }
+      });
+      Arrays.parallelSort(packed);
+    } else {
+      // sort by the upper 32 bits of the keys, then each run of equal upper
+      // bits by the lower 32 bits
+      Arrays.parallelSetAll(packed, new IntToLongFunction() {
+        @Override
+        public long applyAsLong(int i) {
+          return (keys[i] & 0xFFFFFFFF00000000L) | i;
+        }
+      });
+      Arrays.parallelSort(packed);
+      for (int i = 0, j; i < n; i = j) {
+        long high = packed[i] & 0xFFFFFFFF00000000L;
+        for (j = i + 1; j < n && (packed[j] & 0xFFFFFFFF00000000L) == high; ++j) {
+          ;
+        }
+        if (j - i > 1) {
+          for (int k = i; k < j; ++k) {
+            int pos = (int) packed[k];
+            packed[k] = ((keys[pos] << 32) | pos) ^ Long.MIN_VALUE;
+          }
+          Arrays.parallelSort(packed, i, j);
+        }
+      }
+    }
+
+    int[] order = new int[n];
+    for (int i = 0; i < n; ++i) {
+      order[i] = (int) packed[i];
+    }
+    return order;
+  }
+
+  /**
+   * Get the positions <code>0</code> to <code>count - 1</code> in ascending
+   * order of the keys at those positions, as determined by a comparator of
+   * positions, with equal keys in position order. The positions are sorted in
+   * parallel.
+   *
+   * @param count
+   *          the number of keys
+   * @param cmp
+   *          a comparator of Integer positions, comparing the keys at the
+   *          positions
+   * @return the key positions in sorted order
+   */
+  protected static int[] sortedOrder(int count, Comparator cmp) {
+    Integer[] positions = new Integer[count];
+    for (int i = 0; i < count; ++i) {
+      positions[i] = new Integer(i);
+    }
+    // a stable sort, keeping equal keys in position order
+    Arrays.parallelSort(positions, cmp);
+
+    int[] order = new int[count];
+    for (int i = 0; i < count; ++i) {
+      order[i] = positions[i].intValue();
+    }
+    return order;
+  }
+
+  /**
+   * Replace the contents of this map with the given entries, linking them into
+   * a balanced tree in one pass. The result is the same as putting the entries
+   * one by one in the order in which entries with equal keys are given.
+   *
+   * @param entries
+   *          the entries, sorted by key. Entries with equal keys are in
+   *          insertion order.
+   */
+  protected void build(Entry[] entries) {
+    // number duplicate keys, or keep the last value for a key
+    int n = 0, distinct = 0;
+    Entry first = NIL;
+    for (int i = 0; i < entries.length; ++i) {
+      Entry e = entries[i];
+      e.order = 0;
+      if (first != NIL && compare(e, first) == 0) {
+        if (!allowDuplicates) {
+          first.val = e.val;
+          continue;
+        }
+        e.order = entries[n - 1].order + 1;
+      } else {
+        first = e;
+        ++distinct;
+      }
+      entries[n++] = e;
+    }
+
+    // nodes on the lowest level of an incomplete tree are red
+    int redLevel = 0;
+    for (int m = n - 1; m >= 0; m = m / 2 - 1) {
+      ++redLevel;
+    }
+
+    ++modCount;
+    root = link(entries, 0, n - 1, NIL, 0, redLevel);
+    size = n;
+    unique = distinct;
+  }
+
+  private Entry link(Entry[] entries, int lo, int hi, Entry parent, int level, int redLevel) {
+    if (lo > hi) {
+      return NIL;
+    }
+    int mid = (lo + hi) >>> 1;
+    Entry e = entries[mid];
+    e.p = parent;
+    e.left = link(entries, lo, mid - 1, e, level + 1, redLevel);
+    e.right = link(entries, mid + 1, hi, e, level + 1, redLevel);
+    e.color = (level == redLevel ? RED : BLACK);
+    return e;
+  }
+
   // ------------------------------------------------------------------------
   // Internal Binary Search Tree / Red-Black Tree methods
   // Adapted from Cormen, Leiserson, and Rivest's Introduction to Algorithms
@@ -1,5 +1,7 @@
 package prefuse.util.collections;
 
+import java.util.Comparator;
+
 /**
  * Sorted map implementation using a red-black tree to map from long keys to int
  * values.
@@ -147,6 +149,44 @@ public class LongIntTreeMap extends AbstractTreeMap implements LongIntSortedMap
     return val;
   }
 
+  /**
+   * Replace the contents of this map with the given key/value pairs. The
+   * result is the same as clearing the map and putting the pairs in order,
+   * but the pairs are sorted in parallel and the tree is built in one pass,
+   * which is much faster for large numbers of pairs.
+   *
+   * @param keys
+   *          the keys
+   * @param values
+   *          the values, one for each key
+   * @param count
+   *          the number of key/value pairs
+   */
+  public void build(final long[] keys, int[] values, int count) {
+    int[] order;
+    if (cmp == DefaultLiteralComparator.getInstance()) {
+      // sort the keys as order preserving longs
+      long[] sortable = new long[count];
+      for (int i = 0; i < count; ++i) {
+        sortable[i] = keys[i];
+      }
+      order = sortedOrder(sortable);
+    } else {
+      order = sortedOrder(count, new Comparator() {
+        @Override
+        public int compare(Object o1, Object o2) {
+          return cmp.compare(keys[((Integer) o1).intValue()], keys[((Integer) o2).intValue()]);
+        }
+      });
+    }
+    Entry[] entries = new Entry[count];
+    for (int i = 0; i < count; ++i) {
+      int j = order[i];
+      entries[i] = new LongEntry(keys[j], values[j], NIL, 0);
+    }
+    build(entries);
+  }
+
   /**
    * @see java.util.SortedMap#firstKey()
    */
@@ -151,6 +151,34 @@ public class ObjectIntTreeMap extends AbstractTreeMap implements ObjectIntSorted
     return val;
   }
 
+  /**
+   * Replace the contents of this map with the given key/value pairs. The
+   * result is the same as clearing the map and putting the pairs in order,
+   * but the pairs are sorted in parallel and the tree is built in one pass,
+   * which is much faster for large numbers of pairs.
+   *
+   * @param keys
+   *          the keys
+   * @param values
+   *          the values, one for each key
+   * @param count
+   *          the number of key/value pairs
+   */
+  public void build(final Object[] keys, int[] values, int count) {
+    int[] order = sortedOrder(count, new Comparator() {
+      @Override
+      public int compare(Object o1, Object o2) {
+        return cmp.compare(keys[((Integer) o1).intValue()], keys[((Integer) o2).intValue()]);
+      }
+    });
+    Entry[] entries = new Entry[count];
+    for (int i = 0; i < count; ++i) {
+      int j = order[i];
+      entries[i] = new ObjectEntry(keys[j], values[j], NIL, 0);
+    }
+    build(entries);
+  }
+
   /**
    * @see java.util.SortedMap#firstKey()
    */
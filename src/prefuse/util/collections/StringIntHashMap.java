@@ -0,0 +1,200 @@
+package prefuse.util.collections;
+
+import java.util.Arrays;
+
+/**
+ * Hash map holding (key,value) associations of type <tt>(String-->int)</tt>.
+ * The characters of all keys are stored one after the other in a single
+ * shared array rather than as String instances, and values are stored as
+ * primitive ints, so that large maps of short keys, such as the identifiers of
+ * the nodes of a graph, take a fraction of the memory of a
+ * {@link java.util.HashMap} of boxed values. Implemented using open addressing
+ * with linear probing.
+ *
+ * <p>
+ * Associations can be added and updated, but not removed other than by
+ * clearing the whole map.
+ * </p>
+ */
+public class StringIntHashMap {
+
+  /** Value returned by {@link #get(CharSequence)} for keys not in the map. */
+  public static final int NO_VALUE = Integer.MIN_VALUE;
+
+  private char[] m_chars; // characters of all keys, in insertion order
+  private int m_charCount;
+  private int[] m_offsets; // start of each key in m_chars, plus the end
+  private int[] m_hashes; // hash code of each key
+  private int[] m_values; // value of each key
+  private int[] m_table; // open addressing table of entry+1, 0 if empty
+  private int m_size;
+
+  /**
+   * Constructs an empty map with a default capacity.
+   */
+  public StringIntHashMap() {
+    this(16);
+  }
+
+  /**
+   * Constructs an empty map with the specified initial capacity.
+   *
+   * @param initialCapacity
+   *          the number of keys the map can hold before growing
+   * @throws IllegalArgumentException
+   *           if the initial capacity is less than zero.
+   */
+  public StringIntHashMap(int initialCapacity) {
+    if (initialCapacity < 0) {
+      throw new IllegalArgumentException("Initial Capacity must not be less than zero: " + initialCapacity);
+    }
+    int capacity = Math.max(initialCapacity, 4);
+    m_chars = new char[8 * capacity];
+    m_offsets = new int[capacity + 1];
+    m_hashes = new int[capacity];
+    m_values = new int[capacity];
+    int length = 8;
+    while (length < 2 * capacity) {
+      length <<= 1;
+    }
+    m_table = new int[length];
+  }
+
+  /**
+   * Returns the number of (key,value) associations in the map.
+   *
+   * @return the number of keys
+   */
+  public int size() {
+    return m_size;
+  }
+
+  /**
+   * Removes all (key,value) associations from the map.
+   */
+  public void clear() {
+    Arrays.fill(m_table, 0);
+    m_charCount = 0;
+    m_size = 0;
+  }
+
+  /**
+   * Returns <tt>true</tt> if the map contains the specified key.
+   *
+   * @param key
+   *          the key to look up
+   * @return <tt>true</tt> if the map contains the key.
+   */
+  public boolean containsKey(CharSequence key) {
+    return m_table[slot(key, hash(key))] != 0;
+  }
+
+  /**
+   * Returns the value associated with the specified key.
+   *
+   * @param key
+   *          the key to look up
+   * @return the value associated with the key, or {@link #NO_VALUE} if the key
+   *         is not in the map
+   */
+  public int get(CharSequence key) {
+    int e = m_table[slot(key, hash(key))] - 1;
+    return e < 0 ? NO_VALUE : m_values[e];
+  }
+
+  /**
+   * Associates the given key with the given value, replacing any previous
+   * value of the key.
+   *
+   * @param key
+   *          the key the value shall be associated with
+   * @param value
+   *          the value to be associated
+   * @return <tt>true</tt> if the map did not already contain the key,
+   *         <tt>false</tt> if the previous value of the key was replaced
+   */
+  public boolean put(CharSequence key, int value) {
+    int h = hash(key);
+    int i = slot(key, h);
+    if (m_table[i] != 0) {
+      m_values[m_table[i] - 1] = value;
+      return false;
+    }
+
+    // append the key
+    int len = key.length();
+    if (m_size == m_values.length) {
+      int capacity = 2 * m_size;
+      m_offsets = Arrays.copyOf(m_offsets, capacity + 1);
+      m_hashes = Arrays.copyOf(m_hashes, capacity);
+      m_values = Arrays.copyOf(m_values, capacity);
+    }
+    if (m_charCount + len > m_chars.length) {
+      m_chars = Arrays.copyOf(m_chars, Math.max(2 * m_chars.length, m_charCount + len));
+    }
+    for (int k = 0; k < len; ++k) {
+      m_chars[m_charCount + k] = key.charAt(k);
+    }
+    m_offsets[m_size] = m_charCount;
+    m_charCount += len;
+    m_offsets[m_size + 1] = m_charCount;
+    m_hashes[m_size] = h;
+    m_values[m_size] = value;
+    m_table[i] = ++m_size;
+
+    if (2 * m_size > m_table.length) {
+      rehash(2 * m_table.length);
+    }
+    return true;
+  }
+
+  private static int hash(CharSequence key) {
+    int h = 0;
+    for (int i = 0, len = key.length(); i < len; ++i) {
+      h = 31 * h + key.charAt(i);
+    }
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Get the table slot holding a key, or the empty slot where it would be
+   * inserted.
+   */
+  private int slot(CharSequence key, int h) {
+    int mask = m_table.length - 1;
+    for (int i = h & mask;; i = (i + 1) & mask) {
+      int e = m_table[i] - 1;
+      if (e < 0 || (m_hashes[e] == h && matches(e, key))) {
+        return i;
+      }
+    }
+  }
+
+  private boolean matches(int e, CharSequence key) {
+    int off = m_offsets[e];
+    int len = m_offsets[e + 1] - off;
+    if (len != key.length()) {
+      return false;
+    }
+    for (int k = 0; k < len; ++k) {
+      if (m_chars[off + k] != key.charAt(k)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void rehash(int length) {
+    int[] table = new int[length];
+    int mask = length - 1;
+    for (int e = 0; e < m_size; ++e) {
+      int i = m_hashes[e] & mask;
+      while (table[i] != 0) {
+        i = (i + 1) & mask;
+      }
+      table[i] = e + 1;
+    }
+    m_table = table;
+  }
+
+} // end of class StringIntHashMap
@@ -0,0 +1,460 @@
+package prefuse.util.display;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+import prefuse.visual.VisualItem;
+
+/**
+ * <p>
+ * A dynamic spatial index over the bounds of the items drawn by a Display,
+ * used to cull rendering to the items intersecting the damaged region. Items
+ * are identified by the position of their backing table in the Display's
+ * iteration order and their row in that table, and are stored in a uniform
+ * grid whose geometry is fixed when the index is {@link #rebuild rebuilt}.
+ * Individual items can then be added, moved or removed in time proportional to
+ * the number of grid cells they cover. Items covering many cells are kept in a
+ * separate list that is checked by every query.
+ * </p>
+ *
+ * <p>
+ * The index also maintains the bounding box of all indexed items. The box grows
+ * incrementally and is only recomputed from the stored bounds when an item on
+ * its boundary moves inward or is removed.
+ * </p>
+ */
+public class ItemBoundsIndex {
+
+  private static final int MAX_DIM = 512;
+  private static final int LARGE_SPAN = 16;
+  private static final int NONE = -1;
+
+  // entries, indexed by slot
+  private int size, hiSlot;
+  private VisualItem[] items = new VisualItem[0];
+  private long[] keys = new long[0];
+  private double[] rect = new double[0];
+  private int[] span = new int[0];
+  private int[] lpos = new int[0];
+  private boolean[] outside = new boolean[0];
+  private int[] freeSlots = new int[16];
+  private int nfree;
+  private int noutside;
+  private int builtSize;
+
+  // slot lookup by table and row, stored as slot+1
+  private int[][] slotOf = new int[0][];
+
+  // grid
+  private double gx, gy, gw, gh;
+  private int cols = 1, rows = 1;
+  private int[][] cells = new int[1][];
+  private int[] cellSize = new int[1];
+  private int[] large = new int[16];
+  private int nlarge;
+
+  // total bounds
+  private double tx1, ty1, tx2, ty2;
+  private boolean totalStale = false;
+
+  // query state
+  private int[] stamp = new int[0];
+  private int curStamp = 0;
+  private long[] qkeys = new long[16];
+  private VisualItem[] results = new VisualItem[16];
+
+  /**
+   * Get the number of indexed items.
+   *
+   * @return the number of items
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Indicates if the grid geometry no longer suits the indexed items, for
+   * example because many items have moved outside of the region covered by the
+   * grid, and the index should be rebuilt.
+   *
+   * @return true if a rebuild is recommended
+   */
+  public boolean needsRebuild() {
+    return size > 64 && (noutside > size / 4 || size > 4 * builtSize || nlarge > size / 4);
+  }
+
+  // ------------------------------------------------------------------------
+  // Construction
+
+  /**
+   * Clear the index and rebuild it over the given items, choosing the grid
+   * geometry to fit the items' current bounds.
+   *
+   * @param tableCount
+   *          the number of tables the items may come from
+   * @param tables
+   *          the table position of each item
+   * @param list
+   *          the items to index
+   * @param n
+   *          the number of items
+   */
+  public void rebuild(int tableCount, int[] tables, VisualItem[] list, int n) {
+    // release the previous contents
+    Arrays.fill(items, 0, hiSlot, null);
+    for (int i = 0; i < cells.length; ++i) {
+      cellSize[i] = 0;
+    }
+    if (slotOf.length != tableCount) {
+      slotOf = new int[tableCount][];
+    }
+    for (int t = 0; t < tableCount; ++t) {
+      if (slotOf[t] != null) {
+        Arrays.fill(slotOf[t], 0);
+      }
+    }
+    size = hiSlot = nfree = nlarge = noutside = 0;
+
+    // compute grid geometry
+    double xmin = Double.POSITIVE_INFINITY, ymin = Double.POSITIVE_INFINITY;
+    double xmax = Double.NEGATIVE_INFINITY, ymax = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < n; ++i) {
+      Rectangle2D b = list[i].getBounds();
+      xmin = Math.min(xmin, b.getMinX());
+      ymin = Math.min(ymin, b.getMinY());
+      xmax = Math.max(xmax, b.getMaxX());
+      ymax = Math.max(ymax, b.getMaxY());
+    }
+    if (!(xmax >= xmin && ymax >= ymin) || Double.isInfinite(xmax - xmin) || Double.isInfinite(ymax - ymin)) {
+      xmin = ymin = 0;
+      xmax = ymax = 1;
+    }
+    gx = xmin;
+    gy = ymin;
+    gw = Math.max(xmax - xmin, 1e-9);
+    gh = Math.max(ymax - ymin, 1e-9);
+    int ncells = Math.max(1, n / 2);
+    cols = (int) Math.round(Math.sqrt(ncells * gw / gh));
+    cols = Math.max(1, Math.min(MAX_DIM, cols));
+    rows = Math.max(1, Math.min(MAX_DIM, (ncells + cols - 1) / cols));
+    if (cells.length < cols * rows) {
+      cells = new int[cols * rows][];
+      cellSize = new int[cols * rows];
+    }
+
+    ensureSlots(n);
+    tx1 = ty1 = Double.POSITIVE_INFINITY;
+    tx2 = ty2 = Double.NEGATIVE_INFINITY;
+    totalStale = false;
+    for (int i = 0; i < n; ++i) {
+      put(tables[i], list[i].getRow(), list[i], list[i].getBounds());
+    }
+    builtSize = n;
+  }
+
+  private void ensureSlots(int cap) {
+    if (cap <= items.length) {
+      return;
+    }
+    int len = Math.max(cap, (3 * items.length) / 2 + 1);
+    items = (VisualItem[]) Arrays.copyOf(items, len);
+    keys = Arrays.copyOf(keys, len);
+    rect = Arrays.copyOf(rect, 4 * len);
+    span = Arrays.copyOf(span, 4 * len);
+    lpos = Arrays.copyOf(lpos, len);
+    outside = Arrays.copyOf(outside, len);
+    stamp = Arrays.copyOf(stamp, len);
+  }
+
+  // ------------------------------------------------------------------------
+  // Updates
+
+  /**
+   * Add an item to the index, or update its bounds if already present.
+   *
+   * @param table
+   *          the position of the item's table
+   * @param row
+   *          the item's table row
+   * @param item
+   *          the item
+   * @param b
+   *          the current bounds of the item
+   */
+  public void put(int table, int row, VisualItem item, Rectangle2D b) {
+    int slot = getSlot(table, row);
+    double x1 = b.getMinX(), y1 = b.getMinY(), x2 = b.getMaxX(), y2 = b.getMaxY();
+    if (slot != NONE) {
+      int s = 4 * slot;
+      if (items[slot] == item && rect[s] == x1 && rect[s + 1] == y1 && rect[s + 2] == x2 && rect[s + 3] == y2) {
+        return; // nothing changed
+      }
+      unlink(slot);
+    } else {
+      slot = allocSlot();
+      setSlot(table, row, slot);
+      ++size;
+    }
+    items[slot] = item;
+    keys[slot] = ((long) table << 32) | row;
+    int s = 4 * slot;
+    rect[s] = x1;
+    rect[s + 1] = y1;
+    rect[s + 2] = x2;
+    rect[s + 3] = y2;
+    link(slot);
+
+    // grow the total bounds
+    if (x1 <= x2 && y1 <= y2) {
+      tx1 = Math.min(tx1, x1);
+      ty1 = Math.min(ty1, y1);
+      tx2 = Math.max(tx2, x2);
+      ty2 = Math.max(ty2, y2);
+    }
+  }
+
+  /**
+   * Remove an item from the index, if present.
+   *
+   * @param table
+   *          the position of the item's table
+   * @param row
+   *          the item's table row
+   */
+  public void remove(int table, int row) {
+    int slot = getSlot(table, row);
+    if (slot == NONE) {
+      return;
+    }
+    unlink(slot);
+    items[slot] = null;
+    setSlot(table, row, NONE);
+    if (nfree == freeSlots.length) {
+      freeSlots = Arrays.copyOf(freeSlots, 2 * nfree);
+    }
+    freeSlots[nfree++] = slot;
+    --size;
+  }
+
+  private int allocSlot() {
+    if (nfree > 0) {
+      return freeSlots[--nfree];
+    }
+    ensureSlots(hiSlot + 1);
+    return hiSlot++;
+  }
+
+  private int getSlot(int table, int row) {
+    int[] map = slotOf[table];
+    return (map == null || row >= map.length ? NONE : map[row] - 1);
+  }
+
+  private void setSlot(int table, int row, int slot) {
+    int[] map = slotOf[table];
+    if (map == null || row >= map.length) {
+      if (slot == NONE) {
+        return;
+      }
+      int len = Math.max(row + 1, map == null ? 64 : (3 * map.length) / 2 + 1);
+      map = (map == null ? new int[len] : Arrays.copyOf(map, len));
+      slotOf[table] = map;
+    }
+    map[row] = slot + 1;
+  }
+
+  private int col(double x) {
+    int c = (int) Math.floor((x - gx) * cols / gw);
+    return (c < 0 ? 0 : (c >= cols ? cols - 1 : c));
+  }
+
+  private int row(double y) {
+    int r = (int) Math.floor((y - gy) * rows / gh);
+    return (r < 0 ? 0 : (r >= rows ? rows - 1 : r));
+  }
+
+  /**
+   * Insert a slot into the grid, according to its stored bounds.
+   */
+  private void link(int slot) {
+    int s = 4 * slot;
+    double x1 = rect[s], y1 = rect[s + 1], x2 = rect[s + 2], y2 = rect[s + 3];
+    outside[slot] = !(x1 >= gx && y1 >= gy && x2 <= gx + gw && y2 <= gy + gh);
+    if (outside[slot]) {
+      ++noutside;
+    }
+    int c1 = col(x1), r1 = row(y1), c2 = col(x2), r2 = row(y2);
+    int n = (c2 - c1 + 1) * (r2 - r1 + 1);
+    if (!(x1 <= x2 && y1 <= y2) || n > LARGE_SPAN) {
+      // empty, invalid or large bounds
+      span[s] = NONE;
+      if (nlarge == large.length) {
+        large = Arrays.copyOf(large, 2 * nlarge);
+      }
+      lpos[slot] = nlarge;
+      large[nlarge++] = slot;
+      return;
+    }
+    span[s] = c1;
+    span[s + 1] = r1;
+    span[s + 2] = c2;
+    span[s + 3] = r2;
+    for (int r = r1; r <= r2; ++r) {
+      for (int c = c1; c <= c2; ++c) {
+        int cell = r * cols + c;
+        int[] list = cells[cell];
+        int len = cellSize[cell];
+        if (list == null) {
+          list = cells[cell] = new int[4];
+        } else if (len == list.length) {
+          list = cells[cell] = Arrays.copyOf(list, 2 * len);
+        }
+        list[len] = slot;
+        cellSize[cell] = len + 1;
+      }
+    }
+  }
+
+  /**
+   * Remove a slot from the grid, and mark the total bounds as stale if the slot
+   * lies on its boundary.
+   */
+  private void unlink(int slot) {
+    int s = 4 * slot;
+    if (rect[s] <= tx1 || rect[s + 1] <= ty1 || rect[s + 2] >= tx2 || rect[s + 3] >= ty2) {
+      totalStale = true;
+    }
+    if (outside[slot]) {
+      --noutside;
+    }
+    if (span[s] == NONE) {
+      int pos = lpos[slot];
+      int last = large[--nlarge];
+      large[pos] = last;
+      lpos[last] = pos;
+      return;
+    }
+    for (int r = span[s + 1]; r <= span[s + 3]; ++r) {
+      for (int c = span[s]; c <= span[s + 2]; ++c) {
+        int cell = r * cols + c;
+        int[] list = cells[cell];
+        int len = cellSize[cell];
+        for (int i = 0; i < len; ++i) {
+          if (list[i] == slot) {
+            list[i] = list[len - 1];
+            cellSize[cell] = len - 1;
+            break;
+          }
+        }
+      }
+    }
+  }
+
+  // ------------------------------------------------------------------------
+  // Queries
+
+  /**
+   * Get the bounding box of all indexed items.
+   *
+   * @param c
+   *          the Clip in which to store the bounds. The clip is reset if no
+   *          indexed item has valid bounds.
+   */
+  public void getBounds(Clip c) {
+    if (totalStale) {
+      tx1 = ty1 = Double.POSITIVE_INFINITY;
+      tx2 = ty2 = Double.NEGATIVE_INFINITY;
+      for (int slot = 0; slot < hiSlot; ++slot) {
+        if (items[slot] == null) {
+          continue;
+        }
+        int s = 4 * slot;
+        if (rect[s] <= rect[s + 2] && rect[s + 1] <= rect[s + 3]) {
+          tx1 = Math.min(tx1, rect[s]);
+          ty1 = Math.min(ty1, rect[s + 1]);
+          tx2 = Math.max(tx2, rect[s + 2]);
+          ty2 = Math.max(ty2, rect[s + 3]);
+        }
+      }
+      totalStale = false;
+    }
+    if (tx1 <= tx2 && ty1 <= ty2) {
+      c.setClip(tx1, ty1, tx2 - tx1, ty2 - ty1);
+    } else {
+      c.reset();
+    }
+  }
+
+  /**
+   * Find the indexed items whose bounds intersect the given region. The results
+   * are available from {@link #getResults()}, ordered by table position and
+   * then by row, matching the Display's iteration order.
+   *
+   * @param x1
+   *          the minimum x-coordinate of the region
+   * @param y1
+   *          the minimum y-coordinate of the region
+   * @param x2
+   *          the maximum x-coordinate of the region
+   * @param y2
+   *          the maximum y-coordinate of the region
+   * @return the number of matching items
+   */
+  public int query(double x1, double y1, double x2, double y2) {
+    if (++curStamp == 0) {
+      Arrays.fill(stamp, 0);
+      curStamp = 1;
+    }
+    int n = 0;
+    if (x1 <= gx + gw && y1 <= gy + gh && x2 >= gx && y2 >= gy || noutside > 0) {
+      int c1 = col(x1), r1 = row(y1), c2 = col(x2), r2 = row(y2);
+      for (int r = r1; r <= r2; ++r) {
+        for (int c = c1; c <= c2; ++c) {
+          int cell = r * cols + c;
+          int[] list = cells[cell];
+          for (int i = cellSize[cell]; --i >= 0;) {
+            int slot = list[i];
+            if (stamp[slot] != curStamp) {
+              stamp[slot] = curStamp;
+              n = collect(slot, n, x1, y1, x2, y2);
+            }
+          }
+        }
+      }
+    }
+    for (int i = 0; i < nlarge; ++i) {
+      n = collect(large[i], n, x1, y1, x2, y2);
+    }
+
+    // order by table and row, then resolve the items
+    Arrays.sort(qkeys, 0, n);
+    if (results.length < n) {
+      results = new VisualItem[n + n / 2];
+    }
+    for (int i = 0; i < n; ++i) {
+      long key = qkeys[i];
+      results[i] = items[getSlot((int) (key >>> 32), (int) key)];
+    }
+    return n;
+  }
+
+  private int collect(int slot, int n, double x1, double y1, double x2, double y2) {
+    int s = 4 * slot;
+    if (rect[s] <= x2 && rect[s + 2] >= x1 && rect[s + 1] <= y2 && rect[s + 3] >= y1) {
+      if (n == qkeys.length) {
+        qkeys = Arrays.copyOf(qkeys, 2 * n);
+      }
+      qkeys[n++] = keys[slot];
+    }
+    return n;
+  }
+
+  /**
+   * Get the results of the last query. The array is reused across queries.
+   *
+   * @return the matching items
+   */
+  public VisualItem[] getResults() {
+    return results;
+  }
+
+} // end of class ItemBoundsIndex
@@ -0,0 +1,248 @@
+package prefuse.util.display;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+import prefuse.visual.VisualItem;
+
+/**
+ * A uniform grid over the bounds of the items in a Display's picking queue,
+ * used to limit hit-testing to the items near a given point. The grid stores
+ * indices into the (sorted) picking queue, so candidates can be returned front
+ * to back, preserving the z-ordering of the queue. Items covering many grid
+ * cells are kept in a separate list that is consulted for every query.
+ *
+ * <p>
+ * Item bounds are expanded by a small margin when indexed, as some renderers
+ * (e.g., for edges) report hits slightly outside of an item's bounds.
+ * </p>
+ */
+public class PickingIndex {
+
+  private static final int MAX_DIM = 1024;
+  private static final int LARGE_SPAN = 16;
+
+  private double margin = 1.0;
+
+  private double x0, y0, x1, y1, cw, ch;
+  private int cols, rows;
+
+  private int[] cellStart = new int[2];
+  private int[] cellItems = new int[0];
+  private int[] large = new int[16];
+  private int nlarge;
+
+  private int[] span = new int[0];
+  private int[] result = new int[16];
+
+  /**
+   * Get the margin by which item bounds are expanded when indexed.
+   *
+   * @return the bounds margin, in item-space units
+   */
+  public double getMargin() {
+    return margin;
+  }
+
+  /**
+   * Set the margin by which item bounds are expanded when indexed. This should
+   * be at least as large as the distance outside of an item's bounds at which
+   * its renderer may still report a hit.
+   *
+   * @param margin
+   *          the bounds margin, in item-space units
+   * @throws IllegalArgumentException
+   *           if the margin is negative
+   */
+  public void setMargin(double margin) {
+    if (!(margin >= 0)) {
+      throw new IllegalArgumentException("Margin must be non-negative: " + margin);
+    }
+    this.margin = margin;
+  }
+
+  /**
+   * Build the index over the given items.
+   *
+   * @param items
+   *          the items to index, typically the sorted picking queue
+   * @param size
+   *          the number of items to index
+   */
+  public void build(VisualItem[] items, int size) {
+    // compute extent of the items
+    double xmin = Double.POSITIVE_INFINITY, ymin = Double.POSITIVE_INFINITY;
+    double xmax = Double.NEGATIVE_INFINITY, ymax = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < size; ++i) {
+      Rectangle2D b = items[i].getBounds();
+      if (b.getMinX() < xmin) {
+        xmin = b.getMinX();
+      }
+      if (b.getMinY() < ymin) {
+        ymin = b.getMinY();
+      }
+      if (b.getMaxX() > xmax) {
+        xmax = b.getMaxX();
+      }
+      if (b.getMaxY() > ymax) {
+        ymax = b.getMaxY();
+      }
+    }
+    nlarge = 0;
+    if (size == 0 || !(xmax >= xmin && ymax >= ymin) || Double.isInfinite(xmax - xmin)
+        || Double.isInfinite(ymax - ymin)) {
+      cols = rows = 0;
+      cellStart[0] = 0;
+      for (int i = 0; i < size; ++i) {
+        addLarge(i);
+      }
+      return;
+    }
+    xmin -= margin;
+    ymin -= margin;
+    xmax += margin;
+    ymax += margin;
+
+    // aim for roughly one item per cell, with a single row or column if the
+    // extent has no height or width
+    double w = xmax - xmin, h = ymax - ymin;
+    if (w == 0) {
+      cols = 1;
+    } else if (h == 0) {
+      cols = Math.min(MAX_DIM, size);
+    } else {
+      cols = (int) Math.min(MAX_DIM, Math.round(Math.sqrt(size * w / h)));
+    }
+    cols = Math.max(1, cols);
+    rows = (h == 0 ? 1 : Math.max(1, Math.min(MAX_DIM, (size + cols - 1) / cols)));
+    x0 = xmin;
+    y0 = ymin;
+    // query bounds are kept exact, as cols * cw may round below the extent
+    x1 = xmax;
+    y1 = ymax;
+    cw = (w > 0 ? w / cols : 1);
+    ch = (h > 0 ? h / rows : 1);
+
+    int ncells = cols * rows;
+    if (cellStart.length < ncells + 1) {
+      cellStart = new int[ncells + 1];
+    } else {
+      Arrays.fill(cellStart, 0, ncells + 1, 0);
+    }
+    if (span.length < 4 * size) {
+      span = new int[4 * size];
+    }
+
+    // count the entries per cell
+    int total = 0;
+    for (int i = 0; i < size; ++i) {
+      Rectangle2D b = items[i].getBounds();
+      int s = 4 * i;
+      span[s] = col(b.getMinX() - margin);
+      span[s + 1] = row(b.getMinY() - margin);
+      span[s + 2] = col(b.getMaxX() + margin);
+      span[s + 3] = row(b.getMaxY() + margin);
+      int n = (span[s + 2] - span[s] + 1) * (span[s + 3] - span[s + 1] + 1);
+      if (n < 1 || n > LARGE_SPAN) {
+        span[s] = -1;
+        addLarge(i);
+        continue;
+      }
+      total += n;
+      for (int r = span[s + 1]; r <= span[s + 3]; ++r) {
+        for (int c = span[s]; c <= span[s + 2]; ++c) {
+          cellStart[r * cols + c + 1]++;
+        }
+      }
+    }
+    for (int c = 0; c < ncells; ++c) {
+      cellStart[c + 1] += cellStart[c];
+    }
+
+    // fill cells, entries within a cell remain in increasing queue order
+    if (cellItems.length < total) {
+      cellItems = new int[total + total / 2];
+    }
+    for (int i = 0; i < size; ++i) {
+      int s = 4 * i;
+      if (span[s] < 0) {
+        continue;
+      }
+      for (int r = span[s + 1]; r <= span[s + 3]; ++r) {
+        for (int c = span[s]; c <= span[s + 2]; ++c) {
+          cellItems[cellStart[r * cols + c]++] = i;
+        }
+      }
+    }
+    // the fill pass shifted each start to the next cell's start
+    for (int c = ncells; c > 0; --c) {
+      cellStart[c] = cellStart[c - 1];
+    }
+    cellStart[0] = 0;
+  }
+
+  private void addLarge(int i) {
+    if (nlarge == large.length) {
+      int[] l = new int[(3 * large.length) / 2 + 1];
+      System.arraycopy(large, 0, l, 0, nlarge);
+      large = l;
+    }
+    large[nlarge++] = i;
+  }
+
+  private int col(double x) {
+    int c = (int) Math.floor((x - x0) / cw);
+    return (c < 0 ? 0 : (c >= cols ? cols - 1 : c));
+  }
+
+  private int row(double y) {
+    int r = (int) Math.floor((y - y0) / ch);
+    return (r < 0 ? 0 : (r >= rows ? rows - 1 : r));
+  }
+
+  /**
+   * Look up the items whose (expanded) bounds may contain the given point. The
+   * results are available from {@link #getResults()} in decreasing queue order,
+   * so that the front-most item comes first.
+   *
+   * @param x
+   *          the x-coordinate, in item space
+   * @param y
+   *          the y-coordinate, in item space
+   * @return the number of candidate items
+   */
+  public int query(double x, double y) {
+    int lo = 0, hi = 0;
+    if (cols > 0 && x >= x0 && y >= y0 && x <= x1 && y <= y1) {
+      int cell = row(y) * cols + col(x);
+      lo = cellStart[cell];
+      hi = cellStart[cell + 1];
+    }
+    int n = (hi - lo) + nlarge;
+    if (result.length < n) {
+      result = new int[n + n / 2];
+    }
+    // merge the cell list and the large list, both in increasing order
+    int i = hi - 1, j = nlarge - 1, k = 0;
+    while (i >= lo && j >= 0) {
+      result[k++] = (cellItems[i] > large[j] ? cellItems[i--] : large[j--]);
+    }
+    while (i >= lo) {
+      result[k++] = cellItems[i--];
+    }
+    while (j >= 0) {
+      result[k++] = large[j--];
+    }
+    return k;
+  }
+
+  /**
+   * Get the results of the last query. The array is reused across queries.
+   *
+   * @return the candidate queue indices, front-most first
+   */
+  public int[] getResults() {
+    return result;
+  }
+
+} // end of class PickingIndex
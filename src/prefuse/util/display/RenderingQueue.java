@@ -30,6 +30,10 @@ public class RenderingQueue {
   public int psize = 0;
   public boolean psorted = false;
 
+  // spatial index of the picking queue
+  public PickingIndex pindex = new PickingIndex();
+  public boolean pindexed = false;
+
   // buffer queues for use in sorting, these prevent continual re-allocation
   transient static VisualItem[] items_buf;
   transient static int[] scores_buf;
@@ -42,6 +46,7 @@ public class RenderingQueue {
     Arrays.fill(pitems, 0, psize, null);
     rsize = 0;
     psize = 0;
+    pindexed = false;
   }
 
   /**
@@ -97,6 +102,7 @@ public class RenderingQueue {
     pitems[psize] = item;
     pscores[psize++] = (sort != null ? sort.score(item) : 0);
     psorted = false;
+    pindexed = false;
   }
 
   /**
@@ -112,6 +118,16 @@ public class RenderingQueue {
   public void sortPickingQueue() {
     sort(pitems, pscores, psize);
     psorted = true;
+    pindexed = false;
+  }
+
+  /**
+   * Build the spatial index of the picking queue. The queue should be sorted
+   * first, so that the index preserves the picking order.
+   */
+  public void indexPickingQueue() {
+    pindex.build(pitems, psize);
+    pindexed = true;
   }
 
   /**
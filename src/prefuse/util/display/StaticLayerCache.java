@@ -0,0 +1,584 @@
+package prefuse.util.display;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.logging.Logger;
+
+import prefuse.Display;
+import prefuse.Visualization;
+import prefuse.render.LevelOfDetailRendererFactory;
+import prefuse.render.Renderer;
+import prefuse.render.RendererFactory;
+import prefuse.util.StringLib;
+import prefuse.visual.VisualItem;
+
+/**
+ * <p>
+ * A cache of rendered image tiles for the items of a Display's static groups,
+ * i.e., groups whose items rarely change. The tiles are square images of a fixed
+ * pixel size laid out on a grid aligned with the item-space origin, so panning
+ * the Display reuses the cached tiles and only zooming requires new ones.
+ * Missing tiles are rendered by a background thread and the Display is
+ * repainted as they become available; until then, tiles from the previous zoom
+ * level are drawn scaled in their place.
+ * </p>
+ *
+ * <p>
+ * Tiles are invalidated by the damage reported for items of the static groups,
+ * and kept (and drawn) until re-rendered, to avoid flicker. Static items are
+ * drawn beneath all other items of the Display, in the order of the Display's
+ * ItemSorter. The background thread renders while holding the lock of the
+ * Visualization, as renderers are not safe for concurrent use, and exits when
+ * idle.
+ * </p>
+ */
+public class StaticLayerCache {
+
+  private static final int TILE_SIZE = 256;
+  private static final long IDLE_TIMEOUT = 5000L;
+
+  private Display m_display;
+  private String[] m_groups = new String[0];
+  private int m_tileSize = TILE_SIZE;
+  private int m_maxTiles = 256;
+
+  // tiles at the current scale, and the previous scale as a fallback
+  private double m_scale = Double.NaN;
+  private HashMap m_tiles = new HashMap();
+  private double m_prevScale = Double.NaN;
+  private HashMap m_prevTiles = new HashMap();
+
+  // tile keys waiting to be, or being, rendered
+  private LinkedHashSet m_pending = new LinkedHashSet();
+  private LinkedHashSet m_rendering = new LinkedHashSet();
+  private int m_generation = 0;
+  private long m_frame = 0;
+  private Thread m_worker;
+
+  private AffineTransform m_xform = new AffineTransform();
+  private Rectangle2D m_rect = new Rectangle2D.Double();
+
+  /**
+   * Create a new StaticLayerCache for the given Display.
+   *
+   * @param display
+   *          the Display whose static items are cached
+   */
+  public StaticLayerCache(Display display) {
+    m_display = display;
+  }
+
+  // ------------------------------------------------------------------------
+  // Groups
+
+  /**
+   * Add a static group. Items whose {@link VisualItem#getGroup()} equals the
+   * group name are drawn from the cache.
+   *
+   * @param group
+   *          the data group name
+   */
+  public synchronized void addGroup(String group) {
+    if (!isStaticGroup(group)) {
+      String[] g = new String[m_groups.length + 1];
+      System.arraycopy(m_groups, 0, g, 0, m_groups.length);
+      g[m_groups.length] = group;
+      m_groups = g;
+      clear();
+    }
+  }
+
+  /**
+   * Remove a static group.
+   *
+   * @param group
+   *          the data group name
+   */
+  public synchronized void removeGroup(String group) {
+    for (int i = 0; i < m_groups.length; ++i) {
+      if (m_groups[i].equals(group)) {
+        String[] g = new String[m_groups.length - 1];
+        System.arraycopy(m_groups, 0, g, 0, i);
+        System.arraycopy(m_groups, i + 1, g, i, g.length - i);
+        m_groups = g;
+        clear();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Indicates if the given group is static.
+   *
+   * @param group
+   *          the data group name
+   * @return true if the group's items are drawn from the cache
+   */
+  public boolean isStaticGroup(String group) {
+    String[] groups = m_groups;
+    for (int i = 0; i < groups.length; ++i) {
+      if (groups[i].equals(group)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Indicates if there are any static groups.
+   *
+   * @return true if at least one group is static
+   */
+  public boolean hasGroups() {
+    return m_groups.length > 0;
+  }
+
+  /**
+   * Indicates if the given item belongs to a static group.
+   *
+   * @param item
+   *          the item to check
+   * @return true if the item is drawn from the cache
+   */
+  public boolean isStatic(VisualItem item) {
+    String[] groups = m_groups;
+    if (groups.length == 0) {
+      return false;
+    }
+    String group = item.getGroup();
+    for (int i = 0; i < groups.length; ++i) {
+      if (groups[i].equals(group)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // ------------------------------------------------------------------------
+  // Configuration
+
+  /**
+   * Get the width and height of the cached tiles, in pixels.
+   *
+   * @return the tile size
+   */
+  public int getTileSize() {
+    return m_tileSize;
+  }
+
+  /**
+   * Set the width and height of the cached tiles, in pixels. This clears the
+   * cache.
+   *
+   * @param size
+   *          the tile size
+   */
+  public synchronized void setTileSize(int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("Tile size must be positive");
+    }
+    m_tileSize = size;
+    clear();
+  }
+
+  /**
+   * Get the maximum number of tiles kept at the current scale.
+   *
+   * @return the maximum number of cached tiles
+   */
+  public int getMaximumTileCount() {
+    return m_maxTiles;
+  }
+
+  /**
+   * Set the maximum number of tiles kept at the current scale. The least
+   * recently drawn tiles are discarded first. The tiles covering the Display
+   * are always kept.
+   *
+   * @param count
+   *          the maximum number of cached tiles
+   */
+  public synchronized void setMaximumTileCount(int count) {
+    m_maxTiles = count;
+  }
+
+  // ------------------------------------------------------------------------
+  // Invalidation
+
+  /**
+   * Discard all cached tiles.
+   */
+  public synchronized void clear() {
+    m_tiles.clear();
+    m_prevTiles.clear();
+    m_pending.clear();
+    m_scale = Double.NaN;
+    ++m_generation;
+  }
+
+  /**
+   * Invalidate the tiles intersecting the given region. The tiles are drawn
+   * until they have been re-rendered.
+   *
+   * @param region
+   *          the damaged region, in item-space coordinates
+   */
+  public synchronized void invalidate(Rectangle2D region) {
+    if (m_tiles.isEmpty() && m_prevTiles.isEmpty() && m_rendering.isEmpty()) {
+      return;
+    }
+    if (!m_prevTiles.isEmpty()) {
+      invalidate(m_prevTiles, m_prevScale, region, false);
+    }
+    if (!Double.isNaN(m_scale)) {
+      invalidate(m_tiles, m_scale, region, true);
+    }
+  }
+
+  private void invalidate(HashMap tiles, double scale, Rectangle2D region, boolean current) {
+    // expand by a pixel, as renderers may draw slightly outside item bounds
+    double ts = m_tileSize / scale;
+    double px = 1 / scale;
+    int i0 = (int) Math.floor((region.getMinX() - px) / ts);
+    int i1 = (int) Math.floor((region.getMaxX() + px) / ts);
+    int j0 = (int) Math.floor((region.getMinY() - px) / ts);
+    int j1 = (int) Math.floor((region.getMaxY() + px) / ts);
+    if ((long) (i1 - i0 + 1) * (j1 - j0 + 1) > tiles.size() + m_rendering.size()) {
+      // large region, check each tile instead
+      for (Iterator it = tiles.values().iterator(); it.hasNext();) {
+        Tile t = (Tile) it.next();
+        if (t.i >= i0 && t.i <= i1 && t.j >= j0 && t.j <= j1) {
+          if (current) {
+            t.stale = true;
+          } else {
+            it.remove();
+          }
+        }
+      }
+      if (current) {
+        for (Iterator it = m_rendering.iterator(); it.hasNext();) {
+          Long key = (Long) it.next();
+          int i = tileX(key.longValue()), j = tileY(key.longValue());
+          if (i >= i0 && i <= i1 && j >= j0 && j <= j1) {
+            m_pending.add(key);
+          }
+        }
+      }
+      return;
+    }
+    for (int j = j0; j <= j1; ++j) {
+      for (int i = i0; i <= i1; ++i) {
+        Long key = Long.valueOf(key(i, j));
+        if (current) {
+          Tile t = (Tile) tiles.get(key);
+          if (t != null) {
+            t.stale = true;
+          }
+          if (m_rendering.contains(key)) {
+            m_pending.add(key);
+          }
+        } else {
+          tiles.remove(key);
+        }
+      }
+    }
+  }
+
+  // ------------------------------------------------------------------------
+  // Painting
+
+  /**
+   * Draw the cached tiles covering the given screen region, requesting any
+   * missing or invalid tiles from the background thread.
+   *
+   * @param g
+   *          the graphics context, with the Display transform applied
+   * @param screen
+   *          the region of the Display, in item-space coordinates
+   * @param scale
+   *          the scale of the Display transform
+   */
+  public synchronized void paint(Graphics2D g, Clip screen, double scale) {
+    if (scale != m_scale) {
+      // changed zoom level, keep the old tiles until the new ones are ready
+      if (!m_tiles.isEmpty()) {
+        m_prevTiles = m_tiles;
+        m_prevScale = m_scale;
+        m_tiles = new HashMap();
+      }
+      m_pending.clear();
+      m_scale = scale;
+      ++m_generation;
+    }
+    ++m_frame;
+
+    double ts = m_tileSize / scale;
+    int i0 = (int) Math.floor(screen.getMinX() / ts);
+    int i1 = (int) Math.floor(screen.getMaxX() / ts);
+    int j0 = (int) Math.floor(screen.getMinY() / ts);
+    int j1 = (int) Math.floor(screen.getMaxY() / ts);
+
+    boolean complete = true;
+    for (int j = j0; j <= j1; ++j) {
+      for (int i = i0; i <= i1; ++i) {
+        Long key = Long.valueOf(key(i, j));
+        Tile t = (Tile) m_tiles.get(key);
+        if (t == null) {
+          complete = false;
+          paintFallback(g, i * ts, j * ts, ts);
+        } else {
+          t.used = m_frame;
+          drawTile(g, t, ts);
+        }
+        if ((t == null || t.stale) && !m_rendering.contains(key)) {
+          m_pending.add(key);
+        }
+      }
+    }
+    if (complete) {
+      m_prevTiles.clear();
+    }
+    evict();
+
+    if (!m_pending.isEmpty()) {
+      if (m_worker == null) {
+        m_worker = new Thread(new Worker(), "prefuse_StaticLayerCache");
+        m_worker.setDaemon(true);
+        m_worker.setPriority(Thread.NORM_PRIORITY - 1);
+        m_worker.start();
+      } else {
+        notifyAll();
+      }
+    }
+  }
+
+  private void drawTile(Graphics2D g, Tile t, double ts) {
+    double s = ts / m_tileSize;
+    m_xform.setTransform(s, 0, 0, s, t.i * ts, t.j * ts);
+    g.drawImage(t.image, m_xform, null);
+  }
+
+  private void paintFallback(Graphics2D g, double x, double y, double ts) {
+    if (m_prevTiles.isEmpty()) {
+      return;
+    }
+    double pts = m_tileSize / m_prevScale;
+    int i0 = (int) Math.floor(x / pts), i1 = (int) Math.floor((x + ts) / pts);
+    int j0 = (int) Math.floor(y / pts), j1 = (int) Math.floor((y + ts) / pts);
+    Shape clip = g.getClip();
+    m_rect.setRect(x, y, ts, ts);
+    g.clip(m_rect);
+    for (int j = j0; j <= j1; ++j) {
+      for (int i = i0; i <= i1; ++i) {
+        Tile t = (Tile) m_prevTiles.get(Long.valueOf(key(i, j)));
+        if (t != null) {
+          drawTile(g, t, pts);
+        }
+      }
+    }
+    g.setClip(clip);
+  }
+
+  private void evict() {
+    if (m_tiles.size() <= m_maxTiles) {
+      return;
+    }
+    Tile[] tiles = (Tile[]) m_tiles.values().toArray(new Tile[m_tiles.size()]);
+    Arrays.sort(tiles, new Comparator() {
+      @Override
+      public int compare(Object o1, Object o2) {
+        long u1 = ((Tile) o1).used, u2 = ((Tile) o2).used;
+        return (u1 < u2 ? -1 : (u1 > u2 ? 1 : 0));
+      }
+    });
+    for (int k = 0; k < tiles.length - m_maxTiles && tiles[k].used < m_frame; ++k) {
+      m_tiles.remove(Long.valueOf(key(tiles[k].i, tiles[k].j)));
+    }
+  }
+
+  // ------------------------------------------------------------------------
+  // Tile Rendering
+
+  /**
+   * Render the given tiles. Called by the background thread.
+   */
+  private void render(long[] keys, int generation, double scale) {
+    Visualization vis = m_display.getVisualization();
+    if (vis == null) {
+      return;
+    }
+    int size = m_tileSize;
+    double ts = size / scale;
+    double px = 1 / scale;
+
+    // collect the static items covering the requested tiles, in drawing order
+    RenderingQueue queue = new RenderingQueue();
+    queue.sort = m_display.getItemSorter();
+    synchronized (vis) {
+      double x1 = Double.POSITIVE_INFINITY, y1 = Double.POSITIVE_INFINITY;
+      double x2 = Double.NEGATIVE_INFINITY, y2 = Double.NEGATIVE_INFINITY;
+      for (int k = 0; k < keys.length; ++k) {
+        x1 = Math.min(x1, tileX(keys[k]) * ts);
+        y1 = Math.min(y1, tileY(keys[k]) * ts);
+        x2 = Math.max(x2, (tileX(keys[k]) + 1) * ts);
+        y2 = Math.max(y2, (tileY(keys[k]) + 1) * ts);
+      }
+      String[] groups = m_groups;
+      for (int g = 0; g < groups.length; ++g) {
+        Iterator items = vis.items(groups[g], m_display.getPredicate());
+        while (items.hasNext()) {
+          VisualItem item = (VisualItem) items.next();
+          if (!item.isVisible()) {
+            continue;
+          }
+          Rectangle2D b = item.getBounds();
+          if (b.getMaxX() + px >= x1 && b.getMinX() - px <= x2 && b.getMaxY() + px >= y1 && b.getMinY() - px <= y2) {
+            queue.addToRenderQueue(item);
+          }
+        }
+      }
+      queue.sortRenderQueue();
+    }
+
+    for (int k = 0; k < keys.length; ++k) {
+      int i = tileX(keys[k]), j = tileY(keys[k]);
+      synchronized (this) {
+        if (generation != m_generation) {
+          return;
+        }
+      }
+      double x = i * ts, y = j * ts;
+      BufferedImage img = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+      Graphics2D g = img.createGraphics();
+      if (m_display.isHighQuality()) {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+      }
+      g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      g.translate(-i * size, -j * size);
+      g.scale(scale, scale);
+
+      synchronized (vis) {
+        RendererFactory rf = vis.getRendererFactory();
+        LevelOfDetailRendererFactory lod = null;
+        if (rf instanceof LevelOfDetailRendererFactory) {
+          lod = (LevelOfDetailRendererFactory) rf;
+        }
+        for (int q = 0; q < queue.rsize; ++q) {
+          VisualItem item = queue.ritems[q];
+          if (!item.isValid()) {
+            continue;
+          }
+          Rectangle2D b = item.getBounds();
+          if (b.getMaxX() + px < x || b.getMinX() - px > x + ts || b.getMaxY() + px < y || b.getMinY() - px > y + ts) {
+            continue;
+          }
+          try {
+            Renderer r = (lod != null ? lod.getRenderer(item, scale) : null);
+            if (r != null) {
+              r.render(g, item);
+            } else {
+              item.render(g);
+            }
+          } catch (Exception e) {
+            Logger.getLogger(getClass().getName()).warning(e.getMessage() + "\n" + StringLib.getStackTrace(e));
+          }
+        }
+      }
+      g.dispose();
+
+      Long key = Long.valueOf(keys[k]);
+      synchronized (this) {
+        m_rendering.remove(key);
+        if (generation != m_generation) {
+          return;
+        }
+        Tile t = new Tile(i, j, img);
+        t.used = m_frame;
+        // the tile may have been damaged while being rendered
+        t.stale = m_pending.contains(key);
+        m_tiles.put(key, t);
+      }
+      m_display.damageReport(new Rectangle2D.Double(x, y, ts, ts));
+      m_display.repaint();
+    }
+  }
+
+  /**
+   * The background rendering loop.
+   */
+  private class Worker implements Runnable {
+    @Override
+    public void run() {
+      while (true) {
+        long[] keys;
+        int generation;
+        double scale;
+        synchronized (StaticLayerCache.this) {
+          m_rendering.clear();
+          if (m_pending.isEmpty()) {
+            try {
+              StaticLayerCache.this.wait(IDLE_TIMEOUT);
+            } catch (InterruptedException e) {
+              // fall through
+            }
+          }
+          if (m_pending.isEmpty()) {
+            m_worker = null;
+            return;
+          }
+          keys = new long[m_pending.size()];
+          int k = 0;
+          for (Iterator it = m_pending.iterator(); it.hasNext();) {
+            keys[k++] = ((Long) it.next()).longValue();
+          }
+          m_rendering.addAll(m_pending);
+          m_pending.clear();
+          generation = m_generation;
+          scale = m_scale;
+        }
+        render(keys, generation, scale);
+      }
+    }
+  }
+
+  // ------------------------------------------------------------------------
+  // Tiles
+
+  private static long key(int i, int j) {
+    return (((long) i) << 32) | (j & 0xffffffffL);
+  }
+
+  private static int tileX(long key) {
+    return (int) (key >> 32);
+  }
+
+  private static int tileY(long key) {
+    return (int) key;
+  }
+
+  /**
+   * A rendered tile.
+   */
+  private static class Tile {
+    final int i, j;
+    final BufferedImage image;
+    boolean stale = false;
+    long used;
+
+    Tile(int i, int j, BufferedImage image) {
+      this.i = i;
+      this.j = j;
+      this.image = image;
+    }
+  }
+
+} // end of class StaticLayerCache
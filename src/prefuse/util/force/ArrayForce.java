@@ -0,0 +1,22 @@
+package prefuse.util.force;
+
+/**
+ * Interface for force functions that can operate directly on the primitive
+ * state arrays of an {@link ArrayForceSimulator}, avoiding per-item object
+ * access. Force functions that do not implement this interface are still
+ * supported by the ArrayForceSimulator through their {@link Force} methods.
+ *
+ * @see ArrayForceSimulator
+ */
+public interface ArrayForce extends Force {
+
+  /**
+   * Accumulate this force over all items or springs of the simulator, adding
+   * the resulting force values into the simulator's force array.
+   * 
+   * @param sim
+   *          the ArrayForceSimulator whose state arrays should be updated
+   */
+  public void getForces(ArrayForceSimulator sim);
+
+} // end of interface ArrayForce
@@ -0,0 +1,530 @@
+package prefuse.util.force;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>
+ * A ForceSimulator that stores the simulation state in contiguous primitive
+ * arrays indexed by item number, rather than in the individual
+ * {@link ForceItem} and {@link Spring} objects. Items and springs are still
+ * registered through the regular {@link ForceSimulator} methods, which copy
+ * their state into the arrays. From then on the arrays hold the authoritative
+ * simulation state: all force and integration passes run over the arrays, and
+ * the results of each {@link #runSimulator(long)} step are written back to the
+ * ForceItems, so that they can be read by callers such as
+ * {@link prefuse.action.layout.graph.ForceDirectedLayout}. Values changed
+ * directly on a ForceItem or Spring after it was added must be copied into the
+ * arrays with {@link #loadItems()}. Once the arrays have grown to the size of the
+ * simulation, running the simulator allocates no further memory.
+ * </p>
+ *
+ * <p>
+ * Force functions implementing {@link ArrayForce} (such as {@link SpringForce}
+ * and {@link DragForce}) and integrators implementing {@link ArrayIntegrator}
+ * (such as {@link EulerIntegrator} and {@link RungeKuttaIntegrator}) operate on
+ * the arrays directly. Other force functions, such as {@link NBodyForce}, are
+ * evaluated through their regular per-item methods, for which the item
+ * locations and velocities are copied to the ForceItems before each force
+ * pass. If the integrator does not implement ArrayIntegrator, the simulation
+ * falls back to the object-based ForceSimulator behavior.
+ * </p>
+ *
+ * <p>
+ * Two-dimensional values are stored interleaved, so that the x and y
+ * components for item <code>i</code> are found at indices <code>2*i</code> and
+ * <code>2*i+1</code>. The Runge-Kutta temporaries for item <code>i</code> and
+ * stage <code>s</code> are at <code>8*i+2*s</code> and <code>8*i+2*s+1</code>.
+ * Springs must connect items that have been added to this simulator.
+ * </p>
+ */
+public class ArrayForceSimulator extends ForceSimulator {
+
+  private int n, nsprings;
+  private ForceItem[] itemRefs = new ForceItem[0];
+  private Spring[] springRefs = new Spring[0];
+
+  float[] mass = new float[0];
+  float[] location = new float[0];
+  float[] plocation = new float[0];
+  float[] velocity = new float[0];
+  float[] force = new float[0];
+  float[] k = new float[0];
+  float[] l = new float[0];
+
+  int[] springItem1 = new int[0];
+  int[] springItem2 = new int[0];
+  float[] springCoeff = new float[0];
+  float[] springLength = new float[0];
+
+  private ArrayForce[] aforces = new ArrayForce[5];
+  private Force[] iforces = new Force[5];
+  private Force[] sforces = new Force[5];
+  private int aflen, iflen, sflen;
+
+  private boolean arrayMode = false;
+  // true if the state arrays lag behind the ForceItems
+  private boolean arraysStale = false;
+
+  /**
+   * Create a new, empty ArrayForceSimulator. A RungeKuttaIntegrator is used by
+   * default.
+   */
+  public ArrayForceSimulator() {
+    this(new RungeKuttaIntegrator());
+  }
+
+  /**
+   * Create a new, empty ArrayForceSimulator.
+   *
+   * @param integr
+   *          the Integrator to use
+   */
+  public ArrayForceSimulator(Integrator integr) {
+    super(integr);
+  }
+
+  // ------------------------------------------------------------------------
+  // Simulation Contents
+
+  /**
+   * @see prefuse.util.force.ForceSimulator#clear()
+   */
+  @Override
+  public void clear() {
+    super.clear();
+    Arrays.fill(itemRefs, 0, n, null);
+    Arrays.fill(springRefs, 0, nsprings, null);
+    n = 0;
+    nsprings = 0;
+    arraysStale = false;
+  }
+
+  /**
+   * @see prefuse.util.force.ForceSimulator#addForce(prefuse.util.force.Force)
+   */
+  @Override
+  public void addForce(Force f) {
+    super.addForce(f);
+    if (f instanceof ArrayForce) {
+      if (aforces.length == aflen) {
+        aforces = (ArrayForce[]) Arrays.copyOf(aforces, aflen + 10);
+      }
+      aforces[aflen++] = (ArrayForce) f;
+      return;
+    }
+    if (f.isItemForce()) {
+      if (iforces.length == iflen) {
+        iforces = (Force[]) Arrays.copyOf(iforces, iflen + 10);
+      }
+      iforces[iflen++] = f;
+    }
+    if (f.isSpringForce()) {
+      if (sforces.length == sflen) {
+        sforces = (Force[]) Arrays.copyOf(sforces, sflen + 10);
+      }
+      sforces[sflen++] = f;
+    }
+  }
+
+  /**
+   * @see prefuse.util.force.ForceSimulator#addItem(prefuse.util.force.ForceItem)
+   */
+  @Override
+  public void addItem(ForceItem item) {
+    super.addItem(item);
+    ensureItemCapacity(n + 1);
+    item.index = n;
+    itemRefs[n] = item;
+    loadItem(n++);
+  }
+
+  /**
+   * Remove a ForceItem from the simulation. Any springs attached to the item are
+   * removed as well.
+   *
+   * @see prefuse.util.force.ForceSimulator#removeItem(prefuse.util.force.ForceItem)
+   */
+  @Override
+  public boolean removeItem(ForceItem item) {
+    int idx = indexOf(item);
+    if (idx < 0) {
+      return super.removeItem(item);
+    }
+    super.removeItem(item);
+    int len = n - idx - 1;
+    System.arraycopy(itemRefs, idx + 1, itemRefs, idx, len);
+    System.arraycopy(mass, idx + 1, mass, idx, len);
+    System.arraycopy(location, 2 * idx + 2, location, 2 * idx, 2 * len);
+    System.arraycopy(plocation, 2 * idx + 2, plocation, 2 * idx, 2 * len);
+    System.arraycopy(velocity, 2 * idx + 2, velocity, 2 * idx, 2 * len);
+    System.arraycopy(force, 2 * idx + 2, force, 2 * idx, 2 * len);
+    itemRefs[--n] = null;
+    for (int i = idx; i < n; i++) {
+      itemRefs[i].index = i;
+    }
+    item.index = -1;
+
+    int j = 0;
+    for (int i = 0; i < nsprings; i++) {
+      Spring s = springRefs[i];
+      if (s.item1 == item || s.item2 == item) {
+        continue;
+      }
+      springRefs[j] = s;
+      springItem1[j] = s.item1.index;
+      springItem2[j] = s.item2.index;
+      springCoeff[j] = springCoeff[i];
+      springLength[j] = springLength[i];
+      ++j;
+    }
+    Arrays.fill(springRefs, j, nsprings, null);
+    nsprings = j;
+    return true;
+  }
+
+  /**
+   * @see prefuse.util.force.ForceSimulator#addSpring(prefuse.util.force.ForceItem,
+   *      prefuse.util.force.ForceItem, float, float)
+   */
+  @Override
+  public Spring addSpring(ForceItem item1, ForceItem item2, float coeff, float length) {
+    if (item1 == null || item2 == null) {
+      throw new IllegalArgumentException("ForceItems must be non-null");
+    }
+    int i1 = indexOf(item1), i2 = indexOf(item2);
+    if (i1 < 0 || i2 < 0) {
+      throw new IllegalArgumentException("ForceItems must be added to the simulator before use in a Spring");
+    }
+    Spring s = super.addSpring(item1, item2, coeff, length);
+    ensureSpringCapacity(nsprings + 1);
+    springRefs[nsprings] = s;
+    springItem1[nsprings] = i1;
+    springItem2[nsprings] = i2;
+    springCoeff[nsprings] = s.coeff;
+    springLength[nsprings] = s.length;
+    ++nsprings;
+    return s;
+  }
+
+  private int indexOf(ForceItem item) {
+    int idx = item.index;
+    return (idx >= 0 && idx < n && itemRefs[idx] == item ? idx : -1);
+  }
+
+  private void ensureItemCapacity(int cap) {
+    if (cap <= itemRefs.length) {
+      return;
+    }
+    int len = Math.max(cap, (3 * itemRefs.length) / 2 + 1);
+    itemRefs = (ForceItem[]) Arrays.copyOf(itemRefs, len);
+    mass = Arrays.copyOf(mass, len);
+    location = Arrays.copyOf(location, 2 * len);
+    plocation = Arrays.copyOf(plocation, 2 * len);
+    velocity = Arrays.copyOf(velocity, 2 * len);
+    force = Arrays.copyOf(force, 2 * len);
+    k = new float[8 * len];
+    l = new float[8 * len];
+  }
+
+  private void ensureSpringCapacity(int cap) {
+    if (cap <= springRefs.length) {
+      return;
+    }
+    int len = Math.max(cap, (3 * springRefs.length) / 2 + 1);
+    springRefs = (Spring[]) Arrays.copyOf(springRefs, len);
+    springItem1 = Arrays.copyOf(springItem1, len);
+    springItem2 = Arrays.copyOf(springItem2, len);
+    springCoeff = Arrays.copyOf(springCoeff, len);
+    springLength = Arrays.copyOf(springLength, len);
+  }
+
+  // ------------------------------------------------------------------------
+  // State Arrays
+
+  /**
+   * Get the number of springs in the simulation.
+   *
+   * @return the number of springs
+   */
+  public int getSpringCount() {
+    return nsprings;
+  }
+
+  /**
+   * Get the array of item mass values, indexed by item number.
+   *
+   * @return the mass array. Only the first {@link #getItemCount()} entries are
+   *         valid.
+   */
+  public float[] getMassArray() {
+    return mass;
+  }
+
+  /**
+   * Get the interleaved array of item locations.
+   *
+   * @return the location array
+   */
+  public float[] getLocationArray() {
+    return location;
+  }
+
+  /**
+   * Get the interleaved array of item velocities.
+   *
+   * @return the velocity array
+   */
+  public float[] getVelocityArray() {
+    return velocity;
+  }
+
+  /**
+   * Get the interleaved array of forces acting on items.
+   *
+   * @return the force array
+   */
+  public float[] getForceArray() {
+    return force;
+  }
+
+  /**
+   * Get the array of first spring endpoints, as item numbers.
+   *
+   * @return the first endpoint array. Only the first {@link #getSpringCount()}
+   *         entries are valid.
+   */
+  public int[] getSpringItem1Array() {
+    return springItem1;
+  }
+
+  /**
+   * Get the array of second spring endpoints, as item numbers.
+   *
+   * @return the second endpoint array
+   */
+  public int[] getSpringItem2Array() {
+    return springItem2;
+  }
+
+  /**
+   * Get the array of spring coefficients. Negative values indicate the force
+   * function default should be used.
+   *
+   * @return the spring coefficient array
+   */
+  public float[] getSpringCoeffArray() {
+    return springCoeff;
+  }
+
+  /**
+   * Get the array of spring lengths. Negative values indicate the force function
+   * default should be used.
+   *
+   * @return the spring length array
+   */
+  public float[] getSpringLengthArray() {
+    return springLength;
+  }
+
+  // ------------------------------------------------------------------------
+  // Simulation
+
+  /**
+   * @see prefuse.util.force.ForceSimulator#runSimulator(long)
+   */
+  @Override
+  public void runSimulator(long timestep) {
+    Integrator integr = getIntegrator();
+    if (!(integr instanceof ArrayIntegrator)) {
+      super.runSimulator(timestep);
+      arraysStale = true;
+      return;
+    }
+    if (arraysStale) {
+      loadItems();
+    }
+    arrayMode = true;
+    try {
+      accumulate();
+      ((ArrayIntegrator) integr).integrate(this, timestep);
+    } finally {
+      arrayMode = false;
+    }
+    storeItems();
+  }
+
+  /**
+   * Accumulate all forces acting on the items in this simulation. Within a call
+   * to {@link #runSimulator(long)} the forces are accumulated into the state
+   * arrays, otherwise into the ForceItems.
+   *
+   * @see prefuse.util.force.ForceSimulator#accumulate()
+   */
+  @Override
+  public void accumulate() {
+    if (!arrayMode) {
+      super.accumulate();
+      return;
+    }
+    Arrays.fill(force, 0, 2 * n, 0.0f);
+    for (int i = 0; i < aflen; i++) {
+      aforces[i].init(this);
+    }
+    if (iflen > 0 || sflen > 0) {
+      // remaining forces are evaluated through the ForceItem objects
+      storeLocations();
+      for (int i = 0; i < iflen; i++) {
+        iforces[i].init(this);
+      }
+      for (int i = 0; i < sflen; i++) {
+        sforces[i].init(this);
+      }
+    }
+
+    // item forces, then spring forces, matching the ForceSimulator ordering
+    if (iflen > 0) {
+      ForkJoinPool pool = getForkJoinPool();
+      if (pool != null && n > 256) {
+        pool.invoke(new ItemForceTask(0, n, Math.max(256, n / (4 * getParallelism()))));
+      } else {
+        itemForces(0, n);
+      }
+    }
+    for (int i = 0; i < aflen; i++) {
+      if (aforces[i].isItemForce()) {
+        aforces[i].getForces(this);
+      }
+    }
+    for (int i = 0; i < aflen; i++) {
+      if (!aforces[i].isItemForce()) {
+        aforces[i].getForces(this);
+      }
+    }
+    if (sflen > 0) {
+      for (int i = 0; i < n; i++) {
+        itemRefs[i].force[0] = 0.0f;
+        itemRefs[i].force[1] = 0.0f;
+      }
+      for (int j = 0; j < nsprings; j++) {
+        for (int i = 0; i < sflen; i++) {
+          sforces[i].getForce(springRefs[j]);
+        }
+      }
+      for (int i = 0; i < n; i++) {
+        force[2 * i] += itemRefs[i].force[0];
+        force[2 * i + 1] += itemRefs[i].force[1];
+      }
+    }
+  }
+
+  /**
+   * Evaluate the non-array item forces for a range of items, adding the results
+   * into the force array.
+   */
+  private void itemForces(int lo, int hi) {
+    for (int j = lo; j < hi; j++) {
+      ForceItem item = itemRefs[j];
+      item.force[0] = 0.0f;
+      item.force[1] = 0.0f;
+      for (int i = 0; i < iflen; i++) {
+        iforces[i].getForce(item);
+      }
+      force[2 * j] += item.force[0];
+      force[2 * j + 1] += item.force[1];
+    }
+  }
+
+  /**
+   * Copy the current values of all ForceItems and Springs into the state arrays.
+   * This must be called after ForceItem or Spring values are changed directly,
+   * other than through the state arrays.
+   */
+  public void loadItems() {
+    for (int i = 0; i < n; i++) {
+      loadItem(i);
+    }
+    for (int j = 0; j < nsprings; j++) {
+      springCoeff[j] = springRefs[j].coeff;
+      springLength[j] = springRefs[j].length;
+    }
+    arraysStale = false;
+  }
+
+  /**
+   * Copy the state arrays back into the ForceItems, including their forces and
+   * previous locations. This is done at the end of every simulation step, and
+   * only needs to be called after the state arrays are changed directly.
+   */
+  public void storeItems() {
+    for (int i = 0; i < n; i++) {
+      storeItem(i);
+    }
+  }
+
+  private void loadItem(int i) {
+    ForceItem item = itemRefs[i];
+    mass[i] = item.mass;
+    location[2 * i] = item.location[0];
+    location[2 * i + 1] = item.location[1];
+    plocation[2 * i] = item.plocation[0];
+    plocation[2 * i + 1] = item.plocation[1];
+    velocity[2 * i] = item.velocity[0];
+    velocity[2 * i + 1] = item.velocity[1];
+    force[2 * i] = item.force[0];
+    force[2 * i + 1] = item.force[1];
+  }
+
+  private void storeItem(int i) {
+    ForceItem item = itemRefs[i];
+    item.location[0] = location[2 * i];
+    item.location[1] = location[2 * i + 1];
+    item.plocation[0] = plocation[2 * i];
+    item.plocation[1] = plocation[2 * i + 1];
+    item.velocity[0] = velocity[2 * i];
+    item.velocity[1] = velocity[2 * i + 1];
+    item.force[0] = force[2 * i];
+    item.force[1] = force[2 * i + 1];
+  }
+
+  /**
+   * Copy the current locations and velocities into the ForceItems, for use by
+   * force functions that do not operate on the state arrays.
+   */
+  private void storeLocations() {
+    for (int i = 0; i < n; i++) {
+      ForceItem item = itemRefs[i];
+      item.location[0] = location[2 * i];
+      item.location[1] = location[2 * i + 1];
+      item.velocity[0] = velocity[2 * i];
+      item.velocity[1] = velocity[2 * i + 1];
+    }
+  }
+
+  /**
+   * Fork/join task evaluating non-array item forces over a range of items.
+   */
+  private final class ItemForceTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int lo, hi, grain;
+
+    ItemForceTask(int lo, int hi, int grain) {
+      this.lo = lo;
+      this.hi = hi;
+      this.grain = grain;
+    }
+
+    @Override
+    protected void compute() {
+      if (hi - lo <= grain) {
+        itemForces(lo, hi);
+      } else {
+        int mid = (lo + hi) >>> 1;
+        invokeAll(new ItemForceTask(lo, mid, grain), new ItemForceTask(mid, hi, grain));
+      }
+    }
+  } // end of inner class ItemForceTask
+
+} // end of class ArrayForceSimulator
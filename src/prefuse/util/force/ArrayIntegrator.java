@@ -0,0 +1,22 @@
+package prefuse.util.force;
+
+/**
+ * Interface for integrators that can update the primitive state arrays of an
+ * {@link ArrayForceSimulator} directly.
+ *
+ * @see ArrayForceSimulator
+ */
+public interface ArrayIntegrator extends Integrator {
+
+  /**
+   * Update the velocity and position arrays of the simulator in response to the
+   * currently accumulated forces.
+   * 
+   * @param sim
+   *          the ArrayForceSimulator to integrate
+   * @param timestep
+   *          the span of the timestep
+   */
+  public void integrate(ArrayForceSimulator sim, long timestep);
+
+} // end of interface ArrayIntegrator
@@ -5,7 +5,7 @@ package prefuse.util.force;
  * 
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
-public class DragForce extends AbstractForce {
+public class DragForce extends AbstractForce implements ArrayForce {
 
   private static String[] pnames = new String[] { "DragCoefficient" };
 
@@ -60,4 +60,17 @@ public class DragForce extends AbstractForce {
     item.force[1] -= params[DRAG_COEFF] * item.velocity[1];
   }
 
+  /**
+   * @see prefuse.util.force.ArrayForce#getForces(prefuse.util.force.ArrayForceSimulator)
+   */
+  @Override
+  public void getForces(ArrayForceSimulator sim) {
+    float coeff = params[DRAG_COEFF];
+    float[] velocity = sim.velocity, force = sim.force;
+    int len = 2 * sim.getItemCount();
+    for (int i = 0; i < len; i++) {
+      force[i] -= coeff * velocity[i];
+    }
+  }
+
 } // end of class DragForce
@@ -10,7 +10,7 @@ import java.util.Iterator;
  * @author <a href="http://jheer.org">jeffrey heer</a>
  * @see RungeKuttaIntegrator
  */
-public class EulerIntegrator implements Integrator {
+public class EulerIntegrator implements ArrayIntegrator {
 
   /**
    * @see prefuse.util.force.Integrator#integrate(prefuse.util.force.ForceSimulator,
@@ -37,4 +37,30 @@ public class EulerIntegrator implements Integrator {
     }
   }
 
+  /**
+   * @see prefuse.util.force.ArrayIntegrator#integrate(prefuse.util.force.ArrayForceSimulator,
+   *      long)
+   */
+  @Override
+  public void integrate(ArrayForceSimulator sim, long timestep) {
+    float speedLimit = sim.getSpeedLimit();
+    float[] mass = sim.mass, location = sim.location, velocity = sim.velocity, force = sim.force;
+    int count = sim.getItemCount();
+    for (int i = 0; i < count; i++) {
+      int x = 2 * i, y = x + 1;
+      location[x] += timestep * velocity[x];
+      location[y] += timestep * velocity[y];
+      float coeff = timestep / mass[i];
+      velocity[x] += coeff * force[x];
+      velocity[y] += coeff * force[y];
+      float vx = velocity[x];
+      float vy = velocity[y];
+      float v = (float) Math.sqrt(vx * vx + vy * vy);
+      if (v > speedLimit) {
+        velocity[x] = speedLimit * vx / v;
+        velocity[y] = speedLimit * vy / v;
+      }
+    }
+  }
+
 } // end of class EulerIntegrator
@@ -55,6 +55,8 @@ public class ForceItem implements Cloneable {
   public float[][] k;
   /** Temporary variables for Runge-Kutta integration */
   public float[][] l;
+  /** The index of this ForceItem within an ArrayForceSimulator, or -1. */
+  int index = -1;
 
   /**
    * Checks a ForceItem to make sure its values are all valid numbers (i.e., not
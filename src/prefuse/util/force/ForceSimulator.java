@@ -2,12 +2,24 @@ package prefuse.util.force;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Manages a simulation of physical forces acting on bodies. To create a custom
  * ForceSimulator, add the desired {@link Force} functions and choose an
  * appropriate {@link Integrator}.
  *
+ * <p>
+ * By default forces are accumulated on the calling thread. Calling
+ * {@link #setParallelism(int)} with a value greater than one partitions the
+ * per-item force computation across a ForkJoinPool. In this mode the item
+ * forces ({@link Force#isItemForce()}) must only modify the ForceItem they are
+ * handed and must tolerate concurrent invocation on distinct items. Spring
+ * forces are always accumulated sequentially, as each spring updates two
+ * items.
+ * </p>
+ *
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
 public class ForceSimulator {
@@ -20,6 +32,14 @@ public class ForceSimulator {
   private Integrator integrator;
   private float speedLimit = 1.0f;
 
+  private int parallelism = 1;
+  private ForkJoinPool pool;
+  private ForceItem[] itemArray = new ForceItem[0];
+  private int itemCount;
+
+  /** Minimum number of items processed by a single parallel task. */
+  private static final int MIN_GRAIN = 256;
+
   /**
    * Create a new, empty ForceSimulator. A RungeKuttaIntegrator is used by
    * default.
@@ -63,6 +83,51 @@ public class ForceSimulator {
     speedLimit = limit;
   }
 
+  /**
+   * Get the number of threads used to accumulate item forces.
+   * 
+   * @return the parallelism level, 1 if forces are computed sequentially
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Set the number of threads used to accumulate item forces. A value of 1
+   * (the default) computes all forces on the calling thread. Larger values
+   * partition the item force computation across a dedicated ForkJoinPool of
+   * the given size. Force functions such as {@link NBodyForce} produce
+   * deterministic results for a fixed parallelism level.
+   * 
+   * @param threads
+   *          the number of threads to use, must be at least 1
+   */
+  public void setParallelism(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1");
+    }
+    if (threads == parallelism) {
+      return;
+    }
+    if (pool != null) {
+      pool.shutdown();
+      pool = null;
+    }
+    parallelism = threads;
+    if (threads > 1) {
+      pool = new ForkJoinPool(threads);
+    }
+  }
+
+  /**
+   * Get the ForkJoinPool used for parallel force computation.
+   * 
+   * @return the pool, or null if this simulator runs sequentially
+   */
+  ForkJoinPool getForkJoinPool() {
+    return pool;
+  }
+
   /**
    * Get the Integrator used by this simulator.
    * 
@@ -88,6 +153,8 @@ public class ForceSimulator {
    */
   public void clear() {
     items.clear();
+    itemArray = new ForceItem[0];
+    itemCount = 0;
     Iterator siter = springs.iterator();
     Spring.SpringFactory f = Spring.getFactory();
     while (siter.hasNext()) {
@@ -164,6 +231,15 @@ public class ForceSimulator {
     return items.iterator();
   }
 
+  /**
+   * Get the number of registered ForceItems.
+   * 
+   * @return the number of ForceItems
+   */
+  public int getItemCount() {
+    return items.size();
+  }
+
   /**
    * Add a Spring to the simulation.
    * 
@@ -238,20 +314,23 @@ public class ForceSimulator {
    * Accumulate all forces acting on the items in this simulation
    */
   public void accumulate() {
+    itemCount = items.size();
+    if (itemArray.length < itemCount) {
+      itemArray = new ForceItem[itemCount + itemCount / 2];
+    }
+    itemArray = (ForceItem[]) items.toArray(itemArray);
+
     for (int i = 0; i < iflen; i++) {
       iforces[i].init(this);
     }
     for (int i = 0; i < sflen; i++) {
       sforces[i].init(this);
     }
-    Iterator itemIter = items.iterator();
-    while (itemIter.hasNext()) {
-      ForceItem item = (ForceItem) itemIter.next();
-      item.force[0] = 0.0f;
-      item.force[1] = 0.0f;
-      for (int i = 0; i < iflen; i++) {
-        iforces[i].getForce(item);
-      }
+    if (pool != null && itemCount > MIN_GRAIN) {
+      int grain = Math.max(MIN_GRAIN, itemCount / (4 * parallelism));
+      pool.invoke(new ItemForceTask(0, itemCount, grain));
+    } else {
+      accumulateItems(0, itemCount);
     }
     Iterator springIter = springs.iterator();
     while (springIter.hasNext()) {
@@ -262,4 +341,45 @@ public class ForceSimulator {
     }
   }
 
+  /**
+   * Clear and recompute the item forces for a range of the item snapshot array.
+   */
+  private void accumulateItems(int lo, int hi) {
+    ForceItem[] items = itemArray;
+    for (int j = lo; j < hi; j++) {
+      ForceItem item = items[j];
+      item.force[0] = 0.0f;
+      item.force[1] = 0.0f;
+      for (int i = 0; i < iflen; i++) {
+        iforces[i].getForce(item);
+      }
+    }
+  }
+
+  /**
+   * Fork/join task accumulating item forces over a range of items, splitting the
+   * range in half until it falls below the grain size.
+   */
+  private final class ItemForceTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int lo, hi, grain;
+
+    ItemForceTask(int lo, int hi, int grain) {
+      this.lo = lo;
+      this.hi = hi;
+      this.grain = grain;
+    }
+
+    @Override
+    protected void compute() {
+      if (hi - lo <= grain) {
+        accumulateItems(lo, hi);
+      } else {
+        int mid = (lo + hi) >>> 1;
+        invokeAll(new ItemForceTask(lo, mid, grain), new ItemForceTask(mid, hi, grain));
+      }
+    }
+  } // end of inner class ItemForceTask
+
 } // end of class ForceSimulator
@@ -4,6 +4,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Logger;
+
+import prefuse.util.StringLib;
 
 /**
  * <p>
@@ -32,10 +37,21 @@ import java.util.Random;
  * </ul>
  * </p>
  * 
+ * <p>
+ * When the enclosing {@link ForceSimulator} is configured with a parallelism
+ * greater than one, the quadtree for large item sets is built one top-level
+ * quadrant per task, and the per-item force traversals are distributed by the
+ * simulator. In this mode the random jitter applied to coincident items is
+ * derived from item positions rather than a shared random number generator, so
+ * results are identical from run to run.
+ * </p>
+ * 
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
 public class NBodyForce extends AbstractForce {
 
+  private static final Logger s_logger = Logger.getLogger(NBodyForce.class.getName());
+
   /*
    * The indexing scheme for quadtree child nodes goes row by row. 0 | 1 0 -> top
    * left, 1 -> top right ------- 2 | 3 2 -> bottom left, 3 -> bottom right
@@ -65,6 +81,13 @@ public class NBodyForce extends AbstractForce {
 
   private Random rand = new Random(12345678L); // deterministic randomness
 
+  /** Minimum number of items for which the quadtree is built in parallel. */
+  private static final int PARALLEL_BUILD_THRESHOLD = 4096;
+
+  private boolean parallel = false;
+  private QuadTreeNodeFactory[] quadFactories;
+  private ForceItem[] itemBuffer = new ForceItem[0];
+
   /**
    * Create a new NBodyForce with default parameters.
    */
@@ -134,17 +157,22 @@ public class NBodyForce extends AbstractForce {
    * Clears the quadtree of all entries.
    */
   public void clear() {
-    clearHelper(root);
+    for (int i = 0; i < root.children.length; i++) {
+      if (root.children[i] != null) {
+        clearHelper(root.children[i], quadFactories == null ? factory : quadFactories[i]);
+      }
+    }
+    factory.reclaim(root);
     root = factory.getQuadTreeNode();
   }
 
-  private void clearHelper(QuadTreeNode n) {
+  private void clearHelper(QuadTreeNode n, QuadTreeNodeFactory f) {
     for (int i = 0; i < n.children.length; i++) {
       if (n.children[i] != null) {
-        clearHelper(n.children[i]);
+        clearHelper(n.children[i], f);
       }
     }
-    factory.reclaim(n);
+    f.reclaim(n);
   }
 
   /**
@@ -158,6 +186,7 @@ public class NBodyForce extends AbstractForce {
   @Override
   public void init(ForceSimulator fsim) {
     clear(); // clear internal state
+    parallel = fsim.getParallelism() > 1;
 
     // compute and squarify bounds of quadtree
     float x1 = Float.MAX_VALUE, y1 = Float.MAX_VALUE;
@@ -188,6 +217,12 @@ public class NBodyForce extends AbstractForce {
     }
     setBounds(x1, y1, x2, y2);
 
+    ForkJoinPool pool = fsim.getForkJoinPool();
+    if (parallel && pool != null && fsim.getItemCount() >= PARALLEL_BUILD_THRESHOLD) {
+      buildParallel(fsim, pool);
+      return;
+    }
+
     // insert items into quadtree
     itemIter = fsim.getItems();
     while (itemIter.hasNext()) {
@@ -199,6 +234,71 @@ public class NBodyForce extends AbstractForce {
     calcMass(root);
   }
 
+  /**
+   * Build the quadtree and compute its masses with one task per top-level
+   * quadrant. Items are distributed to the quadrants in iteration order, so the
+   * resulting tree is identical to one built by sequential insertion.
+   */
+  private void buildParallel(ForceSimulator fsim, ForkJoinPool pool) {
+    int count = fsim.getItemCount();
+    if (itemBuffer.length < count) {
+      itemBuffer = new ForceItem[count + count / 2];
+    }
+    ForceItem[] items = itemBuffer;
+    Iterator itemIter = fsim.getItems();
+    for (int j = 0; j < count; j++) {
+      items[j] = (ForceItem) itemIter.next();
+    }
+    if (quadFactories == null) {
+      quadFactories = new QuadTreeNodeFactory[4];
+      for (int i = 0; i < quadFactories.length; i++) {
+        quadFactories[i] = new QuadTreeNodeFactory();
+      }
+    }
+
+    // mirror sequential insertion: if the first two items coincide, the
+    // first one remains stored at the root
+    int start = 0;
+    if (isSameLocation(items[0], items[1])) {
+      root.value = items[0];
+      start = 1;
+    }
+
+    // partition items by quadrant, preserving their relative order
+    float splitx = (xMin + xMax) / 2;
+    float splity = (yMin + yMax) / 2;
+    int[] quadrant = new int[count];
+    int[] sizes = new int[4];
+    for (int j = start; j < count; j++) {
+      ForceItem item = items[j];
+      int i = (item.location[0] >= splitx ? 1 : 0) + (item.location[1] >= splity ? 2 : 0);
+      quadrant[j] = i;
+      sizes[i]++;
+    }
+    ForceItem[][] parts = new ForceItem[4][];
+    for (int i = 0; i < 4; i++) {
+      parts[i] = new ForceItem[sizes[i]];
+      sizes[i] = 0;
+    }
+    for (int j = start; j < count; j++) {
+      int i = quadrant[j];
+      parts[i][sizes[i]++] = items[j];
+    }
+    Arrays.fill(items, 0, count, null);
+
+    ArrayList tasks = new ArrayList(4);
+    for (int i = 0; i < 4; i++) {
+      if (parts[i].length > 0) {
+        root.children[i] = quadFactories[i].getQuadTreeNode();
+        root.hasChildren = true;
+        tasks.add(new QuadrantTask(i, parts[i], (i == 1 || i == 3 ? splitx : xMin), (i > 1 ? splity : yMin),
+            (i == 1 || i == 3 ? xMax : splitx), (i > 1 ? yMax : splity)));
+      }
+    }
+    pool.invoke(new QuadTreeBuildTask(tasks));
+    sumMass(root);
+  }
+
   /**
    * Inserts an item into the quadtree.
    * 
@@ -211,28 +311,28 @@ public class NBodyForce extends AbstractForce {
   public void insert(ForceItem item) {
     // insert item into the quadtrees
     try {
-      insert(item, root, xMin, yMin, xMax, yMax);
+      insert(item, root, xMin, yMin, xMax, yMax, factory);
     } catch (StackOverflowError e) {
       // TODO: safe to remove?
       e.printStackTrace();
     }
   }
 
-  private void insert(ForceItem p, QuadTreeNode n, float x1, float y1, float x2, float y2) {
+  private void insert(ForceItem p, QuadTreeNode n, float x1, float y1, float x2, float y2, QuadTreeNodeFactory f) {
     // try to insert particle p at node n in the quadtree
     // by construction, each leaf will contain either 1 or 0 particles
     if (n.hasChildren) {
       // n contains more than 1 particle
-      insertHelper(p, n, x1, y1, x2, y2);
+      insertHelper(p, n, x1, y1, x2, y2, f);
     } else if (n.value != null) {
       // n contains 1 particle
       if (isSameLocation(n.value, p)) {
-        insertHelper(p, n, x1, y1, x2, y2);
+        insertHelper(p, n, x1, y1, x2, y2, f);
       } else {
         ForceItem v = n.value;
         n.value = null;
-        insertHelper(v, n, x1, y1, x2, y2);
-        insertHelper(p, n, x1, y1, x2, y2);
+        insertHelper(v, n, x1, y1, x2, y2, f);
+        insertHelper(p, n, x1, y1, x2, y2, f);
       }
     } else {
       // n is empty, so is a leaf
@@ -246,14 +346,15 @@ public class NBodyForce extends AbstractForce {
     return (dx < 0.01 && dy < 0.01);
   }
 
-  private void insertHelper(ForceItem p, QuadTreeNode n, float x1, float y1, float x2, float y2) {
+  private void insertHelper(ForceItem p, QuadTreeNode n, float x1, float y1, float x2, float y2,
+      QuadTreeNodeFactory f) {
     float x = p.location[0], y = p.location[1];
     float splitx = (x1 + x2) / 2;
     float splity = (y1 + y2) / 2;
     int i = (x >= splitx ? 1 : 0) + (y >= splity ? 2 : 0);
     // create new child node, if necessary
     if (n.children[i] == null) {
-      n.children[i] = factory.getQuadTreeNode();
+      n.children[i] = f.getQuadTreeNode();
       n.hasChildren = true;
     }
     // update bounds
@@ -268,16 +369,30 @@ public class NBodyForce extends AbstractForce {
       y2 = splity;
     }
     // recurse
-    insert(p, n.children[i], x1, y1, x2, y2);
+    insert(p, n.children[i], x1, y1, x2, y2, f);
+  }
+
+  private static void calcMass(QuadTreeNode n) {
+    if (n.hasChildren) {
+      for (int i = 0; i < n.children.length; i++) {
+        if (n.children[i] != null) {
+          calcMass(n.children[i]);
+        }
+      }
+    }
+    sumMass(n);
   }
 
-  private void calcMass(QuadTreeNode n) {
+  /**
+   * Compute the mass and center of mass of a node, assuming those of its
+   * children have already been computed.
+   */
+  private static void sumMass(QuadTreeNode n) {
     float xcom = 0, ycom = 0;
     n.mass = 0;
     if (n.hasChildren) {
       for (int i = 0; i < n.children.length; i++) {
         if (n.children[i] != null) {
-          calcMass(n.children[i]);
           n.mass += n.children[i].mass;
           xcom += n.children[i].mass * n.children[i].com[0];
           ycom += n.children[i].mass * n.children[i].com[1];
@@ -316,8 +431,15 @@ public class NBodyForce extends AbstractForce {
     boolean same = false;
     if (r == 0.0f) {
       // if items are in the exact same place, add some noise
-      dx = (rand.nextFloat() - 0.5f) / 50.0f;
-      dy = (rand.nextFloat() - 0.5f) / 50.0f;
+      if (parallel) {
+        int seed = 31 * Float.floatToIntBits(item.location[0]) + Float.floatToIntBits(item.location[1]);
+        seed = 31 * seed + Float.floatToIntBits(n.mass);
+        dx = (noise(seed) - 0.5f) / 50.0f;
+        dy = (noise(seed ^ 0x5bd1e995) - 0.5f) / 50.0f;
+      } else {
+        dx = (rand.nextFloat() - 0.5f) / 50.0f;
+        dy = (rand.nextFloat() - 0.5f) / 50.0f;
+      }
       r = (float) Math.sqrt(dx * dx + dy * dy);
       same = true;
     }
@@ -356,6 +478,72 @@ public class NBodyForce extends AbstractForce {
     }
   }
 
+  /**
+   * Hash an integer seed to a float in the range [0,1). Used in place of the
+   * shared random number generator when forces are computed concurrently.
+   */
+  private static float noise(int h) {
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return (h >>> 8) / (float) (1 << 24);
+  }
+
+  /**
+   * Task inserting the items of one top-level quadrant into its subtree, using a
+   * node factory private to that quadrant, and computing the subtree masses.
+   */
+  private final class QuadrantTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int quad;
+    private final ForceItem[] part;
+    private final float x1, y1, x2, y2;
+
+    QuadrantTask(int quad, ForceItem[] part, float x1, float y1, float x2, float y2) {
+      this.quad = quad;
+      this.part = part;
+      this.x1 = x1;
+      this.y1 = y1;
+      this.x2 = x2;
+      this.y2 = y2;
+    }
+
+    @Override
+    protected void compute() {
+      QuadTreeNode n = root.children[quad];
+      QuadTreeNodeFactory f = quadFactories[quad];
+      try {
+        for (int j = 0; j < part.length; j++) {
+          insert(part[j], n, x1, y1, x2, y2, f);
+        }
+      } catch (StackOverflowError e) {
+        s_logger.warning("Quadtree insertion overflowed in quadrant " + quad + "\n" + StringLib.getStackTrace(e));
+      }
+      calcMass(n);
+    }
+  } // end of inner class QuadrantTask
+
+  /**
+   * Task running a set of quadrant tasks concurrently.
+   */
+  private static final class QuadTreeBuildTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final ArrayList tasks;
+
+    QuadTreeBuildTask(ArrayList tasks) {
+      this.tasks = tasks;
+    }
+
+    @Override
+    protected void compute() {
+      invokeAll(tasks);
+    }
+  } // end of inner class QuadTreeBuildTask
+
   /**
    * Represents a node in the quadtree.
    */
@@ -9,7 +9,7 @@ import java.util.Iterator;
  *
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
-public class RungeKuttaIntegrator implements Integrator {
+public class RungeKuttaIntegrator implements ArrayIntegrator {
 
   /**
    * @see prefuse.util.force.Integrator#integrate(prefuse.util.force.ForceSimulator,
@@ -127,4 +127,87 @@ public class RungeKuttaIntegrator implements Integrator {
     }
   }
 
+  /**
+   * @see prefuse.util.force.ArrayIntegrator#integrate(prefuse.util.force.ArrayForceSimulator,
+   *      long)
+   */
+  @Override
+  public void integrate(ArrayForceSimulator sim, long timestep) {
+    float speedLimit = sim.getSpeedLimit();
+    float[] mass = sim.mass, loc = sim.location, ploc = sim.plocation;
+    float[] vel = sim.velocity, force = sim.force, k = sim.k, l = sim.l;
+    int count = sim.getItemCount();
+    float vx, vy, v, coeff;
+
+    for (int i = 0; i < count; i++) {
+      int x = 2 * i, y = x + 1, s = 8 * i;
+      coeff = timestep / mass[i];
+      ploc[x] = loc[x];
+      ploc[y] = loc[y];
+      k[s] = timestep * vel[x];
+      k[s + 1] = timestep * vel[y];
+      l[s] = coeff * force[x];
+      l[s + 1] = coeff * force[y];
+
+      // Set the position to the new predicted position
+      loc[x] += 0.5f * k[s];
+      loc[y] += 0.5f * k[s + 1];
+    }
+
+    // recalculate forces and run the two midpoint stages
+    for (int stage = 1; stage <= 2; stage++) {
+      sim.accumulate();
+      for (int i = 0; i < count; i++) {
+        int x = 2 * i, y = x + 1, s = 8 * i + 2 * stage, p = s - 2;
+        coeff = timestep / mass[i];
+        vx = vel[x] + .5f * l[p];
+        vy = vel[y] + .5f * l[p + 1];
+        v = (float) Math.sqrt(vx * vx + vy * vy);
+        if (v > speedLimit) {
+          vx = speedLimit * vx / v;
+          vy = speedLimit * vy / v;
+        }
+        k[s] = timestep * vx;
+        k[s + 1] = timestep * vy;
+        l[s] = coeff * force[x];
+        l[s + 1] = coeff * force[y];
+
+        // Set the position to the new predicted position
+        loc[x] = ploc[x] + 0.5f * k[s];
+        loc[y] = ploc[y] + 0.5f * k[s + 1];
+      }
+    }
+
+    // recalculate forces
+    sim.accumulate();
+
+    for (int i = 0; i < count; i++) {
+      int x = 2 * i, y = x + 1, s = 8 * i;
+      coeff = timestep / mass[i];
+      vx = vel[x] + l[s + 4];
+      vy = vel[y] + l[s + 5];
+      v = (float) Math.sqrt(vx * vx + vy * vy);
+      if (v > speedLimit) {
+        vx = speedLimit * vx / v;
+        vy = speedLimit * vy / v;
+      }
+      k[s + 6] = timestep * vx;
+      k[s + 7] = timestep * vy;
+      l[s + 6] = coeff * force[x];
+      l[s + 7] = coeff * force[y];
+      loc[x] = ploc[x] + (k[s] + k[s + 6]) / 6.0f + (k[s + 2] + k[s + 4]) / 3.0f;
+      loc[y] = ploc[y] + (k[s + 1] + k[s + 7]) / 6.0f + (k[s + 3] + k[s + 5]) / 3.0f;
+
+      vx = (l[s] + l[s + 6]) / 6.0f + (l[s + 2] + l[s + 4]) / 3.0f;
+      vy = (l[s + 1] + l[s + 7]) / 6.0f + (l[s + 3] + l[s + 5]) / 3.0f;
+      v = (float) Math.sqrt(vx * vx + vy * vy);
+      if (v > speedLimit) {
+        vx = speedLimit * vx / v;
+        vy = speedLimit * vy / v;
+      }
+      vel[x] += vx;
+      vel[y] += vy;
+    }
+  }
+
 } // end of class RungeKuttaIntegrator
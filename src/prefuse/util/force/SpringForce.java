@@ -6,7 +6,7 @@ package prefuse.util.force;
  * 
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
-public class SpringForce extends AbstractForce {
+public class SpringForce extends AbstractForce implements ArrayForce {
 
   private static String[] pnames = new String[] { "SpringCoefficient", "DefaultSpringLength" };
 
@@ -89,4 +89,35 @@ public class SpringForce extends AbstractForce {
     item2.force[1] += -coeff * dy;
   }
 
+  /**
+   * Calculates the forces acting on the items due to all springs of the given
+   * simulator, operating directly on its state arrays.
+   * 
+   * @see prefuse.util.force.ArrayForce#getForces(prefuse.util.force.ArrayForceSimulator)
+   */
+  @Override
+  public void getForces(ArrayForceSimulator sim) {
+    int[] item1 = sim.springItem1, item2 = sim.springItem2;
+    float[] coeffs = sim.springCoeff, lengths = sim.springLength;
+    float[] loc = sim.location, force = sim.force;
+    int count = sim.getSpringCount();
+    for (int j = 0; j < count; j++) {
+      int a = 2 * item1[j], b = 2 * item2[j];
+      float length = (lengths[j] < 0 ? params[SPRING_LENGTH] : lengths[j]);
+      float dx = loc[b] - loc[a], dy = loc[b + 1] - loc[a + 1];
+      float r = (float) Math.sqrt(dx * dx + dy * dy);
+      if (r == 0.0) {
+        dx = ((float) Math.random() - 0.5f) / 50.0f;
+        dy = ((float) Math.random() - 0.5f) / 50.0f;
+        r = (float) Math.sqrt(dx * dx + dy * dy);
+      }
+      float d = r - length;
+      float coeff = (coeffs[j] < 0 ? params[SPRING_COEFF] : coeffs[j]) * d / r;
+      force[a] += coeff * dx;
+      force[a + 1] += coeff * dy;
+      force[b] += -coeff * dx;
+      force[b + 1] += -coeff * dy;
+    }
+  }
+
 } // end of class SpringForce
@@ -8,6 +8,7 @@ import prefuse.Visualization;
 import prefuse.data.CascadedTable;
 import prefuse.data.Schema;
 import prefuse.data.Table;
+import prefuse.data.column.Column;
 import prefuse.data.event.EventConstants;
 import prefuse.data.expression.Predicate;
 import prefuse.visual.tuple.TableVisualItem;
@@ -28,6 +29,16 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
   private Visualization m_vis;
   private String m_group;
 
+  // the local columns backing the geometry and status fields, resolved on
+  // first use so that the row accessors avoid looking up columns by name
+  private static final String[] GEOMETRY_FIELDS = { VisualItem.X, VisualItem.Y, VisualItem.STARTX, VisualItem.STARTY,
+      VisualItem.ENDX, VisualItem.ENDY, VisualItem.SIZE, VisualItem.STARTSIZE, VisualItem.ENDSIZE, VisualItem.BOUNDS,
+      VisualItem.VALIDATED, VisualItem.VISIBLE };
+  private static final int G_X = 0, G_Y = 1, G_STARTX = 2, G_STARTY = 3, G_ENDX = 4, G_ENDY = 5, G_SIZE = 6,
+      G_STARTSIZE = 7, G_ENDSIZE = 8, G_BOUNDS = 9, G_VALIDATED = 10, G_VISIBLE = 11;
+  private Column[] m_geometry;
+  private int[] m_geomIndex;
+
   // ------------------------------------------------------------------------
   // Constructors
 
@@ -162,11 +173,26 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    */
   @Override
   protected void fireTableEvent(int row0, int row1, int col, int type) {
-    // table attributes changed, so we invalidate the bounds
-    if (type == EventConstants.UPDATE) {
+    // columns were added or removed, so re-resolve the geometry columns
+    if (type != EventConstants.UPDATE && col != EventConstants.ALL_COLUMNS) {
+      m_geometry = null;
+    }
+    // table attributes changed, so we invalidate the bounds. within a batch
+    // the update is deferred, and this is done once it is delivered.
+    if (type == EventConstants.UPDATE && !isBatching()) {
       if (col != VisualItem.IDX_VALIDATED) {
-        for (int r = row0; r <= row1; ++r) {
-          setValidated(r, false);
+        // batched, so a range of invalidations is reported as one event
+        if (row0 < row1) {
+          beginBatch();
+        }
+        try {
+          for (int r = row0; r <= row1; ++r) {
+            setValidated(r, false);
+          }
+        } finally {
+          if (row0 < row1) {
+            commitBatch();
+          }
         }
       } else {
         // change in validated status
@@ -189,6 +215,28 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
     super.fireTableEvent(row0, row1, col, type);
   }
 
+  /**
+   * Get the local column backing a geometry or status field, or null if the
+   * field must be accessed by name (e.g., because it is inherited from the
+   * parent table). Local columns are indexed by table row, so they can be read
+   * and written directly.
+   */
+  private Column geometry(int field) {
+    Column[] cols = m_geometry;
+    if (cols == null) {
+      int local = getLocalColumnCount();
+      cols = new Column[GEOMETRY_FIELDS.length];
+      int[] idx = new int[GEOMETRY_FIELDS.length];
+      for (int i = 0; i < cols.length; ++i) {
+        idx[i] = getColumnNumber(GEOMETRY_FIELDS[i]);
+        cols[i] = (idx[i] >= 0 && idx[i] < local ? getColumn(idx[i]) : null);
+      }
+      m_geomIndex = idx;
+      m_geometry = cols;
+    }
+    return cols[field];
+  }
+
   // ------------------------------------------------------------------------
   // VisualItemTable Methods
 
@@ -262,7 +310,8 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    * @return true if validated, false otherwise
    */
   public boolean isValidated(int row) {
-    return getBoolean(row, VisualItem.VALIDATED);
+    Column c = geometry(G_VALIDATED);
+    return (c != null ? c.getBoolean(row) : getBoolean(row, VisualItem.VALIDATED));
   }
 
   /**
@@ -275,7 +324,12 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    *          the value of the validated flag to set.
    */
   public void setValidated(int row, boolean value) {
-    setBoolean(row, VisualItem.VALIDATED, value);
+    Column c = geometry(G_VALIDATED);
+    if (c != null) {
+      c.setBoolean(value, row);
+    } else {
+      setBoolean(row, VisualItem.VALIDATED, value);
+    }
   }
 
   /**
@@ -289,7 +343,8 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    * @return true if visible, false if invisible
    */
   public boolean isVisible(int row) {
-    return getBoolean(row, VisualItem.VISIBLE);
+    Column c = geometry(G_VISIBLE);
+    return (c != null ? c.getBoolean(row) : getBoolean(row, VisualItem.VISIBLE));
   }
 
   /**
@@ -301,7 +356,12 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    *          true to make the item visible, false otherwise.
    */
   public void setVisible(int row, boolean value) {
-    setBoolean(row, VisualItem.VISIBLE, value);
+    Column c = geometry(G_VISIBLE);
+    if (c != null) {
+      c.setBoolean(value, row);
+    } else {
+      setBoolean(row, VisualItem.VISIBLE, value);
+    }
   }
 
   /**
@@ -486,7 +546,8 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    * @return the current x-coordinate
    */
   public double getX(int row) {
-    return getDouble(row, VisualItem.X);
+    Column c = geometry(G_X);
+    return (c != null ? c.getDouble(row) : getDouble(row, VisualItem.X));
   }
 
   /**
@@ -498,7 +559,12 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    *          the new current x-coordinate
    */
   public void setX(int row, double x) {
-    setDouble(row, VisualItem.X, x);
+    Column c = geometry(G_X);
+    if (c != null) {
+      c.setDouble(x, row);
+    } else {
+      setDouble(row, VisualItem.X, x);
+    }
   }
 
   /**
@@ -509,7 +575,8 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    * @return the current y-coordinate
    */
   public double getY(int row) {
-    return getDouble(row, VisualItem.Y);
+    Column c = geometry(G_Y);
+    return (c != null ? c.getDouble(row) : getDouble(row, VisualItem.Y));
   }
 
   /**
@@ -521,7 +588,12 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    *          the new current y-coordinate
    */
   public void setY(int row, double y) {
-    setDouble(row, VisualItem.Y, y);
+    Column c = geometry(G_Y);
+    if (c != null) {
+      c.setDouble(y, row);
+    } else {
+      setDouble(row, VisualItem.Y, y);
+    }
   }
 
   /**
@@ -532,7 +604,8 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    * @return the starting x-coordinate
    */
   public double getStartX(int row) {
-    return getDouble(row, VisualItem.STARTX);
+    Column c = geometry(G_STARTX);
+    return (c != null ? c.getDouble(row) : getDouble(row, VisualItem.STARTX));
   }
 
   /**
@@ -544,7 +617,12 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    *          the new starting x-coordinate
    */
   public void setStartX(int row, double x) {
-    setDouble(row, VisualItem.STARTX, x);
+    Column c = geometry(G_STARTX);
+    if (c != null) {
+      c.setDouble(x, row);
+    } else {
+      setDouble(row, VisualItem.STARTX, x);
+    }
   }
 
   /**
@@ -555,7 +633,8 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    * @return the starting y-coordinate
    */
   public double getStartY(int row) {
-    return getDouble(row, VisualItem.STARTY);
+    Column c = geometry(G_STARTY);
+    return (c != null ? c.getDouble(row) : getDouble(row, VisualItem.STARTY));
   }
 
   /**
@@ -567,7 +646,12 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    *          the new starting y-coordinate
    */
   public void setStartY(int row, double y) {
-    setDouble(row, VisualItem.STARTY, y);
+    Column c = geometry(G_STARTY);
+    if (c != null) {
+      c.setDouble(y, row);
+    } else {
+      setDouble(row, VisualItem.STARTY, y);
+    }
   }
 
   /**
@@ -578,7 +662,8 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    * @return the ending x-coordinate
    */
   public double getEndX(int row) {
-    return getDouble(row, VisualItem.ENDX);
+    Column c = geometry(G_ENDX);
+    return (c != null ? c.getDouble(row) : getDouble(row, VisualItem.ENDX));
   }
 
   /**
@@ -590,7 +675,12 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    *          the new ending x-coordinate
    */
   public void setEndX(int row, double x) {
-    setDouble(row, VisualItem.ENDX, x);
+    Column c = geometry(G_ENDX);
+    if (c != null) {
+      c.setDouble(x, row);
+    } else {
+      setDouble(row, VisualItem.ENDX, x);
+    }
   }
 
   /**
@@ -601,7 +691,8 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    * @return the ending y-coordinate
    */
   public double getEndY(int row) {
-    return getDouble(row, VisualItem.ENDY);
+    Column c = geometry(G_ENDY);
+    return (c != null ? c.getDouble(row) : getDouble(row, VisualItem.ENDY));
   }
 
   /**
@@ -613,7 +704,12 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    *          the new ending y-coordinate
    */
   public void setEndY(int row, double y) {
-    setDouble(row, VisualItem.ENDY, y);
+    Column c = geometry(G_ENDY);
+    if (c != null) {
+      c.setDouble(y, row);
+    } else {
+      setDouble(row, VisualItem.ENDY, y);
+    }
   }
 
   /**
@@ -627,7 +723,8 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    * @return the bounding box for the item at the given row
    */
   public Rectangle2D getBounds(int row) {
-    return (Rectangle2D) get(row, VisualItem.BOUNDS);
+    Column c = geometry(G_BOUNDS);
+    return (Rectangle2D) (c != null ? c.get(row) : get(row, VisualItem.BOUNDS));
   }
 
   /**
@@ -649,7 +746,8 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    */
   public void setBounds(int row, double x, double y, double w, double h) {
     getBounds(row).setRect(x, y, w, h);
-    fireTableEvent(row, row, getColumnNumber(VisualItem.BOUNDS), EventConstants.UPDATE);
+    geometry(G_BOUNDS);
+    fireTableEvent(row, row, m_geomIndex[G_BOUNDS], EventConstants.UPDATE);
   }
 
   // ------------------------------------------------------------------------
@@ -945,7 +1043,8 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    * @return the current size value
    */
   public double getSize(int row) {
-    return getDouble(row, VisualItem.SIZE);
+    Column c = geometry(G_SIZE);
+    return (c != null ? c.getDouble(row) : getDouble(row, VisualItem.SIZE));
   }
 
   /**
@@ -959,7 +1058,12 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    *          the current size value
    */
   public void setSize(int row, double size) {
-    setDouble(row, VisualItem.SIZE, size);
+    Column c = geometry(G_SIZE);
+    if (c != null) {
+      c.setDouble(size, row);
+    } else {
+      setDouble(row, VisualItem.SIZE, size);
+    }
   }
 
   /**
@@ -972,7 +1076,8 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    * @return the starting size value
    */
   public double getStartSize(int row) {
-    return getDouble(row, VisualItem.STARTSIZE);
+    Column c = geometry(G_STARTSIZE);
+    return (c != null ? c.getDouble(row) : getDouble(row, VisualItem.STARTSIZE));
   }
 
   /**
@@ -986,7 +1091,12 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    *          the starting size value
    */
   public void setStartSize(int row, double size) {
-    setDouble(row, VisualItem.STARTSIZE, size);
+    Column c = geometry(G_STARTSIZE);
+    if (c != null) {
+      c.setDouble(size, row);
+    } else {
+      setDouble(row, VisualItem.STARTSIZE, size);
+    }
   }
 
   /**
@@ -999,7 +1109,8 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    * @return the ending size value
    */
   public double getEndSize(int row) {
-    return getDouble(row, VisualItem.ENDSIZE);
+    Column c = geometry(G_ENDSIZE);
+    return (c != null ? c.getDouble(row) : getDouble(row, VisualItem.ENDSIZE));
   }
 
   /**
@@ -1013,7 +1124,12 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
    *          the ending size value
    */
   public void setEndSize(int row, double size) {
-    setDouble(row, VisualItem.ENDSIZE, size);
+    Column c = geometry(G_ENDSIZE);
+    if (c != null) {
+      c.setDouble(size, row);
+    } else {
+      setDouble(row, VisualItem.ENDSIZE, size);
+    }
   }
 
   // ------------------------------------------------------------------------
@@ -8,11 +8,14 @@ public class All_Prefuse_Tests {
   public static Test suite() {
     TestSuite suite = new TestSuite("Test for test.prefuse");
     // $JUnit-BEGIN$
+    suite.addTest(test.prefuse.action.All_PrefuseAction_Tests.suite());
     suite.addTest(test.prefuse.data.All_PrefuseData_Tests.suite());
     suite.addTest(test.prefuse.data.column.All_PrefuseDataColumn_Tests.suite());
     suite.addTest(test.prefuse.data.expression.All_PrefuseDataExpression_Tests.suite());
     suite.addTest(test.prefuse.data.io.All_PrefuseDataIO_Tests.suite());
     suite.addTest(test.prefuse.data.util.All_PrefuseDataUtil_Tests.suite());
+    suite.addTest(test.prefuse.util.display.All_PrefuseUtilDisplay_Tests.suite());
+    suite.addTest(test.prefuse.util.force.All_PrefuseUtilForce_Tests.suite());
     suite.addTest(test.prefuse.visual.All_PrefuseVisual_Tests.suite());
     // $JUnit-END$
     return suite;
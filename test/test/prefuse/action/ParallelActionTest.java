@@ -0,0 +1,205 @@
+package test.prefuse.action;
+
+import java.util.Iterator;
+
+import junit.framework.TestCase;
+import prefuse.Visualization;
+import prefuse.action.Action;
+import prefuse.action.ActionList;
+import prefuse.action.ItemAction;
+import prefuse.action.assignment.ColorAction;
+import prefuse.action.assignment.SizeAction;
+import prefuse.data.Table;
+import prefuse.util.ColorLib;
+import prefuse.visual.VisualItem;
+
+public class ParallelActionTest extends TestCase {
+
+  private static final int NROWS = 5000;
+
+  private Visualization createVisualization() {
+    Table t = new Table();
+    t.addColumn("x", int.class);
+    t.addColumn("v", double.class);
+    t.addRows(NROWS);
+    for (int r = 0; r < NROWS; ++r) {
+      t.setInt(r, "x", r % 10);
+      t.setDouble(r, "v", 1 + (r * 37) % 101 / 10.0);
+    }
+    Visualization vis = new Visualization();
+    vis.add("t", t);
+    return vis;
+  }
+
+  private static ColorAction createColorAction() {
+    ColorAction color = new ColorAction("t", VisualItem.FILLCOLOR, ColorLib.gray(128));
+    color.add("x < 3", ColorLib.rgb(255, 0, 0));
+    color.add("x >= 7", ColorLib.rgb(0, 0, 255));
+    return color;
+  }
+
+  private static SizeAction createSizeAction() {
+    return new SizeAction("t") {
+      @Override
+      public double getSize(VisualItem item) {
+        return item.getDouble("v");
+      }
+    };
+  }
+
+  private static ItemAction createPositionAction() {
+    return new ItemAction("t") {
+      @Override
+      public void process(VisualItem item, double frac) {
+        item.setX(item.getRow() % 100);
+        item.setY(item.getRow() / 100 + frac);
+      }
+    };
+  }
+
+  /**
+   * An ItemAction failing on a single item.
+   */
+  private static class FailingAction extends ItemAction {
+    private int m_row;
+
+    FailingAction(int row) {
+      super("t");
+      m_row = row;
+    }
+
+    @Override
+    public void process(VisualItem item, double frac) {
+      if (item.getRow() == m_row) {
+        throw new IllegalStateException("row " + m_row);
+      }
+      item.setStrokeColor(ColorLib.gray(item.getRow() % 256));
+    }
+  }
+
+  private static void assertSameItems(Visualization expected, Visualization actual) {
+    Iterator e = expected.items("t");
+    Iterator a = actual.items("t");
+    int count = 0;
+    while (e.hasNext()) {
+      VisualItem ei = (VisualItem) e.next();
+      VisualItem ai = (VisualItem) a.next();
+      assertEquals(ei.getRow(), ai.getRow());
+      assertEquals(ei.getFillColor(), ai.getFillColor());
+      assertEquals(ei.getStartFillColor(), ai.getStartFillColor());
+      assertEquals(ei.getEndFillColor(), ai.getEndFillColor());
+      assertEquals(ei.getStrokeColor(), ai.getStrokeColor());
+      assertEquals(ei.getSize(), ai.getSize(), 0);
+      assertEquals(ei.getStartSize(), ai.getStartSize(), 0);
+      assertEquals(ei.getEndSize(), ai.getEndSize(), 0);
+      assertEquals(ei.getX(), ai.getX(), 0);
+      assertEquals(ei.getY(), ai.getY(), 0);
+      ++count;
+    }
+    assertFalse(a.hasNext());
+    assertEquals(NROWS, count);
+  }
+
+  private static void run(Visualization vis, ItemAction action, int threads, double frac) {
+    action.setVisualization(vis);
+    action.setParallelism(threads);
+    try {
+      action.run(frac);
+    } finally {
+      action.setParallelism(1);
+    }
+  }
+
+  public void testItemAction() {
+    Visualization seq = createVisualization();
+    Visualization par = createVisualization();
+    ItemAction[] actions = { createColorAction(), createSizeAction(), createPositionAction() };
+    for (int i = 0; i < actions.length; ++i) {
+      // run twice, so that the start values are those of the first run
+      for (int step = 0; step < 2; ++step) {
+        run(seq, actions[i], 1, 0.5 * step);
+        run(par, actions[i], 4, 0.5 * step);
+      }
+    }
+    assertSameItems(seq, par);
+  }
+
+  public void testItemActionFailure() {
+    Visualization seq = createVisualization();
+    Visualization par = createVisualization();
+    FailingAction action = new FailingAction(NROWS - 10);
+    try {
+      run(seq, action, 1, 0);
+      fail("Sequential failure not propagated");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    try {
+      run(par, action, 4, 0);
+      fail("Parallel failure not propagated");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+
+    // the action can be run again once the failure is gone
+    action.m_row = -1;
+    run(seq, action, 1, 0);
+    run(par, action, 4, 0);
+    assertSameItems(seq, par);
+  }
+
+  private static ActionList createActionList(Visualization vis, int threads) {
+    ActionList list = new ActionList(vis);
+    list.add(createColorAction());
+    list.add(new Action() {
+      @Override
+      public void run(double frac) {
+        throw new IllegalStateException("failing child action");
+      }
+    });
+    list.add(createSizeAction());
+    list.add(createPositionAction());
+    list.setVisualization(vis);
+    list.setParallelism(threads);
+    return list;
+  }
+
+  public void testActionList() {
+    Visualization seq = createVisualization();
+    Visualization par = createVisualization();
+    ActionList seqList = createActionList(seq, 1);
+    ActionList parList = createActionList(par, 4);
+    try {
+      // a failing child does not stop the others in either mode
+      for (int step = 0; step < 2; ++step) {
+        seqList.run(0.5 * step);
+        parList.run(0.5 * step);
+      }
+      assertSameItems(seq, par);
+      VisualItem item = (VisualItem) par.items("t").next();
+      assertEquals(ColorLib.rgb(255, 0, 0), item.getFillColor());
+      assertEquals(item.getDouble("v"), item.getSize(), 0);
+      assertEquals(0.5, item.getY(), 0);
+
+      // parallel child actions
+      for (int i = 0; i < parList.size(); ++i) {
+        Action a = parList.get(i);
+        if (a instanceof ItemAction) {
+          ((ItemAction) a).setParallelism(3);
+        }
+      }
+      parList.run(1);
+      seqList.run(1);
+      assertSameItems(seq, par);
+    } finally {
+      parList.setParallelism(1);
+      for (int i = 0; i < parList.size(); ++i) {
+        Action a = parList.get(i);
+        if (a instanceof ItemAction) {
+          ((ItemAction) a).setParallelism(1);
+        }
+      }
+    }
+  }
+
+}
@@ -1,15 +1,29 @@
 package test.prefuse.data;
 
 import java.awt.geom.GeneralPath;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
 
 import junit.framework.TestCase;
+import prefuse.data.FieldAccessor;
 import prefuse.data.Table;
 import prefuse.data.Tuple;
 import prefuse.data.column.Column;
+import prefuse.data.event.EventConstants;
+import prefuse.data.event.TableListener;
+import prefuse.data.expression.ComparisonPredicate;
+import prefuse.data.expression.Predicate;
+import prefuse.data.expression.parser.ExpressionParser;
+import prefuse.data.query.ListQueryBinding;
+import prefuse.data.util.BitmapIndex;
+import prefuse.data.util.FilterIteratorFactory;
+import prefuse.data.util.FilterRowIterator;
+import prefuse.data.util.Index;
+import prefuse.data.util.QueryPlan;
 import prefuse.data.util.Sort;
 import prefuse.util.collections.DefaultLiteralComparator;
+import prefuse.util.collections.IntIterator;
 import test.prefuse.TestConfig;
 
 public class TableTest extends TestCase implements TableTestData {
@@ -276,6 +290,378 @@ public class TableTest extends TestCase implements TableTestData {
     }
   }
 
+  /*
+   * Test method for 'prefuse.data.Table.getFieldAccessor(String)'
+   */
+  public void testFieldAccessor() {
+    FieldAccessor[] acc = new FieldAccessor[NCOLS];
+    for (int c = 0; c < NCOLS; ++c) {
+      acc[c] = t.getFieldAccessor(HEADERS[c]);
+      for (int r = 0; r < NROWS; ++r) {
+        assertEquals(TABLE[c][r], acc[c].get(r));
+        assertEquals(TABLE[c][r], acc[c].get(t.getTuple(r)));
+      }
+    }
+
+    acc[4].setDouble(0, 3.5);
+    assertEquals(3.5, t.getDouble(0, HEADERS[4]), 0);
+    acc[4].setDouble(t.getTuple(1), 4.5);
+    assertEquals(4.5, t.getDouble(1, HEADERS[4]), 0);
+
+    for (int i = 0; i < rows.length; ++i) {
+      try {
+        acc[0].get(rows[i]);
+        fail("Allowed illegal access");
+      } catch (Exception success) {
+      }
+    }
+
+    // accessors follow changes to the set of columns
+    t.removeColumn(HEADERS[0]);
+    assertEquals(3, acc[4].getColumnNumber());
+    assertEquals(4.5, acc[4].getDouble(1), 0);
+    assertEquals(-1, acc[0].getColumnNumber());
+    try {
+      acc[0].get(0);
+      fail("Allowed illegal access");
+    } catch (Exception success) {
+    }
+  }
+
+  /*
+   * Test method for 'prefuse.data.Table.beginBatch()' and
+   * 'prefuse.data.Table.commitBatch()'
+   */
+  public void testBatch() {
+    final int[] events = new int[4];
+    t.addTableListener(new TableListener() {
+      @Override
+      public void tableChanged(Table tt, int start, int end, int col, int type) {
+        if (type == EventConstants.UPDATE) {
+          events[0]++;
+          events[1] = start;
+          events[2] = end;
+          events[3] = col;
+        }
+      }
+    });
+    String field = HEADERS[4];
+    t.beginBatch();
+    t.beginBatch();
+    for (int r = 0; r < NROWS; ++r) {
+      t.setDouble(r, field, r);
+    }
+    t.commitBatch();
+    assertTrue(t.isBatching());
+    assertEquals(0, events[0]);
+    t.commitBatch();
+    assertFalse(t.isBatching());
+
+    // one event covering all updated rows
+    assertEquals(1, events[0]);
+    assertEquals(0, events[1]);
+    assertEquals(NROWS - 1, events[2]);
+    assertEquals(t.getColumnNumber(field), events[3]);
+    for (int r = 0; r < NROWS; ++r) {
+      assertEquals(r, t.getDouble(r, field), 0);
+    }
+
+    // updates of deleted rows are discarded
+    events[0] = 0;
+    t.beginBatch();
+    t.setDouble(1, field, 5);
+    t.removeRow(1);
+    t.commitBatch();
+    assertEquals(0, events[0]);
+
+    try {
+      t.commitBatch();
+      fail("Allowed commit without a batch");
+    } catch (IllegalStateException success) {
+    }
+  }
+
+  /*
+   * Test method for 'prefuse.data.Table.setReuseLowestRow(boolean)'
+   */
+  public void testRowReuse() {
+    int n = 2 * NROWS;
+    t.addRows(n - NROWS);
+    t.removeRow(3);
+    t.removeRow(1);
+    t.removeRow(5);
+    assertEquals(n - 3, t.getRowCount());
+    assertFalse(t.isValidRow(5));
+
+    // lowest free row first
+    assertEquals(1, t.addRow());
+    t.removeRow(1);
+
+    // most recently removed row first
+    t.setReuseLowestRow(false);
+    assertEquals(1, t.addRow());
+    t.removeRow(2);
+    assertEquals(2, t.addRow());
+    assertEquals(3, t.addRow());
+    assertEquals(5, t.addRow());
+    assertEquals(n, t.getRowCount());
+    assertEquals(n, t.addRow());
+
+    t.removeRow(2);
+    t.removeRow(4);
+    t.removeRow(6);
+    assertEquals(6, t.addRow());
+    int count = 0;
+    for (IntIterator rows = t.rows(); rows.hasNext(); ++count) {
+      int r = rows.nextInt();
+      assertTrue(r != 2 && r != 4);
+    }
+    assertEquals(t.getRowCount(), count);
+    count = 0;
+    for (IntIterator rows = t.rows(true); rows.hasNext(); ++count) {
+      int r = rows.nextInt();
+      assertTrue(r != 2 && r != 4);
+    }
+    assertEquals(t.getRowCount(), count);
+
+    t.setReuseLowestRow(true);
+    assertEquals(2, t.addRow());
+    assertEquals(4, t.addRow());
+  }
+
+  public void testFilterRows() {
+    Table t = new Table();
+    t.addColumn("x", int.class);
+    for (int r = 0; r < 3000; ++r) {
+      t.setInt(t.addRow(), "x", (r * 7) % 100);
+    }
+    for (int r = 0; r < 3000; r += 5) {
+      t.removeRow(r);
+    }
+    t.removeRow(1);
+    t.removeRow(2999);
+
+    long[] valid = new long[3];
+    for (int start = 0; start < 3200; start += 192) {
+      t.getValidRows(start, valid);
+      for (int i = 0; i < 192; ++i) {
+        boolean set = (valid[i >>> 6] & (1L << i)) != 0;
+        assertEquals(t.isValidRow(start + i), set);
+      }
+    }
+
+    Predicate p = (Predicate) ExpressionParser.parse("x < 30 OR x = 77");
+    IntIterator scan = new FilterRowIterator(t, p);
+    IntIterator rows = new FilterRowIterator(t.rows(), t, p);
+    int count = 0;
+    while (rows.hasNext()) {
+      assertTrue(scan.hasNext());
+      assertEquals(rows.nextInt(), scan.nextInt());
+      ++count;
+    }
+    assertFalse(scan.hasNext());
+    assertTrue(count > 0);
+  }
+
+  public void testQueryPlan() {
+    Table t = new Table();
+    t.addColumn("x", int.class);
+    t.addColumn("y", double.class);
+    t.addRows(2000);
+    for (int r = 0; r < 2000; ++r) {
+      t.setInt(r, "x", (r * 7) % 1000);
+      t.setDouble(r, "y", ((r * 13) % 2000) / 2000.0);
+    }
+    t.removeRow(14);
+    t.index("x");
+    t.index("y");
+
+    String[] queries = { "x = 2", "x < 500", "x < 10 AND y > 0.5", "x = 3 OR y < 0.01", "x = 3 OR y + 1 < 1.01",
+        "x >= 990 AND y < 0.5 AND x != 995" };
+    for (int i = 0; i < queries.length; ++i) {
+      checkPlan(t, queries[i]);
+    }
+
+    Predicate p = (Predicate) ExpressionParser.parse("x = 2");
+    assertTrue(FilterIteratorFactory.explain(t, p).startsWith("index lookup"));
+    p = (Predicate) ExpressionParser.parse("x >= 0");
+    assertTrue(FilterIteratorFactory.explain(t, p).startsWith("scan"));
+  }
+
+  public void testIndexedBooleanColumn() {
+    Table t = new Table();
+    t.addColumn("b", boolean.class);
+    t.addRows(2000);
+    for (int r = 0; r < 2000; ++r) {
+      t.setBoolean(r, "b", r % 50 == 0);
+    }
+    t.index("b");
+
+    String[] queries = { "b = TRUE", "b = FALSE", "TRUE = b", "b != TRUE", "b", "NOT b" };
+    for (int i = 0; i < queries.length; ++i) {
+      checkPlan(t, queries[i]);
+    }
+    checkIndexLookup(t, "b = TRUE");
+    checkIndexLookup(t, "b = FALSE");
+    checkIndexLookup(t, "FALSE = b");
+
+    Predicate p = (Predicate) ExpressionParser.parse("b = TRUE");
+    assertTrue(FilterIteratorFactory.explain(t, p).startsWith("index lookup"));
+  }
+
+  /**
+   * Check that the plan for a query selects exactly the rows a scan does.
+   */
+  private static QueryPlan checkPlan(Table t, String query) {
+    Predicate p = (Predicate) ExpressionParser.parse(query);
+    QueryPlan plan = FilterIteratorFactory.plan(t, p);
+
+    long[] expected = new long[(t.getMaximumRow() + 64) >>> 6];
+    for (IntIterator rows = new FilterRowIterator(t, p); rows.hasNext();) {
+      int r = rows.nextInt();
+      expected[r >>> 6] |= 1L << r;
+    }
+    long[] actual = new long[expected.length];
+    for (IntIterator rows = plan.rows(); rows.hasNext();) {
+      int r = rows.nextInt();
+      assertEquals(query, 0, actual[r >>> 6] & (1L << r));
+      actual[r >>> 6] |= 1L << r;
+    }
+    assertTrue(query, Arrays.equals(expected, actual));
+    Arrays.fill(actual, 0);
+    plan.select(actual);
+    assertTrue(query, Arrays.equals(expected, actual));
+    return plan;
+  }
+
+  public void testIndexedNonFiniteValues() {
+    Table t = new Table();
+    t.addColumn("f", float.class);
+    t.addColumn("d", double.class);
+    float[] special = { Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY };
+    t.addRows(2000);
+    for (int r = 0; r < 2000; ++r) {
+      float v = (r % 97 == 0 ? special[(r / 97) % 3] : ((r * 13) % 2000) / 2000.0f);
+      t.setFloat(r, "f", v);
+      t.setDouble(r, "d", v);
+    }
+    t.index("f");
+    t.index("d");
+
+    String[] columns = { "f", "d" };
+    // literals are exact in float precision, so both columns compare alike
+    String[] ops = { " > 0.984375", " >= 0.984375", " < 0.015625", " <= 0.015625", " = 0.5" };
+    for (int c = 0; c < columns.length; ++c) {
+      for (int i = 0; i < ops.length; ++i) {
+        checkIndexLookup(t, columns[c] + ops[i]);
+      }
+      checkIndexLookup(t, "0.984375 < " + columns[c]);
+      checkIndexLookup(t, "0.015625 >= " + columns[c]);
+    }
+  }
+
+  /**
+   * Check that the index lookup for a comparison returns exactly the rows a
+   * scan does.
+   */
+  private static void checkIndexLookup(Table t, String query) {
+    checkPlan(t, query);
+    ComparisonPredicate p = (ComparisonPredicate) ExpressionParser.parse(query);
+    IntIterator rows = IndexAccess.getComparisonRows(t, p);
+    assertNotNull(query, rows);
+    long[] expected = new long[(t.getMaximumRow() + 64) >>> 6];
+    for (IntIterator scan = new FilterRowIterator(t, p); scan.hasNext();) {
+      int r = scan.nextInt();
+      expected[r >>> 6] |= 1L << r;
+    }
+    long[] actual = new long[expected.length];
+    while (rows.hasNext()) {
+      int r = rows.nextInt();
+      actual[r >>> 6] |= 1L << r;
+    }
+    assertTrue(query, Arrays.equals(expected, actual));
+  }
+
+  /**
+   * Exposes the index lookups of FilterIteratorFactory, which the planner only
+   * chooses when they are estimated to be cheaper than a scan.
+   */
+  private static class IndexAccess extends FilterIteratorFactory {
+    static IntIterator getComparisonRows(Table t, ComparisonPredicate p) {
+      return getComparisonIterator(t, p);
+    }
+  }
+
+  public void testBitmapIndex() {
+    Table t = new Table();
+    t.addColumn("party", String.class);
+    t.addColumn("votes", int.class);
+    t.addColumn("incumbent", boolean.class);
+    t.addColumn("day", java.sql.Date.class);
+    String[] parties = { "dem", "rep", "ind", "grn" };
+    t.addRows(3000);
+    for (int r = 0; r < 3000; ++r) {
+      t.setString(r, "party", parties[(r * 7) % 4]);
+      t.setInt(r, "votes", (r * 13) % 5);
+      t.setBoolean(r, "incumbent", r % 3 == 0);
+      t.set(r, "day", new java.sql.Date((r % 3) * 86400000L));
+    }
+    // query bindings only index the column when asked to
+    ListQueryBinding binding = new ListQueryBinding(t, "party");
+    assertNull(t.getIndex("party"));
+    assertTrue(binding.createIndex());
+    Index index = t.getIndex("party");
+    assertTrue(index instanceof BitmapIndex);
+    assertFalse(binding.createIndex());
+    assertTrue(t.index("votes") instanceof BitmapIndex);
+    assertTrue(t.index("incumbent") instanceof BitmapIndex);
+    // dates, including subclasses of Date, are left to tree indexes
+    assertFalse(BitmapIndex.isLowCardinality(t, "day"));
+
+    // updates are tracked
+    t.removeRow(7);
+    t.setString(8, "party", "lib");
+    int row = t.addRow();
+    t.setString(row, "party", "dem");
+    assertEquals(3000, index.size());
+    assertEquals(5, index.uniqueCount());
+    assertEquals("dem", t.getString(index.minimum(), "party"));
+    assertEquals("rep", t.getString(index.maximum(), "party"));
+    assertEquals(8, index.get("lib"));
+
+    int count = 0;
+    Object prev = null;
+    for (IntIterator rows = index.allRows(Index.TYPE_DESCENDING); rows.hasNext(); ++count) {
+      Object value = t.get(rows.nextInt(), "party");
+      assertTrue(prev == null || ((Comparable) prev).compareTo(value) >= 0);
+      prev = value;
+    }
+    assertEquals(3000, count);
+
+    String[] queries = { "party = 'grn'", "party = 'dem' OR party = 'ind'", "party = 'rep' AND incumbent",
+        "votes >= 3 AND NOT incumbent", "votes < 2 AND party = 'ind'" };
+    for (int i = 0; i < queries.length; ++i) {
+      Predicate p = (Predicate) ExpressionParser.parse(queries[i]);
+      QueryPlan plan = FilterIteratorFactory.plan(t, p);
+      assertFalse(queries[i], plan.explain().startsWith("scan"));
+
+      long[] expected = new long[(t.getMaximumRow() + 64) >>> 6];
+      for (IntIterator rows = new FilterRowIterator(t, p); rows.hasNext();) {
+        int r = rows.nextInt();
+        expected[r >>> 6] |= 1L << r;
+      }
+      long[] actual = new long[expected.length];
+      for (IntIterator rows = plan.rows(); rows.hasNext();) {
+        int r = rows.nextInt();
+        actual[r >>> 6] |= 1L << r;
+      }
+      assertTrue(queries[i], Arrays.equals(expected, actual));
+      Arrays.fill(actual, 0);
+      plan.select(actual);
+      assertTrue(queries[i], Arrays.equals(expected, actual));
+    }
+  }
+
   public void testSort() {
     String h1 = HEADERS[2];
     String h2 = HEADERS[1];
@@ -300,4 +686,44 @@ public class TableTest extends TestCase implements TableTestData {
     }
   }
 
+  public void testConcurrentColumnEvents() throws InterruptedException {
+    final int ncols = 4, nrows = 20000;
+    final Table table = new Table();
+    for (int c = 0; c < ncols; ++c) {
+      table.addColumn("c" + c, int.class, new Integer(0));
+    }
+    table.addRows(nrows);
+
+    // each event must name the column that was written
+    final int[] errors = new int[1];
+    table.addTableListener(new TableListener() {
+      @Override
+      public void tableChanged(Table t, int start, int end, int col, int type) {
+        if (t.getInt(start, col) / nrows != col + 1) {
+          ++errors[0];
+        }
+      }
+    });
+
+    Thread[] threads = new Thread[ncols];
+    for (int c = 0; c < ncols; ++c) {
+      final int col = c;
+      threads[c] = new Thread() {
+        @Override
+        public void run() {
+          for (int r = 0; r < nrows; ++r) {
+            table.setInt(r, col, (col + 1) * nrows + r);
+          }
+        }
+      };
+    }
+    for (int c = 0; c < ncols; ++c) {
+      threads[c].start();
+    }
+    for (int c = 0; c < ncols; ++c) {
+      threads[c].join();
+    }
+    assertEquals(0, errors[0]);
+  }
+
 }
@@ -1,6 +1,7 @@
 package test.prefuse.data;
 
 import junit.framework.TestCase;
+import prefuse.data.Tree;
 
 //import java.net.URL;
 //import java.util.Iterator;
@@ -18,6 +19,102 @@ import junit.framework.TestCase;
 
 public class TreeTest extends TestCase {
 
+  public void testStructureQueries() {
+    Tree tree = new Tree();
+    int r = tree.addRootRow();
+    int a = tree.addChild(r);
+    int b = tree.addChild(r);
+    int a1 = tree.addChild(a);
+    int a2 = tree.addChild(a);
+    int a11 = tree.addChild(a1);
+
+    assertEquals(0, tree.getDepth(r));
+    assertEquals(1, tree.getDepth(b));
+    assertEquals(3, tree.getDepth(a11));
+    assertTrue(tree.isAncestor(r, a11));
+    assertTrue(tree.isAncestor(a, a11));
+    assertFalse(tree.isAncestor(b, a11));
+    assertFalse(tree.isAncestor(a11, a));
+    assertFalse(tree.isAncestor(a, a));
+
+    // preorder r a a1 a11 a2 b, postorder a11 a1 a2 a b r
+    int[] pre = { r, a, a1, a11, a2, b };
+    for (int i = 0; i < pre.length; ++i) {
+      assertEquals(i, tree.getPreorderIndex(pre[i]));
+      assertEquals(pre[i], tree.getPreorderRow(i));
+    }
+    assertEquals(0, tree.getPostorderIndex(a11));
+    assertEquals(5, tree.getPostorderIndex(r));
+    assertEquals(6, tree.getSubtreeSize(r));
+    assertEquals(4, tree.getSubtreeSize(a));
+    assertEquals(1, tree.getSubtreeSize(b));
+
+    // changes to the structure are reflected in later queries
+    int b1 = tree.addChild(b);
+    assertEquals(2, tree.getDepth(b1));
+    assertTrue(tree.isAncestor(b, b1));
+    assertEquals(7, tree.getSubtreeSize(r));
+    assertEquals(6, tree.getPreorderIndex(b1));
+
+    tree.removeChild(a1);
+    assertEquals(-1, tree.getDepth(a11));
+    assertEquals(-1, tree.getPreorderIndex(a1));
+    assertEquals(2, tree.getSubtreeSize(a));
+    assertEquals(4, tree.getPreorderIndex(b1));
+
+    // a subtree detached from the root
+    int c = tree.addNodeRow();
+    int c1 = tree.addChild(c);
+    assertEquals(-1, tree.getDepth(c));
+    assertEquals(2, tree.getDepth(c1));
+    assertEquals(-1, tree.getPreorderIndex(c1));
+    assertTrue(tree.isAncestor(c, c1));
+    assertFalse(tree.isAncestor(r, c1));
+    tree.addChildEdge(a2, c);
+    assertEquals(4, tree.getDepth(c1));
+    assertTrue(tree.isAncestor(a, c1));
+    assertEquals(4, tree.getSubtreeSize(a));
+  }
+
+  public void testConcurrentReaders() throws InterruptedException {
+    final Tree tree = new Tree();
+    final int n = 20000;
+    int p = tree.addRootRow();
+    for (int i = 1; i < n; ++i) {
+      p = tree.addChild(p);
+    }
+
+    // readers on several threads fill the same caches, from opposite ends
+    final int[] errors = new int[1];
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; ++t) {
+      final int dir = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          int bad = 0;
+          for (int j = 0; j < n; ++j) {
+            int row = (dir % 2 == 0 ? j : n - 1 - j);
+            if (tree.getDepth(row) != row || tree.getSubtreeSize(row) != n - row
+                || (row > 0 && !tree.isAncestor(row - 1, row))) {
+              ++bad;
+            }
+          }
+          synchronized (errors) {
+            errors[0] += bad;
+          }
+        }
+      };
+    }
+    for (int t = 0; t < threads.length; ++t) {
+      threads[t].start();
+    }
+    for (int t = 0; t < threads.length; ++t) {
+      threads[t].join();
+    }
+    assertEquals(0, errors[0]);
+  }
+
 
   /*
    * public static final String TREE_CHI = "/chi-ontology.xml.gz";
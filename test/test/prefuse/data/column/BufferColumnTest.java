@@ -0,0 +1,101 @@
+package test.prefuse.data.column;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import junit.framework.TestCase;
+import prefuse.data.Table;
+import prefuse.data.column.BufferColumn;
+import prefuse.data.column.ColumnFactory;
+import prefuse.data.column.DoubleBufferColumn;
+import prefuse.data.column.IntBufferColumn;
+import prefuse.data.column.LongBufferColumn;
+
+public class BufferColumnTest extends TestCase {
+
+  public void testGrowth() {
+    IntBufferColumn c = new IntBufferColumn(3, 3, 7);
+    c.setInt(1, 0);
+    c.setInt(2, 2);
+    ByteBuffer first = c.getBuffer();
+
+    // grow over several added buffers
+    int n = 10000;
+    c.setMaximumRow(n);
+    assertSame(first, c.getBuffer());
+    assertEquals(n, c.getRowCount());
+    for (int row = 3; row < n; ++row) {
+      assertEquals(7, c.getInt(row));
+      c.setInt(row, row);
+    }
+    assertEquals(1, c.getInt(0));
+    assertEquals(7, c.getInt(1));
+    for (int row = 2; row < n; ++row) {
+      assertEquals(row, c.getInt(row));
+    }
+  }
+
+  public void testWrappedBuffer() {
+    ByteBuffer buf = ByteBuffer.allocate(16).order(ByteOrder.BIG_ENDIAN);
+    buf.putLong(0, 42L);
+    LongBufferColumn c = new LongBufferColumn(buf, 1, -1L);
+    assertEquals(42L, c.getLong(0));
+    c.setMaximumRow(5000);
+    assertEquals(-1L, c.getLong(1));
+    assertEquals(-1L, c.getLong(4999));
+    c.setLong(5L, 4999);
+    assertEquals(5L, c.getLong(4999));
+    assertEquals(42L, c.getLong(0));
+
+    try {
+      new LongBufferColumn(buf.asReadOnlyBuffer(), 2, 0L).setLong(1L, 0);
+      fail("Read-only buffer modified");
+    } catch (RuntimeException e) {
+      // expected
+    }
+  }
+
+  public void testMappedStorage() {
+    File dir = new File(System.getProperty("java.io.tmpdir"));
+    DoubleBufferColumn c = new DoubleBufferColumn(0, 100, 0.5, dir);
+    c.setMaximumRow(3000);
+    for (int row = 0; row < 3000; ++row) {
+      assertEquals(0.5, c.getDouble(row), 0);
+      c.setDouble(row / 2.0, row);
+    }
+    for (int row = 0; row < 3000; ++row) {
+      assertEquals(row / 2.0, c.getDouble(row), 0);
+    }
+  }
+
+  public void testColumnFactory() {
+    int storage = ColumnFactory.getStorage();
+    try {
+      ColumnFactory.setStorage(ColumnFactory.DIRECT_STORAGE);
+      Table t = new Table();
+      t.addColumn("i", int.class, new Integer(3));
+      t.addColumn("d", double.class);
+      t.addColumn("s", String.class);
+      assertTrue(t.getColumn("i") instanceof BufferColumn);
+      assertTrue(t.getColumn("d") instanceof BufferColumn);
+      assertFalse(t.getColumn("s") instanceof BufferColumn);
+
+      t.addRows(5000);
+      for (int row = 0; row < 5000; ++row) {
+        assertEquals(3, t.getInt(row, "i"));
+        t.setDouble(row, "d", row);
+      }
+      assertEquals(4999.0, t.getDouble(4999, "d"), 0);
+
+      ColumnFactory.setStorage(ColumnFactory.MAPPED_STORAGE);
+      assertTrue(ColumnFactory.getColumn(long.class, 10) instanceof LongBufferColumn);
+
+      ColumnFactory.setStorage(ColumnFactory.HEAP_STORAGE);
+      assertFalse(ColumnFactory.getColumn(int.class) instanceof BufferColumn);
+    } finally {
+      ColumnFactory.setStorage(storage);
+    }
+  }
+
+}
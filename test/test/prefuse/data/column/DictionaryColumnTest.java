@@ -0,0 +1,107 @@
+package test.prefuse.data.column;
+
+import junit.framework.TestCase;
+import prefuse.data.Table;
+import prefuse.data.column.ColumnFactory;
+import prefuse.data.column.DictionaryColumn;
+import prefuse.data.column.ObjectColumn;
+import prefuse.data.expression.Predicate;
+import prefuse.data.expression.parser.ExpressionParser;
+import prefuse.util.collections.IntIterator;
+
+public class DictionaryColumnTest extends TestCase {
+
+  private boolean m_dictionary;
+
+  @Override
+  protected void setUp() {
+    m_dictionary = ColumnFactory.isDictionaryEncoding();
+  }
+
+  @Override
+  protected void tearDown() {
+    ColumnFactory.setDictionaryEncoding(m_dictionary);
+  }
+
+  public void testDictionary() {
+    DictionaryColumn c = new DictionaryColumn(String.class, 4, 4, null);
+    c.set("pear", 0);
+    c.set("apple", 1);
+    c.set("pear", 2);
+    assertEquals("pear", c.get(0));
+    assertEquals("apple", c.get(1));
+    assertNull(c.get(3));
+    assertEquals(c.getCode(0), c.getCode(2));
+    assertEquals(c.getCode(0), c.getCode("pear"));
+    assertEquals(-1, c.getCode("plum"));
+    assertEquals(3, c.getDictionarySize());
+
+    // null, apple, pear
+    assertEquals(0, c.getRank(c.getCode(3)));
+    assertEquals(1, c.getRank(c.getCode("apple")));
+    assertEquals(2, c.getRank("pear"));
+    assertEquals(-3, c.getRank("banana"));
+    assertEquals(-4, c.getRank("plum"));
+
+    // unused values are eventually dropped
+    for (int i = 0; i < 1000; ++i) {
+      c.set("fruit" + i, 1);
+    }
+    assertTrue(c.getDictionarySize() < 100);
+    assertEquals("pear", c.get(0));
+    assertEquals("fruit999", c.get(1));
+    assertEquals("pear", c.get(2));
+    assertNull(c.get(3));
+  }
+
+  public void testFactorySetting() {
+    ColumnFactory.setDictionaryEncoding(false);
+    assertTrue(ColumnFactory.getColumn(String.class, 4) instanceof ObjectColumn);
+    ColumnFactory.setDictionaryEncoding(true);
+    assertTrue(ColumnFactory.getColumn(String.class, 4) instanceof DictionaryColumn);
+    assertTrue(ColumnFactory.getColumn(Object.class, 4) instanceof ObjectColumn);
+  }
+
+  public void testComparison() throws Exception {
+    ColumnFactory.setDictionaryEncoding(true);
+    checkComparison(true);
+    ColumnFactory.setDictionaryEncoding(false);
+    checkComparison(false);
+  }
+
+  private static void checkComparison(boolean dictionary) throws Exception {
+    String[] values = { "b", "a", null, "cc", "b", "c" };
+    Table t = new Table();
+    t.addColumn("s", String.class);
+    assertEquals(dictionary, t.getColumn("s") instanceof DictionaryColumn);
+    t.addRows(values.length);
+    for (int i = 0; i < values.length; ++i) {
+      t.setString(i, "s", values[i]);
+    }
+    assertEquals("{0,4}", select(t, "s = 'b'"));
+    // null sorts before all other values
+    assertEquals("{0,1,2,4}", select(t, "s < 'c'"));
+    assertEquals("{0,1,2,4}", select(t, "'c' > s"));
+    assertEquals("{0,3,4,5}", select(t, "s >= 'ab'"));
+    assertEquals("{3}", select(t, "s > 'c'"));
+    assertEquals("{}", select(t, "s = 'x'"));
+
+    Object[] ordinals = t.getMetadata("s").getOrdinalArray();
+    assertEquals(5, ordinals.length);
+    assertNull(ordinals[0]);
+    assertEquals("a", ordinals[1]);
+    assertEquals("cc", ordinals[4]);
+  }
+
+  private static String select(Table t, String expr) throws Exception {
+    Predicate p = (Predicate) ExpressionParser.parse(expr, true);
+    StringBuffer sbuf = new StringBuffer("{");
+    for (IntIterator rows = t.rows(p); rows.hasNext();) {
+      int row = rows.nextInt();
+      sbuf.append(sbuf.length() > 1 ? "," : "").append(row);
+      assertTrue(p.getBoolean(t.getTuple(row)));
+    }
+    return sbuf.append("}").toString();
+  }
+
+}
@@ -1,11 +1,14 @@
 package test.prefuse.data.column;
 
 import junit.framework.TestCase;
+import prefuse.data.CascadedTable;
 import prefuse.data.Table;
 import prefuse.data.expression.ArithmeticExpression;
 import prefuse.data.expression.ColumnExpression;
 import prefuse.data.expression.Expression;
 import prefuse.data.expression.NumericLiteral;
+import prefuse.data.expression.Predicate;
+import prefuse.data.expression.parser.ExpressionParser;
 import prefuse.data.io.DelimitedTextTableWriter;
 import prefuse.data.util.TableIterator;
 import test.prefuse.TestConfig;
@@ -80,4 +83,34 @@ public class ExpressionColumnTest extends TestCase implements TableTestData {
     }
   }
 
+  public void testCascadedDerivedColumn() {
+    Table p = new Table();
+    p.addColumn("x", int.class);
+    p.addRows(10);
+    for (int i = 0; i < 10; ++i) {
+      p.setInt(i, "x", i);
+    }
+    CascadedTable c = new CascadedTable(p, (Predicate) ExpressionParser.parse("x >= 5"));
+    c.addColumn("y", "x * 2");
+
+    TableIterator it = c.iterator();
+    while (it.hasNext()) {
+      it.nextInt();
+      assertEquals(2 * it.getInt("x"), it.getInt("y"));
+    }
+
+    // updates of the parent table reach the cascaded rows
+    p.setInt(7, "x", 8);
+    p.beginBatch();
+    p.setInt(5, "x", 20);
+    p.setInt(9, "x", 30);
+    p.commitBatch();
+    it = c.iterator();
+    while (it.hasNext()) {
+      it.nextInt();
+      assertEquals(2 * it.getInt("x"), it.getInt("y"));
+      assertEquals(new Integer(2 * it.getInt("x")), it.get("y"));
+    }
+  }
+
 }
@@ -1,17 +1,26 @@
 package test.prefuse.data.expression;
 
+import java.util.Random;
+
 import junit.framework.TestCase;
+import prefuse.data.Table;
+import prefuse.data.Tuple;
 import prefuse.data.expression.AndPredicate;
 import prefuse.data.expression.ArithmeticExpression;
 import prefuse.data.expression.ColumnExpression;
 import prefuse.data.expression.ComparisonPredicate;
+import prefuse.data.expression.CompiledExpression;
 import prefuse.data.expression.Expression;
+import prefuse.data.expression.ExpressionCompiler;
 import prefuse.data.expression.FunctionExpression;
 import prefuse.data.expression.IfExpression;
+import prefuse.data.expression.NumericLiteral;
 import prefuse.data.expression.ObjectLiteral;
+import prefuse.data.expression.RangePredicate;
 import prefuse.data.expression.parser.ExpressionParser;
 import prefuse.data.expression.parser.ParseException;
 import prefuse.data.expression.parser.TokenMgrError;
+import prefuse.util.collections.IntIterator;
 
 public class ExpressionTest extends TestCase {
 
@@ -40,4 +49,72 @@ public class ExpressionTest extends TestCase {
     }
   }
 
+  private static String[] compiled = { "i < 50", "i + l >= 100 AND d < 0.5", "f * 2 = d OR NOT b",
+      "s = 'b'", "s != 'b' XOR b", "(i - l) % 7",
+      "i / 3 + f", "l * l - i", "IF b THEN i ELSE d", "IF i > 10 THEN s ELSE 'low'", "ABS(i - 50) > 20",
+      "[missing] = 1", "TRUE", "2^i > l", "d % 1.5 - f", "NOT (d < 0.5 AND i > 3)",
+      "IF d < 0.5 THEN b ELSE NOT b", "l <= 50 OR i >= 90 OR d != d", "i * 1000000 > l * 100000000" };
+
+  public void testExpressionCompiler() throws ParseException {
+    Table t = new Table();
+    t.addColumn("i", int.class);
+    t.addColumn("l", long.class);
+    t.addColumn("f", float.class);
+    t.addColumn("d", double.class);
+    t.addColumn("s", String.class);
+    t.addColumn("b", boolean.class);
+    Random r = new Random(42);
+    for (int row = 0; row < 200; ++row) {
+      t.addRow();
+      t.setInt(row, "i", r.nextInt(100) + 1);
+      t.setLong(row, "l", r.nextInt(100) + 1);
+      t.setFloat(row, "f", r.nextFloat());
+      t.setDouble(row, "d", r.nextInt(4) == 0 ? Double.NaN : r.nextDouble());
+      t.setString(row, "s", r.nextBoolean() ? "a" : "b");
+      t.setBoolean(row, "b", r.nextBoolean());
+    }
+    for (int row = 0; row < 200; row += 3) {
+      t.removeRow(row);
+    }
+
+    Expression[] exprs = new Expression[compiled.length + 2];
+    for (int i = 0; i < compiled.length; ++i) {
+      exprs[i] = ExpressionParser.parse(compiled[i], true);
+    }
+    exprs[compiled.length] = new RangePredicate(new ColumnExpression("d"), new NumericLiteral(0.25),
+        new NumericLiteral(0.75));
+    exprs[compiled.length + 1] = new RangePredicate(RangePredicate.EX_IN, new ColumnExpression("i"),
+        new ColumnExpression("l"), new NumericLiteral(99));
+
+    for (int i = 0; i < exprs.length; ++i) {
+      Expression e = exprs[i];
+      CompiledExpression c = ExpressionCompiler.compile(e, t);
+      assertEquals(e.getType(t.getSchema()), c.getType());
+      for (IntIterator rows = t.rows(); rows.hasNext();) {
+        int row = rows.nextInt();
+        Tuple tuple = t.getTuple(row);
+        Object expected;
+        try {
+          expected = e.get(tuple);
+        } catch (RuntimeException ex) {
+          try {
+            c.get(row);
+            fail("Compiled " + e.toString() + " did not fail");
+          } catch (RuntimeException success) {
+          }
+          continue;
+        }
+        assertEquals(e.toString(), expected, c.get(row));
+        if (c.getType() == boolean.class) {
+          assertEquals(e.toString(), e.getBoolean(tuple), c.getBoolean(row));
+        } else if (expected instanceof Number) {
+          assertEquals(e.toString(), e.getInt(tuple), c.getInt(row));
+          assertEquals(e.toString(), e.getLong(tuple), c.getLong(row));
+          assertEquals(e.toString(), e.getFloat(tuple), c.getFloat(row), 0);
+          assertEquals(e.toString(), e.getDouble(tuple), c.getDouble(row), 0);
+        }
+      }
+    }
+  }
+
 }
@@ -2,14 +2,19 @@ package test.prefuse.data.io;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
+import test.prefuse.data.io.sql.DatabaseDataSourceTest;
 
 public class All_PrefuseDataIO_Tests {
 
   public static Test suite() {
     TestSuite suite = new TestSuite("Test for test.prefuse.data.io");
     // $JUnit-BEGIN$
+    suite.addTestSuite(BinaryFormatTest.class);
     suite.addTestSuite(CSVTableReaderTest.class);
+    suite.addTestSuite(DatabaseDataSourceTest.class);
     suite.addTestSuite(DelimitedTextTableReaderTest.class);
+    suite.addTestSuite(StreamingGraphMLReaderTest.class);
+    suite.addTestSuite(StreamingTextTableReaderTest.class);
     // $JUnit-END$
     return suite;
   }
@@ -0,0 +1,237 @@
+package test.prefuse.data.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import prefuse.data.Edge;
+import prefuse.data.Graph;
+import prefuse.data.Node;
+import prefuse.data.Table;
+import prefuse.data.Tree;
+import prefuse.data.column.Column;
+import prefuse.data.column.ColumnFactory;
+import prefuse.data.column.DictionaryColumn;
+import prefuse.data.column.IntBufferColumn;
+import prefuse.data.column.ObjectColumn;
+import prefuse.data.io.BinaryGraphReader;
+import prefuse.data.io.BinaryGraphWriter;
+import prefuse.data.io.BinaryTableReader;
+import prefuse.data.io.BinaryTableWriter;
+import prefuse.data.io.DataIOException;
+import test.prefuse.data.TableTestData;
+
+public class BinaryFormatTest extends TestCase implements TableTestData {
+
+  private File m_file;
+
+  @Override
+  protected void setUp() throws IOException {
+    m_file = File.createTempFile("prefuse", ".bin");
+  }
+
+  @Override
+  protected void tearDown() {
+    m_file.delete();
+  }
+
+  private Table createTable() {
+    Table t = new Table();
+    for (int c = 0; c < NCOLS; ++c) {
+      t.addColumn(HEADERS[c], TYPES[c]);
+    }
+    t.addColumn("flag", boolean.class);
+    t.addColumn("big", long.class);
+    t.addColumn("ints", int[].class);
+    t.addRows(NROWS + 1);
+    for (int r = 0; r < NROWS; ++r) {
+      for (int c = 0; c < NCOLS; ++c) {
+        t.set(r + 1, c, TABLE[c][r]);
+      }
+      t.setBoolean(r + 1, "flag", r % 2 == 0);
+      t.setLong(r + 1, "big", 1L << (40 + r));
+      t.set(r + 1, "ints", new int[] { r, -r });
+    }
+    // only valid rows are written
+    t.removeRow(0);
+    return t;
+  }
+
+  private void checkTable(Table t) {
+    assertEquals(NROWS, t.getRowCount());
+    assertEquals(NCOLS + 3, t.getColumnCount());
+    for (int c = 0; c < NCOLS; ++c) {
+      assertEquals(HEADERS[c], t.getColumnName(c));
+      assertEquals(TYPES[c], t.getColumnType(c));
+      for (int r = 0; r < NROWS; ++r) {
+        assertEquals(TABLE[c][r], t.get(r, c));
+      }
+    }
+    for (int r = 0; r < NROWS; ++r) {
+      assertEquals(r % 2 == 0, t.getBoolean(r, "flag"));
+      assertEquals(1L << (40 + r), t.getLong(r, "big"));
+      int[] ints = (int[]) t.get(r, "ints");
+      assertEquals(-r, ints[1]);
+    }
+  }
+
+  public void testFileRoundTrip() throws DataIOException {
+    new BinaryTableWriter().writeTable(createTable(), m_file);
+    Table t = new BinaryTableReader().readTable(m_file);
+    checkTable(t);
+    assertTrue(t.getColumn("id") instanceof IntBufferColumn);
+
+    // changes to the mapped data do not reach the file
+    t.setInt(0, "id", 42);
+    int row = t.addRow();
+    t.setInt(row, "id", 43);
+    assertEquals(42, t.getInt(0, "id"));
+    assertEquals(43, t.getInt(row, "id"));
+    assertEquals(2, t.getInt(1, "id"));
+    checkTable(new BinaryTableReader().readTable(m_file.getPath()));
+  }
+
+  private Table createLargeTable(int nrows) {
+    Table t = new Table();
+    t.addColumn("i", int.class);
+    t.addColumn("d", double.class);
+    t.addRows(nrows);
+    for (int r = 0; r < nrows; ++r) {
+      t.setInt(r, "i", r);
+      t.setDouble(r, "d", r / 2.0);
+    }
+    return t;
+  }
+
+  private void checkLargeTableEdits(Table t, int nrows) throws IOException, DataIOException {
+    byte[] before = Files.readAllBytes(m_file.toPath());
+    assertEquals(nrows, t.getRowCount());
+    assertEquals(nrows - 1, t.getInt(nrows - 1, "i"));
+    assertEquals((nrows - 1) / 2.0, t.getDouble(nrows - 1, "d"), 0.0);
+
+    t.setInt(0, "i", -1);
+    t.setDouble(nrows - 1, "d", -2.0);
+    int row = t.addRow();
+    t.setInt(row, "i", -3);
+    assertEquals(-1, t.getInt(0, "i"));
+    assertEquals(-2.0, t.getDouble(nrows - 1, "d"), 0.0);
+    assertEquals(-3, t.getInt(row, "i"));
+    assertEquals(1, t.getInt(1, "i"));
+
+    // edits are never written back to the file
+    assertTrue(Arrays.equals(before, Files.readAllBytes(m_file.toPath())));
+    Table u = new BinaryTableReader().readTable(m_file);
+    assertEquals(0, u.getInt(0, "i"));
+    assertEquals((nrows - 1) / 2.0, u.getDouble(nrows - 1, "d"), 0.0);
+  }
+
+  public void testLargeFileRoundTrip() throws IOException, DataIOException {
+    // large enough for the columns to be mapped from the file
+    int nrows = 20000;
+    new BinaryTableWriter().writeTable(createLargeTable(nrows), m_file);
+    Table t = new BinaryTableReader().readTable(m_file);
+    assertTrue(t.getColumn("i") instanceof IntBufferColumn);
+    checkLargeTableEdits(t, nrows);
+  }
+
+  public void testReadOnlyFileRoundTrip() throws IOException, DataIOException {
+    int nrows = 20000;
+    new BinaryTableWriter().writeTable(createLargeTable(nrows), m_file);
+    assertTrue(m_file.setWritable(false));
+    try {
+      Table t = new BinaryTableReader().readTable(m_file);
+      assertTrue(t.getColumn("i") instanceof IntBufferColumn);
+      checkLargeTableEdits(t, nrows);
+    } finally {
+      m_file.setWritable(true);
+    }
+  }
+
+  public void testStreamRoundTrip() throws DataIOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    new BinaryTableWriter().writeTable(createTable(), bytes);
+    checkTable(new BinaryTableReader().readTable(new ByteArrayInputStream(bytes.toByteArray())));
+
+    try {
+      new BinaryGraphReader().readGraph(new ByteArrayInputStream(bytes.toByteArray()));
+      fail("Read a table as a graph");
+    } catch (DataIOException e) {
+      // expected
+    }
+  }
+
+  public void testDictionaryRoundTrip() throws DataIOException {
+    boolean dictionary = ColumnFactory.isDictionaryEncoding();
+    try {
+      for (int i = 0; i < 2; ++i) {
+        ColumnFactory.setDictionaryEncoding(i == 0);
+        new BinaryTableWriter().writeTable(createTable(), m_file);
+        Table t = new BinaryTableReader().readTable(m_file);
+        checkTable(t);
+        for (int c = 0; c < NCOLS; ++c) {
+          if (TYPES[c] == String.class) {
+            Column col = t.getColumn(c);
+            assertEquals(i == 0, col instanceof DictionaryColumn);
+            assertEquals(i == 1, col instanceof ObjectColumn);
+          }
+        }
+      }
+    } finally {
+      ColumnFactory.setDictionaryEncoding(dictionary);
+    }
+  }
+
+  public void testGraphRoundTrip() throws DataIOException {
+    Graph g = new Graph(true);
+    g.addColumn("label", String.class);
+    for (int i = 0; i < 5; ++i) {
+      g.addNode().setString("label", "n" + i);
+    }
+    for (int i = 0; i < 5; ++i) {
+      g.addEdge(i, (i + 1) % 5);
+      g.addEdge(i, (i + 2) % 5);
+    }
+    // node rows are renumbered, along with the edges referring to them
+    g.removeNode(1);
+
+    new BinaryGraphWriter().writeGraph(g, m_file);
+    Graph h = new BinaryGraphReader().readGraph(m_file);
+    assertTrue(h.isDirected());
+    assertEquals(4, h.getNodeCount());
+    assertEquals(6, h.getEdgeCount());
+    for (int e = 0; e < h.getEdgeCount(); ++e) {
+      Edge edge = h.getEdge(e);
+      int s = Integer.parseInt(edge.getSourceNode().getString("label").substring(1));
+      int t = Integer.parseInt(edge.getTargetNode().getString("label").substring(1));
+      assertTrue(t == (s + 1) % 5 || t == (s + 2) % 5);
+    }
+    assertEquals("n2", h.getNode(1).getString("label"));
+    assertEquals(1, h.getNode(0).getOutDegree());
+    assertEquals(2, h.getNode(0).getInDegree());
+  }
+
+  public void testTreeRoundTrip() throws DataIOException {
+    Tree t = new Tree();
+    t.addColumn("label", String.class);
+    Node root = t.addRoot();
+    root.setString("label", "root");
+    for (int i = 0; i < 3; ++i) {
+      t.addChild(root).setString("label", "c" + i);
+    }
+    t.addChild(t.getNode(2)).setString("label", "g");
+
+    new BinaryGraphWriter().writeGraph(t, m_file);
+    Graph g = new BinaryGraphReader().readGraph(m_file);
+    assertTrue(g instanceof Tree);
+    Tree u = (Tree) g;
+    assertEquals("root", u.getRoot().getString("label"));
+    assertEquals(3, u.getRoot().getChildCount());
+    assertEquals("c2", u.getRoot().getChild(2).getString("label"));
+    assertEquals(2, u.getDepth(4));
+  }
+
+}
@@ -0,0 +1,112 @@
+package test.prefuse.data.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import junit.framework.TestCase;
+import prefuse.data.Graph;
+import prefuse.data.Table;
+import prefuse.data.io.DataIOException;
+import prefuse.data.io.GraphMLReader;
+import prefuse.data.io.GraphReadListener;
+import prefuse.data.io.StreamingGraphMLReader;
+
+public class StreamingGraphMLReaderTest extends TestCase {
+
+  private static final String GRAPHML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+      + "<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n"
+      + "  <key id=\"d0\" for=\"node\" attr.name=\"color\" attr.type=\"string\">yellow</key>\n"
+      + "  <key id=\"d1\" for=\"edge\" attr.name=\"weight\" attr.type=\"double\"/>\n"
+      + "  <graph id=\"G\" edgedefault=\"directed\">\n"
+      + "    <node id=\"n0\"><data key=\"d0\">green</data></node>\n"
+      + "    <node id=\"n1\"/>\n"
+      + "    <edge source=\"n0\" target=\"n2\"><data key=\"d1\">1.5</data></edge>\n"
+      + "    <edge source=\"n3\" target=\"n1\"/>\n"
+      + "    <node id=\"n2\"><data key=\"d0\">blue</data></node>\n"
+      + "    <edge source=\"n1\" target=\"n0\"><data key=\"d1\">2.0</data></edge>\n"
+      + "    <node id=\"n3\"/>\n"
+      + "  </graph>\n"
+      + "</graphml>\n";
+
+  private static Graph read(StreamingGraphMLReader reader, byte[] data) {
+    try {
+      return reader.readGraph(new ByteArrayInputStream(data));
+    } catch (DataIOException e) {
+      e.printStackTrace();
+      fail("Data Read Exception");
+      return null;
+    }
+  }
+
+  private static void assertSameTable(Table expected, Table actual) {
+    assertEquals(expected.getRowCount(), actual.getRowCount());
+    assertEquals(expected.getColumnCount(), actual.getColumnCount());
+    for (int c = 0; c < expected.getColumnCount(); ++c) {
+      assertEquals(expected.getColumnName(c), actual.getColumnName(c));
+      assertEquals(expected.getColumnType(c), actual.getColumnType(c));
+      for (int r = 0; r < expected.getRowCount(); ++r) {
+        assertEquals(expected.get(r, c), actual.get(r, c));
+      }
+    }
+  }
+
+  public void testMatchesGraphMLReader() throws DataIOException {
+    byte[] data = GRAPHML.getBytes();
+    Graph expected = new GraphMLReader().readGraph(new ByteArrayInputStream(data));
+    Graph g = read(new StreamingGraphMLReader(), data);
+    assertTrue(g.isDirected());
+    assertSameTable(expected.getNodeTable(), g.getNodeTable());
+    assertSameTable(expected.getEdgeTable(), g.getEdgeTable());
+
+    // edges declared before their endpoints are resolved at the end
+    assertEquals(4, g.getNodeCount());
+    assertEquals(3, g.getEdgeCount());
+    assertEquals("blue", g.getNode(2).getString("color"));
+    assertEquals(2, g.getEdge(0).getTargetNode().getRow());
+    assertEquals(3, g.getEdge(1).getSourceNode().getRow());
+    assertEquals(1.5, g.getEdge(0).getDouble("weight"), 0);
+  }
+
+  public void testGzipInput() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    GZIPOutputStream gz = new GZIPOutputStream(bytes);
+    gz.write(GRAPHML.getBytes());
+    gz.close();
+
+    Graph expected = read(new StreamingGraphMLReader(), GRAPHML.getBytes());
+    Graph g = read(new StreamingGraphMLReader(), bytes.toByteArray());
+    assertSameTable(expected.getNodeTable(), g.getNodeTable());
+    assertSameTable(expected.getEdgeTable(), g.getEdgeTable());
+  }
+
+  public void testListener() {
+    final StringBuffer events = new StringBuffer();
+    StreamingGraphMLReader reader = new StreamingGraphMLReader(new GraphReadListener() {
+      @Override
+      public void nodeRead(Table nodes, int row) {
+        events.append('n').append(row);
+      }
+
+      @Override
+      public void edgeRead(Table edges, int row) {
+        events.append('e').append(row).append(':')
+            .append(edges.getInt(row, Graph.DEFAULT_SOURCE_KEY)).append('-')
+            .append(edges.getInt(row, Graph.DEFAULT_TARGET_KEY));
+      }
+    });
+    read(reader, GRAPHML.getBytes());
+    assertEquals("n0n1n2e2:1-0n3e0:0-2e1:3-1", events.toString());
+  }
+
+  public void testUnknownNode() {
+    String data = GRAPHML.replace("target=\"n0\"", "target=\"n9\"");
+    try {
+      new StreamingGraphMLReader().readGraph(new ByteArrayInputStream(data.getBytes()));
+      fail("Unknown node id accepted");
+    } catch (DataIOException e) {
+      // expected
+    }
+  }
+
+}
@@ -0,0 +1,146 @@
+package test.prefuse.data.io;
+
+import java.io.ByteArrayInputStream;
+
+import junit.framework.TestCase;
+import prefuse.data.Table;
+import prefuse.data.io.DataIOException;
+import prefuse.data.io.StreamingTextTableReader;
+import test.prefuse.data.TableTestData;
+
+public class StreamingTextTableReaderTest extends TestCase implements TableTestData {
+
+  private Table read(StreamingTextTableReader reader, String data) {
+    try {
+      return reader.readTable(new ByteArrayInputStream(data.getBytes()));
+    } catch (DataIOException e) {
+      e.printStackTrace();
+      fail("Data Read Exception");
+      return null;
+    }
+  }
+
+  private void checkTable(Table t) {
+    assertEquals(NROWS, t.getRowCount());
+    assertEquals(NCOLS, t.getColumnCount());
+    for (int c = 0; c < NCOLS; ++c) {
+      assertEquals(HEADERS[c], t.getColumnName(c));
+      assertEquals(TYPES[c], t.getColumnType(c));
+      for (int r = 0; r < NROWS; ++r) {
+        assertEquals(TABLE[c][r], t.get(r, c));
+      }
+    }
+  }
+
+  public void testReadCSV() {
+    StreamingTextTableReader reader = new StreamingTextTableReader();
+    checkTable(read(reader, CSV_DATA));
+
+    // parse blocks of single records in parallel
+    reader.setBlockSize(8);
+    reader.setParallelism(3);
+    checkTable(read(reader, CSV_DATA));
+  }
+
+  public void testReadTabDelimited() {
+    StreamingTextTableReader reader = new StreamingTextTableReader('\t');
+    reader.setQuoting(false);
+    checkTable(read(reader, TAB_DELIMITED_DATA));
+  }
+
+  public void testQuotedLineBreaks() {
+    String data = "a,b\r\nu,\"x\r\ny\"\r\n\r\nv,\"\"\"\",\"z\"\n";
+    Table t = read(new StreamingTextTableReader(), data);
+    assertEquals(3, t.getRowCount());
+    assertEquals(3, t.getColumnCount());
+    assertEquals("x\r\ny", t.getString(0, "b"));
+    assertEquals("", t.getString(1, "a"));
+    assertNull(t.get(1, 1));
+    assertEquals("\"", t.getString(2, "b"));
+    assertEquals("z", t.get(2, 2));
+    assertNull(t.get(0, 2));
+  }
+
+  public void testTypeWidening() {
+    StringBuffer sbuf = new StringBuffer("i,l,s\n");
+    for (int i = 0; i < 100; ++i) {
+      sbuf.append(i).append(',').append(i).append(',').append(i).append('\n');
+    }
+    sbuf.append("1.5,12345678901,text\n");
+
+    StreamingTextTableReader reader = new StreamingTextTableReader();
+    reader.setSampleSize(10);
+    reader.setBlockSize(64);
+    Table t = read(reader, sbuf.toString());
+    assertEquals(101, t.getRowCount());
+    assertEquals(double.class, t.getColumnType(0));
+    assertEquals(long.class, t.getColumnType(1));
+    assertEquals(String.class, t.getColumnType(2));
+    assertEquals(42.0, t.getDouble(42, 0), 0);
+    assertEquals(1.5, t.getDouble(100, 0), 0);
+    assertEquals(12345678901L, t.getLong(100, 1));
+    assertEquals("42", t.getString(42, 2));
+    assertEquals("text", t.getString(100, 2));
+  }
+
+  public void testTextFallbackKeepsOriginalText() {
+    StringBuffer sbuf = new StringBuffer("i,l,b\n");
+    sbuf.append("007,-4286485518917161630,FALSE\n");
+    for (int i = 0; i < 100; ++i) {
+      sbuf.append(i).append(',').append(i).append(',').append(i % 2 == 0 ? "true" : "False").append('\n');
+    }
+    sbuf.append("x,y,z\n");
+
+    StreamingTextTableReader reader = new StreamingTextTableReader();
+    reader.setSampleSize(10);
+    reader.setBlockSize(64);
+    Table t = read(reader, sbuf.toString());
+    assertEquals(102, t.getRowCount());
+    for (int c = 0; c < 3; ++c) {
+      assertEquals(String.class, t.getColumnType(c));
+    }
+    assertEquals("007", t.getString(0, 0));
+    assertEquals("-4286485518917161630", t.getString(0, 1));
+    assertEquals("FALSE", t.getString(0, 2));
+    assertEquals("42", t.getString(43, 0));
+    assertEquals("False", t.getString(44, 2));
+    assertEquals("x", t.getString(101, 0));
+    assertEquals("z", t.getString(101, 2));
+  }
+
+  public void testTextFallbackAfterParsedBlocks() {
+    String[][] records = new String[202][];
+    records[0] = new String[] { "007", "12345678901", "1.50", "TRUE" };
+    for (int i = 1; i < 200; ++i) {
+      String v = (i == 1 ? "-0" : i == 2 ? "+5" : String.valueOf(i));
+      String l = (i == 50 ? "5L" : String.valueOf(-i));
+      String b = (i % 3 == 0 ? "true" : i % 3 == 1 ? "False" : "false");
+      records[i] = (i == 60 ? new String[] { v, l } : new String[] { v, l, i + ".50", b });
+    }
+    records[200] = new String[] { "1e3", "-0", "1e3", "no" };
+    records[201] = new String[] { "x", "y", "z", "w" };
+    StringBuffer sbuf = new StringBuffer("i,l,d,b\n");
+    for (int r = 0; r < records.length; ++r) {
+      for (int c = 0; c < records[r].length; ++c) {
+        sbuf.append(c > 0 ? "," : "").append(records[r][c]);
+      }
+      sbuf.append('\n');
+    }
+
+    StreamingTextTableReader reader = new StreamingTextTableReader();
+    reader.setSampleSize(10);
+    reader.setBlockSize(64);
+    for (int threads = 1; threads <= 3; threads += 2) {
+      reader.setParallelism(threads);
+      Table t = read(reader, sbuf.toString());
+      assertEquals(records.length, t.getRowCount());
+      for (int c = 0; c < 4; ++c) {
+        assertEquals(String.class, t.getColumnType(c));
+        for (int r = 0; r < records.length; ++r) {
+          assertEquals(c < records[r].length ? records[r][c] : null, t.getString(r, c));
+        }
+      }
+    }
+  }
+
+}
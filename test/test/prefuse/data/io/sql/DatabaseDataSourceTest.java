@@ -0,0 +1,219 @@
+package test.prefuse.data.io.sql;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import junit.framework.TestCase;
+import prefuse.data.Table;
+import prefuse.data.io.sql.ConnectionFactory;
+import prefuse.data.io.sql.DataSourceWorker;
+import prefuse.data.io.sql.DatabaseDataSource;
+
+public class DatabaseDataSourceTest extends TestCase {
+
+  /**
+   * In-memory stand-in for a database, answering every query with rows of an
+   * integer id and a string name. The first result set of a query containing
+   * "wait" blocks until {@link #release()} is called.
+   */
+  private static class StubDatabase implements InvocationHandler {
+    private final int m_rows;
+    private final List m_fetchSizes = new ArrayList();
+    private boolean m_released;
+
+    StubDatabase(int rows) {
+      m_rows = rows;
+    }
+
+    DataSource getDataSource() {
+      return (DataSource) proxy(DataSource.class, this);
+    }
+
+    synchronized void release() {
+      m_released = true;
+      notifyAll();
+    }
+
+    synchronized void await() throws InterruptedException {
+      while (!m_released) {
+        wait();
+      }
+    }
+
+    @Override
+    public Object invoke(Object p, Method m, Object[] args) {
+      if (m.getName().equals("getConnection")) {
+        return proxy(Connection.class, new InvocationHandler() {
+          @Override
+          public Object invoke(Object p, Method m, Object[] args) {
+            return m.getName().equals("createStatement") ? statement() : null;
+          }
+        });
+      }
+      return null;
+    }
+
+    private Statement statement() {
+      return (Statement) proxy(Statement.class, new InvocationHandler() {
+        private int m_fetchSize;
+
+        @Override
+        public Object invoke(Object p, Method m, Object[] args) {
+          if (m.getName().equals("setFetchSize")) {
+            m_fetchSize = ((Integer) args[0]).intValue();
+          } else if (m.getName().equals("executeQuery")) {
+            synchronized (m_fetchSizes) {
+              m_fetchSizes.add(new Integer(m_fetchSize));
+            }
+            return resultSet(((String) args[0]).indexOf("wait") >= 0);
+          }
+          return null;
+        }
+      });
+    }
+
+    private ResultSet resultSet(final boolean block) {
+      final ResultSetMetaData metadata = (ResultSetMetaData) proxy(ResultSetMetaData.class, new InvocationHandler() {
+        @Override
+        public Object invoke(Object p, Method m, Object[] args) {
+          if (m.getName().equals("getColumnCount")) {
+            return new Integer(2);
+          }
+          int col = ((Integer) args[0]).intValue();
+          if (m.getName().equals("getColumnName")) {
+            return col == 1 ? "id" : "name";
+          }
+          return new Integer(col == 1 ? Types.INTEGER : Types.VARCHAR);
+        }
+      });
+      return (ResultSet) proxy(ResultSet.class, new InvocationHandler() {
+        private int m_row = -1;
+
+        @Override
+        public Object invoke(Object p, Method m, Object[] args) throws InterruptedException {
+          String name = m.getName();
+          if (name.equals("next")) {
+            if (block) {
+              await();
+            }
+            return Boolean.valueOf(++m_row < m_rows);
+          } else if (name.equals("getMetaData")) {
+            return metadata;
+          } else if (name.equals("getInt")) {
+            return new Integer(m_row);
+          } else if (name.equals("getString")) {
+            return "row" + m_row;
+          }
+          return null;
+        }
+      });
+    }
+
+    private static Object proxy(Class type, InvocationHandler handler) {
+      return Proxy.newProxyInstance(DatabaseDataSourceTest.class.getClassLoader(), new Class[] { type }, handler);
+    }
+  }
+
+  /**
+   * Listener recording the progress of a job and waiting for its completion.
+   */
+  private static class Progress implements DataSourceWorker.ProgressListener {
+    private final List m_rows = new ArrayList();
+    private boolean m_done;
+
+    @Override
+    public void preQuery(DataSourceWorker.Entry job) {
+    }
+
+    @Override
+    public synchronized void progress(DataSourceWorker.Entry job, int rows) {
+      m_rows.add(new Integer(rows));
+    }
+
+    @Override
+    public synchronized void postQuery(DataSourceWorker.Entry job) {
+      m_done = true;
+      notifyAll();
+    }
+
+    synchronized boolean await(long millis) throws InterruptedException {
+      long end = System.currentTimeMillis() + millis;
+      while (!m_done && System.currentTimeMillis() < end) {
+        wait(Math.max(1, end - System.currentTimeMillis()));
+      }
+      return m_done;
+    }
+  }
+
+  private static Table newTable() {
+    Table t = new Table();
+    t.addColumn("id", int.class);
+    t.addColumn("name", String.class);
+    return t;
+  }
+
+  public void testGetData() throws Exception {
+    StubDatabase db = new StubDatabase(10);
+    DatabaseDataSource ds = ConnectionFactory.getDatabaseConnection(db.getDataSource());
+    ds.setFetchSize(3);
+    Table t = ds.getData(newTable(), "select", "id");
+    assertEquals(10, t.getRowCount());
+    assertEquals(7, t.getInt(7, "id"));
+    assertEquals("row7", t.getString(7, "name"));
+
+    // existing keys update rows rather than adding them
+    ds.getData(t, "select", "id");
+    assertEquals(10, t.getRowCount());
+    assertEquals(new Integer(3), db.m_fetchSizes.get(1));
+  }
+
+  public void testLoadDataProgress() throws Exception {
+    StubDatabase db = new StubDatabase(10);
+    DatabaseDataSource ds = ConnectionFactory.getDatabaseConnection(db.getDataSource());
+    ds.setFetchSize(4);
+    Table t = newTable();
+    Object lock = new Object();
+    Progress progress = new Progress();
+    ds.loadData(t, "select", null, lock, progress);
+    assertTrue(progress.await(10000));
+    assertEquals(10, t.getRowCount());
+    assertEquals("[4, 8, 10]", progress.m_rows.toString());
+  }
+
+  public void testConcurrentWorkers() throws Exception {
+    int count = DataSourceWorker.getWorkerCount();
+    DataSourceWorker.setWorkerCount(2);
+    StubDatabase db = new StubDatabase(5);
+    try {
+      DatabaseDataSource ds = ConnectionFactory.getDatabaseConnection(db.getDataSource());
+      Progress blocked = new Progress();
+      Progress free = new Progress();
+      Table t1 = newTable(), t2 = newTable();
+      ds.loadData(t1, "wait", null, null, blocked);
+      ds.loadData(t2, "select", null, null, free);
+
+      // the second job completes while the first one waits on the database
+      assertTrue(free.await(10000));
+      assertEquals(5, t2.getRowCount());
+      assertEquals(0, t1.getRowCount());
+
+      db.release();
+      assertTrue(blocked.await(10000));
+      assertEquals(5, t1.getRowCount());
+    } finally {
+      db.release();
+      DataSourceWorker.setWorkerCount(count);
+    }
+  }
+
+}
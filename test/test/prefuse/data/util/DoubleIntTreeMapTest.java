@@ -5,6 +5,7 @@ import java.util.NoSuchElementException;
 
 import junit.framework.TestCase;
 import prefuse.util.collections.DoubleIntTreeMap;
+import prefuse.util.collections.IntIterator;
 import prefuse.util.collections.LiteralIterator;
 
 public class DoubleIntTreeMapTest extends TestCase {
@@ -168,4 +169,29 @@ public class DoubleIntTreeMapTest extends TestCase {
     }
   }
 
+  /*
+   * Test method for
+   * 'prefuse.util.collections.DoubleIntTreeMap.build(double[], int[], int)'
+   */
+  public void testBuild() {
+    double[] dkeys = { 0.5, -0.0, Double.NaN, -1e300, 0.0, 0.5, Double.NEGATIVE_INFINITY, 1e300 };
+    int[] vals = new int[dkeys.length];
+    DoubleIntTreeMap put = new DoubleIntTreeMap(true);
+    for (int i = 0; i < vals.length; ++i) {
+      vals[i] = i;
+      put.put(dkeys[i], i);
+    }
+    DoubleIntTreeMap built = new DoubleIntTreeMap(true);
+    built.build(dkeys, vals, dkeys.length);
+    assertEquals(put.size(), built.size());
+    assertEquals(put.getUniqueCount(), built.getUniqueCount());
+
+    IntIterator iter1 = put.valueIterator(true);
+    IntIterator iter2 = built.valueIterator(true);
+    while (iter1.hasNext()) {
+      assertEquals(iter1.nextInt(), iter2.nextInt());
+    }
+    assertFalse(iter2.hasNext());
+  }
+
 }
@@ -5,6 +5,7 @@ import java.util.NoSuchElementException;
 
 import junit.framework.TestCase;
 import prefuse.util.collections.IntIntTreeMap;
+import prefuse.util.collections.IntIterator;
 import prefuse.util.collections.LiteralIterator;
 
 public class IntIntTreeMapTest extends TestCase {
@@ -168,4 +169,40 @@ public class IntIntTreeMapTest extends TestCase {
     }
   }
 
+  /*
+   * Test method for
+   * 'prefuse.util.collections.IntIntTreeMap.build(int[], int[], int)'
+   */
+  public void testBuild() {
+    int[] vals = new int[keys.length];
+    for (int i = 0; i < vals.length; ++i) {
+      vals[i] = i;
+    }
+    IntIntTreeMap built = new IntIntTreeMap(true);
+    built.put(7, 7);
+    built.build(keys, vals, keys.length);
+    assertEquals(keys.length, built.size());
+    assertEquals(6, built.getUniqueCount());
+
+    // duplicate keys keep their insertion order
+    LiteralIterator iter = built.keyIterator();
+    IntIterator values = built.valueIterator(true);
+    for (int i = 0; iter.hasNext(); ++i) {
+      assertEquals(sort[i], iter.nextInt());
+      assertEquals(sort[i], keys[values.nextInt()]);
+    }
+    iter = built.keyRangeIterator(5, true, 5, true);
+    assertEquals(5, iter.nextInt());
+    assertEquals(5, iter.nextInt());
+    assertFalse(iter.hasNext());
+    assertEquals(5, built.remove(5));
+    assertEquals(2, built.remove(5));
+
+    // without duplicates, the last value for a key is kept
+    built = new IntIntTreeMap(false);
+    built.build(keys, vals, keys.length);
+    assertEquals(6, built.size());
+    assertEquals(5, built.get(5));
+  }
+
 }
@@ -0,0 +1,17 @@
+package test.prefuse.util.display;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+public class All_PrefuseUtilDisplay_Tests {
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite("Test for test.prefuse.util.display");
+    // $JUnit-BEGIN$
+    suite.addTestSuite(ItemBoundsIndexTest.class);
+    suite.addTestSuite(PickingIndexTest.class);
+    // $JUnit-END$
+    return suite;
+  }
+
+}
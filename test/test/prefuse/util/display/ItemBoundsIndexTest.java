@@ -0,0 +1,164 @@
+package test.prefuse.util.display;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import prefuse.Visualization;
+import prefuse.data.Table;
+import prefuse.util.display.Clip;
+import prefuse.util.display.ItemBoundsIndex;
+import prefuse.visual.VisualItem;
+import prefuse.visual.VisualTable;
+
+public class ItemBoundsIndexTest extends TestCase {
+
+  private VisualItem[] m_items;
+  private boolean[] m_indexed;
+  private ItemBoundsIndex m_index;
+
+  private void createItems(int n) {
+    Table t = new Table();
+    t.addRows(n);
+    VisualTable vt = (VisualTable) new Visualization().add("items", t);
+    m_items = new VisualItem[n];
+    m_indexed = new boolean[n];
+    for (int i = 0; i < n; ++i) {
+      m_items[i] = vt.getItem(i);
+    }
+    m_index = new ItemBoundsIndex();
+  }
+
+  private void rebuild() {
+    int[] tables = new int[m_items.length];
+    m_index.rebuild(1, tables, m_items, m_items.length);
+    for (int i = 0; i < m_items.length; ++i) {
+      m_indexed[i] = true;
+    }
+  }
+
+  private void put(int i) {
+    m_index.put(0, i, m_items[i], m_items[i].getBounds());
+    m_indexed[i] = true;
+  }
+
+  private void remove(int i) {
+    m_index.remove(0, i);
+    m_indexed[i] = false;
+  }
+
+  private static void setBounds(VisualItem item, double x, double y, double w, double h) {
+    item.setBounds(x, y, w, h);
+    // keep the bounds from being recomputed by the renderer
+    item.setValidated(true);
+  }
+
+  /**
+   * Check a query against a scan of the indexed items, in row order.
+   */
+  private void checkQuery(double x1, double y1, double x2, double y2) {
+    int n = m_index.query(x1, y1, x2, y2);
+    VisualItem[] results = m_index.getResults();
+    int k = 0;
+    for (int i = 0; i < m_items.length; ++i) {
+      Rectangle2D b = m_items[i].getBounds();
+      if (m_indexed[i] && b.getMinX() <= x2 && b.getMaxX() >= x1 && b.getMinY() <= y2 && b.getMaxY() >= y1) {
+        assertTrue("missing item " + i, k < n);
+        assertSame(m_items[i], results[k++]);
+      }
+    }
+    assertEquals(k, n);
+  }
+
+  private void checkQueries(Random r) {
+    for (int i = 0; i < m_items.length; ++i) {
+      Rectangle2D b = m_items[i].getBounds();
+      checkQuery(b.getMinX(), b.getMinY(), b.getMinX(), b.getMinY());
+      checkQuery(b.getMaxX(), b.getMaxY(), b.getMaxX(), b.getMaxY());
+    }
+    for (int q = 0; q < 1000; ++q) {
+      double x = 1400 * r.nextDouble() - 200, y = 1000 * r.nextDouble() - 200;
+      double w = (q % 10 == 0 ? 500 : 20) * r.nextDouble();
+      checkQuery(x, y, x + w, y + w * r.nextDouble());
+    }
+  }
+
+  private void checkBounds() {
+    double x1 = Double.POSITIVE_INFINITY, y1 = Double.POSITIVE_INFINITY;
+    double x2 = Double.NEGATIVE_INFINITY, y2 = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < m_items.length; ++i) {
+      if (m_indexed[i]) {
+        Rectangle2D b = m_items[i].getBounds();
+        x1 = Math.min(x1, b.getMinX());
+        y1 = Math.min(y1, b.getMinY());
+        x2 = Math.max(x2, b.getMaxX());
+        y2 = Math.max(y2, b.getMaxY());
+      }
+    }
+    Clip c = new Clip();
+    m_index.getBounds(c);
+    assertEquals(x1, c.getMinX(), 1e-9);
+    assertEquals(y1, c.getMinY(), 1e-9);
+    assertEquals(x2, c.getMaxX(), 1e-9);
+    assertEquals(y2, c.getMaxY(), 1e-9);
+  }
+
+  public void testRandomUpdates() {
+    Random r = new Random(42);
+    createItems(1500);
+    for (int i = 0; i < m_items.length; ++i) {
+      double size = (i % 50 == 0 ? 400 : 5) * r.nextDouble();
+      setBounds(m_items[i], 1000 * r.nextDouble(), 700 * r.nextDouble(), size, size * r.nextDouble());
+    }
+    rebuild();
+    checkQueries(r);
+    checkBounds();
+
+    // move items, partly outside of the grid, and remove and re-add others
+    for (int round = 0; round < 3; ++round) {
+      for (int j = 0; j < 300; ++j) {
+        int i = r.nextInt(m_items.length);
+        if (j % 3 == 0) {
+          remove(i);
+          continue;
+        }
+        double size = (j % 40 == 0 ? 600 : 5) * r.nextDouble();
+        setBounds(m_items[i], 1200 * r.nextDouble() - 100, 900 * r.nextDouble() - 100, size, size);
+        put(i);
+      }
+      checkQueries(r);
+      checkBounds();
+    }
+  }
+
+  public void testCoincidentItems() {
+    createItems(100);
+    for (int i = 0; i < m_items.length; ++i) {
+      setBounds(m_items[i], 3, 4, 0, 0);
+    }
+    rebuild();
+    assertEquals(m_items.length, m_index.query(3, 4, 3, 4));
+    assertEquals(0, m_index.query(3.5, 4, 5, 5));
+
+    // grow the extent along one axis only
+    Random r = new Random(3);
+    for (int i = 0; i < m_items.length; i += 2) {
+      setBounds(m_items[i], 100 * r.nextDouble(), 4, 2, 0);
+      put(i);
+    }
+    checkQueries(r);
+    checkBounds();
+    rebuild();
+    checkQueries(r);
+  }
+
+  public void testEmpty() {
+    createItems(0);
+    rebuild();
+    assertEquals(0, m_index.query(0, 0, 10, 10));
+    Clip c = new Clip();
+    m_index.getBounds(c);
+    assertTrue(c.isEmpty());
+  }
+
+}
@@ -0,0 +1,136 @@
+package test.prefuse.util.display;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import prefuse.Visualization;
+import prefuse.data.Table;
+import prefuse.util.display.PickingIndex;
+import prefuse.visual.VisualItem;
+import prefuse.visual.VisualTable;
+
+public class PickingIndexTest extends TestCase {
+
+  private VisualItem[] createItems(int n) {
+    Table t = new Table();
+    t.addRows(n);
+    VisualTable vt = (VisualTable) new Visualization().add("items", t);
+    VisualItem[] items = new VisualItem[n];
+    for (int i = 0; i < n; ++i) {
+      items[i] = vt.getItem(i);
+    }
+    return items;
+  }
+
+  private static void setBounds(VisualItem item, double x, double y, double w, double h) {
+    item.setBounds(x, y, w, h);
+    // keep the bounds from being recomputed by the renderer
+    item.setValidated(true);
+  }
+
+  /**
+   * Check a query against a scan of the queue, front-most item first.
+   */
+  private void checkQuery(PickingIndex index, VisualItem[] items, double x, double y) {
+    double m = index.getMargin();
+    int n = index.query(x, y);
+    int[] results = index.getResults();
+    int k = 0;
+    for (int i = items.length; --i >= 0;) {
+      Rectangle2D b = items[i].getBounds();
+      if (x >= b.getMinX() - m && x <= b.getMaxX() + m && y >= b.getMinY() - m && y <= b.getMaxY() + m) {
+        // skip candidates that do not contain the point
+        for (; k < n && results[k] > i; ++k) {
+          assertTrue(k == 0 || results[k] < results[k - 1]);
+        }
+        assertTrue("missing item " + i + " at " + x + "," + y, k < n && results[k] == i);
+        assertTrue(k == 0 || results[k] < results[k - 1]);
+        ++k;
+      }
+    }
+  }
+
+  private void checkCorners(PickingIndex index, VisualItem[] items) {
+    double m = index.getMargin();
+    for (int i = 0; i < items.length; ++i) {
+      Rectangle2D b = items[i].getBounds();
+      checkQuery(index, items, b.getMinX() - m, b.getMinY() - m);
+      checkQuery(index, items, b.getMaxX() + m, b.getMaxY() + m);
+      checkQuery(index, items, b.getCenterX(), b.getCenterY());
+    }
+  }
+
+  public void testRandomItems() {
+    Random r = new Random(42);
+    VisualItem[] items = createItems(2000);
+    for (int i = 0; i < items.length; ++i) {
+      double size = (i % 50 == 0 ? 400 : 5) * r.nextDouble();
+      setBounds(items[i], 1000 * r.nextDouble(), 700 * r.nextDouble(), size, size * r.nextDouble());
+    }
+    double[] margins = { 0, 1, 10 };
+    for (int j = 0; j < margins.length; ++j) {
+      PickingIndex index = new PickingIndex();
+      index.setMargin(margins[j]);
+      index.build(items, items.length);
+      checkCorners(index, items);
+      for (int q = 0; q < 2000; ++q) {
+        checkQuery(index, items, 1100 * r.nextDouble() - 50, 800 * r.nextDouble() - 50);
+      }
+    }
+  }
+
+  public void testExtentCorners() {
+    // the far corner of the extent must be found despite rounding of the grid
+    Random r = new Random(11);
+    PickingIndex index = new PickingIndex();
+    index.setMargin(0);
+    for (int round = 0; round < 500; ++round) {
+      VisualItem[] items = createItems(1 + r.nextInt(40));
+      for (int i = 0; i < items.length; ++i) {
+        setBounds(items[i], 100 * r.nextDouble() - 50, 100 * r.nextDouble() - 50, 30 * r.nextDouble(),
+            30 * r.nextDouble());
+      }
+      index.build(items, items.length);
+      checkCorners(index, items);
+    }
+  }
+
+  public void testCoincidentItems() {
+    VisualItem[] items = createItems(100);
+    for (int i = 0; i < items.length; ++i) {
+      setBounds(items[i], 3, 4, 0, 0);
+    }
+    PickingIndex index = new PickingIndex();
+    index.setMargin(0);
+    index.build(items, items.length);
+    assertEquals(items.length, index.query(3, 4));
+    checkCorners(index, items);
+    assertEquals(0, index.query(3.5, 4));
+  }
+
+  public void testFlatExtent() {
+    Random r = new Random(7);
+    VisualItem[] items = createItems(500);
+    for (int i = 0; i < items.length; ++i) {
+      // zero height, then zero width
+      setBounds(items[i], 1000 * r.nextDouble(), 20, 3 * r.nextDouble(), 0);
+    }
+    PickingIndex index = new PickingIndex();
+    index.setMargin(0);
+    index.build(items, items.length);
+    checkCorners(index, items);
+    for (int i = 0; i < items.length; ++i) {
+      setBounds(items[i], -5, 1000 * r.nextDouble(), 0, 3 * r.nextDouble());
+    }
+    index.build(items, items.length);
+    checkCorners(index, items);
+  }
+
+  public void testEmpty() {
+    PickingIndex index = new PickingIndex();
+    index.build(new VisualItem[0], 0);
+    assertEquals(0, index.query(0, 0));
+  }
+
+}
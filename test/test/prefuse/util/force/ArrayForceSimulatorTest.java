@@ -0,0 +1,176 @@
+package test.prefuse.util.force;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import prefuse.util.force.ArrayForceSimulator;
+import prefuse.util.force.DragForce;
+import prefuse.util.force.EulerIntegrator;
+import prefuse.util.force.ForceItem;
+import prefuse.util.force.ForceSimulator;
+import prefuse.util.force.Integrator;
+import prefuse.util.force.NBodyForce;
+import prefuse.util.force.RungeKuttaIntegrator;
+import prefuse.util.force.SpringForce;
+
+public class ArrayForceSimulatorTest extends TestCase {
+
+  static final int NITEMS = 300;
+  static final int NSTEPS = 20;
+
+  private static ForceItem[] populate(ForceSimulator fsim, long seed, boolean springs) {
+    fsim.addForce(new NBodyForce());
+    fsim.addForce(new SpringForce());
+    fsim.addForce(new DragForce());
+    Random r = new Random(seed);
+    ForceItem[] items = new ForceItem[NITEMS];
+    for (int i = 0; i < NITEMS; i++) {
+      ForceItem item = new ForceItem();
+      item.mass = 0.5f + r.nextFloat();
+      item.location[0] = 500 * r.nextFloat();
+      item.location[1] = 500 * r.nextFloat();
+      fsim.addItem(item);
+      items[i] = item;
+      if (springs && i > 0) {
+        fsim.addSpring(items[r.nextInt(i)], item);
+      }
+    }
+    return items;
+  }
+
+  private static void assertSameState(ForceSimulator expected, ForceSimulator actual) {
+    assertEquals(expected.getItemCount(), actual.getItemCount());
+    Iterator iter1 = expected.getItems(), iter2 = actual.getItems();
+    while (iter1.hasNext()) {
+      ForceItem a = (ForceItem) iter1.next(), b = (ForceItem) iter2.next();
+      for (int d = 0; d < 2; d++) {
+        assertEquals(a.location[d], b.location[d], 1e-3f * (1 + Math.abs(a.location[d])));
+        assertEquals(a.velocity[d], b.velocity[d], 1e-3f * (1 + Math.abs(a.velocity[d])));
+      }
+    }
+  }
+
+  private void compare(Integrator integr1, Integrator integr2) {
+    ForceSimulator fsim = new ForceSimulator(integr1);
+    ArrayForceSimulator asim = new ArrayForceSimulator(integr2);
+    populate(fsim, 11L, true);
+    populate(asim, 11L, true);
+    for (int step = 0; step < NSTEPS; step++) {
+      fsim.runSimulator(50);
+      asim.runSimulator(50);
+    }
+    assertSameState(fsim, asim);
+  }
+
+  public void testRungeKuttaMatchesForceSimulator() {
+    compare(new RungeKuttaIntegrator(), new RungeKuttaIntegrator());
+  }
+
+  public void testEulerMatchesForceSimulator() {
+    compare(new EulerIntegrator(), new EulerIntegrator());
+  }
+
+  public void testAddRemoveBetweenSteps() {
+    ForceSimulator fsim = new ForceSimulator();
+    ArrayForceSimulator asim = new ArrayForceSimulator();
+    // ForceSimulator keeps the springs of removed items, so only the springs
+    // of the added items, which are never removed, are used here
+    ForceItem[] fitems = populate(fsim, 5L, false);
+    ForceItem[] aitems = populate(asim, 5L, false);
+    for (int step = 0; step < NSTEPS; step++) {
+      fsim.runSimulator(50);
+      asim.runSimulator(50);
+      if (step % 5 == 0) {
+        // drop an item part way through, and add a fresh one
+        fsim.removeItem(fitems[step]);
+        asim.removeItem(aitems[step]);
+        assertEquals(fitems[step].location[0], aitems[step].location[0], 1e-3f * (1 + Math.abs(fitems[step].location[0])));
+        ForceItem f = new ForceItem(), a = new ForceItem();
+        f.location[0] = a.location[0] = 10 * step;
+        f.location[1] = a.location[1] = 250;
+        fsim.addItem(f);
+        asim.addItem(a);
+        fsim.addSpring(f, fitems[NITEMS - 1]);
+        asim.addSpring(a, aitems[NITEMS - 1]);
+      }
+    }
+    assertSameState(fsim, asim);
+  }
+
+  public void testLoadItems() {
+    ForceSimulator fsim = new ForceSimulator();
+    ArrayForceSimulator asim = new ArrayForceSimulator();
+    ForceItem[] fitems = populate(fsim, 3L, true);
+    ForceItem[] aitems = populate(asim, 3L, true);
+    fsim.runSimulator(50);
+    asim.runSimulator(50);
+
+    // each step writes its results back to the items
+    float[] loc = asim.getLocationArray();
+    assertEquals(loc[14], aitems[7].location[0], 0.0f);
+    assertEquals(loc[15], aitems[7].location[1], 0.0f);
+
+    // direct ForceItem edits are picked up by loadItems
+    fitems[7].location[0] = aitems[7].location[0] = -100;
+    fitems[7].mass = aitems[7].mass = 3;
+    asim.loadItems();
+    fsim.runSimulator(50);
+    asim.runSimulator(50);
+    assertSameState(fsim, asim);
+  }
+
+  /**
+   * Run steps the way ForceDirectedLayout does, clearing the simulator and
+   * adding the items and springs again before every step.
+   */
+  private void runLayoutCycles(boolean nbody) {
+    ForceSimulator[] sims = { new ForceSimulator(), new ArrayForceSimulator() };
+    ForceItem[][] items = new ForceItem[2][NITEMS];
+    for (int k = 0; k < 2; k++) {
+      if (nbody) {
+        sims[k].addForce(new NBodyForce());
+      }
+      sims[k].addForce(new SpringForce());
+      sims[k].addForce(new DragForce());
+      Random r = new Random(17L);
+      for (int i = 0; i < NITEMS; i++) {
+        items[k][i] = new ForceItem();
+        items[k][i].location[0] = 500 * r.nextFloat();
+        items[k][i].location[1] = 500 * r.nextFloat();
+      }
+    }
+    float x0 = items[1][1].location[0], y0 = items[1][1].location[1];
+    for (int step = 0; step < NSTEPS; step++) {
+      for (int k = 0; k < 2; k++) {
+        sims[k].clear();
+        for (int i = 0; i < NITEMS; i++) {
+          sims[k].addItem(items[k][i]);
+        }
+        for (int i = 1; i < NITEMS; i++) {
+          sims[k].addSpring(items[k][i], items[k][(i * 7) % i]);
+        }
+        sims[k].runSimulator(50);
+      }
+    }
+    for (int i = 0; i < NITEMS; i++) {
+      for (int d = 0; d < 2; d++) {
+        float a = items[0][i].location[d], b = items[1][i].location[d];
+        assertEquals(a, b, 1e-3f * (1 + Math.abs(a)));
+        a = items[0][i].velocity[d];
+        b = items[1][i].velocity[d];
+        assertEquals(a, b, 1e-3f * (1 + Math.abs(a)));
+      }
+    }
+    assertTrue(items[1][1].location[0] != x0 || items[1][1].location[1] != y0);
+  }
+
+  public void testLayoutCyclesArrayForces() {
+    runLayoutCycles(false);
+  }
+
+  public void testLayoutCyclesNBody() {
+    runLayoutCycles(true);
+  }
+
+}
@@ -0,0 +1,59 @@
+package test.prefuse.util.force;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import prefuse.util.force.ForceItem;
+import prefuse.util.force.ForceSimulator;
+import prefuse.util.force.NBodyForce;
+
+public class NBodyForceTest extends TestCase {
+
+  // above the item count at which the quadtree is built in parallel
+  static final int NITEMS = 6000;
+
+  private ForceSimulator simulator(int parallelism, long seed) {
+    ForceSimulator fsim = new ForceSimulator();
+    fsim.setParallelism(parallelism);
+    fsim.addForce(new NBodyForce());
+    Random r = new Random(seed);
+    for (int i = 0; i < NITEMS; i++) {
+      ForceItem item = new ForceItem();
+      item.mass = 0.5f + r.nextFloat();
+      item.location[0] = 1000 * r.nextFloat();
+      item.location[1] = 1000 * r.nextFloat();
+      fsim.addItem(item);
+    }
+    return fsim;
+  }
+
+  private static float[] forces(ForceSimulator fsim) {
+    float[] f = new float[2 * fsim.getItemCount()];
+    int i = 0;
+    for (Iterator iter = fsim.getItems(); iter.hasNext();) {
+      ForceItem item = (ForceItem) iter.next();
+      f[i++] = item.force[0];
+      f[i++] = item.force[1];
+    }
+    return f;
+  }
+
+  public void testParallelMatchesSerial() {
+    ForceSimulator serial = simulator(1, 42L);
+    ForceSimulator parallel = simulator(4, 42L);
+    for (int step = 0; step < 3; step++) {
+      serial.accumulate();
+      parallel.accumulate();
+      float[] fs = forces(serial);
+      float[] fp = forces(parallel);
+      assertEquals(fs.length, fp.length);
+      for (int i = 0; i < fs.length; i++) {
+        assertEquals("force " + i + " in step " + step, fs[i], fp[i], 0.0f);
+      }
+      serial.runSimulator(50);
+      parallel.runSimulator(50);
+    }
+  }
+
+}
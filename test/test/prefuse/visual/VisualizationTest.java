@@ -7,6 +7,9 @@ import prefuse.data.Node;
 import prefuse.data.Table;
 import prefuse.data.Tuple;
 import prefuse.data.tuple.TupleSet;
+import prefuse.render.DefaultRendererFactory;
+import prefuse.render.DotRenderer;
+import prefuse.render.Renderer;
 import prefuse.visual.NodeItem;
 import prefuse.visual.VisualGraph;
 import prefuse.visual.VisualItem;
@@ -146,4 +149,20 @@ public class VisualizationTest extends TestCase {
     assertEquals(m_vn0, m_vis.getVisualItem("g.nodes", m_n0));
   }
 
+  public void testLevelOfDetail() {
+    DefaultRendererFactory rf = new DefaultRendererFactory();
+    m_vt0.setBounds(0, 0, 10, 10);
+    m_vn0.setBounds(0, 0, 10, 10);
+    // without a matching rule, items are drawn as usual
+    assertNull(rf.getRenderer(m_vt0, 0.5));
+
+    Renderer dot = new DotRenderer();
+    rf.addLevelOfDetail("INGROUP('t')", 8, dot);
+    assertNull(rf.getRenderer(m_vt0, 1.0));
+    assertSame(dot, rf.getRenderer(m_vt0, 0.5));
+    assertNull(rf.getRenderer(m_vn0, 0.5));
+    rf.clearLevelOfDetail();
+    assertNull(rf.getRenderer(m_vt0, 0.5));
+  }
+
 }